@@ -22,23 +22,33 @@ import org.databene.commons.SystemInfo;
 
 /**
  * Collects the differences between two data structures.
+ * If a {@link DiffListener} is provided as sink, the details are forwarded to it instead of being held in memory,
+ * e.g. to a {@link BoundedDiffCollector} or a {@link DiffWriter}, and only their number is tracked.
  * Created: 19.06.2014 15:58:59
  * @since 1.0.5
  * @author Volker Bergmann
  */
 
-public class AggregateDiff {
+public class AggregateDiff implements DiffListener {
 	
 	private Object expected;
 	private Object actual;
 	private ComparisonSettings comparisonSettings;
 	private List<DiffDetail> details;
+	private DiffListener sink;
+	private int detailCount;
 	
 	public AggregateDiff(Object expected, Object actual, ComparisonSettings comparisonSettings) {
+		this(expected, actual, comparisonSettings, null);
+	}
+	
+	public AggregateDiff(Object expected, Object actual, ComparisonSettings comparisonSettings, DiffListener sink) {
 		this.expected = expected;
 		this.actual = actual;
 		this.comparisonSettings = comparisonSettings;
 		this.details = new ArrayList<DiffDetail>();
+		this.sink = sink;
+		this.detailCount = 0;
 	}
 	
 	public Object getExpected() {
@@ -53,24 +63,44 @@ public class AggregateDiff {
 		return comparisonSettings;
 	}
 	
+	public DiffListener getSink() {
+		return sink;
+	}
+	
 	public boolean isEmpty() {
-		return details.isEmpty();
+		return (detailCount == 0);
 	}
 	
+	/** @return the collected details, an empty list if they have been forwarded to a sink */
 	public List<DiffDetail> getDetails() {
 		return details;
 	}
 	
+	/** @return the number of details, including the ones forwarded to a sink */
 	public int getDetailCount() {
-		return details.size();
+		return detailCount;
 	}
 	
+	/** @param index the index of the detail
+	 * @return the detail at the given index
+	 * @throws IllegalStateException if the details have been forwarded to a sink */
 	public DiffDetail getDetail(int index) {
+		if (sink != null)
+			throw new IllegalStateException("Diff details are not available, since they have been forwarded to " + sink);
 		return this.details.get(index);
 	}
 	
 	public void addDetail(DiffDetail diff) {
-		this.details.add(diff);
+		if (sink != null)
+			sink.diffFound(diff);
+		else
+			this.details.add(diff);
+		this.detailCount++;
+	}
+
+	@Override
+	public void diffFound(DiffDetail diff) {
+		addDetail(diff);
 	}
 
 	@Override
@@ -78,7 +108,7 @@ public class AggregateDiff {
 		String LF = SystemInfo.getLineSeparator();
 		StringBuilder builder = new StringBuilder("Aggregate diff:");
 		if (details.isEmpty()) {
-			builder.append(" Empty");
+			builder.append(detailCount == 0 ? " Empty" : " " + detailCount + " details forwarded to " + sink);
 		} else {
 			builder.append(LF);
 			for (DiffDetail detail : details)
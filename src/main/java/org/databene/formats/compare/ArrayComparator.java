@@ -14,11 +14,22 @@
  */
 package org.databene.formats.compare;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.databene.commons.Assert;
 import org.databene.commons.ProgrammerError;
 
 /**
  * Compares arrays of objects using a {@link ComparisonModel}.
+ * If the model is a {@link HashingComparisonModel}, the elements of the second array are indexed 
+ * by hash value and correspondence key, so that the candidates of an element are looked up 
+ * instead of scanning the whole array. The result is the same in both cases.
+ * In the ordered mode, the arrays are compared as sequences: A minimal edit script is calculated 
+ * with Myers' O((N+M)D) difference algorithm and reported as missing and unexpected elements, 
+ * corresponding elements removed and inserted at the same position are reported as different. 
+ * Moved elements are not detected in this mode.
  * Created: 20.11.2013 17:40:38
  * @since 1.0.5
  * @author Volker Bergmann
@@ -33,7 +44,13 @@ public class ArrayComparator {
 	
 	public static ArrayComparisonResult compare(Object[] array1, Object[] array2, ComparisonModel model, 
 			String parentLocator1, String parentLocator2, DiffFactory diffFactory) {
-		return new ArrayComparator(array1, array2, model, parentLocator1, parentLocator2, diffFactory).compare();
+		return compare(array1, array2, model, parentLocator1, parentLocator2, diffFactory, false);
+	}
+	
+	public static ArrayComparisonResult compare(Object[] array1, Object[] array2, ComparisonModel model, 
+			String parentLocator1, String parentLocator2, DiffFactory diffFactory, boolean ordered) {
+		ArrayComparator comparator = new ArrayComparator(array1, array2, model, parentLocator1, parentLocator2, diffFactory);
+		return (ordered ? comparator.compareOrdered() : comparator.compare());
 	}
 	
 	private String parentLocator1;
@@ -44,6 +61,12 @@ public class ArrayComparator {
 	private Match[] matches1;
 	private Match[] matches2;
 	private DiffFactory diffFactory;
+	private HashingComparisonModel hashingModel;
+	private Map<Integer, Bucket> hashIndex;
+	private Map<Object, Bucket> keyIndex;
+	private Bucket unkeyed;
+	private int[] hashes1;
+	private int[] hashes2;
 		
 	private ArrayComparator(Object[] array1, Object[] array2, ComparisonModel model, String parentLocator1, String parentLocator2, DiffFactory diffFactory) {
 		this.array1 = array1;
@@ -54,6 +77,7 @@ public class ArrayComparator {
 		this.matches1 = new Match[array1.length];
 		this.matches2 = new Match[array2.length];
 		this.diffFactory = diffFactory;
+		this.hashingModel = (model instanceof HashingComparisonModel ? (HashingComparisonModel) model : null);
 	}
 	
 	private ArrayComparisonResult compare() {
@@ -139,6 +163,151 @@ public class ArrayComparator {
 		return result;
 	}
 
+	private ArrayComparisonResult compareOrdered() {
+		// 1. step: find the longest common subsequence of equal elements
+		int[] partners1 = new int[array1.length];
+		int[] partners2 = new int[array2.length];
+		Arrays.fill(partners1, -1);
+		Arrays.fill(partners2, -1);
+		if (hashingModel != null) {
+			hashes1 = hashes(array1);
+			hashes2 = hashes(array2);
+		}
+		matchCommonSubsequence(0, array1.length, 0, array2.length, partners1, partners2);
+		
+		// 2. step: report the elements between the common ones
+		ArrayComparisonResult result = new ArrayComparisonResult();
+		int i1 = 0;
+		int i2 = 0;
+		while (i1 < array1.length || i2 < array2.length) {
+			if (i1 < array1.length && partners1[i1] == i2) {
+				i1++;
+				i2++;
+			} else {
+				int end1 = i1;
+				while (end1 < array1.length && partners1[end1] < 0)
+					end1++;
+				int end2 = i2;
+				while (end2 < array2.length && partners2[end2] < 0)
+					end2++;
+				addHunk(i1, end1, i2, end2, result);
+				i1 = end1;
+				i2 = end2;
+			}
+		}
+		return result;
+	}
+
+	/** Reports a sequence of removed elements and the sequence of elements inserted at the same position. 
+	 *  Corresponding elements are paired in order and reported as different. */
+	private void addHunk(int start1, int end1, int start2, int end2, ArrayComparisonResult result) {
+		int i2 = start2;
+		for (int i1 = start1; i1 < end1; i1++) {
+			Object e1 = array1[i1];
+			int partner = -1;
+			for (int candidate = i2; candidate < end2 && partner < 0; candidate++)
+				if (model.correspond(e1, array2[candidate]))
+					partner = candidate;
+			if (partner >= 0) {
+				for (; i2 < partner; i2++)
+					addUnexpected(i2, result);
+				result.add(diffFactory.different(e1, array2[partner], model.classifierOf(e1), locator1(array1, i1), locator2(array2, partner)));
+				i2 = partner + 1;
+			} else {
+				result.add(diffFactory.missing(e1, model.classifierOf(e1), locator1(array1, i1)));
+			}
+		}
+		for (; i2 < end2; i2++)
+			addUnexpected(i2, result);
+	}
+
+	private void addUnexpected(int i2, ArrayComparisonResult result) {
+		Object newObject = array2[i2];
+		result.add(diffFactory.unexpected(newObject, model.classifierOf(newObject), locator2(array2, i2)));
+	}
+
+	/** Matches the longest common subsequence of array1[start1..end1) and array2[start2..end2), 
+	 *  using the linear space variant of Myers' algorithm which divides the problem at the middle snake. */
+	private void matchCommonSubsequence(int start1, int end1, int start2, int end2, int[] partners1, int[] partners2) {
+		// match common prefix and suffix
+		while (start1 < end1 && start2 < end2 && equalAt(start1, start2)) {
+			partners1[start1] = start2;
+			partners2[start2++] = start1++;
+		}
+		while (start1 < end1 && start2 < end2 && equalAt(end1 - 1, end2 - 1)) {
+			partners1[--end1] = --end2;
+			partners2[end2] = end1;
+		}
+		if (start1 == end1 || start2 == end2)
+			return;
+		// divide at the middle snake and conquer
+		int[] snake = middleSnake(start1, end1, start2, end2);
+		int x = snake[0];
+		int y = snake[1];
+		for (; x < snake[2]; x++, y++) {
+			partners1[x] = y;
+			partners2[y] = x;
+		}
+		matchCommonSubsequence(start1, snake[0], start2, snake[1], partners1, partners2);
+		matchCommonSubsequence(snake[2], end1, snake[3], end2, partners1, partners2);
+	}
+
+	/** @return the start and end positions of the middle snake as {startX, startY, endX, endY} */
+	private int[] middleSnake(int start1, int end1, int start2, int end2) {
+		int n = end1 - start1;
+		int m = end2 - start2;
+		int delta = n - m;
+		boolean odd = ((delta & 1) != 0);
+		int max = (n + m + 1) / 2 + 1;
+		int offset = max;
+		int[] forward = new int[2 * max + 2];  // furthest x on each diagonal k = x - y
+		int[] backward = new int[2 * max + 2]; // the same for the reversed sequences
+		for (int d = 0; d < max; d++) {
+			for (int k = -d; k <= d; k += 2) {
+				int x = (k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1]) ? 
+						forward[offset + k + 1] : forward[offset + k - 1] + 1);
+				int y = x - k;
+				int snakeX = x;
+				int snakeY = y;
+				while (x < n && y < m && equalAt(start1 + x, start2 + y)) {
+					x++;
+					y++;
+				}
+				forward[offset + k] = x;
+				int reverseK = delta - k;
+				if (odd && reverseK >= -(d - 1) && reverseK <= d - 1 && x + backward[offset + reverseK] >= n)
+					return new int[] { start1 + snakeX, start2 + snakeY, start1 + x, start2 + y };
+			}
+			for (int k = -d; k <= d; k += 2) {
+				int x = (k == -d || (k != d && backward[offset + k - 1] < backward[offset + k + 1]) ? 
+						backward[offset + k + 1] : backward[offset + k - 1] + 1);
+				int y = x - k;
+				int snakeX = x;
+				int snakeY = y;
+				while (x < n && y < m && equalAt(end1 - 1 - x, end2 - 1 - y)) {
+					x++;
+					y++;
+				}
+				backward[offset + k] = x;
+				int forwardK = delta - k;
+				if (!odd && forwardK >= -d && forwardK <= d && x + forward[offset + forwardK] >= n)
+					return new int[] { end1 - x, end2 - y, end1 - snakeX, end2 - snakeY };
+			}
+		}
+		throw new ProgrammerError("No middle snake found");
+	}
+
+	private boolean equalAt(int i1, int i2) {
+		return ((hashes1 == null || hashes1[i1] == hashes2[i2]) && model.equal(array1[i1], array2[i2]));
+	}
+
+	private int[] hashes(Object[] array) {
+		int[] hashes = new int[array.length];
+		for (int i = 0; i < array.length; i++)
+			hashes[i] = hashingModel.hashOf(array[i]);
+		return hashes;
+	}
+
 	private static int nextUnconsumed(Match[] matches, int startIndex) {
 		int index = startIndex;
 		while (index < matches.length && matches[index].consumed) {
@@ -148,6 +317,20 @@ public class ArrayComparator {
 	}
 
 	private int indexOf(Object element, Object[] array, Match[] matches) {
+		if (hashingModel != null) {
+			// only the candidates with the same hash value need to be checked
+			if (hashIndex == null)
+				buildHashIndex(array);
+			Bucket bucket = hashIndex.get(hashingModel.hashOf(element));
+			if (bucket == null)
+				return -1;
+			for (int k = bucket.skipMatched(matches); k < bucket.size; k++) {
+				int i = bucket.indices[k];
+				if (matches[i] == null && model.equal(element, array[i]))
+					return i;
+			}
+			return -1;
+		}
 		for (int i = 0; i < array.length; i++)
 			if (matches[i] == null && model.equal(element, array[i]))
 				return i;
@@ -155,12 +338,59 @@ public class ArrayComparator {
 	}
 	
 	private int indexOfSimilar(Object element, Object[] candidates, Match[] matches) {
+		Object key = (hashingModel != null ? hashingModel.correspondenceKeyOf(element) : null);
+		if (key != null) {
+			// only the candidates with the same key and the ones without key need to be checked, 
+			// they are merged in index order in order to find the same candidate as a full scan
+			if (keyIndex == null)
+				buildKeyIndex(candidates);
+			Bucket bucket = keyIndex.get(key);
+			int k = (bucket != null ? bucket.skipMatched(matches) : 0);
+			int u = unkeyed.skipMatched(matches);
+			int keyedSize = (bucket != null ? bucket.size : 0);
+			while (k < keyedSize || u < unkeyed.size) {
+				int i;
+				if (u >= unkeyed.size || (k < keyedSize && bucket.indices[k] < unkeyed.indices[u]))
+					i = bucket.indices[k++];
+				else
+					i = unkeyed.indices[u++];
+				if (matches[i] == null && model.correspond(element, candidates[i]))
+					return i;
+			}
+			return -1;
+		}
 		for (int i = 0; i < candidates.length; i++)
 			if (matches[i] == null && model.correspond(element, candidates[i]))
 				return i;
 		return -1;
 	}
 	
+	private void buildHashIndex(Object[] array) {
+		hashIndex = new HashMap<Integer, Bucket>();
+		for (int i = 0; i < array.length; i++) {
+			Integer hash = hashingModel.hashOf(array[i]);
+			Bucket bucket = hashIndex.get(hash);
+			if (bucket == null)
+				hashIndex.put(hash, bucket = new Bucket());
+			bucket.add(i);
+		}
+	}
+	
+	private void buildKeyIndex(Object[] candidates) {
+		keyIndex = new HashMap<Object, Bucket>();
+		unkeyed = new Bucket();
+		for (int i = 0; i < candidates.length; i++) {
+			Object key = hashingModel.correspondenceKeyOf(candidates[i]);
+			Bucket bucket = unkeyed;
+			if (key != null) {
+				bucket = keyIndex.get(key);
+				if (bucket == null)
+					keyIndex.put(key, bucket = new Bucket());
+			}
+			bucket.add(i);
+		}
+	}
+	
 	private String locator1(Object[] array, int index) {
 		return parentLocator1 + model.subPath(array, index);
 	}
@@ -170,6 +400,30 @@ public class ArrayComparator {
 	}
 	
 	
+	/** Holds the indices of candidates in ascending order. */
+	static class Bucket {
+		int[] indices = new int[4];
+		int size;
+		int start; // the leading indices before this one have already been matched
+		
+		void add(int index) {
+			if (size == indices.length)
+				indices = Arrays.copyOf(indices, size * 2);
+			indices[size++] = index;
+		}
+		
+		int skipMatched(Match[] matches) {
+			while (start < size && matches[indices[start]] != null)
+				start++;
+			return start;
+		}
+		
+		@Override
+		public String toString() {
+			return Arrays.toString(Arrays.copyOf(indices, size));
+		}
+	}
+	
 	static class Match {
 		public int i1, i2;
 		public int type;
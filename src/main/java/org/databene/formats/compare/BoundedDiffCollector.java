@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.compare;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.databene.commons.SystemInfo;
+
+/**
+ * {@link DiffListener} which keeps only the first details of a comparison and counts all of them
+ * by {@link DiffDetailType} and by locator, so that the memory consumption is bounded
+ * even for comparisons with a huge number of differences. The locators are counted
+ * without position predicates, e.g. '/list/item[3]/@id' is counted as '/list/item/@id'.
+ * At most {@link #getMaxLocators()} locators are counted by a {@link TopLocatorCounter}, so the counts are exact
+ * as long as there are not more distinct locators, otherwise they are estimates of the most frequent ones.
+ * Instances are not thread-safe.
+ * Created: 18.10.2026 18:24:12
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class BoundedDiffCollector implements DiffListener {
+
+	public static final int DEFAULT_MAX_DETAILS = 1000;
+	public static final int DEFAULT_MAX_LOCATORS = 1000;
+
+	private final int maxDetails;
+	private final List<DiffDetail> details;
+	private final long[] typeCounts;
+	private final TopLocatorCounter locatorCounter;
+	private long totalCount;
+
+	public BoundedDiffCollector() {
+		this(DEFAULT_MAX_DETAILS);
+	}
+
+	/** @param maxDetails the maximum number of details to keep */
+	public BoundedDiffCollector(int maxDetails) {
+		this(maxDetails, DEFAULT_MAX_LOCATORS);
+	}
+
+	/** @param maxDetails the maximum number of details to keep
+	 * @param maxLocators the maximum number of locators to count */
+	public BoundedDiffCollector(int maxDetails, int maxLocators) {
+		if (maxDetails < 0)
+			throw new IllegalArgumentException("maxDetails must not be negative: " + maxDetails);
+		if (maxLocators < 1)
+			throw new IllegalArgumentException("maxLocators must be positive: " + maxLocators);
+		this.maxDetails = maxDetails;
+		this.details = new ArrayList<DiffDetail>();
+		this.typeCounts = new long[DiffDetailType.values().length];
+		this.locatorCounter = new TopLocatorCounter(maxLocators);
+		this.totalCount = 0;
+	}
+
+	@Override
+	public void diffFound(DiffDetail diff) {
+		if (details.size() < maxDetails)
+			details.add(diff);
+		typeCounts[diff.getType().ordinal()]++;
+		locatorCounter.diffFound(diff);
+		totalCount++;
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public int getMaxDetails() {
+		return maxDetails;
+	}
+
+	public int getMaxLocators() {
+		return locatorCounter.getCapacity();
+	}
+
+	/** @return the first details which have been reported */
+	public List<DiffDetail> getDetails() {
+		return details;
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/** @return true if more details have been reported than were kept */
+	public boolean isTruncated() {
+		return (totalCount > details.size());
+	}
+
+	public long getCount(DiffDetailType type) {
+		return typeCounts[type.ordinal()];
+	}
+
+	/** @return the number of details by locator in descending order of the counts 
+	 * and, for equal counts, in the order of their first occurrence */
+	public Map<String, Long> getLocatorCounts() {
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+		for (TopLocatorCounter.Counter counter : locatorCounter.getTop(locatorCounter.getCapacity()))
+			result.put(counter.getLocator(), counter.getCount());
+		return result;
+	}
+
+
+	// java.lang.Object overrides --------------------------------------------------------------------------------------
+
+	@Override
+	public String toString() {
+		String LF = SystemInfo.getLineSeparator();
+		StringBuilder builder = new StringBuilder(getClass().getSimpleName()).append(": ").append(totalCount).append(" diffs");
+		for (DiffDetailType type : DiffDetailType.values())
+			if (typeCounts[type.ordinal()] > 0)
+				builder.append(", ").append(typeCounts[type.ordinal()]).append(' ').append(type);
+		for (Map.Entry<String, Long> entry : getLocatorCounts().entrySet())
+			builder.append(LF).append("- ").append(entry.getKey()).append(": ").append(entry.getValue());
+		return builder.toString();
+	}
+
+
+	// helpers ---------------------------------------------------------------------------------------------------------
+
+	/** Provides the locator of the expected side or, if not available, of the actual side, without position predicates.
+	 * @param diff the diff
+	 * @return the normalized locator */
+	static String normalizedLocator(DiffDetail diff) {
+		String locator = (diff.getLocatorOfExpected() != null ? diff.getLocatorOfExpected() : diff.getLocatorOfActual());
+		if (locator == null || locator.indexOf('[') < 0)
+			return locator;
+		StringBuilder builder = new StringBuilder(locator.length());
+		int i = 0;
+		while (i < locator.length()) {
+			char c = locator.charAt(i);
+			int end = (c == '[' ? locator.indexOf(']', i) : -1);
+			if (end > i + 1 && isDigits(locator, i + 1, end)) {
+				i = end + 1;
+			} else {
+				builder.append(c);
+				i++;
+			}
+		}
+		return builder.toString();
+	}
+
+	private static boolean isDigits(String text, int start, int end) {
+		for (int i = start; i < end; i++)
+			if (!Character.isDigit(text.charAt(i)))
+				return false;
+		return true;
+	}
+
+}
@@ -29,10 +29,13 @@ public class ComparisonSettings {
 
 	protected ComparisonModel model;
 	private Set<LocalDiffType> toleratedDiffs;
+	private boolean orderedDiff;
+	private int maxValueLength;
 
 	public ComparisonSettings(ComparisonModel model) {
 		this.model = model;
 		this.toleratedDiffs = new HashSet<LocalDiffType>();
+		this.maxValueLength = DiffFactory.UNLIMITED;
 	}
 
 	public ComparisonModel getModel() {
@@ -43,6 +46,29 @@ public class ComparisonSettings {
 		model.addKeyExpression(locator, expression);
 	}
 
+	/** Tells if child sequences are compared in the ordered mode of the {@link ArrayComparator}, 
+	 *  which reports a minimal edit script instead of moved elements.
+	 *  @return true if the ordered mode is used, otherwise false */
+	public boolean isOrderedDiff() {
+		return orderedDiff;
+	}
+	
+	public void setOrderedDiff(boolean orderedDiff) {
+		this.orderedDiff = orderedDiff;
+	}
+	
+	/** Tells to which length the formatted values in the text of a {@link DiffDetail} are shortened.
+	 *  @return the maximum value length or {@link DiffFactory#UNLIMITED} */
+	public int getMaxValueLength() {
+		return maxValueLength;
+	}
+	
+	public void setMaxValueLength(int maxValueLength) {
+		if (maxValueLength < DiffFactory.UNLIMITED)
+			throw new IllegalArgumentException("Illegal maximum value length: " + maxValueLength);
+		this.maxValueLength = maxValueLength;
+	}
+	
 	public Set<LocalDiffType> getToleratedDiffs() {
 		return toleratedDiffs;
 	}
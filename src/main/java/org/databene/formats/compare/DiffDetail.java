@@ -17,9 +17,12 @@ package org.databene.formats.compare;
 
 import org.databene.commons.Converter;
 import org.databene.commons.NullSafeComparator;
+import org.databene.commons.StringUtil;
 
 /**
  * Represents a difference between the state of two objects.
+ * The text representation is rendered lazily on the first call to {@link #toString()} and then cached.
+ * If a maximum value length is set, each formatted value is shortened to that length.
  * Created: 21.11.2013 11:29:35
  * @since 1.0.5
  * @author Volker Bergmann
@@ -34,12 +37,20 @@ public class DiffDetail {
 	protected final String locatorOfExpected;
 	protected final String locatorOfActual;
 	protected final Converter<Object, String> formatter;
+	protected final int maxValueLength;
+	private volatile String text;
 	
 	public DiffDetail(Object expected, Object actual, String objectClassifier, DiffDetailType type, Converter<Object, String> formatter) {
 		this(expected, actual, objectClassifier, type, null, null, formatter);
 	}
 	
 	public DiffDetail(Object expected, Object actual, String objectClassifier, DiffDetailType type, String locatorOfExpected, String locatorOfActual, Converter<Object, String> formatter) {
+		this(expected, actual, objectClassifier, type, locatorOfExpected, locatorOfActual, formatter, DiffFactory.UNLIMITED);
+	}
+	
+	/** @param maxValueLength the maximum length of each formatted value, or {@link DiffFactory#UNLIMITED} */
+	public DiffDetail(Object expected, Object actual, String objectClassifier, DiffDetailType type, 
+			String locatorOfExpected, String locatorOfActual, Converter<Object, String> formatter, int maxValueLength) {
 		this.expected = expected;
 		this.actual = actual;
 		this.objectClassifier = objectClassifier;
@@ -47,6 +58,8 @@ public class DiffDetail {
 		this.locatorOfExpected = locatorOfExpected;
 		this.locatorOfActual = locatorOfActual;
 		this.formatter = formatter;
+		this.maxValueLength = maxValueLength;
+		this.text = null;
 	}
 
 	public Object getExpected() {
@@ -77,6 +90,10 @@ public class DiffDetail {
 		return formatter;
 	}
 	
+	public int getMaxValueLength() {
+		return maxValueLength;
+	}
+	
 	
 	// java.lang.Object overrides --------------------------------------------------------------------------------------
 	
@@ -109,6 +126,16 @@ public class DiffDetail {
 
 	@Override
 	public String toString() {
+		String result = text;
+		if (result == null) // benign race: concurrent callers render the same text
+			text = result = render();
+		return result;
+	}
+	
+	
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private String render() {
 		switch (type) {
 			case DIFFERENT :  return formatDifferent();
 			case MISSING :    return formatMissing();
@@ -117,9 +144,6 @@ public class DiffDetail {
 			default :         return formatGenericDiff();
 		}
 	}
-	
-	
-	// private helpers -------------------------------------------------------------------------------------------------
 
 	private String formatDifferent() {
 		if (NullSafeComparator.equals(locatorOfExpected, locatorOfActual))
@@ -147,7 +171,10 @@ public class DiffDetail {
 	}
 	
 	private String formatObject(Object value) {
-		return formatter.convert(value);
+		String result = formatter.convert(value);
+		if (maxValueLength >= 0 && result != null)
+			result = StringUtil.limitLengthWithEllipsis(result, maxValueLength);
+		return result;
 	}
 	
 }
@@ -19,6 +19,8 @@ import org.databene.commons.converter.ToStringConverter;
 
 /**
  * Creates {@link DiffDetail} objects.
+ * The created details render their values with the formatter only when their text is requested,
+ * shortened to the maximum value length if one is set.
  * Created: 21.11.2013 12:25:59
  * @since 1.0.5
  * @author Volker Bergmann
@@ -26,7 +28,10 @@ import org.databene.commons.converter.ToStringConverter;
 
 public class DiffFactory {
 	
+	public static final int UNLIMITED = -1;
+	
 	private Converter<Object, String> formatter;
+	private int maxValueLength;
 	
 	public DiffFactory() {
 		this(new ToStringConverter());
@@ -34,6 +39,18 @@ public class DiffFactory {
 
 	public DiffFactory(Converter<Object, String> formatter) {
 		this.formatter = formatter;
+		this.maxValueLength = UNLIMITED;
+	}
+	
+	public int getMaxValueLength() {
+		return maxValueLength;
+	}
+	
+	/** @param maxValueLength the maximum length of a formatted value in a diff text, or {@link #UNLIMITED} */
+	public void setMaxValueLength(int maxValueLength) {
+		if (maxValueLength < UNLIMITED)
+			throw new IllegalArgumentException("Illegal maximum value length: " + maxValueLength);
+		this.maxValueLength = maxValueLength;
 	}
 
 	public DiffDetail missing(Object object, String objectClassifier, String locator) {
@@ -54,7 +71,7 @@ public class DiffFactory {
 
 	public DiffDetail genericDiff(Object expected, Object actual, String objectClassifier,
 			DiffDetailType diffType, String locatorOfExpected, String locatorOfActual) {
-		return new DiffDetail(expected, actual, objectClassifier, diffType, locatorOfExpected, locatorOfActual, formatter);
+		return new DiffDetail(expected, actual, objectClassifier, diffType, locatorOfExpected, locatorOfActual, formatter, maxValueLength);
 	}
 	
 }
@@ -0,0 +1,26 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.compare;
+
+/**
+ * Receives the {@link DiffDetail}s of a comparison as soon as they are found.
+ * Created: 18.10.2026 15:12:40
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public interface DiffListener {
+	void diffFound(DiffDetail diff);
+}
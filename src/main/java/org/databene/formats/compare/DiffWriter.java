@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.compare;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.databene.commons.StringUtil;
+import org.databene.commons.SystemInfo;
+
+/**
+ * {@link DiffListener} which writes each {@link DiffDetail} as a line of text to a {@link Writer}, with normalized white space,
+ * so that the details of a comparison can be stored in a file without being held in memory.
+ * Created: 18.10.2026 18:39:50
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class DiffWriter implements DiffListener, Closeable {
+
+	private final Writer out;
+	private final String lineSeparator;
+	private long count;
+
+	public DiffWriter(Writer out) {
+		this.out = out;
+		this.lineSeparator = SystemInfo.getLineSeparator();
+		this.count = 0;
+	}
+
+	@Override
+	public void diffFound(DiffDetail diff) {
+		try {
+			out.write(StringUtil.normalizeSpace(diff.toString()));
+			out.write(lineSeparator);
+			count++;
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing diff " + diff, e);
+		}
+	}
+
+	/** @return the number of details written */
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + count + " diffs]";
+	}
+
+}
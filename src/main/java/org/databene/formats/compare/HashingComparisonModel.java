@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.compare;
+
+/**
+ * {@link ComparisonModel} which provides hash values and correspondence keys,
+ * so that the {@link ArrayComparator} can look up the candidates of an element
+ * in buckets instead of scanning the whole array.
+ * Created: 18.10.2026 14:02:18
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public interface HashingComparisonModel extends ComparisonModel {
+
+	/** Calculates a hash value which is consistent with {@link #equal(Object, Object)}:
+	 * Objects which are equal must have the same hash value.
+	 * @param object the object to hash
+	 * @return a hash value */
+	int hashOf(Object object);
+
+	/** Provides a key which is consistent with {@link #correspond(Object, Object)}:
+	 * Objects which correspond must have equal keys. An object for which no key can be determined
+	 * is checked against all candidates.
+	 * @param object the object for which to determine the key
+	 * @return the correspondence key or null if the object may correspond to objects of any key */
+	Object correspondenceKeyOf(Object object);
+
+}
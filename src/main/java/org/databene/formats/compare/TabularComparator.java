@@ -0,0 +1,534 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.compare;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.databene.commons.IOUtil;
+import org.databene.commons.NullSafeComparator;
+import org.databene.formats.DataContainer;
+import org.databene.formats.DataIterator;
+import org.databene.formats.DataSource;
+
+/**
+ * Compares two tables, e.g. from CSV or XLS files, which are provided as {@link DataSource}s of arrays.
+ * Rows are matched by the values of their key columns, so the row order is irrelevant.
+ * Both tables are hash-partitioned on the key columns. When the number of buffered rows exceeds
+ * {@link #getMaxRowsInMemory()}, the partition buffers are spilled to temporary files, so that only one
+ * partition per thread needs to be held in memory for comparison. The partitions are compared in parallel
+ * and their {@link DiffDetail}s are reported in the order of the partitions. Within a partition,
+ * different and unexpected rows are reported in the order of the actual table, followed by the missing rows.<br>
+ * <br>
+ * With header rows, the columns of both tables are matched by their names, so the column order is irrelevant.
+ * A column which exists in only one of the tables is reported once with the classifier {@link #COLUMN}
+ * and a locator like '/header/name', and its cells are not compared. Without header rows,
+ * the columns are matched by position.<br>
+ * <br>
+ * Unmatched rows are reported with the classifier {@link #ROW} and a locator like '/row[12]',
+ * the differing cells of matched rows with the classifier {@link #CELL} and a locator like '/row[12]/name',
+ * using the column names of a header row or positions like '/row[12]/column[3]'.
+ * Row numbers count the data rows starting with 1. Cells are compared with equals().
+ * Created: 18.10.2026 17:31:05
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class TabularComparator {
+
+	public static final String COLUMN = "column";
+	public static final String ROW = "row";
+	public static final String CELL = "cell";
+
+	public static final int DEFAULT_MAX_ROWS_IN_MEMORY = 1000000;
+	public static final int DEFAULT_PARTITION_COUNT = 64;
+
+	private final int[] keyColumns;
+	private DiffFactory diffFactory;
+	private boolean headerRow;
+	private int maxRowsInMemory;
+	private int partitionCount;
+	private int parallelism;
+	private File tempDirectory;
+
+	/** @param keyColumns the zero-based indices of the columns which identify a row */
+	public TabularComparator(int... keyColumns) {
+		if (keyColumns.length == 0)
+			throw new IllegalArgumentException("No key columns specified");
+		this.keyColumns = keyColumns;
+		this.diffFactory = new DiffFactory();
+		this.headerRow = false;
+		this.maxRowsInMemory = DEFAULT_MAX_ROWS_IN_MEMORY;
+		this.partitionCount = DEFAULT_PARTITION_COUNT;
+		this.parallelism = Runtime.getRuntime().availableProcessors();
+		this.tempDirectory = null;
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public DiffFactory getDiffFactory() {
+		return diffFactory;
+	}
+
+	public void setDiffFactory(DiffFactory diffFactory) {
+		this.diffFactory = diffFactory;
+	}
+
+	/** @return true if the first row of each table contains the column names */
+	public boolean isHeaderRow() {
+		return headerRow;
+	}
+
+	public void setHeaderRow(boolean headerRow) {
+		this.headerRow = headerRow;
+	}
+
+	public int getMaxRowsInMemory() {
+		return maxRowsInMemory;
+	}
+
+	public void setMaxRowsInMemory(int maxRowsInMemory) {
+		if (maxRowsInMemory < 1)
+			throw new IllegalArgumentException("maxRowsInMemory must be positive: " + maxRowsInMemory);
+		this.maxRowsInMemory = maxRowsInMemory;
+	}
+
+	public int getPartitionCount() {
+		return partitionCount;
+	}
+
+	public void setPartitionCount(int partitionCount) {
+		if (partitionCount < 1)
+			throw new IllegalArgumentException("Partition count must be positive: " + partitionCount);
+		this.partitionCount = partitionCount;
+	}
+
+	/** @return the number of threads which compare partitions */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		this.parallelism = parallelism;
+	}
+
+	/** @return the directory for spilled partitions, null for the system's default temp directory */
+	public File getTempDirectory() {
+		return tempDirectory;
+	}
+
+	public void setTempDirectory(File tempDirectory) {
+		this.tempDirectory = tempDirectory;
+	}
+
+
+	// interface -------------------------------------------------------------------------------------------------------
+
+	/** Compares two tables and collects the differences.
+	 * Since the result is held in memory, this is only useful for tables with few differences.
+	 * @param expected the expected table
+	 * @param actual the actual table
+	 * @return the collected differences */
+	public AggregateDiff compare(DataSource<? extends Object[]> expected, DataSource<? extends Object[]> actual) {
+		AggregateDiff diffs = new AggregateDiff(expected, actual, null);
+		compare(expected, actual, diffs);
+		return diffs;
+	}
+
+	public void compare(DataSource<? extends Object[]> expected, DataSource<? extends Object[]> actual, DiffListener listener) {
+		Partition[] partitions = new Partition[partitionCount];
+		for (int i = 0; i < partitionCount; i++)
+			partitions[i] = new Partition();
+		try {
+			Spiller spiller = new Spiller(partitions);
+			String[] expectedHeader = partition(expected, 0, partitions, spiller);
+			String[] actualHeader = partition(actual, 1, partitions, spiller);
+			ColumnMapping columns = null;
+			if (expectedHeader != null && actualHeader != null) {
+				columns = new ColumnMapping(expectedHeader, actualHeader);
+				reportColumnDiffs(columns, listener);
+			}
+			comparePartitions(partitions, columns, listener);
+		} finally {
+			for (Partition partition : partitions)
+				partition.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + Arrays.toString(keyColumns);
+	}
+
+
+	// partitioning ----------------------------------------------------------------------------------------------------
+
+	/** Distributes the rows of a table to the partitions.
+	 * @return the column names if the table has a header row, otherwise null */
+	private <E> String[] partition(DataSource<E> source, int side, Partition[] partitions, Spiller spiller) {
+		String[] header = null;
+		DataIterator<E> iterator = source.iterator();
+		try {
+			DataContainer<E> container = new DataContainer<E>();
+			if (headerRow && iterator.next(container) != null)
+				header = columnNames((Object[]) container.getData());
+			long rowNumber = 0;
+			while (iterator.next(container) != null) {
+				Object[] cells = (Object[]) container.getData();
+				Row row = new Row(++rowNumber, cells.clone(), key(cells));
+				partitions[(row.key.hashCode() & Integer.MAX_VALUE) % partitions.length].add(side, row);
+				spiller.rowAdded();
+			}
+		} finally {
+			IOUtil.close(iterator);
+		}
+		return header;
+	}
+
+	private List<Object> key(Object[] cells) {
+		Object[] key = new Object[keyColumns.length];
+		for (int i = 0; i < keyColumns.length; i++)
+			key[i] = (keyColumns[i] < cells.length ? cells[keyColumns[i]] : null);
+		return Arrays.asList(key);
+	}
+
+	private static String[] columnNames(Object[] headerCells) {
+		String[] names = new String[headerCells.length];
+		for (int i = 0; i < headerCells.length; i++)
+			names[i] = (headerCells[i] != null ? headerCells[i].toString() : positionalName(i));
+		return names;
+	}
+
+	static String positionalName(int column) {
+		return "column[" + (column + 1) + "]";
+	}
+
+
+	// comparison ------------------------------------------------------------------------------------------------------
+
+	private void reportColumnDiffs(ColumnMapping columns, DiffListener listener) {
+		for (String name : columns.missingColumns)
+			listener.diffFound(diffFactory.missing(name, COLUMN, headerLocator(name)));
+		for (String name : columns.unexpectedColumns)
+			listener.diffFound(diffFactory.unexpected(name, COLUMN, headerLocator(name)));
+	}
+
+	private void comparePartitions(Partition[] partitions, ColumnMapping columns, DiffListener listener) {
+		if (parallelism == 1 || partitions.length == 1) {
+			for (Partition partition : partitions)
+				report(comparePartition(partition, columns), listener);
+			return;
+		}
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			// keep at most one partition per thread in flight, so that only the diffs of these partitions
+			// are held in memory while waiting to be reported in partition order
+			Deque<PartitionComparison> window = new ArrayDeque<PartitionComparison>(parallelism);
+			int next = 0;
+			while (next < partitions.length || !window.isEmpty()) {
+				while (next < partitions.length && window.size() < parallelism) {
+					PartitionComparison task = new PartitionComparison(partitions[next++], columns);
+					pool.execute(task);
+					window.add(task);
+				}
+				report(window.poll().join(), listener);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static void report(List<DiffDetail> diffs, DiffListener listener) {
+		for (DiffDetail diff : diffs)
+			listener.diffFound(diff);
+	}
+
+	List<DiffDetail> comparePartition(Partition partition, ColumnMapping columns) {
+		List<DiffDetail> diffs = new ArrayList<DiffDetail>();
+		// index the expected rows by key, keeping the order of rows with duplicate keys
+		Map<List<Object>, Deque<Row>> expectedRows = new HashMap<List<Object>, Deque<Row>>();
+		List<Row> expectedOrder = new ArrayList<Row>();
+		for (Row row : partition.rows(0)) {
+			Deque<Row> rows = expectedRows.get(row.key);
+			if (rows == null) {
+				rows = new ArrayDeque<Row>(1);
+				expectedRows.put(row.key, rows);
+			}
+			rows.add(row);
+			expectedOrder.add(row);
+		}
+		// match the actual rows
+		for (Row actualRow : partition.rows(1)) {
+			Deque<Row> candidates = expectedRows.get(actualRow.key);
+			Row expectedRow = (candidates != null ? candidates.poll() : null);
+			if (expectedRow == null) {
+				diffs.add(diffFactory.unexpected(actualRow.cells, ROW, rowLocator(actualRow)));
+			} else {
+				expectedRow.matched = true;
+				compareCells(expectedRow, actualRow, columns, diffs);
+			}
+		}
+		for (Row expectedRow : expectedOrder)
+			if (!expectedRow.matched)
+				diffs.add(diffFactory.missing(expectedRow.cells, ROW, rowLocator(expectedRow)));
+		return diffs;
+	}
+
+	private void compareCells(Row expectedRow, Row actualRow, ColumnMapping columns, List<DiffDetail> diffs) {
+		int firstUnnamedColumn = 0;
+		if (columns != null) {
+			for (int i = 0; i < columns.names.length; i++)
+				compareCell(expectedRow, columns.expectedColumns[i], actualRow, columns.actualColumns[i], columns.names[i], diffs);
+			firstUnnamedColumn = columns.firstUnnamedColumn;
+		}
+		// cells without a column name are matched by position
+		int columnCount = Math.max(expectedRow.cells.length, actualRow.cells.length);
+		for (int i = firstUnnamedColumn; i < columnCount; i++)
+			compareCell(expectedRow, i, actualRow, i, positionalName(i), diffs);
+	}
+
+	private void compareCell(Row expectedRow, int expectedColumn, Row actualRow, int actualColumn, String columnName, List<DiffDetail> diffs) {
+		Object expectedValue = (expectedColumn < expectedRow.cells.length ? expectedRow.cells[expectedColumn] : null);
+		Object actualValue = (actualColumn < actualRow.cells.length ? actualRow.cells[actualColumn] : null);
+		if (!NullSafeComparator.equals(expectedValue, actualValue))
+			diffs.add(diffFactory.different(expectedValue, actualValue, CELL,
+					cellLocator(expectedRow, columnName), cellLocator(actualRow, columnName)));
+	}
+
+	private static String headerLocator(String columnName) {
+		return "/header/" + columnName;
+	}
+
+	private static String rowLocator(Row row) {
+		return "/row[" + row.number + "]";
+	}
+
+	private static String cellLocator(Row row, String columnName) {
+		return rowLocator(row) + "/" + columnName;
+	}
+
+	private class PartitionComparison extends RecursiveTask<List<DiffDetail>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Partition partition;
+		private final ColumnMapping columns;
+
+		PartitionComparison(Partition partition, ColumnMapping columns) {
+			this.partition = partition;
+			this.columns = columns;
+		}
+
+		@Override
+		protected List<DiffDetail> compute() {
+			return comparePartition(partition, columns);
+		}
+	}
+
+
+	// helper classes --------------------------------------------------------------------------------------------------
+
+	/** Matches the columns of both tables by their header names. Columns with the same name
+	 * are matched in the order of their occurrence. */
+	static final class ColumnMapping {
+
+		final String[] names;
+		final int[] expectedColumns;
+		final int[] actualColumns;
+		final List<String> missingColumns;
+		final List<String> unexpectedColumns;
+		final int firstUnnamedColumn;  // cells from this index on are beyond both headers
+
+		ColumnMapping(String[] expectedHeader, String[] actualHeader) {
+			Map<String, Deque<Integer>> actualIndices = new HashMap<String, Deque<Integer>>();
+			for (int i = 0; i < actualHeader.length; i++) {
+				Deque<Integer> indices = actualIndices.get(actualHeader[i]);
+				if (indices == null) {
+					indices = new ArrayDeque<Integer>(1);
+					actualIndices.put(actualHeader[i], indices);
+				}
+				indices.add(i);
+			}
+			List<String> names = new ArrayList<String>();
+			List<Integer> expectedColumns = new ArrayList<Integer>();
+			List<Integer> actualColumns = new ArrayList<Integer>();
+			this.missingColumns = new ArrayList<String>();
+			for (int i = 0; i < expectedHeader.length; i++) {
+				Deque<Integer> candidates = actualIndices.get(expectedHeader[i]);
+				Integer actualColumn = (candidates != null ? candidates.poll() : null);
+				if (actualColumn != null) {
+					names.add(expectedHeader[i]);
+					expectedColumns.add(i);
+					actualColumns.add(actualColumn);
+				} else {
+					missingColumns.add(expectedHeader[i]);
+				}
+			}
+			this.unexpectedColumns = new ArrayList<String>();
+			for (int i = 0; i < actualHeader.length; i++)
+				if (!actualColumns.contains(i))
+					unexpectedColumns.add(actualHeader[i]);
+			this.names = names.toArray(new String[names.size()]);
+			this.expectedColumns = toIntArray(expectedColumns);
+			this.actualColumns = toIntArray(actualColumns);
+			this.firstUnnamedColumn = Math.max(expectedHeader.length, actualHeader.length);
+		}
+
+		private static int[] toIntArray(List<Integer> list) {
+			int[] result = new int[list.size()];
+			for (int i = 0; i < result.length; i++)
+				result[i] = list.get(i);
+			return result;
+		}
+	}
+
+	/** A row of a table with its number and key. */
+	static final class Row {
+
+		final long number;
+		final Object[] cells;
+		final List<Object> key;
+		boolean matched;
+
+		Row(long number, Object[] cells, List<Object> key) {
+			this.number = number;
+			this.cells = cells;
+			this.key = key;
+			this.matched = false;
+		}
+	}
+
+	/** Spills the buffered rows of all partitions to disk when their total number exceeds the limit. */
+	private class Spiller {
+
+		private final Partition[] partitions;
+		private int bufferedRows;
+
+		Spiller(Partition[] partitions) {
+			this.partitions = partitions;
+			this.bufferedRows = 0;
+		}
+
+		void rowAdded() {
+			if (++bufferedRows > maxRowsInMemory) {
+				for (Partition partition : partitions)
+					partition.spill();
+				bufferedRows = 0;
+			}
+		}
+	}
+
+	/** Holds the rows of both tables which have the same key hash, in memory or in temporary files. */
+	final class Partition {
+
+		private static final int RESET_INTERVAL = 1000;
+
+		private final List<List<Row>> buffers;
+		private final File[] files;
+		private final ObjectOutputStream[] outputs;
+		private final int[] spilledRows;
+
+		Partition() {
+			this.buffers = new ArrayList<List<Row>>(2);
+			this.buffers.add(new ArrayList<Row>());
+			this.buffers.add(new ArrayList<Row>());
+			this.files = new File[2];
+			this.outputs = new ObjectOutputStream[2];
+			this.spilledRows = new int[2];
+		}
+
+		void add(int side, Row row) {
+			buffers.get(side).add(row);
+		}
+
+		void spill() {
+			try {
+				for (int side = 0; side < 2; side++) {
+					List<Row> buffer = buffers.get(side);
+					if (buffer.isEmpty())
+						continue;
+					if (outputs[side] == null) {
+						files[side] = File.createTempFile("tabular-diff-", ".tmp", tempDirectory);
+						outputs[side] = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(files[side])));
+					}
+					ObjectOutputStream out = outputs[side];
+					for (Row row : buffer) {
+						out.writeLong(row.number);
+						out.writeObject(row.cells);
+						if (++spilledRows[side] % RESET_INTERVAL == 0)
+							out.reset(); // prevents the stream from holding references to all written rows
+					}
+					buffers.set(side, new ArrayList<Row>());
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("Error spilling rows to disk", e);
+			}
+		}
+
+		/** Provides the rows of one side in the order in which they were added, reading the spilled ones from disk. */
+		List<Row> rows(int side) {
+			List<Row> buffer = buffers.get(side);
+			if (files[side] == null)
+				return buffer;
+			List<Row> rows = new ArrayList<Row>(spilledRows[side] + buffer.size());
+			ObjectInputStream in = null;
+			try {
+				IOUtil.close(outputs[side]);
+				outputs[side] = null;
+				in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(files[side])));
+				for (int i = 0; i < spilledRows[side]; i++) {
+					long number = in.readLong();
+					Object[] cells = (Object[]) in.readObject();
+					rows.add(new Row(number, cells, key(cells)));
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("Error reading spilled rows from " + files[side], e);
+			} catch (ClassNotFoundException e) {
+				throw new RuntimeException("Error reading spilled rows from " + files[side], e);
+			} finally {
+				IOUtil.close(in);
+			}
+			rows.addAll(buffer);
+			return rows;
+		}
+
+		void close() {
+			for (int side = 0; side < 2; side++) {
+				IOUtil.close(outputs[side]);
+				if (files[side] != null && !files[side].delete())
+					files[side].deleteOnExit();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.compare;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * {@link DiffListener} which determines the locators with the most diffs approximately,
+ * using a fixed number of counters (the 'Space-Saving' algorithm). When all counters are in use,
+ * the locator with the smallest count is replaced and the new one inherits its count as possible error.
+ * Each locator which occurs in more than 1/capacity of all diffs is guaranteed to be counted.
+ * The counters are kept ordered by count, so that each diff is counted in logarithmic time of the capacity.
+ * Locators with equal counts are ordered by their first occurrence.
+ * Locators are normalized like in the {@link BoundedDiffCollector}. Instances are not thread-safe.
+ * Created: 18.10.2026 18:46:27
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class TopLocatorCounter implements DiffListener {
+
+	private final int capacity;
+	private final Map<String, Counter> counters;
+	private final TreeSet<Counter> countOrder; // ascending by count, newest first among equal counts
+	private long totalCount;
+	private long sequence;
+
+	/** @param capacity the number of locators to track */
+	public TopLocatorCounter(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		this.capacity = capacity;
+		this.counters = new HashMap<String, Counter>();
+		this.countOrder = new TreeSet<Counter>(COUNT_ORDER);
+		this.totalCount = 0;
+		this.sequence = 0;
+	}
+
+	@Override
+	public void diffFound(DiffDetail diff) {
+		String locator = BoundedDiffCollector.normalizedLocator(diff);
+		totalCount++;
+		Counter counter = counters.get(locator);
+		if (counter != null) {
+			// the counter must be repositioned in the ordered set after modifying its count
+			countOrder.remove(counter);
+			counter.count++;
+			countOrder.add(counter);
+		} else if (counters.size() < capacity) {
+			add(new Counter(locator, 1, 0, sequence++));
+		} else {
+			Counter min = countOrder.pollFirst();
+			counters.remove(min.locator);
+			add(new Counter(locator, min.count + 1, min.count, sequence++));
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/** @param k the maximum number of locators to return
+	 * @return the locators with the highest counts in descending order */
+	public List<Counter> getTop(int k) {
+		List<Counter> result = new ArrayList<Counter>(Math.min(k, counters.size()));
+		Iterator<Counter> iterator = countOrder.descendingIterator();
+		while (result.size() < k && iterator.hasNext())
+			result.add(iterator.next());
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + getTop(capacity);
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private void add(Counter counter) {
+		counters.put(counter.locator, counter);
+		countOrder.add(counter);
+	}
+
+
+	// helper class ----------------------------------------------------------------------------------------------------
+
+	private static final Comparator<Counter> COUNT_ORDER = new Comparator<Counter>() {
+		@Override
+		public int compare(Counter c1, Counter c2) {
+			int result = Long.compare(c1.count, c2.count);
+			return (result != 0 ? result : Long.compare(c2.sequence, c1.sequence));
+		}
+	};
+
+	/** The estimated count of a locator. The real count is between count - error and count. */
+	public static final class Counter {
+
+		private final String locator;
+		private long count;
+		private final long error;
+		private final long sequence;
+
+		Counter(String locator, long count, long error, long sequence) {
+			this.locator = locator;
+			this.count = count;
+			this.error = error;
+			this.sequence = sequence;
+		}
+
+		public String getLocator() {
+			return locator;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return locator + ": " + count + (error > 0 ? " (-" + error + ")" : "");
+		}
+	}
+
+}
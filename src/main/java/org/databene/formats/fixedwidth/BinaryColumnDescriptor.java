@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+
+import org.databene.commons.SyntaxError;
+
+/**
+ * Describes a column of a binary fixed-width record as written by mainframe programs:
+ * packed decimal (COMP-3), zoned decimal, big-endian binary integer (COMP) or single-byte text
+ * like EBCDIC. Values are decoded directly from the record bytes. Numeric columns without
+ * fraction digits are returned as Long, the ones with fraction digits as BigDecimal,
+ * text columns as String without trailing spaces.
+ * Created: 18.10.2026 16:10:27
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class BinaryColumnDescriptor {
+
+	/** The default EBCDIC code page */
+	public static final String DEFAULT_EBCDIC_CHARSET = "IBM037";
+
+	public enum Type {
+		/** Packed decimal (COMP-3): two digits per byte, sign in the last nibble */
+		PACKED,
+		/** Zoned decimal: one digit per byte, sign in the zone nibble of the last byte */
+		ZONED,
+		/** Signed big-endian two's complement integer (COMP, COMP-4) */
+		BINARY,
+		/** Text in a single-byte character set */
+		TEXT
+	}
+
+	private final String name;
+	private final Type type;
+	private final int length;
+	private final int fractionDigits;
+	private final String charset;
+	private final char[] charTable;
+
+
+	// constructors ----------------------------------------------------------------------------------------------------
+
+	public BinaryColumnDescriptor(String name, Type type, int length, int fractionDigits) {
+		this(name, type, length, fractionDigits, null);
+	}
+
+	public BinaryColumnDescriptor(String name, int length, String charset) {
+		this(name, Type.TEXT, length, 0, charset);
+	}
+
+	private BinaryColumnDescriptor(String name, Type type, int length, int fractionDigits, String charset) {
+		if (length <= 0)
+			throw new IllegalArgumentException("Illegal column length: " + length);
+		if (type == Type.BINARY && length > 8)
+			throw new IllegalArgumentException("Binary columns are limited to 8 bytes, found: " + length);
+		this.name = name;
+		this.type = type;
+		this.length = length;
+		this.fractionDigits = fractionDigits;
+		this.charset = charset;
+		if (fractionDigits < 0 || fractionDigits > getDigits())
+			throw new IllegalArgumentException("Illegal number of fraction digits for a " + type + " column " 
+					+ "of " + getDigits() + " digits: " + fractionDigits);
+		this.charTable = (type == Type.TEXT ? createCharTable(charset) : null);
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public String getName() {
+		return name;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/** @return the number of bytes of the column */
+	public int getLength() {
+		return length;
+	}
+
+	public int getFractionDigits() {
+		return fractionDigits;
+	}
+
+	public String getCharset() {
+		return charset;
+	}
+
+	/** @return the maximum number of decimal digits a numeric column can hold */
+	public int getDigits() {
+		switch (type) {
+			case PACKED: return 2 * length - 1;
+			case ZONED:  return length;
+			case BINARY: return String.valueOf((1L << (8 * length - 1)) - 1).length();
+			default:     return 0;
+		}
+	}
+
+
+	// functional interface --------------------------------------------------------------------------------------------
+
+	/** Decodes the column value from a record.
+	 * @param record the record bytes
+	 * @param offset the index of the first column byte in the record
+	 * @return a Long, BigDecimal or String */
+	public Object decode(byte[] record, int offset) {
+		if (type == Type.TEXT)
+			return decodeText(record, offset);
+		if (getDigits() > 18 && type != Type.BINARY)
+			return toNumber(decodeBig(record, offset));
+		long unscaled = decodeLong(record, offset);
+		if (fractionDigits == 0)
+			return unscaled;
+		else
+			return BigDecimal.valueOf(unscaled, fractionDigits);
+	}
+
+	/** Decodes a numeric column value as unscaled long without creating objects.
+	 * For columns with fraction digits, the implied decimal point is ignored,
+	 * e.g. 123.45 is returned as 12345.
+	 * @param record the record bytes
+	 * @param offset the index of the first column byte in the record
+	 * @return the unscaled numeric value */
+	public long decodeLong(byte[] record, int offset) {
+		switch (type) {
+			case PACKED: return decodePacked(record, offset);
+			case ZONED:  return decodeZoned(record, offset);
+			case BINARY: return decodeBinary(record, offset);
+			default: throw new UnsupportedOperationException("Not a numeric column: " + this);
+		}
+	}
+
+	/** Decodes a text column value.
+	 * @param record the record bytes
+	 * @param offset the index of the first column byte in the record
+	 * @return the column text without trailing spaces */
+	public String decodeText(byte[] record, int offset) {
+		if (type != Type.TEXT)
+			throw new UnsupportedOperationException("Not a text column: " + this);
+		int end = offset + length;
+		while (end > offset && charTable[record[end - 1] & 0xFF] == ' ')
+			end--;
+		char[] chars = new char[end - offset];
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = charTable[record[offset + i] & 0xFF];
+		return new String(chars);
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private long decodePacked(byte[] record, int offset) {
+		if (getDigits() > 18)
+			return decodeBig(record, offset).unscaledValue().longValueExact();
+		long value = 0;
+		int last = offset + length - 1;
+		for (int i = offset; i < last; i++) {
+			int b = record[i] & 0xFF;
+			value = value * 100 + digit(b >> 4, i) * 10 + digit(b & 0x0F, i);
+		}
+		int b = record[last] & 0xFF;
+		value = value * 10 + digit(b >> 4, last);
+		return (isNegativeSign(b & 0x0F, last) ? -value : value);
+	}
+
+	private long decodeZoned(byte[] record, int offset) {
+		if (getDigits() > 18)
+			return decodeBig(record, offset).unscaledValue().longValueExact();
+		long value = 0;
+		int last = offset + length - 1;
+		for (int i = offset; i <= last; i++)
+			value = value * 10 + digit(record[i] & 0x0F, i);
+		return (isNegativeSign((record[last] & 0xF0) >> 4, last) ? -value : value);
+	}
+
+	private long decodeBinary(byte[] record, int offset) {
+		// the first byte is sign-extended, the following ones are appended unsigned
+		long value = record[offset];
+		for (int i = offset + 1; i < offset + length; i++)
+			value = (value << 8) | (record[i] & 0xFF);
+		return value;
+	}
+
+	private BigDecimal decodeBig(byte[] record, int offset) {
+		char[] digits = new char[getDigits()];
+		int last = offset + length - 1;
+		boolean negative;
+		if (type == Type.PACKED) {
+			for (int i = offset, k = 0; i <= last; i++) {
+				int b = record[i] & 0xFF;
+				digits[k++] = (char) ('0' + digit(b >> 4, i));
+				if (i < last)
+					digits[k++] = (char) ('0' + digit(b & 0x0F, i));
+			}
+			negative = isNegativeSign(record[last] & 0x0F, last);
+		} else {
+			for (int i = offset; i <= last; i++)
+				digits[i - offset] = (char) ('0' + digit(record[i] & 0x0F, i));
+			negative = isNegativeSign((record[last] & 0xF0) >> 4, last);
+		}
+		BigInteger unscaled = new BigInteger(new String(digits));
+		return new BigDecimal(negative ? unscaled.negate() : unscaled, fractionDigits);
+	}
+
+	private Object toNumber(BigDecimal value) {
+		if (fractionDigits == 0 && value.precision() <= 18)
+			return value.longValue();
+		else
+			return value;
+	}
+
+	private int digit(int nibble, int position) {
+		if (nibble > 9)
+			throw new SyntaxError("Illegal digit in " + type + " column '" + name + "' at byte " + position,
+					Integer.toHexString(nibble));
+		return nibble;
+	}
+
+	private boolean isNegativeSign(int nibble, int position) {
+		switch (nibble) {
+			case 0x0B: case 0x0D: return true;
+			case 0x0A: case 0x0C: case 0x0E: case 0x0F: return false;
+		}
+		if (nibble == 0x03 && type == Type.ZONED) // ASCII zone of unsigned zoned decimals
+			return false;
+		throw new SyntaxError("Illegal sign in " + type + " column '" + name + "' at byte " + position,
+				Integer.toHexString(nibble));
+	}
+
+	private static char[] createCharTable(String charsetName) {
+		Charset charset = Charset.forName(charsetName);
+		if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() > 1)
+			throw new IllegalArgumentException("Not a single-byte character set: " + charsetName);
+		byte[] bytes = new byte[256];
+		for (int i = 0; i < 256; i++)
+			bytes[i] = (byte) i;
+		return new String(bytes, charset).toCharArray();
+	}
+
+
+	// java.lang.Object overrides --------------------------------------------------------------------------------------
+
+	@Override
+	public int hashCode() {
+		return ((name != null ? name.hashCode() : 0) * 31 + type.hashCode()) * 31 + length * 31 + fractionDigits;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		BinaryColumnDescriptor that = (BinaryColumnDescriptor) obj;
+		return (this.name == null ? that.name == null : this.name.equals(that.name))
+				&& this.type == that.type
+				&& this.length == that.length
+				&& this.fractionDigits == that.fractionDigits
+				&& (this.charset == null ? that.charset == null : this.charset.equals(that.charset));
+	}
+
+	@Override
+	public String toString() {
+		return name + '[' + type + ' ' + length + (fractionDigits > 0 ? "." + fractionDigits : "")
+				+ (charset != null ? ' ' + charset : "") + ']';
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.databene.commons.IOUtil;
+import org.databene.commons.SyntaxError;
+import org.databene.formats.DataContainer;
+import org.databene.formats.DataIterator;
+
+/**
+ * Iterates the fixed-length records of a binary file, e.g. a mainframe extract with 
+ * EBCDIC text and packed decimal fields, and provides each record as array of 
+ * decoded column values. Records are read into a reused byte buffer and decoded 
+ * without creating an intermediate text representation.
+ * Created: 18.10.2026 17:05:13
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class BinaryRecordIterator implements DataIterator<Object[]> {
+
+	private InputStream in;
+	private BinaryRowTypeDescriptor rowDescriptor;
+	private byte[] record;
+	private int recordCount;
+
+	public BinaryRecordIterator(String uri, BinaryRowTypeDescriptor rowDescriptor) throws IOException {
+		this(IOUtil.getInputStreamForURI(uri), rowDescriptor);
+	}
+
+	public BinaryRecordIterator(InputStream in, BinaryRowTypeDescriptor rowDescriptor) {
+		this(in, rowDescriptor, rowDescriptor.getRecordLength());
+	}
+
+	/** Creates an iterator for records which are longer than the described columns, 
+	 * e.g. if they end with a filler or a line separator.
+	 * @param in the stream to read from
+	 * @param rowDescriptor the row type of the records
+	 * @param recordLength the total number of bytes of a record */
+	public BinaryRecordIterator(InputStream in, BinaryRowTypeDescriptor rowDescriptor, int recordLength) {
+		if (recordLength < rowDescriptor.getRecordLength())
+			throw new IllegalArgumentException("Record length " + recordLength + " is shorter than the row type '" + 
+					rowDescriptor.getName() + "' which requires " + rowDescriptor.getRecordLength() + " bytes");
+		this.in = (in instanceof BufferedInputStream ? in : new BufferedInputStream(in, Math.max(8192, recordLength * 16)));
+		this.rowDescriptor = rowDescriptor;
+		this.record = new byte[recordLength];
+		this.recordCount = 0;
+	}
+
+	@Override
+	public Class<Object[]> getType() {
+		return Object[].class;
+	}
+
+	@Override
+	public DataContainer<Object[]> next(DataContainer<Object[]> container) {
+		if (!readRecord())
+			return null;
+		recordCount++;
+		return container.setData(rowDescriptor.parseAsArray(record));
+	}
+
+	/** Returns the number of records iterated so far. 
+	 * @return the number of records iterated so far */
+	public int recordCount() {
+		return recordCount;
+	}
+
+	@Override
+	public void close() {
+		IOUtil.close(in);
+		in = null;
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private boolean readRecord() {
+		if (in == null)
+			return false;
+		try {
+			int count = 0;
+			while (count < record.length) {
+				int n = in.read(record, count, record.length - count);
+				if (n < 0)
+					break;
+				count += n;
+			}
+			if (count == 0) {
+				close();
+				return false;
+			} else if (count < record.length) {
+				close();
+				throw new SyntaxError("Incomplete record #" + (recordCount + 1) + " of type '" + rowDescriptor.getName() + 
+						"': expected " + record.length + " bytes, found " + count, null);
+			}
+			return true;
+		} catch (IOException e) {
+			close();
+			throw new RuntimeException("Error reading record #" + (recordCount + 1), e);
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import org.databene.commons.BeanUtil;
+import org.databene.commons.mutator.AnyMutator;
+
+/**
+ * Row type support for binary fixed-width records: 
+ * Decodes the columns of a record into an array or a JavaBean.
+ * Created: 18.10.2026 16:48:52
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class BinaryRowTypeDescriptor {
+
+	private String name;
+	private BinaryColumnDescriptor[] columnDescriptors;
+	private int[] offsets;
+	private int recordLength;
+
+	public BinaryRowTypeDescriptor(String name, BinaryColumnDescriptor[] columnDescriptors) {
+		this.name = name;
+		this.columnDescriptors = columnDescriptors;
+		this.offsets = new int[columnDescriptors.length];
+		int offset = 0;
+		for (int i = 0; i < columnDescriptors.length; i++) {
+			offsets[i] = offset;
+			offset += columnDescriptors[i].getLength();
+		}
+		this.recordLength = offset;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public BinaryColumnDescriptor[] getColumnDescriptors() {
+		return columnDescriptors;
+	}
+
+	/** @return the number of bytes of a record */
+	public int getRecordLength() {
+		return recordLength;
+	}
+
+	/** @param columnIndex the index of the column 
+	 * @return the index of the first byte of the column in a record */
+	public int getOffset(int columnIndex) {
+		return offsets[columnIndex];
+	}
+
+	public Object[] parseAsArray(byte[] record) {
+		Object[] result = new Object[columnDescriptors.length];
+		for (int i = 0; i < columnDescriptors.length; i++)
+			result[i] = columnDescriptors[i].decode(record, offsets[i]);
+		return result;
+	}
+
+	public <T> T parseAsBean(byte[] record, Class<T> beanClass) {
+		T bean = BeanUtil.newInstance(beanClass);
+		for (int i = 0; i < columnDescriptors.length; i++) {
+			Object cellObject = columnDescriptors[i].decode(record, offsets[i]);
+			AnyMutator.setValue(bean, columnDescriptors[i].getName(), cellObject, true, true);
+		}
+		return bean;
+	}
+
+}
@@ -46,7 +46,8 @@ public class FixedWidthBeanIterator<E> extends DataIteratorAdapter<String[], E>
 		super(null);
 		this.locale = Locale.US;
 		this.beanClass = beanClass;
-		FixedWidthRowTypeDescriptor rowDescriptor = FixedWidthUtil.parseBeanColumnsSpec(columnFormats, beanClass.getSimpleName(), nullString, locale);
+		FixedWidthRowTypeDescriptor rowDescriptor = FixedWidthSchemaCache.getDefault().getBeanRowType(
+				columnFormats, beanClass.getSimpleName(), nullString, locale);
 		this.columnDescriptors = rowDescriptor.getColumnDescriptors();
 		PadFormat[] formats = BeanUtil.extractProperties(this.columnDescriptors, "format", PadFormat.class);
 		source = new FixedWidthLineIterator(uri, formats);
@@ -18,6 +18,7 @@ import java.text.DateFormat;
 import java.text.Format;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.Date;
 
 import org.databene.commons.StringUtil;
@@ -35,6 +36,10 @@ public class FixedWidthColumnDescriptor {
     private String name;
     private int width;
     private PadFormat format;
+    private Format valueFormat;
+    private String nullString;
+    private Alignment alignment;
+    private char padChar;
     
     
     // constructors ----------------------------------------------------------------------------------------------------
@@ -67,6 +72,10 @@ public class FixedWidthColumnDescriptor {
         this.name = name;
         this.width = width;
         this.format = new PadFormat(format, nullString, width, alignment, padChar);
+        this.valueFormat = format;
+        this.nullString = nullString;
+        this.alignment = alignment;
+        this.padChar = padChar;
     }
     
     
@@ -103,6 +112,42 @@ public class FixedWidthColumnDescriptor {
 		}
     }
     
+    /** Formats a value into the character range of this column in a row buffer.
+     * Dates and numbers of a {@link FixedWidthDateFormat} or {@link FixedWidthNumberFormat} 
+     * as well as unformatted Strings are written and padded in place without creating a String.
+     * @param object the value to format
+     * @param buffer the row buffer
+     * @param offset the index of the first column character in the buffer
+     * @return the index after the last column character */
+    public int format(Object object, char[] buffer, int offset) {
+    	int length = -1;
+    	if (object == null) {
+    		if (nullString.length() <= width) {
+    			length = nullString.length();
+    			nullString.getChars(0, length, buffer, offset);
+    		}
+    	} else if (valueFormat == null) {
+    		if (object instanceof String && ((String) object).length() <= width) {
+    			length = ((String) object).length();
+    			((String) object).getChars(0, length, buffer, offset);
+    		}
+    	} else if (valueFormat instanceof FixedWidthDateFormat) {
+    		FixedWidthDateFormat dateFormat = (FixedWidthDateFormat) valueFormat;
+    		if (object instanceof Date && dateFormat.getWidth() <= width)
+    			length = dateFormat.formatMillis(((Date) object).getTime(), buffer, offset);
+    	} else if (valueFormat instanceof FixedWidthNumberFormat) {
+    		FixedWidthNumberFormat numberFormat = (FixedWidthNumberFormat) valueFormat;
+    		long unscaled = numberFormat.unscaledValue(object);
+    		if (unscaled != FixedWidthNumberFormat.NOT_UNSCALABLE && numberFormat.formattedLength(unscaled) <= width)
+    			length = numberFormat.formatUnscaled(unscaled, buffer, offset);
+    	}
+    	if (length >= 0)
+    		align(buffer, offset, length);
+    	else
+    		format(object).getChars(0, width, buffer, offset);
+    	return offset + width;
+    }
+    
     public Object parse(String text) throws ParseException {
     	try {
 			return format.parseObject(text);
@@ -116,10 +161,51 @@ public class FixedWidthColumnDescriptor {
     }
     
     
+    /** @return true if the column only uses immutable formats and thus can be shared between threads */
+    boolean isThreadSafe() {
+    	return (valueFormat == null || valueFormat instanceof FixedWidthDateFormat || valueFormat instanceof FixedWidthNumberFormat);
+    }
+    
+    /** @return a copy of this descriptor, with a private clone of its value format if that is not thread-safe */
+    FixedWidthColumnDescriptor copy() {
+    	Format formatCopy = (isThreadSafe() ? valueFormat : (Format) valueFormat.clone());
+    	return new FixedWidthColumnDescriptor(name, formatCopy, nullString, width, alignment, padChar);
+    }
+    
+    
     // private helpers -------------------------------------------------------------------------------------------------
     
+    /** Moves a text of the given length from the column start to its aligned position 
+     * and fills the remaining column characters like {@link org.databene.commons.format.StringPadder} */
+    private void align(char[] buffer, int offset, int length) {
+    	int delta = width - length;
+    	switch (alignment) {
+			case LEFT:
+				Arrays.fill(buffer, offset + length, offset + width, padChar);
+				break;
+			case RIGHT:
+				System.arraycopy(buffer, offset, buffer, offset + delta, length);
+				Arrays.fill(buffer, offset, offset + delta, padChar);
+				if (padChar == '0' && delta > 0 && length > 0 && buffer[offset + delta] == '-') {
+					buffer[offset] = '-';
+					buffer[offset + delta] = '0';
+				}
+				break;
+			case CENTER:
+				System.arraycopy(buffer, offset, buffer, offset + delta / 2, length);
+				Arrays.fill(buffer, offset, offset + delta / 2, padChar);
+				Arrays.fill(buffer, offset + delta / 2 + length, offset + width, padChar);
+				break;
+			default: throw new IllegalArgumentException("Illegal alignment: " + alignment);
+		}
+    }
+    
     private static int formatWidth(Format format) {
-    	if (format instanceof DateFormat)
+    	if (format instanceof FixedWidthDateFormat)
+    		return ((FixedWidthDateFormat) format).getWidth();
+    	else if (format instanceof FixedWidthNumberFormat)
+    		return ((FixedWidthNumberFormat) format).getWidth();
+    	else if (format instanceof DateFormat)
     		return format.format(new Date()).length();
     	else if (format instanceof NumberFormat)
     		return format.format((Integer) 0).length();
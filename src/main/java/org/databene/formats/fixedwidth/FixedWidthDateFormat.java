@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import java.text.FieldPosition;
+import java.text.Format;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Immutable and thread-safe {@link Format} for numerical fixed-width date/time patterns
+ * like 'yyyyMMdd' or 'yyMMddHHmmss'. The pattern is compiled once into a list of fixed-width
+ * fields, which are parsed from and formatted into character ranges directly.
+ * Supported pattern letters are 'yyyy', 'yy', 'MM', 'dd', 'HH', 'mm', 'ss' and 'SSS',
+ * other non-letter characters are treated as literals. Use {@link #supports(String)}
+ * to check if a pattern can be handled, for other patterns fall back to {@link java.text.SimpleDateFormat}.
+ * Dates are calculated in the proleptic Gregorian calendar.
+ * Created: 18.10.2026 09:12:41
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class FixedWidthDateFormat extends Format {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long MILLIS_PER_DAY = 86400000L;
+
+	private static final char LITERAL = '\'';
+
+	private final String pattern;
+	private final TimeZone zone;
+	private final char[] fieldTypes;
+	private final int[] fieldOffsets;
+	private final int[] fieldWidths;
+	private final char[] literals;
+	private final int width;
+	private final int twoDigitYearStart;
+
+
+	// constructors ----------------------------------------------------------------------------------------------------
+
+	public FixedWidthDateFormat(String pattern) {
+		this(pattern, TimeZone.getDefault());
+	}
+
+	public FixedWidthDateFormat(String pattern, TimeZone zone) {
+		if (!supports(pattern))
+			throw new IllegalArgumentException("Not a fixed-width numerical date pattern: " + pattern);
+		this.pattern = pattern;
+		this.zone = (TimeZone) zone.clone();
+		this.literals = pattern.toCharArray();
+		int fieldCount = 0;
+		for (int i = 0; i < pattern.length(); i += runLength(pattern, i))
+			fieldCount++;
+		this.fieldTypes = new char[fieldCount];
+		this.fieldOffsets = new int[fieldCount];
+		this.fieldWidths = new int[fieldCount];
+		for (int i = 0, field = 0; i < pattern.length(); i += fieldWidths[field++]) {
+			char c = pattern.charAt(i);
+			fieldTypes[field] = (Character.isLetter(c) ? c : LITERAL);
+			fieldOffsets[field] = i;
+			fieldWidths[field] = runLength(pattern, i);
+		}
+		this.width = pattern.length();
+		// use the same two-digit year window as SimpleDateFormat: 80 years before and 20 years after now
+		Calendar calendar = new GregorianCalendar(zone);
+		this.twoDigitYearStart = calendar.get(Calendar.YEAR) - 80;
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+
+	// static helpers --------------------------------------------------------------------------------------------------
+
+	/** Tells if a {@link java.text.SimpleDateFormat} pattern can be handled by this class.
+	 * @param pattern the pattern to check
+	 * @return true if the pattern consists only of fixed-width numerical fields and non-letter literals */
+	public static boolean supports(String pattern) {
+		if (pattern == null || pattern.length() == 0)
+			return false;
+		int i = 0;
+		while (i < pattern.length()) {
+			char c = pattern.charAt(i);
+			int count = runLength(pattern, i);
+			if (c == LITERAL)
+				return false;
+			if (Character.isLetter(c) && !isSupportedField(c, count))
+				return false;
+			i += count;
+		}
+		return true;
+	}
+
+
+	// char range interface --------------------------------------------------------------------------------------------
+
+	/** Parses a date from a character range without creating intermediate objects.
+	 * @param text the text to parse
+	 * @param start the index of the first character to parse
+	 * @param end the index after the last character that may be parsed
+	 * @return the parsed date as milliseconds since the epoch
+	 * @throws ParseException if the text does not match the pattern */
+	public long parseMillis(CharSequence text, int start, int end) throws ParseException {
+		if (end - start < width)
+			throw new ParseException("Text too short for date pattern '" + pattern + "': " + text.subSequence(start, end), start);
+		int year = 1970;
+		int month = 1;
+		int day = 1;
+		int hour = 0;
+		int minute = 0;
+		int second = 0;
+		int milli = 0;
+		for (int i = 0; i < fieldTypes.length; i++) {
+			int offset = start + fieldOffsets[i];
+			int fieldWidth = fieldWidths[i];
+			char type = fieldTypes[i];
+			if (type == LITERAL) {
+				for (int j = 0; j < fieldWidth; j++)
+					if (text.charAt(offset + j) != literals[fieldOffsets[i] + j])
+						throw new ParseException("Expected '" + literals[fieldOffsets[i] + j] + "' in date " + text.subSequence(start, end), offset + j);
+			} else {
+				int value = parseDigits(text, offset, fieldWidth);
+				switch (type) {
+					case 'y': year = (fieldWidth == 2 ? expandTwoDigitYear(value) : value); break;
+					case 'M': month = value; break;
+					case 'd': day = value; break;
+					case 'H': hour = value; break;
+					case 'm': minute = value; break;
+					case 's': second = value; break;
+					case 'S': milli = value; break;
+				}
+			}
+		}
+		// month and day overflows are resolved leniently, like in SimpleDateFormat
+		year += Math.floorDiv(month - 1, 12);
+		month = Math.floorMod(month - 1, 12) + 1;
+		long localMillis = daysFromCivil(year, month, 1) * MILLIS_PER_DAY + (day - 1) * MILLIS_PER_DAY
+				+ hour * 3600000L + minute * 60000L + second * 1000L + milli;
+		return toUtc(localMillis);
+	}
+
+	/** Formats a date into a character array.
+	 * @param millis the milliseconds since the epoch
+	 * @param buffer the array to write to
+	 * @param offset the index of the first character to write
+	 * @return the number of characters written */
+	public int formatMillis(long millis, char[] buffer, int offset) {
+		long localMillis = millis + zone.getOffset(millis);
+		long days = Math.floorDiv(localMillis, MILLIS_PER_DAY);
+		int millisOfDay = (int) Math.floorMod(localMillis, MILLIS_PER_DAY);
+		// civil date from day count, see http://howardhinnant.github.io/date_algorithms.html
+		long z = days + 719468;
+		long era = Math.floorDiv(z, 146097);
+		long dayOfEra = z - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long mp = (5 * dayOfYear + 2) / 153;
+		int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+		for (int i = 0; i < fieldTypes.length; i++) {
+			int position = offset + fieldOffsets[i];
+			int fieldWidth = fieldWidths[i];
+			switch (fieldTypes[i]) {
+				case LITERAL: System.arraycopy(literals, fieldOffsets[i], buffer, position, fieldWidth); break;
+				case 'y': formatDigits(year, buffer, position, fieldWidth); break;
+				case 'M': formatDigits(month, buffer, position, fieldWidth); break;
+				case 'd': formatDigits(day, buffer, position, fieldWidth); break;
+				case 'H': formatDigits(millisOfDay / 3600000, buffer, position, fieldWidth); break;
+				case 'm': formatDigits((millisOfDay / 60000) % 60, buffer, position, fieldWidth); break;
+				case 's': formatDigits((millisOfDay / 1000) % 60, buffer, position, fieldWidth); break;
+				case 'S': formatDigits(millisOfDay % 1000, buffer, position, fieldWidth); break;
+			}
+		}
+		return width;
+	}
+
+
+	// java.text.Format interface --------------------------------------------------------------------------------------
+
+	@Override
+	public StringBuffer format(Object obj, StringBuffer toAppendTo, FieldPosition pos) {
+		long millis;
+		if (obj instanceof Date)
+			millis = ((Date) obj).getTime();
+		else if (obj instanceof Number)
+			millis = ((Number) obj).longValue();
+		else
+			throw new IllegalArgumentException("Cannot format given Object as a Date: " + obj);
+		char[] buffer = new char[width];
+		formatMillis(millis, buffer, 0);
+		return toAppendTo.append(buffer);
+	}
+
+	@Override
+	public Object parseObject(String source, ParsePosition pos) {
+		int start = pos.getIndex();
+		try {
+			long millis = parseMillis(source, start, source.length());
+			pos.setIndex(start + width);
+			return new Date(millis);
+		} catch (ParseException e) {
+			pos.setErrorIndex(e.getErrorOffset());
+			return null;
+		}
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private long toUtc(long localMillis) {
+		int offset = zone.getOffset(localMillis - zone.getRawOffset());
+		long utc = localMillis - offset;
+		int actualOffset = zone.getOffset(utc);
+		return (actualOffset == offset ? utc : localMillis - actualOffset);
+	}
+
+	private int expandTwoDigitYear(int value) {
+		int year = (twoDigitYearStart / 100) * 100 + value;
+		return (year < twoDigitYearStart ? year + 100 : year);
+	}
+
+	private static int parseDigits(CharSequence text, int offset, int count) throws ParseException {
+		int value = 0;
+		for (int i = offset; i < offset + count; i++) {
+			char c = text.charAt(i);
+			if (c < '0' || c > '9')
+				throw new ParseException("Digit expected in date, found: '" + c + "'", i);
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	private static void formatDigits(int value, char[] buffer, int offset, int count) {
+		for (int i = offset + count - 1; i >= offset; i--) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	private static long daysFromCivil(int year, int month, int day) {
+		// see http://howardhinnant.github.io/date_algorithms.html
+		long y = (month <= 2 ? year - 1 : year);
+		long era = Math.floorDiv(y, 400);
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	private static int runLength(String pattern, int start) {
+		char c = pattern.charAt(start);
+		int end = start + 1;
+		if (!Character.isLetter(c))
+			return 1;
+		while (end < pattern.length() && pattern.charAt(end) == c)
+			end++;
+		return end - start;
+	}
+
+	private static boolean isSupportedField(char c, int count) {
+		switch (c) {
+			case 'y': return (count == 2 || count == 4);
+			case 'M': case 'd': case 'H': case 'm': case 's': return (count == 2);
+			case 'S': return (count == 3);
+			default: return false;
+		}
+	}
+
+	// java.lang.Object overrides --------------------------------------------------------------------------------------
+
+	@Override
+	public int hashCode() {
+		return pattern.hashCode() * 31 + zone.getID().hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		FixedWidthDateFormat that = (FixedWidthDateFormat) obj;
+		return this.pattern.equals(that.pattern) && this.zone.getID().equals(that.zone.getID());
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + '[' + pattern + ']';
+	}
+
+}
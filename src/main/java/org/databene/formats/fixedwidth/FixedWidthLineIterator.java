@@ -14,6 +14,7 @@
  */
 package org.databene.formats.fixedwidth;
 
+import org.databene.commons.Filter;
 import org.databene.commons.IOUtil;
 import org.databene.commons.ReaderLineIterator;
 import org.databene.commons.StringUtil;
@@ -25,7 +26,6 @@ import org.databene.formats.DataIterator;
 import java.io.IOException;
 import java.io.Reader;
 import java.text.ParseException;
-import java.util.regex.Pattern;
 
 /**
  * Tests the FlatFileLineIterator.
@@ -40,7 +40,7 @@ public class FixedWidthLineIterator implements DataIterator<String[]> {
     private ReaderLineIterator lineIterator;
     private FixedWidthLineParser parser;
     private int lineCount;
-    private Pattern lineFilter;
+    private Filter<String> lineFilter;
 
     // constructors ----------------------------------------------------------------------------------------------------
 
@@ -62,7 +62,16 @@ public class FixedWidthLineIterator implements DataIterator<String[]> {
         parser = new FixedWidthLineParser(formats);
         this.ignoreEmptyLines = ignoreEmptyLines;
         this.lineCount = 0;
-        this.lineFilter = (lineFilter != null ? Pattern.compile(lineFilter) : null);
+        this.lineFilter = PositionalLineFilter.forRegex(lineFilter);
+    }
+
+    // properties ------------------------------------------------------------------------------------------------------
+
+    /** Sets a filter to apply on each raw line before it is parsed, e.g. a {@link PositionalLineFilter}. 
+     * A regular expression provided in the constructor is replaced by this filter.
+     * @param lineFilter the filter to apply or null for accepting all lines */
+    public void setLineFilter(Filter<String> lineFilter) {
+        this.lineFilter = lineFilter;
     }
 
     // interface -------------------------------------------------------------------------------------------------------
@@ -114,7 +123,7 @@ public class FixedWidthLineIterator implements DataIterator<String[]> {
                 lineCount++;
                 line = lineIterator.next();
                 if ((line.length() > 0 || !ignoreEmptyLines) 
-                		&& (lineFilter == null || lineFilter.matcher(line).matches())) {
+                		&& (lineFilter == null || lineFilter.accept(line))) {
                     success = true;
                     break;
                 }
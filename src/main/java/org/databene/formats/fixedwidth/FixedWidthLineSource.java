@@ -14,6 +14,7 @@
  */
 package org.databene.formats.fixedwidth;
 
+import org.databene.commons.Filter;
 import org.databene.commons.format.PadFormat;
 import org.databene.formats.DataIterator;
 import org.databene.formats.util.AbstractDataSource;
@@ -33,6 +34,7 @@ public class FixedWidthLineSource extends AbstractDataSource<String[]> {
     private boolean ignoreEmptyLines;
     private String encoding;
     private String lineFilter;
+    private Filter<String> customLineFilter;
 
     public FixedWidthLineSource(String uri, PadFormat[] formats, boolean ignoreEmptyLines, String encoding, String lineFilter) {
     	super(String[].class);
@@ -41,12 +43,23 @@ public class FixedWidthLineSource extends AbstractDataSource<String[]> {
         this.ignoreEmptyLines = ignoreEmptyLines;
         this.encoding = encoding;
         this.lineFilter = lineFilter;
+        this.customLineFilter = null;
+    }
+
+    /** Sets a filter which is applied on each raw line instead of the regular expression
+     * provided in the constructor, e.g. a {@link PositionalLineFilter}.
+     * @param lineFilter the filter to apply */
+    public void setLineFilter(Filter<String> lineFilter) {
+        this.customLineFilter = lineFilter;
     }
 
     @Override
 	public DataIterator<String[]> iterator() {
         try {
-            return new FixedWidthLineIterator(uri, formats, ignoreEmptyLines, encoding, lineFilter);
+            FixedWidthLineIterator iterator = new FixedWidthLineIterator(uri, formats, ignoreEmptyLines, encoding, lineFilter);
+            if (customLineFilter != null)
+                iterator.setLineFilter(customLineFilter);
+            return iterator;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
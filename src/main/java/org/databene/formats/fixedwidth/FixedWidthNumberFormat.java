@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.FieldPosition;
+import java.text.Format;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.util.Locale;
+
+/**
+ * Immutable and thread-safe {@link Format} for fixed-point {@link DecimalFormat} patterns
+ * like '00.00', '#0.000' or '00000'. Numbers are handled as unscaled long values with
+ * a known number of fraction digits and are parsed from and formatted into character ranges
+ * directly. Formatting rounds half-even and parsing returns Long or Double objects
+ * like {@link DecimalFormat} does. Use {@link #supports(String, Locale)} to check
+ * if a pattern can be handled, for other patterns fall back to {@link DecimalFormat}.
+ * Created: 18.10.2026 10:03:17
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class FixedWidthNumberFormat extends Format {
+
+	private static final long serialVersionUID = 1L;
+
+	static final long NOT_UNSCALABLE = Long.MIN_VALUE;
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	private final String pattern;
+	private final Locale locale;
+	private final int minIntegerDigits;
+	private final int fractionDigits;
+	private final char decimalSeparator;
+	private final char minusSign;
+	private final int width;
+	private final long scale;
+	private final DecimalFormat template;
+
+
+	// constructor -----------------------------------------------------------------------------------------------------
+
+	public FixedWidthNumberFormat(String pattern, Locale locale) {
+		if (!supports(pattern, locale))
+			throw new IllegalArgumentException("Not a fixed-point number pattern: " + pattern);
+		this.pattern = pattern;
+		this.locale = locale;
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+		this.decimalSeparator = symbols.getDecimalSeparator();
+		this.minusSign = symbols.getMinusSign();
+		int separatorIndex = pattern.indexOf('.');
+		String integerPart = (separatorIndex >= 0 ? pattern.substring(0, separatorIndex) : pattern);
+		this.minIntegerDigits = integerPart.length() - integerPart.lastIndexOf('#') - 1;
+		this.fractionDigits = (separatorIndex >= 0 ? pattern.length() - separatorIndex - 1 : 0);
+		this.scale = POWERS_OF_TEN[fractionDigits];
+		this.width = Math.max(minIntegerDigits, fractionDigits > 0 ? 0 : 1) + (fractionDigits > 0 ? fractionDigits + 1 : 0);
+		// only used for values which are out of the range of the unscaled long representation
+		this.template = new DecimalFormat(pattern, symbols);
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	public int getFractionDigits() {
+		return fractionDigits;
+	}
+
+	/** @return the length of the formatted number zero, which is the column width of positive numbers */
+	public int getWidth() {
+		return width;
+	}
+
+
+	// static helpers --------------------------------------------------------------------------------------------------
+
+	/** Tells if a {@link DecimalFormat} pattern can be handled by this class.
+	 * @param pattern the pattern to check
+	 * @param locale the locale to apply
+	 * @return true if the pattern consists of optional '#' and required '0' integer digits,
+	 * 		optionally followed by a '.' and required '0' fraction digits */
+	public static boolean supports(String pattern, Locale locale) {
+		if (pattern == null || pattern.length() == 0)
+			return false;
+		if (DecimalFormatSymbols.getInstance(locale).getZeroDigit() != '0')
+			return false;
+		int i = 0;
+		while (i < pattern.length() && pattern.charAt(i) == '#')
+			i++;
+		int integerStart = i;
+		while (i < pattern.length() && pattern.charAt(i) == '0')
+			i++;
+		if (i == 0)
+			return false;
+		if (i == pattern.length())
+			return true;
+		if (pattern.charAt(i) != '.')
+			return false;
+		int fractionStart = ++i;
+		while (i < pattern.length() && pattern.charAt(i) == '0')
+			i++;
+		return (i == pattern.length() && i > fractionStart && i - fractionStart + (fractionStart - 1 - integerStart) <= 18);
+	}
+
+
+	// char range interface --------------------------------------------------------------------------------------------
+
+	/** Parses a number from a character range and returns it as unscaled value
+	 * with {@link #getFractionDigits()} implied fraction digits, e.g. '12.34' is returned as 1234
+	 * for a format with 2 fraction digits.
+	 * @param text the text to parse
+	 * @param start the index of the first character to parse
+	 * @param end the index after the last character to parse
+	 * @return the unscaled value
+	 * @throws ParseException if the text is not a number or has too many fraction digits */
+	public long parseUnscaled(CharSequence text, int start, int end) throws ParseException {
+		int i = start;
+		boolean negative = (i < end && text.charAt(i) == minusSign);
+		if (negative)
+			i++;
+		long unscaled = 0;
+		int digits = 0;
+		int fractions = -1;
+		for (; i < end; i++) {
+			char c = text.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (fractions < fractionDigits) {
+					if (unscaled > (Long.MAX_VALUE - 9) / 10)
+						throw new ParseException("Number too large: " + text.subSequence(start, end), i);
+					unscaled = unscaled * 10 + (c - '0');
+				} else if (c != '0')
+					throw new ParseException("Number has more than " + fractionDigits + " fraction digits: " + text.subSequence(start, end), i);
+				if (fractions >= 0)
+					fractions++;
+				digits++;
+			} else if (c == decimalSeparator && fractions < 0)
+				fractions = 0;
+			else
+				throw new ParseException("Illegal character in number: '" + c + "'", i);
+		}
+		if (digits == 0)
+			throw new ParseException("Number expected: " + text.subSequence(start, end), start);
+		int missingFractions = fractionDigits - Math.max(fractions, 0);
+		if (missingFractions > 0) {
+			if (unscaled > Long.MAX_VALUE / POWERS_OF_TEN[missingFractions])
+				throw new ParseException("Number too large: " + text.subSequence(start, end), start);
+			unscaled *= POWERS_OF_TEN[missingFractions];
+		}
+		return (negative ? -unscaled : unscaled);
+	}
+
+	/** Formats an unscaled value with {@link #getFractionDigits()} implied fraction digits
+	 * into a character array.
+	 * @param unscaled the unscaled value
+	 * @param buffer the array to write to
+	 * @param offset the index of the first character to write
+	 * @return the number of characters written */
+	public int formatUnscaled(long unscaled, char[] buffer, int offset) {
+		int length = formattedLength(unscaled);
+		int i = offset + length - 1;
+		long rest = Math.abs(unscaled);
+		for (int f = 0; f < fractionDigits; f++) {
+			buffer[i--] = (char) ('0' + rest % 10);
+			rest /= 10;
+		}
+		if (fractionDigits > 0)
+			buffer[i--] = decimalSeparator;
+		for (; i >= offset; i--) {
+			if (i == offset && unscaled < 0) {
+				buffer[i] = minusSign;
+			} else {
+				buffer[i] = (char) ('0' + rest % 10);
+				rest /= 10;
+			}
+		}
+		return length;
+	}
+
+
+	// java.text.Format interface --------------------------------------------------------------------------------------
+
+	@Override
+	public StringBuffer format(Object obj, StringBuffer toAppendTo, FieldPosition pos) {
+		long unscaled = unscaledValue(obj);
+		if (unscaled != NOT_UNSCALABLE) {
+			char[] buffer = new char[formattedLength(unscaled)];
+			formatUnscaled(unscaled, buffer, 0);
+			return toAppendTo.append(buffer);
+		}
+		return ((DecimalFormat) template.clone()).format(obj, toAppendTo, pos);
+	}
+
+	@Override
+	public Object parseObject(String source, ParsePosition pos) {
+		int start = pos.getIndex();
+		int end = numberEnd(source, start);
+		try {
+			long unscaled = parseUnscaled(source, start, end);
+			pos.setIndex(end);
+			if (unscaled % scale == 0 && !(unscaled == 0 && source.charAt(start) == minusSign))
+				return unscaled / scale;
+			else
+				return (double) unscaled / scale;
+		} catch (ParseException e) {
+			// values which exceed the unscaled long range or have additional fraction digits
+			return ((DecimalFormat) template.clone()).parseObject(source, pos);
+		}
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	/** Converts a number to its unscaled representation, rounding half-even.
+	 * @param obj the number to convert
+	 * @return the unscaled value or {@link #NOT_UNSCALABLE} if the number needs to be formatted by DecimalFormat */
+	long unscaledValue(Object obj) {
+		if (obj instanceof Long || obj instanceof Integer || obj instanceof Short || obj instanceof Byte) {
+			long value = ((Number) obj).longValue();
+			if (value > -Long.MAX_VALUE / scale && value < Long.MAX_VALUE / scale)
+				return value * scale;
+		} else if (obj instanceof Double || obj instanceof Float) {
+			double scaled = ((Number) obj).doubleValue() * scale;
+			double rounded = Math.rint(scaled);
+			// close to a rounding tie the product may be inexact and negative zero is rendered with a sign,
+			// so those cases are left to DecimalFormat
+			if (Math.abs(rounded) < 1e15 && Math.abs(Math.abs(scaled - rounded) - 0.5) > Math.ulp(scaled)
+					&& (rounded != 0 || !(scaled < 0 || 1 / scaled < 0)))
+				return (long) rounded;
+		}
+		return NOT_UNSCALABLE;
+	}
+
+	int formattedLength(long unscaled) {
+		int integerDigits = 0;
+		for (long rest = Math.abs(unscaled) / scale; rest > 0; rest /= 10)
+			integerDigits++;
+		int length = Math.max(integerDigits, minIntegerDigits);
+		if (length == 0 && fractionDigits == 0)
+			length = 1;
+		if (fractionDigits > 0)
+			length += fractionDigits + 1;
+		if (unscaled < 0)
+			length++;
+		return length;
+	}
+
+	private int numberEnd(String source, int start) {
+		int i = start;
+		if (i < source.length() && source.charAt(i) == minusSign)
+			i++;
+		while (i < source.length() && (Character.isDigit(source.charAt(i)) || source.charAt(i) == decimalSeparator))
+			i++;
+		return i;
+	}
+
+
+	// java.lang.Object overrides --------------------------------------------------------------------------------------
+
+	@Override
+	public int hashCode() {
+		return pattern.hashCode() * 31 + locale.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		FixedWidthNumberFormat that = (FixedWidthNumberFormat) obj;
+		return this.pattern.equals(that.pattern) && this.locale.equals(that.locale);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + '[' + pattern + ']';
+	}
+
+}
@@ -17,6 +17,7 @@ package org.databene.formats.fixedwidth;
 import java.text.ParseException;
 import java.text.ParsePosition;
 
+import org.databene.commons.Accessor;
 import org.databene.commons.ArrayBuilder;
 import org.databene.commons.BeanUtil;
 import org.databene.commons.SyntaxError;
@@ -36,11 +37,13 @@ public class FixedWidthRowTypeDescriptor {
 	private String name;
 	private FixedWidthColumnDescriptor[] columnDescriptors;
 	private int rowLength;
+	private Accessor<Object, ?>[] accessors;
 	
 	public FixedWidthRowTypeDescriptor(String name, FixedWidthColumnDescriptor[] columnDescriptors) {
 		this.name = name;
 		this.columnDescriptors = columnDescriptors;
 		this.rowLength = totalLength(columnDescriptors);
+		this.accessors = createAccessors(columnDescriptors);
 	}
 	
 	public String getName() {
@@ -51,16 +54,28 @@ public class FixedWidthRowTypeDescriptor {
 		return columnDescriptors;
 	}
 	
+	public int getRowLength() {
+		return rowLength;
+	}
+	
 	public String formatBean(Object rowBean) {
-		StringBuilder builder = new StringBuilder();
-		for (int i = 0; i < columnDescriptors.length; i++) {
-			String path = columnDescriptors[i].getName();
-			Object value = GraphAccessor.getValue(path, rowBean);
-			builder.append(columnDescriptors[i].format(value));
-		}
+		StringBuilder builder = new StringBuilder(rowLength);
+		for (int i = 0; i < columnDescriptors.length; i++)
+			builder.append(columnDescriptors[i].format(columnValue(i, rowBean)));
 		return builder.toString();
 	}
 	
+	/** Formats a bean into a row buffer, writing exactly {@link #getRowLength()} characters. 
+	 * @param rowBean the bean to format
+	 * @param buffer the buffer to write to
+	 * @param offset the index of the first row character in the buffer
+	 * @return the index after the last row character */
+	public int formatBean(Object rowBean, char[] buffer, int offset) {
+		for (int i = 0; i < columnDescriptors.length; i++)
+			offset = columnDescriptors[i].format(columnValue(i, rowBean), buffer, offset);
+		return offset;
+	}
+	
 	public String formatArray(Object... columnValues) {
 		if (columnValues.length != columnDescriptors.length)
 			throw new IllegalArgumentException("Row type '" + name + "' expects " + columnValues.length + " array elements " +
@@ -113,8 +128,33 @@ public class FixedWidthRowTypeDescriptor {
 	}
 	
 	
+	/** @return a copy of this descriptor with copies of all column descriptors and private clones of their mutable formats */
+	FixedWidthRowTypeDescriptor copy() {
+		FixedWidthColumnDescriptor[] columnCopies = new FixedWidthColumnDescriptor[columnDescriptors.length];
+		for (int i = 0; i < columnDescriptors.length; i++)
+			columnCopies[i] = columnDescriptors[i].copy();
+		return new FixedWidthRowTypeDescriptor(name, columnCopies);
+	}
+	
+	
 	// private helpers -------------------------------------------------------------------------------------------------
 	
+	private Object columnValue(int i, Object rowBean) {
+		if (accessors[i] != null)
+			return accessors[i].getValue(rowBean);
+		else
+			return GraphAccessor.getValue(columnDescriptors[i].getName(), rowBean);
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Accessor<Object, ?>[] createAccessors(FixedWidthColumnDescriptor[] descriptors) {
+		Accessor<Object, ?>[] result = new Accessor[descriptors.length];
+		for (int i = 0; i < descriptors.length; i++)
+			if (descriptors[i].getName() != null)
+				result[i] = new GraphAccessor(descriptors[i].getName());
+		return result;
+	}
+	
 	private static String descriptorName(FixedWidthColumnDescriptor descriptor, int i) {
 		return (descriptor.getName() != null ? descriptor.getName() : String.valueOf(i));
 	}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.databene.commons.NullSafeComparator;
+
+/**
+ * Thread-safe, size-bounded cache of parsed {@link FixedWidthRowTypeDescriptor}s,
+ * keyed by column specification, row type name, null string and locale.
+ * When the capacity is reached, the least recently used entry is evicted.
+ * The cached descriptors are never handed out: each caller receives a copy with its own column descriptors,
+ * so that a modification like {@link FixedWidthColumnDescriptor#setName(String)} cannot affect other callers.
+ * Immutable codecs ({@link FixedWidthDateFormat}, {@link FixedWidthNumberFormat}) are shared by the copies,
+ * other formats are cloned. This is still much cheaper than parsing the specification again.
+ * Created: 18.10.2026 18:40:12
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class FixedWidthSchemaCache {
+
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private static final FixedWidthSchemaCache DEFAULT = new FixedWidthSchemaCache(DEFAULT_CAPACITY);
+
+	private final int capacity;
+	private final Map<Key, FixedWidthRowTypeDescriptor> entries;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+
+	// constructor -----------------------------------------------------------------------------------------------------
+
+	@SuppressWarnings("serial")
+	public FixedWidthSchemaCache(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Illegal cache capacity: " + capacity);
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Key, FixedWidthRowTypeDescriptor>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, FixedWidthRowTypeDescriptor> eldest) {
+				if (size() <= FixedWidthSchemaCache.this.capacity)
+					return false;
+				evictionCount++;
+				return true;
+			}
+		};
+	}
+
+	/** @return the JVM-wide cache instance used by the fixed-width iterators */
+	public static FixedWidthSchemaCache getDefault() {
+		return DEFAULT;
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+
+	// functional interface --------------------------------------------------------------------------------------------
+
+	/** Provides the row type of a bean column specification like
+	 * {@link FixedWidthUtil#parseBeanColumnsSpec(String, String, String, Locale)}.
+	 * @param properties the column specification
+	 * @param rowTypeName the name of the row type
+	 * @param nullString the text which represents null values
+	 * @param locale the locale for date and number formats
+	 * @return the row type descriptor
+	 * @throws ParseException if the specification is malformed */
+	public FixedWidthRowTypeDescriptor getBeanRowType(String properties, String rowTypeName, String nullString, Locale locale)
+			throws ParseException {
+		if (properties == null)
+			return null;
+		Key key = new Key(true, properties, rowTypeName, nullString, locale);
+		FixedWidthRowTypeDescriptor descriptor = lookup(key);
+		if (descriptor == null)
+			descriptor = store(key, FixedWidthUtil.parseBeanColumnsSpec(properties, rowTypeName, nullString, locale));
+		return handOut(descriptor);
+	}
+
+	/** Provides the row type of an array column specification like
+	 * {@link FixedWidthUtil#parseArrayColumnsSpec(String, String, String, Locale)}.
+	 * @param columnsSpec the column specification
+	 * @param rowTypeName the name of the row type
+	 * @param nullString the text which represents null values
+	 * @param locale the locale for date and number formats
+	 * @return the row type descriptor
+	 * @throws ParseException if the specification is malformed */
+	public FixedWidthRowTypeDescriptor getArrayRowType(String columnsSpec, String rowTypeName, String nullString, Locale locale)
+			throws ParseException {
+		if (columnsSpec == null)
+			return null;
+		Key key = new Key(false, columnsSpec, rowTypeName, nullString, locale);
+		FixedWidthRowTypeDescriptor descriptor = lookup(key);
+		if (descriptor == null)
+			descriptor = store(key, FixedWidthUtil.parseArrayColumnsSpec(columnsSpec, rowTypeName, nullString, locale));
+		return handOut(descriptor);
+	}
+
+	/** Removes all entries and resets the statistics. */
+	public synchronized void clear() {
+		entries.clear();
+		hitCount = 0;
+		missCount = 0;
+		evictionCount = 0;
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private synchronized FixedWidthRowTypeDescriptor lookup(Key key) {
+		FixedWidthRowTypeDescriptor descriptor = entries.get(key);
+		if (descriptor != null)
+			hitCount++;
+		else
+			missCount++;
+		return descriptor;
+	}
+
+	private synchronized FixedWidthRowTypeDescriptor store(Key key, FixedWidthRowTypeDescriptor descriptor) {
+		// specifications are parsed outside the lock, so a concurrent caller may have been faster
+		FixedWidthRowTypeDescriptor existing = entries.get(key);
+		if (existing != null)
+			return existing;
+		entries.put(key, descriptor);
+		return descriptor;
+	}
+
+	private static FixedWidthRowTypeDescriptor handOut(FixedWidthRowTypeDescriptor descriptor) {
+		return descriptor.copy();
+	}
+
+
+	// java.lang.Object overrides --------------------------------------------------------------------------------------
+
+	@Override
+	public synchronized String toString() {
+		return getClass().getSimpleName() + "[size=" + entries.size() + ", capacity=" + capacity + ", hits=" + hitCount
+				+ ", misses=" + missCount + ", evictions=" + evictionCount + "]";
+	}
+
+
+	// Key class -------------------------------------------------------------------------------------------------------
+
+	private static final class Key {
+
+		private final boolean bean;
+		private final String spec;
+		private final String rowTypeName;
+		private final String nullString;
+		private final Locale locale;
+		private final int hashCode;
+
+		Key(boolean bean, String spec, String rowTypeName, String nullString, Locale locale) {
+			this.bean = bean;
+			this.spec = spec;
+			this.rowTypeName = rowTypeName;
+			this.nullString = nullString;
+			this.locale = locale;
+			this.hashCode = (((spec.hashCode() * 31 + NullSafeComparator.hashCode(rowTypeName)) * 31
+					+ NullSafeComparator.hashCode(nullString)) * 31 + NullSafeComparator.hashCode(locale)) * 2 + (bean ? 1 : 0);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key that = (Key) obj;
+			return this.bean == that.bean
+					&& this.spec.equals(that.spec)
+					&& NullSafeComparator.equals(this.rowTypeName, that.rowTypeName)
+					&& NullSafeComparator.equals(this.nullString, that.nullString)
+					&& NullSafeComparator.equals(this.locale, that.locale);
+		}
+
+	}
+
+}
@@ -70,6 +70,67 @@ public class FixedWidthUtil {
         return new FixedWidthRowTypeDescriptor(rowTypeName, columns);
     }
     
+	/** Parses the column specification of binary records, e.g. 'id[B4],name[E20],amount[P5.2]'.
+	 * Each column is specified by an optional name and a format in brackets or by the format only.
+	 * Formats are 'P' (packed decimal), 'Z' (zoned decimal), 'B' (big-endian binary integer), 
+	 * each followed by the number of bytes and optionally by a '.' and the number of implied fraction digits, 
+	 * as well as 'E' for EBCDIC text or a plain number for ISO-8859-1 text, followed by the number of bytes.
+	 * @param columnsSpec the column specification
+	 * @param rowTypeName the name of the row type
+	 * @param ebcdicCharset the EBCDIC code page to use for 'E' columns, 
+	 * 		if null, {@link BinaryColumnDescriptor#DEFAULT_EBCDIC_CHARSET} is used
+	 * @return a descriptor of the record structure
+	 * @throws ParseException if the specification is malformed */
+	public static BinaryRowTypeDescriptor parseBinaryColumnsSpec(String columnsSpec, String rowTypeName, String ebcdicCharset) 
+			throws ParseException {
+		if (columnsSpec == null)
+			return null;
+		String[] columnFormats = StringUtil.tokenize(columnsSpec, ',');
+		BinaryColumnDescriptor[] columns = new BinaryColumnDescriptor[columnFormats.length];
+		for (int i = 0; i < columnFormats.length; i++) {
+			String columnFormat = columnFormats[i].trim();
+			String name = null;
+			int lbIndex = columnFormat.indexOf('[');
+			if (lbIndex >= 0) {
+				if (!columnFormat.endsWith("]"))
+					throw new ConfigurationError("']' expected in column format descriptor '" + columnFormat + "'");
+				name = columnFormat.substring(0, lbIndex);
+				columnFormat = columnFormat.substring(lbIndex + 1, columnFormat.length() - 1);
+			}
+			columns[i] = parseBinaryColumnFormat(columnFormat, name, ebcdicCharset);
+		}
+		return new BinaryRowTypeDescriptor(rowTypeName, columns);
+	}
+	
+	public static BinaryColumnDescriptor parseBinaryColumnFormat(String formatSpec, String name, String ebcdicCharset) 
+			throws ParseException {
+		if (formatSpec.length() == 0)
+			throw new SyntaxError("Empty column format", formatSpec);
+		char typeCode = formatSpec.charAt(0);
+		ParsePosition pos = new ParsePosition(Character.isDigit(typeCode) ? 0 : 1);
+		int length = (int) ParseUtil.parseNonNegativeInteger(formatSpec, pos);
+		int fractionDigits = 0;
+		if (pos.getIndex() < formatSpec.length() && formatSpec.charAt(pos.getIndex()) == '.') {
+			pos.setIndex(pos.getIndex() + 1);
+			fractionDigits = (int) ParseUtil.parseNonNegativeInteger(formatSpec, pos);
+		}
+		if (pos.getIndex() != formatSpec.length())
+			throw new SyntaxError("Illegal binary column format", formatSpec);
+		if (fractionDigits > 0 && (Character.isDigit(typeCode) || typeCode == 'E'))
+			throw new SyntaxError("Fraction digits are not supported for text columns", formatSpec);
+		switch (typeCode) {
+			case 'P': return new BinaryColumnDescriptor(name, BinaryColumnDescriptor.Type.PACKED, length, fractionDigits);
+			case 'Z': return new BinaryColumnDescriptor(name, BinaryColumnDescriptor.Type.ZONED, length, fractionDigits);
+			case 'B': return new BinaryColumnDescriptor(name, BinaryColumnDescriptor.Type.BINARY, length, fractionDigits);
+			case 'E': return new BinaryColumnDescriptor(name, length, 
+					(ebcdicCharset != null ? ebcdicCharset : BinaryColumnDescriptor.DEFAULT_EBCDIC_CHARSET));
+			default:
+				if (Character.isDigit(typeCode))
+					return new BinaryColumnDescriptor(name, length, "ISO-8859-1");
+				throw new SyntaxError("Illegal binary column type '" + typeCode + "'", formatSpec);
+		}
+	}
+	
 	public static FixedWidthColumnDescriptor parseColumnFormat(String formatSpec, String nullString, Locale locale) throws ParseException {
 		switch (formatSpec.charAt(0)) {
 			case 'D': return parseDatePattern(formatSpec, nullString, locale);
@@ -85,7 +146,11 @@ public class FixedWidthUtil {
 		if (!formatSpec.startsWith("D"))
 			throw new SyntaxError("Illegal date/time pattern", formatSpec);
 		String pattern = formatSpec.substring(1);
-		Format format = new SimpleDateFormat(pattern, DateFormatSymbols.getInstance(locale));
+		Format format;
+		if (FixedWidthDateFormat.supports(pattern))
+			format = new FixedWidthDateFormat(pattern);
+		else
+			format = new SimpleDateFormat(pattern, DateFormatSymbols.getInstance(locale));
 		return new FixedWidthColumnDescriptor(null, format, nullString);
 	}
 	
@@ -93,7 +158,11 @@ public class FixedWidthUtil {
 		if (!formatSpec.startsWith("N"))
 			throw new SyntaxError("Illegal number pattern", formatSpec);
 		String pattern = formatSpec.substring(1);
-		Format format = new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(locale));
+		Format format;
+		if (FixedWidthNumberFormat.supports(pattern, locale))
+			format = new FixedWidthNumberFormat(pattern, locale);
+		else
+			format = new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(locale));
 		return new FixedWidthColumnDescriptor(null, format, nullString);
 	}
 	
@@ -15,6 +15,7 @@
 package org.databene.formats.fixedwidth;
 
 import java.io.Closeable;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.HashMap;
@@ -31,19 +32,40 @@ import org.databene.commons.SystemInfo;
  * @author Volker Bergmann
  */
 
-public class MultiTypeBeanFixedWidthWriter implements Closeable {
+public class MultiTypeBeanFixedWidthWriter implements Closeable, Flushable {
+	
+	/** Default number of characters to collect before writing them to the underlying {@link Writer} in batch mode */
+	public static final int DEFAULT_BATCH_SIZE = 65536;
 	
 	private final Writer out;
 	private Map<String, FixedWidthRowTypeDescriptor> rowDescriptors;
+	private Map<Class<?>, FixedWidthRowTypeDescriptor> classDescriptors;
+	private char[] lineSeparator;
+	private char[] batch;
+	private int batchLength;
 	
 	public MultiTypeBeanFixedWidthWriter(Writer out) {
 		this(out, null);
 	}
 	
 	public MultiTypeBeanFixedWidthWriter(Writer out, List<FixedWidthRowTypeDescriptor> rowDescriptors) {
+		this(out, rowDescriptors, 0);
+	}
+	
+	/** Creates a writer which formats rows in place into a character buffer and writes them 
+	 * to the underlying {@link Writer} in batches. Rows are only guaranteed to arrive at the 
+	 * Writer after calling {@link #flush()} or {@link #close()}.
+	 * @param out the Writer to write to
+	 * @param rowDescriptors the row formats to use
+	 * @param batchSize the number of characters to collect before writing them, 0 for writing each row immediately */
+	public MultiTypeBeanFixedWidthWriter(Writer out, List<FixedWidthRowTypeDescriptor> rowDescriptors, int batchSize) {
 		Assert.notNull(out, "Writer");
 		this.out = out;
 		this.rowDescriptors = new HashMap<String, FixedWidthRowTypeDescriptor>();
+		this.classDescriptors = new HashMap<Class<?>, FixedWidthRowTypeDescriptor>();
+		this.lineSeparator = SystemInfo.getLineSeparator().toCharArray();
+		this.batch = (batchSize > 0 ? new char[batchSize] : null);
+		this.batchLength = 0;
 		if (rowDescriptors != null)
 			for (FixedWidthRowTypeDescriptor rowDescriptor : rowDescriptors)
 				addRowFormat(rowDescriptor.getName(), rowDescriptor);
@@ -51,6 +73,7 @@ public class MultiTypeBeanFixedWidthWriter implements Closeable {
 	
 	public void addRowFormat(String simpleClassName, FixedWidthRowTypeDescriptor rowDescriptor) {
 		this.rowDescriptors.put(simpleClassName, rowDescriptor);
+		this.classDescriptors.clear();
 	}
 	
 	public FixedWidthRowTypeDescriptor getRowFormat(String simpleClassName) {
@@ -60,17 +83,56 @@ public class MultiTypeBeanFixedWidthWriter implements Closeable {
 	public void write(Object bean) throws IOException {
 		// Check preconditions
 		Assert.notNull(bean, "bean");
-		FixedWidthRowTypeDescriptor cellFormats = rowDescriptors.get(bean.getClass().getSimpleName());
-		if (cellFormats == null)
-			throw new IllegalArgumentException("Bean class not configured: " + bean.getClass().getSimpleName());
-		// format row
-		out.write(cellFormats.formatBean(bean));
-		out.write(SystemInfo.getLineSeparator());
+		FixedWidthRowTypeDescriptor cellFormats = rowFormatFor(bean.getClass());
+		if (batch == null) {
+			// format row
+			out.write(cellFormats.formatBean(bean));
+			out.write(lineSeparator);
+		} else {
+			// format row in place
+			int required = cellFormats.getRowLength() + lineSeparator.length;
+			if (batchLength + required > batch.length) {
+				writeBatch();
+				if (required > batch.length)
+					batch = new char[required];
+			}
+			int rowEnd = cellFormats.formatBean(bean, batch, batchLength);
+			System.arraycopy(lineSeparator, 0, batch, rowEnd, lineSeparator.length);
+			batchLength = rowEnd + lineSeparator.length;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writeBatch();
+		this.out.flush();
 	}
 
 	@Override
 	public void close() throws IOException {
+		writeBatch();
 		this.out.close();
 	}
 	
+	
+	// private helpers -------------------------------------------------------------------------------------------------
+	
+	private FixedWidthRowTypeDescriptor rowFormatFor(Class<?> beanClass) {
+		FixedWidthRowTypeDescriptor result = classDescriptors.get(beanClass);
+		if (result == null) {
+			result = rowDescriptors.get(beanClass.getSimpleName());
+			if (result == null)
+				throw new IllegalArgumentException("Bean class not configured: " + beanClass.getSimpleName());
+			classDescriptors.put(beanClass, result);
+		}
+		return result;
+	}
+	
+	private void writeBatch() throws IOException {
+		if (batchLength > 0) {
+			out.write(batch, 0, batchLength);
+			batchLength = 0;
+		}
+	}
+	
 }
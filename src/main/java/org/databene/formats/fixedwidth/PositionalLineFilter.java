@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import java.util.Arrays;
+
+import org.databene.commons.Filter;
+import org.databene.commons.filter.RegexBasedFilter;
+
+/**
+ * Filters lines of a fixed-width file by the raw characters at a fixed position,
+ * e.g. a record type code in the first columns. The checks operate on the line
+ * before any column parsing and do not create intermediate objects.
+ * Created: 18.10.2026 14:31:09
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public abstract class PositionalLineFilter implements Filter<String> {
+
+	protected final int offset;
+	protected final int length;
+
+	protected PositionalLineFilter(int offset, int length) {
+		if (offset < 0)
+			throw new IllegalArgumentException("Negative offset: " + offset);
+		this.offset = offset;
+		this.length = length;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+
+	// factory methods -------------------------------------------------------------------------------------------------
+
+	/** Creates a filter which accepts lines that contain a literal at a given offset.
+	 * @param offset the index of the first character to check
+	 * @param literal the text to look for
+	 * @return a filter which accepts the lines that contain the literal at the offset */
+	public static PositionalLineFilter literalAt(int offset, String literal) {
+		return new LiteralFilter(offset, literal, false);
+	}
+
+	/** Creates a filter which accepts lines that contain one of several values of equal length at a given offset.
+	 * @param offset the index of the first character to check
+	 * @param values the accepted values
+	 * @return a filter which accepts the lines that contain one of the values at the offset */
+	public static PositionalLineFilter oneOf(int offset, String... values) {
+		return new ValueSetFilter(offset, values);
+	}
+
+	/** Creates a filter which accepts lines that contain an integral number in a given range
+	 * in a column. Leading and trailing spaces and leading zeros are ignored.
+	 * @param offset the index of the first column character
+	 * @param length the column width
+	 * @param min the minimum accepted value
+	 * @param max the maximum accepted value
+	 * @return a filter which accepts the lines that have a column value in the range */
+	public static PositionalLineFilter numberRange(int offset, int length, long min, long max) {
+		return new NumberRangeFilter(offset, length, min, max);
+	}
+
+	/** Creates a line filter for a regular expression which must match the whole line.
+	 * If the regular expression only requires a literal at a fixed position,
+	 * like 'HDR.*', '..X.*' or '.{3}ABC.*', it is mapped to a {@link PositionalLineFilter},
+	 * otherwise a regex based filter is returned.
+	 * @param regex the regular expression
+	 * @return a filter which accepts the lines that match the regular expression */
+	public static Filter<String> forRegex(String regex) {
+		if (regex == null)
+			return null;
+		PositionalLineFilter result = reduceRegex(regex);
+		return (result != null ? result : new RegexBasedFilter(regex, null));
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	static PositionalLineFilter reduceRegex(String regex) {
+		int i = 0;
+		// count leading wildcards '.' or '.{n}'
+		int offset = 0;
+		while (i < regex.length() && regex.charAt(i) == '.' && !regex.startsWith(".*", i)) {
+			if (regex.startsWith(".{", i)) {
+				int end = regex.indexOf('}', i);
+				if (end < 0)
+					return null;
+				String count = regex.substring(i + 2, end);
+				if (count.length() == 0 || count.length() > 6 || !count.chars().allMatch(Character::isDigit))
+					return null;
+				offset += Integer.parseInt(count);
+				i = end + 1;
+			} else {
+				offset++;
+				i++;
+			}
+		}
+		// collect literal characters
+		StringBuilder literal = new StringBuilder();
+		while (i < regex.length()) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1)))
+					return null;
+				literal.append(regex.charAt(i + 1));
+				i += 2;
+			} else if ("^$.|?*+()[]{}".indexOf(c) >= 0) {
+				break;
+			} else {
+				literal.append(c);
+				i++;
+			}
+		}
+		if (literal.length() == 0)
+			return null;
+		// check the remainder
+		if (i == regex.length())
+			return new LiteralFilter(offset, literal.toString(), true);
+		else if (regex.length() - i == 2 && regex.startsWith(".*", i))
+			return new LiteralFilter(offset, literal.toString(), false);
+		else
+			return null;
+	}
+
+
+	// implementations -------------------------------------------------------------------------------------------------
+
+	static final class LiteralFilter extends PositionalLineFilter {
+
+		private final String literal;
+		private final boolean lineEnd;
+
+		LiteralFilter(int offset, String literal, boolean lineEnd) {
+			super(offset, literal.length());
+			this.literal = literal;
+			this.lineEnd = lineEnd;
+		}
+
+		@Override
+		public boolean accept(String line) {
+			if (lineEnd && line.length() != offset + length)
+				return false;
+			return line.startsWith(literal, offset);
+		}
+
+		@Override
+		public String toString() {
+			return "literal '" + literal + "' at " + offset + (lineEnd ? " with line end" : "");
+		}
+
+	}
+
+	static final class ValueSetFilter extends PositionalLineFilter {
+
+		private final String[] values;
+
+		ValueSetFilter(int offset, String... values) {
+			super(offset, values.length > 0 ? values[0].length() : 0);
+			for (String value : values)
+				if (value.length() != length)
+					throw new IllegalArgumentException("Values must have equal length, found '" + values[0] + "' and '" + value + "'");
+			this.values = values.clone();
+			Arrays.sort(this.values);
+		}
+
+		@Override
+		public boolean accept(String line) {
+			if (line.length() < offset + length)
+				return false;
+			// binary search on the line region
+			int low = 0;
+			int high = values.length - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int comparison = compareRegion(values[mid], line);
+				if (comparison < 0)
+					low = mid + 1;
+				else if (comparison > 0)
+					high = mid - 1;
+				else
+					return true;
+			}
+			return false;
+		}
+
+		private int compareRegion(String value, String line) {
+			for (int i = 0; i < length; i++) {
+				int diff = value.charAt(i) - line.charAt(offset + i);
+				if (diff != 0)
+					return diff;
+			}
+			return 0;
+		}
+
+		@Override
+		public String toString() {
+			return "one of " + Arrays.toString(values) + " at " + offset;
+		}
+
+	}
+
+	static final class NumberRangeFilter extends PositionalLineFilter {
+
+		private final long min;
+		private final long max;
+
+		NumberRangeFilter(int offset, int length, long min, long max) {
+			super(offset, length);
+			if (length > 18)
+				throw new IllegalArgumentException("Number columns are limited to 18 characters, found: " + length);
+			this.min = min;
+			this.max = max;
+		}
+
+		@Override
+		public boolean accept(String line) {
+			int end = offset + length;
+			if (line.length() < end)
+				return false;
+			int i = offset;
+			while (i < end && line.charAt(i) == ' ')
+				i++;
+			boolean negative = (i < end && line.charAt(i) == '-');
+			if (negative)
+				i++;
+			long value = 0;
+			int digits = 0;
+			for (; i < end && line.charAt(i) != ' '; i++) {
+				char c = line.charAt(i);
+				if (c < '0' || c > '9')
+					return false;
+				value = value * 10 + (c - '0');
+				digits++;
+			}
+			for (; i < end; i++)
+				if (line.charAt(i) != ' ')
+					return false;
+			if (digits == 0)
+				return false;
+			if (negative)
+				value = -value;
+			return (value >= min && value <= max);
+		}
+
+		@Override
+		public String toString() {
+			return "number in [" + min + ", " + max + "] at " + offset + " with length " + length;
+		}
+
+	}
+
+}
@@ -14,15 +14,17 @@
  */
 package org.databene.formats.util;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.reflect.Array;
+import java.util.Arrays;
 
-import org.databene.commons.ArrayUtil;
 import org.databene.formats.DataContainer;
 import org.databene.formats.DataIterator;
 
 /**
  * Uses a {@link DataIterator} which provides data rows and forwards its data in form of columns.
+ * The source is read in one scan into one growable array per column, so the data is held only once
+ * and no copy of the rows is kept. The number of columns is determined by the first row, 
+ * shorter rows are padded with null values. Each column array is released when it has been provided.
  * Created: 08.12.2011 13:45:37
  * @param <E> the type of data to iterate
  * @since 0.6.5
@@ -30,10 +32,15 @@ import org.databene.formats.DataIterator;
  */
 public class OrthogonalArrayIterator<E> implements DataIterator<E[]> {
 
+	private static final int INITIAL_CAPACITY = 16;
+
 	private DataIterator<E[]> source;
 	
-	private List<E[]> rows;
+	private E[][] columns;
+	private int capacity;
+	private int rowCount;
 	private int columnIndex;
+	private boolean closed;
 
 	public OrthogonalArrayIterator(DataIterator<E[]> source) {
 		this.source = source;
@@ -46,32 +53,54 @@ public class OrthogonalArrayIterator<E> implements DataIterator<E[]> {
 
 	@Override
 	public DataContainer<E[]> next(DataContainer<E[]> container) {
+		if (closed)
+			return null;
 		beInitialized(container);
-		if (rows.size() == 0 || columnIndex >= rows.get(0).length)
+		if (rowCount == 0 || columnIndex >= columns.length)
 			return null;
-		@SuppressWarnings("unchecked")
-		E[] column = ArrayUtil.newInstance((Class<E>) source.getType().getComponentType(), rows.size());
-		for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
-			E[] row = rows.get(rowIndex);
-			column[rowIndex] = (columnIndex < row.length ? row[columnIndex] : null);
-		}
-		columnIndex++;
+		E[] column = columns[columnIndex];
+		if (column.length != rowCount)
+			column = Arrays.copyOf(column, rowCount);
+		columns[columnIndex++] = null; // release the column
+
 		return container.setData(column);
 	}
 
 	@Override
 	public void close() {
-		// nothing to do
+		if (!closed) {
+			closed = true;
+			columns = null;
+			source.close();
+		}
 	}
 	
 	// private helpers -------------------------------------------------------------------------------------------------
 	
+	@SuppressWarnings("unchecked")
 	private void beInitialized(DataContainer<E[]> container) {
-		if (rows == null) { // initialize on the first invocation
-			rows = new ArrayList<E[]>();
-			while (source.next(container) != null)
-				rows.add(container.getData());
+		if (columns == null) { // initialize on the first invocation
+			Class<E> componentType = (Class<E>) source.getType().getComponentType();
+			rowCount = 0;
 			columnIndex = 0;
+			while (source.next(container) != null) {
+				E[] row = container.getData();
+				if (columns == null) {
+					capacity = INITIAL_CAPACITY;
+					columns = (E[][]) Array.newInstance(componentType, row.length, capacity);
+				} else if (rowCount == capacity) {
+					capacity *= 2;
+					for (int i = 0; i < columns.length; i++)
+						columns[i] = Arrays.copyOf(columns[i], capacity);
+				}
+				int n = Math.min(row.length, columns.length);
+				for (int i = 0; i < n; i++)
+					columns[i][rowCount] = row[i];
+				rowCount++;
+			}
+			if (columns == null)
+				columns = (E[][]) Array.newInstance(componentType, 0, 0);
+			source.close();
 		}
 	}
 
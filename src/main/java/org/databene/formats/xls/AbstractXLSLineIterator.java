@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.databene.commons.Converter;
+import org.databene.commons.ObjectNotFoundException;
+import org.databene.commons.StringUtil;
+import org.databene.commons.converter.ArrayTypeConverter;
+import org.databene.commons.converter.NoOpConverter;
+import org.databene.formats.DataContainer;
+import org.databene.formats.DataIterator;
+
+/**
+ * Parent class for iterators which provide the lines of an Excel sheet as arrays.
+ * It holds the settings for the interpretation of cell values and the optional headers.
+ * Created: 18.10.2026 20:05:44
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public abstract class AbstractXLSLineIterator implements DataIterator<Object[]> {
+
+	protected String emptyMarker;
+	protected String nullMarker;
+	protected boolean formatted;
+	protected Converter<String, ?> stringPreprocessor;
+	protected final XLSRegion region;
+
+	protected String[] headers;
+	private Map<String, Integer> headerIndex;
+
+	// constructor -----------------------------------------------------------------------------------------------------
+
+	protected AbstractXLSLineIterator(boolean formatted, Converter<String, ?> stringPreprocessor) {
+		this(formatted, stringPreprocessor, null);
+	}
+
+	protected AbstractXLSLineIterator(boolean formatted, Converter<String, ?> stringPreprocessor, XLSRegion region) {
+		this.region = (region != null ? region : XLSRegion.ALL);
+		this.emptyMarker = "'";
+		this.nullMarker = null;
+		this.formatted = formatted;
+		if (stringPreprocessor == null)
+			stringPreprocessor = new NoOpConverter<String>();
+		this.stringPreprocessor = stringPreprocessor;
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public String getEmptyMarker() {
+		return emptyMarker;
+	}
+
+	public void setEmptyMarker(String emptyMarker) {
+		this.emptyMarker = emptyMarker;
+	}
+
+	public String getNullMarker() {
+		return nullMarker;
+	}
+
+	public void setNullMarker(String nullMarker) {
+		this.nullMarker = nullMarker;
+	}
+
+	public boolean isFormatted() {
+		return formatted;
+	}
+
+	public void setFormatted(boolean formatted) {
+		this.formatted = formatted;
+	}
+
+	/** @return the region of the sheet to iterate, the cell indices of the provided arrays are relative to its first column */
+	public XLSRegion getRegion() {
+		return region;
+	}
+
+	public String[] getHeaders() {
+		return headers;
+	}
+
+	public void setHeaders(String[] headers) {
+		this.headers = headers;
+		this.headerIndex = null;
+	}
+
+	// interface -------------------------------------------------------------------------------------------------------
+
+	@Override
+	public Class<Object[]> getType() {
+		return Object[].class;
+	}
+
+	public Object cellValueForHeader(String header, Object[] cells) {
+		Integer index = headerIndex().get(header);
+		if (index == null) {
+			String trimmedHeader = StringUtil.trim(header);
+			index = headerIndex().get(trimmedHeader);
+			if (index == null)
+				throw new ObjectNotFoundException("Undefined header: '" + trimmedHeader + "'");
+		}
+		return cells[index];
+	}
+
+	// helper methods --------------------------------------------------------------------------------------------------
+
+	protected void parseHeaders() {
+		DataContainer<Object[]> wrapper = new DataContainer<Object[]>();
+		if (next(wrapper) != null) {
+			setHeaders(StringUtil.trimAll(ArrayTypeConverter.convert(wrapper.getData(), String.class)));
+		} else {
+			setHeaders(null);
+			close();
+		}
+	}
+
+	private Map<String, Integer> headerIndex() {
+		if (headerIndex == null) {
+			headerIndex = new HashMap<String, Integer>();
+			for (int i = headers.length - 1; i >= 0; i--) // the first of duplicate headers wins
+				headerIndex.put(headers[i], i);
+		}
+		return headerIndex;
+	}
+
+}
@@ -22,13 +22,16 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
-import org.apache.poi.hssf.usermodel.HSSFCell;
-import org.apache.poi.hssf.usermodel.HSSFDataFormat;
-import org.apache.poi.hssf.usermodel.HSSFRichTextString;
-import org.apache.poi.hssf.usermodel.HSSFRow;
-import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.databene.commons.ConfigurationError;
 import org.databene.commons.IOUtil;
 import org.databene.commons.bean.PropertyGraphAccessor;
@@ -36,6 +39,10 @@ import org.databene.commons.converter.ToStringConverter;
 
 /**
  * Saves JavaBeans in MS Excel(TM) files.
+ * By default, an .xls document is built in memory. When a streaming row window is specified,
+ * an .xlsx document is written with constant memory usage, keeping only the most recent rows 
+ * in memory. In both modes, the cell style of each {@link PropFormat} is created once and column 
+ * widths are estimated from the first rows of the sheet.
  * Created: 27.12.2015 07:40:49
  * @since 1.0.7
  * @author Volker Bergmann
@@ -43,13 +50,27 @@ import org.databene.commons.converter.ToStringConverter;
 
 public class BeanXLSWriter<E> implements Closeable {
 
+	/** The default number of rows kept in memory in streaming mode */
+	public static final int DEFAULT_ROW_WINDOW = 100;
+	
+	/** The number of data rows which are evaluated for estimating the column widths */
+	public static final int WIDTH_SAMPLE_SIZE = 100;
+	
+	private static final int MAX_COLUMN_WIDTH = 255 * 256;
+	
     // attributes ------------------------------------------------------------------------------------------------------
 
     private final OutputStream out;
     private String sheetName;
 	private List<PropFormat> beanProperties;
+	private final int streamingRowWindow;
     
-    private HSSFWorkbook workbook;
+    private Workbook workbook;
+    private Sheet sheet;
+    private int nextRowIndex;
+    private CellStyle[] columnStyles;
+    private int[] sampledWidths;
+    private DataFormatter sampleFormatter;
 
 
     // constructors ----------------------------------------------------------------------------------------------------
@@ -59,32 +80,52 @@ public class BeanXLSWriter<E> implements Closeable {
     }
     
     public BeanXLSWriter(OutputStream out, String sheetName, List<PropFormat> beanProperties) {
+        this(out, sheetName, beanProperties, 0);
+    }
+    
+    /** Creates a writer.
+     * @param out the stream to write to
+     * @param sheetName the name of the sheet to create
+     * @param beanProperties the properties to write as columns
+     * @param streamingRowWindow if positive, an .xlsx document is streamed, keeping at most the given number 
+     * 		of rows in memory, otherwise an .xls document is built in memory */
+    public BeanXLSWriter(OutputStream out, String sheetName, List<PropFormat> beanProperties, int streamingRowWindow) {
         this.out = out;
         this.sheetName = sheetName;
 		this.beanProperties = (beanProperties != null ? new ArrayList<PropFormat>(beanProperties) : new ArrayList<PropFormat>());
+		this.streamingRowWindow = streamingRowWindow;
     }
     
 	public void addProperty(PropFormat property) {
 		this.beanProperties.add(property);
 	}
 
+	public boolean isStreaming() {
+		return (streamingRowWindow > 0);
+	}
+
 	public void save(E bean) {
-        HSSFSheet sheet = getOrCreateSheet(bean, sheetName);
-        HSSFRow row = sheet.createRow(sheet.getLastRowNum() + 1);
+        Sheet sheet = getOrCreateSheet(bean, sheetName);
+        Row row = sheet.createRow(nextRowIndex++);
+        boolean sampling = (sampledWidths != null);
         for (int i = 0; i < beanProperties.size(); i++) {
         	PropFormat prop = beanProperties.get(i);
         	Object propValue = PropertyGraphAccessor.getPropertyGraph(prop.getName(), bean);
-            render(propValue, row, i);
+            render(propValue, row, i, columnStyles[i]);
+            if (sampling)
+            	sampleWidth(propValue, i);
         }
+        if (sampling && nextRowIndex > WIDTH_SAMPLE_SIZE)
+        	applyColumnWidths();
     }
 
     @Override
 	public void close() {
         try {
             if (workbook == null)
-                workbook = new HSSFWorkbook(); // if no data was added, create an empty Excel document
-            else
-            	XLSUtil.autoSizeColumns(workbook);
+                workbook = createWorkbook(); // if no data was added, create an empty Excel document
+            else if (sampledWidths != null)
+            	applyColumnWidths();
 			// Write the output
 			workbook.write(out);
 		} catch (FileNotFoundException e) {
@@ -92,17 +133,20 @@ public class BeanXLSWriter<E> implements Closeable {
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		} finally {
+			if (workbook instanceof SXSSFWorkbook)
+				((SXSSFWorkbook) workbook).dispose(); // deletes the temporary files
 			IOUtil.close(out);
 		}
     }
 
     // private helpers -------------------------------------------------------------------------------------------------
     
-    private HSSFSheet getOrCreateSheet(E bean, String sheetName) {
+    private Sheet getOrCreateSheet(E bean, String sheetName) {
         // create file
-    	if (workbook == null)
-    		createWorkbook();
-		HSSFSheet sheet = workbook.getSheet(sheetName);
+    	if (workbook == null) {
+    		workbook = createWorkbook();
+    		columnStyles = createColumnStyles();
+    	}
         if (sheet == null) {
         	sheet = workbook.createSheet(sheetName);
         	writeHeaderRow(bean, sheet);
@@ -110,29 +154,47 @@ public class BeanXLSWriter<E> implements Closeable {
         return sheet;
     }
 
-	private void createWorkbook() {
-		this.workbook = new HSSFWorkbook();
+	private Workbook createWorkbook() {
+		if (isStreaming())
+			return new SXSSFWorkbook(streamingRowWindow);
+		else
+			return new HSSFWorkbook();
     }
 
-	private void writeHeaderRow(E bean, HSSFSheet sheet) {
-	    HSSFRow headerRow = sheet.createRow(0);
+	private CellStyle[] createColumnStyles() {
+		// styles are workbook resources, so they are created once and shared by all cells of a column
+		CellStyle[] styles = new CellStyle[beanProperties.size()];
+		DataFormat dataFormat = workbook.createDataFormat();
+		for (int i = 0; i < styles.length; i++) {
+			String pattern = beanProperties.get(i).getPattern();
+			if (pattern != null) {
+		        styles[i] = workbook.createCellStyle();
+		        styles[i].setDataFormat(dataFormat.getFormat(pattern));
+			}
+		}
+		return styles;
+	}
+
+	private void writeHeaderRow(E bean, Sheet sheet) {
+	    Row headerRow = sheet.createRow(0);
+	    sampledWidths = new int[beanProperties.size()];
 	    for (int i = 0; i < beanProperties.size(); i++) {
 	    	PropFormat prop = beanProperties.get(i);
 	    	// write column header
 	        String componentName = prop.getName();
-			headerRow.createCell(i).setCellValue(new HSSFRichTextString(componentName));
+			headerRow.createCell(i).setCellValue(componentName);
+			sampledWidths[i] = componentName.length();
 			// apply pattern
-	        if (prop.getPattern() != null) {
-	            HSSFDataFormat dataFormat = workbook.createDataFormat();
-		        CellStyle columnStyle = workbook.createCellStyle();
-		        columnStyle.setDataFormat(dataFormat.getFormat(prop.getPattern()));
-		        sheet.setDefaultColumnStyle(i, columnStyle);
-	        }
+	        if (columnStyles[i] != null)
+		        sheet.setDefaultColumnStyle(i, columnStyles[i]);
 	    }
+	    nextRowIndex = 1;
     }
 
-    private static void render(Object propValue, HSSFRow row, int column) {
-    	HSSFCell cell = row.createCell(column);
+    private static void render(Object propValue, Row row, int column, CellStyle style) {
+    	Cell cell = row.createCell(column);
+    	if (style != null)
+    		cell.setCellStyle(style);
 		if (propValue instanceof Number)
     		cell.setCellValue(((Number) propValue).doubleValue());
     	else if (propValue instanceof Date)
@@ -141,10 +203,35 @@ public class BeanXLSWriter<E> implements Closeable {
     		cell.setCellValue((Boolean) propValue);
     	else {
 	        String s = ToStringConverter.convert(propValue, null);
-	        cell.setCellValue(new HSSFRichTextString(s));
+	        cell.setCellValue(s);
     	}
 	}
 
+	private void sampleWidth(Object propValue, int column) {
+		String text;
+		CellStyle style = columnStyles[column];
+		if (propValue instanceof Number || propValue instanceof Date) {
+			double value = (propValue instanceof Date ? 
+					DateUtil.getExcelDate((Date) propValue) : ((Number) propValue).doubleValue());
+			if (sampleFormatter == null)
+				sampleFormatter = new DataFormatter();
+			text = (style != null ? 
+					sampleFormatter.formatRawCellContents(value, style.getDataFormat(), style.getDataFormatString()) : 
+					sampleFormatter.formatRawCellContents(value, 0, "General"));
+		} else if (propValue instanceof Boolean)
+			text = ((Boolean) propValue ? "TRUE" : "FALSE");
+		else
+			text = ToStringConverter.convert(propValue, "");
+		if (text != null && text.length() > sampledWidths[column])
+			sampledWidths[column] = text.length();
+	}
+
+	private void applyColumnWidths() {
+		for (int i = 0; i < sampledWidths.length; i++)
+			sheet.setColumnWidth(i, Math.min((sampledWidths[i] + 2) * 256, MAX_COLUMN_WIDTH));
+		sampledWidths = null;
+	}
+
     // java.lang.Object overrides --------------------------------------------------------------------------------------
 
     @Override
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.databene.commons.Assert;
+import org.databene.commons.BeanUtil;
+import org.databene.commons.ConversionException;
+import org.databene.commons.Converter;
+import org.databene.commons.Mutator;
+import org.databene.commons.StringUtil;
+import org.databene.commons.accessor.FeatureAccessor;
+import org.databene.commons.converter.AnyConverter;
+import org.databene.commons.converter.ToStringConverter;
+import org.databene.commons.converter.UnsafeConverter;
+import org.databene.commons.converter.util.ClassProvider;
+import org.databene.commons.converter.util.ReferenceResolver;
+import org.databene.commons.mutator.AnyMutator;
+import org.databene.commons.mutator.EmptyMutator;
+
+/**
+ * Converts the cell arrays of an Excel sheet to JavaBeans. For each bean class, the headers are bound once
+ * to the write methods of the bean properties and their types, so a row is mapped by array index without
+ * property lookups. Nested paths like 'address.city' and attributes without write method are handled by
+ * an {@link AnyMutator}. Only strings which start with '{' are handed to the script converter.
+ * Created: 18.10.2026 00:21:37
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSBeanConverter extends UnsafeConverter<Object[], Object> {
+
+	private final ClassProvider<Object> beanClassProvider;
+	private final String[] headers;
+	private final ReferenceResolver referenceResolver;
+	private final Converter<String, ?> scriptConverter;
+	private final boolean formatted;
+
+	private final Map<Class<?>, ColumnBinding[]> bindings;
+
+	public XLSBeanConverter(ClassProvider<Object> beanClassProvider, String[] headers,
+			ReferenceResolver referenceResolver, Converter<String, ?> scriptConverter, boolean formatted) {
+		super(Object[].class, Object.class);
+		this.beanClassProvider = Assert.notNull(beanClassProvider, "beanClassProvider");
+		this.headers = Assert.notNull(headers, "headers");
+		this.referenceResolver = Assert.notNull(referenceResolver, "referenceResolver");
+		this.scriptConverter = scriptConverter;
+		this.formatted = formatted;
+		this.bindings = new HashMap<Class<?>, ColumnBinding[]>();
+	}
+
+
+	// Converter interface ---------------------------------------------------------------------------------------------
+
+	@Override
+	public Object convert(Object[] row) throws ConversionException {
+		if (row == null)
+			return null;
+		Class<?> beanClass = beanClassProvider.classFor(row);
+		ColumnBinding[] columnBindings = bindingsFor(beanClass);
+		Object bean = BeanUtil.newInstance(beanClass);
+		int n = Math.min(row.length, columnBindings.length);
+		for (int i = 0; i < n; i++) {
+			Object value = row[i];
+			if (value instanceof String && scriptConverter != null && isScriptCandidate((String) value))
+				value = evaluateScript((String) value);
+			columnBindings[i].apply(bean, value, referenceResolver);
+		}
+		return bean;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + StringUtil.concat(',', headers) + "]";
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private ColumnBinding[] bindingsFor(Class<?> beanClass) {
+		ColumnBinding[] result = bindings.get(beanClass);
+		if (result == null) {
+			result = new ColumnBinding[headers.length];
+			for (int i = 0; i < headers.length; i++)
+				result[i] = new ColumnBinding(beanClass, headers[i]);
+			bindings.put(beanClass, result);
+		}
+		return result;
+	}
+
+	/** Performs the same test as ScriptUtil.isScript(), but only checks the first non-whitespace character. */
+	static boolean isScriptCandidate(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (!Character.isWhitespace(c))
+				return (c == '{');
+		}
+		return false;
+	}
+
+	private Object evaluateScript(String text) {
+		Object result = scriptConverter.convert(text);
+		return (formatted ? ToStringConverter.convert(result, null) : result);
+	}
+
+	/** Maps one column to a feature of the bean class. */
+	private static class ColumnBinding {
+
+		private final String ownerPath;
+		private final String featureName;
+		private final Method writeMethod;
+		private final Class<?> targetType;
+		private final Mutator mutator;
+
+		public ColumnBinding(Class<?> beanClass, String path) {
+			String[] pathComponents = StringUtil.splitOnLastSeparator(path, '.');
+			this.ownerPath = pathComponents[0];
+			this.featureName = pathComponents[1];
+			PropertyDescriptor descriptor = null;
+			if (ownerPath == null && !"class".equals(path))
+				descriptor = BeanUtil.getPropertyDescriptor(beanClass, path);
+			if (descriptor != null && descriptor.getWriteMethod() != null) {
+				this.writeMethod = descriptor.getWriteMethod();
+				Class<?> propertyType = descriptor.getPropertyType();
+				this.targetType = (propertyType.isPrimitive() ? BeanUtil.getWrapper(propertyType.getName()) : propertyType);
+			} else {
+				this.writeMethod = null;
+				this.targetType = null;
+			}
+			this.mutator = ("class".equals(path) ? new EmptyMutator() : new AnyMutator(featureName, false, true));
+		}
+
+		public void apply(Object bean, Object value, ReferenceResolver resolver) {
+			Object owner = (ownerPath != null ? haveTargetObject(bean, ownerPath) : bean);
+			value = resolver.resolveReferences(value, owner, featureName);
+			if (writeMethod != null && value != null) {
+				if (!targetType.isInstance(value))
+					value = AnyConverter.convert(value, targetType);
+				BeanUtil.invoke(owner, writeMethod, new Object[] { value });
+			} else {
+				mutator.setValue(owner, value);
+			}
+		}
+
+		private static Object haveTargetObject(Object bean, String featurePath) {
+			if (featurePath.contains(".")) {
+				String[] parts = StringUtil.splitOnFirstSeparator(featurePath, '.');
+				return haveTargetObject(haveTargetObject(bean, parts[0]), parts[1]);
+			}
+			Object result = FeatureAccessor.getValue(bean, featurePath, false);
+			return (result != null ? result : AnyMutator.setFeatureDefault(bean, featurePath));
+		}
+
+	}
+
+}
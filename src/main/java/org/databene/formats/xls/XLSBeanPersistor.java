@@ -74,7 +74,8 @@ public class XLSBeanPersistor<E> {
 		// save
 		BeanXLSWriter<E> out = null;
 		try {
-			out = new BeanXLSWriter<E>(new FileOutputStream(file), sheetName, beanProperties);
+			int rowWindow = (XLSUtil.isXLSX(file.getName()) ? BeanXLSWriter.DEFAULT_ROW_WINDOW : 0);
+			out = new BeanXLSWriter<E>(new FileOutputStream(file), sheetName, beanProperties, rowWindow);
 			while (beanIterator.hasNext())
 				out.save(beanIterator.next());
 		} finally {
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.databene.commons.ConfigurationError;
+import org.databene.commons.Converter;
+
+/**
+ * Resolves the values of the cells of one workbook. The {@link FormulaEvaluator} and the
+ * {@link DataFormatter} are created once and reused for all cells, so the evaluation cache
+ * of POI is shared between all formula cells. Optionally, the cached results of formula cells
+ * are used without evaluating them at all. The date format decision is cached per cell style
+ * and equal short strings of text cells are provided as the same String instance, using a pool
+ * of the {@value #STRING_POOL_CAPACITY} most recently used strings. Instances are not thread-safe.
+ * Created: 18.10.2026 23:10:36
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSCellResolver {
+
+	private static final int STRING_POOL_CAPACITY = 1000;
+	private static final int MAX_POOLED_STRING_LENGTH = 100;
+
+	private final Workbook workbook;
+	private boolean cachedFormulaResults;
+	private FormulaEvaluator evaluator;
+	private DataFormatter formatter;
+	private final XLSFormatCache formatCache;
+	private final Map<String, String> stringPool;
+
+	public XLSCellResolver(Workbook workbook) {
+		this(workbook, false);
+	}
+
+	public XLSCellResolver(Workbook workbook, boolean cachedFormulaResults) {
+		this.workbook = workbook;
+		this.cachedFormulaResults = cachedFormulaResults;
+		this.formatCache = new XLSFormatCache();
+		this.stringPool = new StringPool();
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public Workbook getWorkbook() {
+		return workbook;
+	}
+
+	/** @return true if the results of formula cells are taken from the document instead of being evaluated */
+	public boolean isCachedFormulaResults() {
+		return cachedFormulaResults;
+	}
+
+	public void setCachedFormulaResults(boolean cachedFormulaResults) {
+		this.cachedFormulaResults = cachedFormulaResults;
+	}
+
+
+	// functional interface --------------------------------------------------------------------------------------------
+
+	/** Resolves the value of a cell like {@link XLSUtil#resolveCellValue(Cell, String, String, Converter)}.
+	 * @param cell the cell to resolve
+	 * @param emptyMarker the string to interpret as empty field
+	 * @param nullMarker the string to interpret as null value
+	 * @param stringPreprocessor a preprocessor to apply to the raw field values
+	 * @return the cell value */
+	public Object resolveCellValue(Cell cell, String emptyMarker, String nullMarker, Converter<String, ?> stringPreprocessor) {
+		if (cell == null)
+			return null;
+		switch (cell.getCellType()) {
+			case STRING: return XLSUtil.convertString(stringValue(cell), emptyMarker, nullMarker, stringPreprocessor);
+			case NUMERIC: return numericValue(cell);
+			case BOOLEAN: return cell.getBooleanCellValue();
+			case BLANK:
+			case ERROR: return cell.getRichStringCellValue().getString();
+			case FORMULA:
+				if (cachedFormulaResults)
+					return cachedFormulaResult(cell, emptyMarker, stringPreprocessor);
+				CellValue cellValue = getEvaluator().evaluate(cell);
+				switch (cellValue.getCellType()) {
+					case STRING: return XLSUtil.convertString(cellValue.getStringValue(), emptyMarker, null, stringPreprocessor);
+					case NUMERIC:
+				    	if (isDate(cell, cellValue.getNumberValue()))
+				    		return DateUtil.getJavaDate(cellValue.getNumberValue());
+				    	else
+				    		return XLSUtil.mapNumberType(cellValue.getNumberValue());
+					case BOOLEAN: return cellValue.getBooleanValue();
+					case BLANK:
+					case ERROR: return null;
+				    default: throw new IllegalStateException("Unexpected cell type: " + cellValue.getCellType());
+				    	// CELL_TYPE_FORMULA is not supposed to be encountered here
+				}
+			default: throw new ConfigurationError("Not a supported cell type: " + cell.getCellType());
+		}
+	}
+
+	/** Resolves a cell and formats the result like {@link XLSUtil#resolveCellValueAsString(Cell, String, String, Converter)}.
+	 * @param cell the cell to resolve
+	 * @param emptyMarker the string to interpret as empty field
+	 * @param nullMarker the string to interpret as null value
+	 * @param stringPreprocessor a preprocessor to apply to the raw field values
+	 * @return a string representation of the cell value */
+	public String resolveCellValueAsString(Cell cell, String emptyMarker, String nullMarker, Converter<String, ?> stringPreprocessor) {
+		if (cell == null)
+			return null;
+		if (cell.getCellType() == CellType.STRING)
+	    	return XLSUtil.convertStringToString(stringValue(cell), emptyMarker, nullMarker, stringPreprocessor);
+		else if (cell.getCellType() != CellType.FORMULA)
+			return getFormatter().formatCellValue(cell);
+		else if (!cachedFormulaResults)
+			return getFormatter().formatCellValue(cell, getEvaluator());
+		else
+			return formatCachedFormulaResult(cell);
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private FormulaEvaluator getEvaluator() {
+		if (evaluator == null)
+			evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+		return evaluator;
+	}
+
+	private DataFormatter getFormatter() {
+		if (formatter == null)
+			formatter = new DataFormatter();
+		return formatter;
+	}
+
+	private String stringValue(Cell cell) {
+		String value = cell.getRichStringCellValue().getString();
+		if (value.length() > MAX_POOLED_STRING_LENGTH)
+			return value;
+		String pooled = stringPool.putIfAbsent(value, value);
+		return (pooled != null ? pooled : value);
+	}
+
+	private Object numericValue(Cell cell) {
+		double value = cell.getNumericCellValue();
+		if (isDate(cell, value))
+			return cell.getDateCellValue();
+		else
+			return XLSUtil.mapNumberType(value);
+	}
+
+	private boolean isDate(Cell cell, double value) {
+		CellStyle style = cell.getCellStyle();
+		return (style != null && numberFormat(style).isDate(value));
+	}
+
+	private XLSFormatCache.NumberFormat numberFormat(CellStyle style) {
+		int styleIndex = style.getIndex() & 0xFFFF;
+		XLSFormatCache.NumberFormat format = formatCache.get(styleIndex);
+		if (format == null)
+			format = formatCache.put(styleIndex, style.getDataFormat(), style.getDataFormatString());
+		return format;
+	}
+
+	private Object cachedFormulaResult(Cell cell, String emptyMarker, Converter<String, ?> stringPreprocessor) {
+		switch (cell.getCachedFormulaResultType()) {
+			case STRING: return XLSUtil.convertString(cell.getStringCellValue(), emptyMarker, null, stringPreprocessor);
+			case NUMERIC: return numericValue(cell);
+			case BOOLEAN: return cell.getBooleanCellValue();
+			default: return null;
+		}
+	}
+
+	private String formatCachedFormulaResult(Cell cell) {
+		switch (cell.getCachedFormulaResultType()) {
+			case STRING: return cell.getStringCellValue();
+			case NUMERIC:
+				XLSFormatCache.NumberFormat format = numberFormat(cell.getCellStyle());
+				return getFormatter().formatRawCellContents(cell.getNumericCellValue(), format.index, format.formatString);
+			case BOOLEAN: return (cell.getBooleanCellValue() ? "TRUE" : "FALSE");
+			case ERROR: return FormulaError.forInt(cell.getErrorCellValue()).getString();
+			default: return "";
+		}
+	}
+
+
+	// helper class ----------------------------------------------------------------------------------------------------
+
+	/** Keeps the most recently used strings and drops the least recently used one when the capacity is exceeded. */
+	@SuppressWarnings("serial")
+	private static final class StringPool extends LinkedHashMap<String, String> {
+
+		StringPool() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return (size() > STRING_POOL_CAPACITY);
+		}
+	}
+
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the values of one spreadsheet column in a primitive array of its {@link XLSColumnType}.
+ * Null values are tracked in a bitmap, strings are dictionary-encoded. When a value does not fit
+ * the current type, the column is widened: LONG to DOUBLE, DATE to TIMESTAMP and everything else
+ * to STRING.
+ * Created: 18.10.2026 09:20:15
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSColumn {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private final String name;
+	private XLSColumnType type;
+	private int size;
+
+	private long[] longs;
+	private double[] doubles;
+	private int[] codes;
+	private final BitSet nulls;
+
+	private List<String> dictionary;
+	private Map<String, Integer> dictionaryCodes;
+
+	XLSColumn(String name, XLSColumnType type) {
+		this.name = name;
+		this.type = type;
+		this.size = 0;
+		this.nulls = new BitSet();
+		allocate(type, DEFAULT_CAPACITY);
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public String getName() {
+		return name;
+	}
+
+	public XLSColumnType getType() {
+		return type;
+	}
+
+	public int size() {
+		return size;
+	}
+
+
+	// value access ----------------------------------------------------------------------------------------------------
+
+	public boolean isNull(int index) {
+		checkIndex(index);
+		return nulls.get(index);
+	}
+
+	/** @param index the row index
+	 * @return the value of a LONG, BOOLEAN, DATE or TIMESTAMP column, 0 for null values */
+	public long getLong(int index) {
+		checkIndex(index);
+		if (longs == null)
+			throw new IllegalStateException("Column '" + name + "' is of type " + type);
+		return longs[index];
+	}
+
+	/** @param index the row index
+	 * @return the value of a DOUBLE or LONG column, 0 for null values */
+	public double getDouble(int index) {
+		checkIndex(index);
+		if (type == XLSColumnType.LONG)
+			return longs[index];
+		if (type != XLSColumnType.DOUBLE)
+			throw new IllegalStateException("Column '" + name + "' is of type " + type);
+		return doubles[index];
+	}
+
+	public boolean getBoolean(int index) {
+		checkType(XLSColumnType.BOOLEAN);
+		return getLong(index) != 0;
+	}
+
+	/** @param index the row index
+	 * @return the day of a DATE column as offset to 1970-01-01 */
+	public long getEpochDay(int index) {
+		checkType(XLSColumnType.DATE);
+		return getLong(index);
+	}
+
+	/** @param index the row index
+	 * @return the milliseconds since 1970-01-01T00:00:00Z of a DATE or TIMESTAMP column */
+	public long getEpochMillis(int index) {
+		if (type == XLSColumnType.DATE)
+			return dayToMillis(getLong(index));
+		checkType(XLSColumnType.TIMESTAMP);
+		return getLong(index);
+	}
+
+	/** @param index the row index
+	 * @return the dictionary code of a value of a STRING column, -1 for null values */
+	public int getCode(int index) {
+		checkIndex(index);
+		checkType(XLSColumnType.STRING);
+		return (nulls.get(index) ? -1 : codes[index]);
+	}
+
+	/** @return the distinct values of a STRING column, indexed by their code */
+	public List<String> getDictionary() {
+		checkType(XLSColumnType.STRING);
+		return dictionary;
+	}
+
+	/** @param index the row index
+	 * @return the value of any column type rendered as string */
+	public String getString(int index) {
+		checkIndex(index);
+		if (nulls.get(index))
+			return null;
+		switch (type) {
+			case STRING:    return dictionary.get(codes[index]);
+			case LONG:      return String.valueOf(longs[index]);
+			case DOUBLE:    return String.valueOf(doubles[index]);
+			case BOOLEAN:   return String.valueOf(longs[index] != 0);
+			case DATE:      return LocalDate.ofEpochDay(longs[index]).toString();
+			case TIMESTAMP: return LocalDateTime.ofInstant(Instant.ofEpochMilli(longs[index]), ZoneId.systemDefault()).toString();
+			default: throw new UnsupportedOperationException("Not a supported column type: " + type);
+		}
+	}
+
+	/** @param index the row index
+	 * @return the value as {@link Long}, {@link Double}, {@link Boolean}, {@link Date} or {@link String},
+	 * 		like the cells provided by the {@link XLSLineIterator} */
+	public Object getValue(int index) {
+		checkIndex(index);
+		if (nulls.get(index))
+			return null;
+		switch (type) {
+			case LONG:      return longs[index];
+			case DOUBLE:    return doubles[index];
+			case BOOLEAN:   return (longs[index] != 0);
+			case DATE:      return new Date(dayToMillis(longs[index]));
+			case TIMESTAMP: return new Date(longs[index]);
+			case STRING:    return dictionary.get(codes[index]);
+			default: throw new UnsupportedOperationException("Not a supported column type: " + type);
+		}
+	}
+
+	public Object[] toArray() {
+		Object[] result = new Object[size];
+		for (int i = 0; i < size; i++)
+			result[i] = getValue(i);
+		return result;
+	}
+
+	/** @return a copy of the values of a LONG, BOOLEAN, DATE or TIMESTAMP column */
+	public long[] toLongArray() {
+		if (longs == null)
+			throw new IllegalStateException("Column '" + name + "' is of type " + type);
+		return Arrays.copyOf(longs, size);
+	}
+
+	/** @return a copy of the values of a DOUBLE or LONG column */
+	public double[] toDoubleArray() {
+		double[] result = new double[size];
+		for (int i = 0; i < size; i++)
+			result[i] = getDouble(i);
+		return result;
+	}
+
+	/** @return a copy of the null bitmap */
+	public BitSet getNulls() {
+		return (BitSet) nulls.clone();
+	}
+
+	@Override
+	public String toString() {
+		return name + ":" + type + "[" + size + "]";
+	}
+
+
+	// appending values ------------------------------------------------------------------------------------------------
+
+	void appendNull() {
+		ensureCapacity(size + 1);
+		nulls.set(size++);
+	}
+
+	void appendLong(long value) {
+		switch (type) {
+			case LONG:   ensureCapacity(size + 1); longs[size++] = value; break;
+			case DOUBLE: appendDouble(value); break;
+			default:     appendString(String.valueOf(value));
+		}
+	}
+
+	void appendDouble(double value) {
+		if (type == XLSColumnType.LONG) {
+			if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < Long.MAX_VALUE) {
+				appendLong((long) value);
+				return;
+			}
+			widen(XLSColumnType.DOUBLE);
+		}
+		if (type == XLSColumnType.DOUBLE) {
+			ensureCapacity(size + 1);
+			doubles[size++] = value;
+		} else
+			appendString(String.valueOf(XLSUtil.mapNumberType(value)));
+	}
+
+	void appendBoolean(boolean value) {
+		if (type == XLSColumnType.BOOLEAN) {
+			ensureCapacity(size + 1);
+			longs[size++] = (value ? 1 : 0);
+		} else
+			appendString(String.valueOf(value));
+	}
+
+	void appendEpochDay(long epochDay) {
+		if (type == XLSColumnType.DATE) {
+			ensureCapacity(size + 1);
+			longs[size++] = epochDay;
+		} else if (type == XLSColumnType.TIMESTAMP)
+			appendEpochMillis(dayToMillis(epochDay));
+		else
+			appendString(LocalDate.ofEpochDay(epochDay).toString());
+	}
+
+	void appendEpochMillis(long epochMillis) {
+		if (type == XLSColumnType.DATE)
+			widen(XLSColumnType.TIMESTAMP);
+		if (type == XLSColumnType.TIMESTAMP) {
+			ensureCapacity(size + 1);
+			longs[size++] = epochMillis;
+		} else
+			appendString(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).toString());
+	}
+
+	void appendString(String value) {
+		if (value == null) {
+			appendNull();
+			return;
+		}
+		if (type != XLSColumnType.STRING)
+			widen(XLSColumnType.STRING);
+		ensureCapacity(size + 1);
+		codes[size++] = codeOf(value);
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private void widen(XLSColumnType newType) {
+		if (newType == type)
+			return;
+		int capacity = Math.max(DEFAULT_CAPACITY, (longs != null ? longs.length : (doubles != null ? doubles.length : codes.length)));
+		if (newType == XLSColumnType.STRING) {
+			int[] newCodes = new int[capacity];
+			List<String> newDictionary = new ArrayList<String>();
+			Map<String, Integer> newDictionaryCodes = new HashMap<String, Integer>();
+			for (int i = 0; i < size; i++) {
+				if (!nulls.get(i)) {
+					String s = getString(i);
+					Integer code = newDictionaryCodes.get(s);
+					if (code == null) {
+						code = newDictionary.size();
+						newDictionary.add(s);
+						newDictionaryCodes.put(s, code);
+					}
+					newCodes[i] = code;
+				}
+			}
+			this.longs = null;
+			this.doubles = null;
+			this.codes = newCodes;
+			this.dictionary = newDictionary;
+			this.dictionaryCodes = newDictionaryCodes;
+		} else if (type == XLSColumnType.LONG && newType == XLSColumnType.DOUBLE) {
+			double[] newDoubles = new double[capacity];
+			for (int i = 0; i < size; i++)
+				newDoubles[i] = longs[i];
+			this.longs = null;
+			this.doubles = newDoubles;
+		} else if (type == XLSColumnType.DATE && newType == XLSColumnType.TIMESTAMP) {
+			for (int i = 0; i < size; i++)
+				if (!nulls.get(i))
+					longs[i] = dayToMillis(longs[i]);
+		} else
+			throw new IllegalArgumentException("Cannot widen column '" + name + "' from " + type + " to " + newType);
+		this.type = newType;
+	}
+
+	private int codeOf(String value) {
+		Integer code = dictionaryCodes.get(value);
+		if (code == null) {
+			code = dictionary.size();
+			dictionary.add(value);
+			dictionaryCodes.put(value, code);
+		}
+		return code;
+	}
+
+	private void allocate(XLSColumnType type, int capacity) {
+		switch (type) {
+			case DOUBLE: doubles = new double[capacity]; break;
+			case STRING:
+				codes = new int[capacity];
+				dictionary = new ArrayList<String>();
+				dictionaryCodes = new HashMap<String, Integer>();
+				break;
+			default: longs = new long[capacity];
+		}
+	}
+
+	private void ensureCapacity(int required) {
+		if (longs != null && longs.length < required)
+			longs = Arrays.copyOf(longs, Math.max(required, longs.length * 2));
+		else if (doubles != null && doubles.length < required)
+			doubles = Arrays.copyOf(doubles, Math.max(required, doubles.length * 2));
+		else if (codes != null && codes.length < required)
+			codes = Arrays.copyOf(codes, Math.max(required, codes.length * 2));
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " of column '" + name + "' with " + size + " values");
+	}
+
+	private void checkType(XLSColumnType expectedType) {
+		if (type != expectedType)
+			throw new IllegalStateException("Column '" + name + "' is of type " + type + ", not " + expectedType);
+	}
+
+	private static long dayToMillis(long epochDay) {
+		return LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+/**
+ * Lists the storage types of an {@link XLSColumn}.
+ * Created: 18.10.2026 09:12:40
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public enum XLSColumnType {
+
+	/** integral numbers, stored in a long[] */
+	LONG,
+	/** decimal numbers, stored in a double[] */
+	DOUBLE,
+	/** boolean values, stored as 0 and 1 in a long[] */
+	BOOLEAN,
+	/** dates without time of day, stored as epoch days in a long[] */
+	DATE,
+	/** dates with time of day, stored as epoch milliseconds in a long[] */
+	TIMESTAMP,
+	/** strings, stored as dictionary codes in an int[] */
+	STRING;
+
+	/** Determines the type which can represent the values of both types.
+	 * @param other the type to combine with
+	 * @return the combined type */
+	public XLSColumnType widen(XLSColumnType other) {
+		if (other == null || other == this)
+			return this;
+		if ((this == LONG && other == DOUBLE) || (this == DOUBLE && other == LONG))
+			return DOUBLE;
+		if ((this == DATE && other == TIMESTAMP) || (this == TIMESTAMP && other == DATE))
+			return TIMESTAMP;
+		return STRING;
+	}
+
+}
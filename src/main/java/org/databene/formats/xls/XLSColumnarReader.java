@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.databene.commons.IOUtil;
+import org.databene.commons.ParseException;
+import org.databene.commons.StringUtil;
+import org.databene.formats.DataContainer;
+import org.databene.formats.DataIterator;
+
+/**
+ * Reads spreadsheet data into an {@link XLSColumnarTable}. The type of each column is inferred
+ * from the first rows (see {@link #setSampleSize(int)}) and widened if a later value does not fit.
+ * Cells of a POI {@link Sheet} are read into the primitive column arrays without creating
+ * a wrapper object per cell. Any other source of rows, for example a streaming line iterator,
+ * can be read with {@link #read(DataIterator)}.
+ * Created: 18.10.2026 10:14:26
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSColumnarReader {
+
+	public static final int DEFAULT_SAMPLE_SIZE = 100;
+
+	private boolean headersIncluded;
+	private int sampleSize;
+	private String emptyMarker;
+	private String nullMarker;
+
+	public XLSColumnarReader() {
+		this(true);
+	}
+
+	public XLSColumnarReader(boolean headersIncluded) {
+		this.headersIncluded = headersIncluded;
+		this.sampleSize = DEFAULT_SAMPLE_SIZE;
+		this.emptyMarker = "'";
+		this.nullMarker = null;
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public boolean isHeadersIncluded() {
+		return headersIncluded;
+	}
+
+	public void setHeadersIncluded(boolean headersIncluded) {
+		this.headersIncluded = headersIncluded;
+	}
+
+	public int getSampleSize() {
+		return sampleSize;
+	}
+
+	/** @param sampleSize the number of data rows which are used to infer the column types */
+	public void setSampleSize(int sampleSize) {
+		this.sampleSize = sampleSize;
+	}
+
+	public String getEmptyMarker() {
+		return emptyMarker;
+	}
+
+	public void setEmptyMarker(String emptyMarker) {
+		this.emptyMarker = emptyMarker;
+	}
+
+	public String getNullMarker() {
+		return nullMarker;
+	}
+
+	public void setNullMarker(String nullMarker) {
+		this.nullMarker = nullMarker;
+	}
+
+
+	// interface -------------------------------------------------------------------------------------------------------
+
+	public XLSColumnarTable read(String uri, int sheetIndex) throws IOException {
+		InputStream in = IOUtil.getInputStreamForURI(uri);
+		try {
+			Workbook workbook = WorkbookFactory.create(in);
+			return read(workbook.getSheetAt(sheetIndex));
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new ParseException("Error parsing sheet " + sheetIndex + " of " + uri, e, null, -1, -1);
+		} finally {
+			IOUtil.close(in);
+		}
+	}
+
+	public XLSColumnarTable read(Sheet sheet) {
+		SheetCells cells = new SheetCells(sheet.getWorkbook());
+		int firstRowNum = Math.max(0, sheet.getFirstRowNum());
+		int lastRowNum = sheet.getLastRowNum();
+		String[] headers = null;
+		if (headersIncluded && sheet.getPhysicalNumberOfRows() > 0) {
+			headers = headers(sheet.getRow(firstRowNum), cells);
+			firstRowNum++;
+		}
+		// infer column types, keeping the formula results of the sample rows for reading them
+		List<XLSColumnType> types = new ArrayList<XLSColumnType>();
+		int sampleEnd = (int) Math.min(lastRowNum, (long) firstRowNum + sampleSize - 1);
+		cells.sampling = true;
+		for (int rowNum = firstRowNum; rowNum <= sampleEnd; rowNum++) {
+			Row row = sheet.getRow(rowNum);
+			if (row != null)
+				for (int cellnum = 0; cellnum < row.getLastCellNum(); cellnum++)
+					widen(types, cellnum, typeOf(row.getCell(cellnum), cells));
+		}
+		cells.sampling = false;
+		XLSColumnarTable table = createTable(headers, types);
+		// read data
+		for (int rowNum = firstRowNum; rowNum <= lastRowNum; rowNum++) {
+			Row row = sheet.getRow(rowNum);
+			if (row != null)
+				for (int cellnum = 0; cellnum < row.getLastCellNum(); cellnum++)
+					appendCell(row.getCell(cellnum), cells, column(table, cellnum, headers, row.getCell(cellnum), cells));
+			table.endRow();
+		}
+		return table;
+	}
+
+	public XLSColumnarTable read(DataIterator<Object[]> source) {
+		try {
+			DataContainer<Object[]> container = new DataContainer<Object[]>();
+			String[] headers = null;
+			if (headersIncluded && source.next(container) != null)
+				headers = StringUtil.trimAll(toStrings(container.getData()));
+			// buffer the sample rows and infer column types
+			List<Object[]> sample = new ArrayList<Object[]>();
+			List<XLSColumnType> types = new ArrayList<XLSColumnType>();
+			while (sample.size() < sampleSize && source.next(container) != null) {
+				Object[] row = container.getData();
+				sample.add(row);
+				for (int i = 0; i < row.length; i++)
+					widen(types, i, typeOf(row[i]));
+			}
+			XLSColumnarTable table = createTable(headers, types);
+			// read data
+			for (Object[] row : sample)
+				appendRow(row, headers, table);
+			sample = null;
+			while (source.next(container) != null)
+				appendRow(container.getData(), headers, table);
+			return table;
+		} finally {
+			source.close();
+		}
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private static XLSColumnarTable createTable(String[] headers, List<XLSColumnType> types) {
+		XLSColumnarTable table = new XLSColumnarTable();
+		int columnCount = Math.max(types.size(), (headers != null ? headers.length : 0));
+		for (int i = 0; i < columnCount; i++) {
+			table.haveColumn(i, header(headers, i), typeOrString(i < types.size() ? types.get(i) : null));
+		}
+		return table;
+	}
+
+	/** Provides a column of the table, creating columns which have not been present in the sample. */
+	private XLSColumn column(XLSColumnarTable table, int index, String[] headers, Cell cell, SheetCells cells) {
+		if (index < table.getColumnCount())
+			return table.getColumn(index);
+		return table.haveColumn(index, header(headers, index), typeOrString(typeOf(cell, cells)));
+	}
+
+	private XLSColumn column(XLSColumnarTable table, int index, String[] headers, Object value) {
+		if (index < table.getColumnCount())
+			return table.getColumn(index);
+		return table.haveColumn(index, header(headers, index), typeOrString(typeOf(value)));
+	}
+
+	private static XLSColumnType typeOrString(XLSColumnType type) {
+		return (type != null ? type : XLSColumnType.STRING);
+	}
+
+	private static void widen(List<XLSColumnType> types, int index, XLSColumnType type) {
+		while (types.size() <= index)
+			types.add(null);
+		XLSColumnType previous = types.get(index);
+		types.set(index, previous != null ? previous.widen(type) : type);
+	}
+
+	private static String header(String[] headers, int index) {
+		return (headers != null && index < headers.length ? headers[index] : null);
+	}
+
+	private String[] headers(Row row, SheetCells cells) {
+		if (row == null)
+			return new String[0];
+		XLSColumnarTable headerTable = new XLSColumnarTable();
+		for (int cellnum = 0; cellnum < row.getLastCellNum(); cellnum++)
+			appendCell(row.getCell(cellnum), cells, headerTable.haveColumn(cellnum, null, XLSColumnType.STRING));
+		headerTable.endRow();
+		String[] result = new String[headerTable.getColumnCount()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = StringUtil.trim(headerTable.getColumn(i).getString(0));
+		return result;
+	}
+
+	// reading cells ---------------------------------------------------------------------------------------------------
+
+	private XLSColumnType typeOf(Cell cell, SheetCells cells) {
+		if (cell == null)
+			return null;
+		switch (cell.getCellType()) {
+			case NUMERIC: return numberType(cell, cell.getNumericCellValue(), cells);
+			case BOOLEAN: return XLSColumnType.BOOLEAN;
+			case STRING: return (stringValue(cell.getStringCellValue()) != null ? XLSColumnType.STRING : null);
+			case FORMULA:
+				CellValue value = cells.evaluate(cell);
+				switch (value.getCellType()) {
+					case NUMERIC: return numberType(cell, value.getNumberValue(), cells);
+					case BOOLEAN: return XLSColumnType.BOOLEAN;
+					case STRING:  return (stringValue(value.getStringValue()) != null ? XLSColumnType.STRING : null);
+					default:      return null;
+				}
+			default: return null;
+		}
+	}
+
+	private static XLSColumnType numberType(Cell cell, double value, SheetCells cells) {
+		if (cells.isDate(cell, value))
+			return (isMidnight(dateTime(cell, value)) ? XLSColumnType.DATE : XLSColumnType.TIMESTAMP);
+		return (isIntegral(value) ? XLSColumnType.LONG : XLSColumnType.DOUBLE);
+	}
+
+	private void appendCell(Cell cell, SheetCells cells, XLSColumn column) {
+		if (cell == null) {
+			column.appendNull();
+			return;
+		}
+		switch (cell.getCellType()) {
+			case NUMERIC: appendNumber(cell, cell.getNumericCellValue(), cells, column); break;
+			case STRING:  column.appendString(stringValue(cell.getStringCellValue())); break;
+			case BOOLEAN: column.appendBoolean(cell.getBooleanCellValue()); break;
+			case FORMULA:
+				CellValue value = cells.evaluate(cell);
+				switch (value.getCellType()) {
+					case NUMERIC: appendNumber(cell, value.getNumberValue(), cells, column); break;
+					case STRING:  column.appendString(stringValue(value.getStringValue())); break;
+					case BOOLEAN: column.appendBoolean(value.getBooleanValue()); break;
+					default:      column.appendNull();
+				}
+				break;
+			default: column.appendNull();
+		}
+	}
+
+	private static void appendNumber(Cell cell, double value, SheetCells cells, XLSColumn column) {
+		if (cells.isDate(cell, value)) {
+			LocalDateTime dateTime = dateTime(cell, value);
+			if (isMidnight(dateTime))
+				column.appendEpochDay(dateTime.toLocalDate().toEpochDay());
+			else
+				column.appendEpochMillis(dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+		} else if (isIntegral(value))
+			column.appendLong((long) value);
+		else
+			column.appendDouble(value);
+	}
+
+	private static LocalDateTime dateTime(Cell cell, double value) {
+		// the cell respects the 1904 date windowing of its workbook, formula results are not stored in the cell
+		return (cell.getCellType() == CellType.NUMERIC ? cell.getLocalDateTimeCellValue() : DateUtil.getLocalDateTime(value));
+	}
+
+	/** Evaluates the formula cells and inspects the number formats of the cells of one workbook. 
+	 *  The date format decision is cached per cell style and the formula results of the sample rows 
+	 *  are kept, so that they are not evaluated a second time when reading the rows. */
+	private static final class SheetCells {
+
+		private final FormulaEvaluator evaluator;
+		private final XLSFormatCache formatCache;
+		private final Map<Cell, CellValue> sampledResults;
+		boolean sampling;
+
+		SheetCells(Workbook workbook) {
+			this.evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+			this.formatCache = new XLSFormatCache();
+			this.sampledResults = new IdentityHashMap<Cell, CellValue>();
+			this.sampling = false;
+		}
+
+		CellValue evaluate(Cell cell) {
+			CellValue value = (sampling ? null : sampledResults.remove(cell));
+			if (value == null) {
+				value = evaluator.evaluate(cell);
+				if (sampling)
+					sampledResults.put(cell, value);
+			}
+			return value;
+		}
+
+		boolean isDate(Cell cell, double value) {
+			CellStyle style = cell.getCellStyle();
+			if (style == null)
+				return false;
+			int styleIndex = style.getIndex() & 0xFFFF;
+			XLSFormatCache.NumberFormat format = formatCache.get(styleIndex);
+			if (format == null)
+				format = formatCache.put(styleIndex, style.getDataFormat(), style.getDataFormatString());
+			return format.isDate(value);
+		}
+	}
+
+	// reading arrays --------------------------------------------------------------------------------------------------
+
+	private XLSColumnType typeOf(Object value) {
+		if (value == null)
+			return null;
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+			return XLSColumnType.LONG;
+		if (value instanceof Number)
+			return (isIntegral(((Number) value).doubleValue()) ? XLSColumnType.LONG : XLSColumnType.DOUBLE);
+		if (value instanceof Boolean)
+			return XLSColumnType.BOOLEAN;
+		if (value instanceof Date)
+			return (isMidnight(toLocalDateTime((Date) value)) ? XLSColumnType.DATE : XLSColumnType.TIMESTAMP);
+		return (stringValue(value.toString()) != null ? XLSColumnType.STRING : null);
+	}
+
+	private void appendRow(Object[] row, String[] headers, XLSColumnarTable table) {
+		for (int i = 0; i < row.length; i++)
+			appendValue(row[i], column(table, i, headers, row[i]));
+		table.endRow();
+	}
+
+	private void appendValue(Object value, XLSColumn column) {
+		if (value == null)
+			column.appendNull();
+		else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+			column.appendLong(((Number) value).longValue());
+		else if (value instanceof Number) {
+			double d = ((Number) value).doubleValue();
+			if (isIntegral(d))
+				column.appendLong((long) d);
+			else
+				column.appendDouble(d);
+		} else if (value instanceof Boolean)
+			column.appendBoolean((Boolean) value);
+		else if (value instanceof Date) {
+			LocalDateTime dateTime = toLocalDateTime((Date) value);
+			if (isMidnight(dateTime))
+				column.appendEpochDay(dateTime.toLocalDate().toEpochDay());
+			else
+				column.appendEpochMillis(((Date) value).getTime());
+		} else
+			column.appendString(stringValue(value.toString()));
+	}
+
+	// general helpers -------------------------------------------------------------------------------------------------
+
+	private String stringValue(String content) {
+		return XLSUtil.convertStringToString(content, emptyMarker, nullMarker, null);
+	}
+
+	private static String[] toStrings(Object[] values) {
+		String[] result = new String[values.length];
+		for (int i = 0; i < values.length; i++)
+			result[i] = (values[i] != null ? values[i].toString() : null);
+		return result;
+	}
+
+	private static boolean isIntegral(double value) {
+		return (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < Long.MAX_VALUE);
+	}
+
+	private static boolean isMidnight(LocalDateTime dateTime) {
+		return dateTime.toLocalTime().equals(LocalTime.MIDNIGHT);
+	}
+
+	private static LocalDateTime toLocalDateTime(Date date) {
+		return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.databene.commons.ObjectNotFoundException;
+import org.databene.formats.DataContainer;
+import org.databene.formats.DataIterator;
+
+/**
+ * Holds the data of a spreadsheet as {@link XLSColumn}s of equal size. Created by the {@link XLSColumnarReader}.
+ * Created: 18.10.2026 09:58:51
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSColumnarTable {
+
+	private final List<XLSColumn> columns;
+	private int rowCount;
+
+	XLSColumnarTable() {
+		this.columns = new ArrayList<XLSColumn>();
+		this.rowCount = 0;
+	}
+
+
+	// interface -------------------------------------------------------------------------------------------------------
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public int getColumnCount() {
+		return columns.size();
+	}
+
+	public XLSColumn getColumn(int index) {
+		return columns.get(index);
+	}
+
+	public XLSColumn getColumn(String name) {
+		for (XLSColumn column : columns)
+			if (name.equals(column.getName()))
+				return column;
+		throw new ObjectNotFoundException("Undefined column: '" + name + "'");
+	}
+
+	public List<XLSColumn> getColumns() {
+		return columns;
+	}
+
+	/** Provides the columns as arrays, in the form used by the column-based {@link XLSSource}.
+	 * @return an iterator over the columns */
+	public DataIterator<Object[]> columnIterator() {
+		return new DataIterator<Object[]>() {
+
+			private int columnIndex = 0;
+
+			@Override
+			public Class<Object[]> getType() {
+				return Object[].class;
+			}
+
+			@Override
+			public DataContainer<Object[]> next(DataContainer<Object[]> container) {
+				if (columnIndex >= columns.size())
+					return null;
+				return container.setData(columns.get(columnIndex++).toArray());
+			}
+
+			@Override
+			public void close() {
+				columnIndex = columns.size();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + columns;
+	}
+
+
+	// package-private helpers -----------------------------------------------------------------------------------------
+
+	/** Provides the column with the given index, creating it with leading null values if necessary. */
+	XLSColumn haveColumn(int index, String name, XLSColumnType type) {
+		while (columns.size() <= index) {
+			int newIndex = columns.size();
+			XLSColumn column = new XLSColumn((newIndex == index ? name : null), (newIndex == index ? type : XLSColumnType.STRING));
+			for (int i = 0; i < rowCount; i++)
+				column.appendNull();
+			columns.add(column);
+		}
+		return columns.get(index);
+	}
+
+	/** Finishes a row, padding the columns which did not receive a value with null. */
+	void endRow() {
+		rowCount++;
+		for (XLSColumn column : columns)
+			while (column.size() < rowCount)
+				column.appendNull();
+	}
+
+}
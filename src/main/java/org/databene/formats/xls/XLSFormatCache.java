@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import java.util.Arrays;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+
+/**
+ * Caches the number format of each cell style of a workbook together with the decision
+ * whether it is a date format, so that the format string is inspected only once per style
+ * and not for each cell. Instances are not thread-safe.
+ * Created: 18.10.2026 13:04:41
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+final class XLSFormatCache {
+
+	private NumberFormat[] formats;
+
+	XLSFormatCache() {
+		this.formats = new NumberFormat[32];
+	}
+
+	/** @param styleIndex the index of a cell style
+	 * @return the cached format of the style or null if it has not been registered yet */
+	NumberFormat get(int styleIndex) {
+		return (styleIndex < formats.length ? formats[styleIndex] : null);
+	}
+
+	/** Registers the number format of a cell style.
+	 * @param styleIndex the index of the cell style
+	 * @param formatIndex the index of the style's number format
+	 * @param formatString the number format string, null for 'General'
+	 * @return the cached format */
+	NumberFormat put(int styleIndex, int formatIndex, String formatString) {
+		if (styleIndex >= formats.length)
+			formats = Arrays.copyOf(formats, Math.max(styleIndex + 1, formats.length * 2));
+		NumberFormat format = new NumberFormat(formatIndex, formatString);
+		formats[styleIndex] = format;
+		return format;
+	}
+
+	static final class NumberFormat {
+
+		final int index;
+		final String formatString;
+		final boolean date;
+
+		NumberFormat(int index, String formatString) {
+			this.index = index;
+			this.formatString = (formatString != null ? formatString : "General");
+			this.date = (formatString != null && DateUtil.isADateFormat(index, formatString));
+		}
+
+		/** @param value a numeric cell value
+		 * @return true if the value is to be represented as date */
+		boolean isDate(double value) {
+			return (date && DateUtil.isValidExcelDate(value));
+		}
+
+		@Override
+		public String toString() {
+			return index + ":" + formatString;
+		}
+	}
+
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import org.databene.commons.Converter;
+import org.databene.commons.IOUtil;
+import org.databene.commons.ParseException;
+import org.databene.commons.converter.util.ConstantClassProvider;
+import org.databene.formats.DataContainer;
+
+/**
+ * Imports the sheets of one Excel document as JavaBeans. The sheets are streamed from one local copy 
+ * of the document, using an {@link XLSXStreamingLineIterator} for .xlsx documents and an 
+ * {@link XLSStreamingLineIterator} for .xls documents, so formulas are not evaluated, but their cached results are used. 
+ * Parsed sheets are memoized by sheet name and bean type, so 'tab:' references
+ * of {@link XLSJavaBeanIterator} parse each referenced sheet only once. 
+ * With a thread count greater than one, {@link #parseAll(Map)} and {@link #prefetch(String, Class)} 
+ * decode independent sheets in parallel on a worker pool. A sheet which is requested 
+ * while it is still waiting in the pool is parsed by the requesting thread. 
+ * Cyclic 'tab:' references are reported with a {@link ParseException}, also when the sheets 
+ * of the cycle are parsed by different threads.
+ * Created: 18.10.2026 23:41:12
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSImportSession implements Closeable {
+
+	private final String uri;
+	private final boolean formatted;
+	private final String nullMarker;
+	private final String emptyMarker;
+
+	private final Map<String, FutureTask<List<?>>> sheets;
+	private ExecutorService executor;
+
+	/** The sheets which are parsed by the current thread, in the order of their nesting */
+	private final ThreadLocal<Deque<String>> parsedSheets;
+	/** Maps the sheet keys to the threads which parse them */
+	private final Map<String, Thread> sheetOwners;
+	/** Maps the threads which wait for a sheet parsed by another thread to the key of that sheet */
+	private final Map<Thread, String> awaitedSheets;
+	private String localUri;
+	private File tempFile;
+
+	// constructors ----------------------------------------------------------------------------------------------------
+
+	public XLSImportSession(String uri, boolean formatted) {
+		this(uri, formatted, null, "", 1);
+	}
+
+	public XLSImportSession(String uri, boolean formatted, String nullMarker, String emptyMarker, int threadCount) {
+		this.uri = uri;
+		this.formatted = formatted;
+		this.nullMarker = nullMarker;
+		this.emptyMarker = emptyMarker;
+		this.sheets = new ConcurrentHashMap<String, FutureTask<List<?>>>();
+		this.executor = (threadCount > 1 ? Executors.newFixedThreadPool(threadCount) : null);
+		this.parsedSheets = new ThreadLocal<Deque<String>>() {
+			@Override
+			protected Deque<String> initialValue() {
+				return new ArrayDeque<String>();
+			}
+		};
+		this.sheetOwners = new HashMap<String, Thread>();
+		this.awaitedSheets = new HashMap<Thread, String>();
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public String getUri() {
+		return uri;
+	}
+
+	public boolean isFormatted() {
+		return formatted;
+	}
+
+	public String getNullMarker() {
+		return nullMarker;
+	}
+
+	public String getEmptyMarker() {
+		return emptyMarker;
+	}
+
+
+	// interface -------------------------------------------------------------------------------------------------------
+
+	/** Provides the beans of a sheet, parsing it on the first request.
+	 * @param sheetName the name of the sheet
+	 * @param type the class of the beans to create
+	 * @return the beans of the sheet
+	 * @throws ParseException if the sheet cannot be parsed or is part of a cyclic 'tab:' reference */
+	public <T> List<T> getSheet(String sheetName, Class<T> type) {
+		return awaitSheet(sheetName, type);
+	}
+
+	/** Schedules a sheet for parsing on the worker pool. Without a worker pool, which is the case 
+	 * for a thread count of one, this does nothing and the sheet is parsed when it is requested.
+	 * @param sheetName the name of the sheet
+	 * @param type the class of the beans to create */
+	public void prefetch(String sheetName, Class<?> type) {
+		if (executor != null)
+			executor.execute(taskFor(sheetName, type));
+	}
+
+	/** Parses several sheets, in parallel if the session has a worker pool.
+	 * @param sheetTypes maps the names of the sheets to parse to their bean classes
+	 * @return a map of the sheet names to their beans, in the order of the sheetTypes map */
+	public Map<String, List<?>> parseAll(Map<String, Class<?>> sheetTypes) {
+		for (Map.Entry<String, Class<?>> entry : sheetTypes.entrySet())
+			prefetch(entry.getKey(), entry.getValue());
+		Map<String, List<?>> result = new LinkedHashMap<String, List<?>>();
+		for (Map.Entry<String, Class<?>> entry : sheetTypes.entrySet())
+			result.put(entry.getKey(), getSheet(entry.getKey(), entry.getValue()));
+		return result;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+		if (tempFile != null) {
+			tempFile.delete();
+			tempFile = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + uri + "]";
+	}
+
+
+	// package-private helpers -----------------------------------------------------------------------------------------
+
+	AbstractXLSLineIterator createLineIterator(String sheetName, Converter<String, ?> stringPreprocessor) throws IOException {
+		AbstractXLSLineIterator iterator;
+		if (XLSUtil.isXLSX(uri))
+			iterator = new XLSXStreamingLineIterator(localUri(), sheetName, true, formatted, stringPreprocessor);
+		else
+			iterator = new XLSStreamingLineIterator(localUri(), sheetName, true, formatted, stringPreprocessor);
+		iterator.setNullMarker(nullMarker);
+		iterator.setEmptyMarker(emptyMarker);
+		return iterator;
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	@SuppressWarnings("unchecked")
+	private <T> List<T> awaitSheet(String sheetName, Class<T> type) {
+		String key = key(sheetName, type);
+		FutureTask<List<?>> task = taskFor(sheetName, type);
+		task.run(); // returns immediately if the task has already been started
+		Thread thread = Thread.currentThread();
+		try {
+			if (!task.isDone()) {
+				// the sheet is parsed by this thread on a lower nesting level or by another thread
+				synchronized (sheetOwners) {
+					checkCycle(key);
+					awaitedSheets.put(thread, key);
+				}
+			}
+			return (List<T>) task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while parsing sheet '" + sheetName + "' of " + uri, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new ParseException("Error parsing sheet '" + sheetName + "' of " + uri, cause, null, -1, -1);
+		} finally {
+			synchronized (sheetOwners) {
+				awaitedSheets.remove(thread);
+			}
+		}
+	}
+
+	/** Follows the chain of sheets which are awaited by the threads parsing them, starting at the requested sheet. 
+	 * If the chain leads back to the current thread, waiting for the sheet would never end.
+	 * Must be called while holding the lock of {@link #sheetOwners}. */
+	private void checkCycle(String requestedKey) {
+		Thread thread = Thread.currentThread();
+		List<String> chain = new ArrayList<String>(parsedSheets.get());
+		String key = requestedKey;
+		while (key != null && chain.size() <= sheets.size() + 1) {
+			chain.add(key);
+			Thread owner = sheetOwners.get(key);
+			if (owner == thread)
+				throw new ParseException("Cyclic 'tab:' reference in " + uri + ": " + sheetNames(chain), null, -1, -1);
+			key = (owner != null ? awaitedSheets.get(owner) : null);
+		}
+	}
+
+	private static String sheetNames(List<String> keys) {
+		StringBuilder builder = new StringBuilder();
+		for (String key : keys) {
+			if (builder.length() > 0)
+				builder.append(" -> ");
+			builder.append(key.substring(0, key.lastIndexOf('|')));
+		}
+		return builder.toString();
+	}
+
+	private static String key(String sheetName, Class<?> type) {
+		return sheetName + '|' + type.getName();
+	}
+
+	private FutureTask<List<?>> taskFor(final String sheetName, final Class<?> type) {
+		final String key = key(sheetName, type);
+		FutureTask<List<?>> task = sheets.get(key);
+		if (task == null) {
+			FutureTask<List<?>> newTask = new FutureTask<List<?>>(new Callable<List<?>>() {
+				@Override
+				public List<?> call() throws Exception {
+					Thread thread = Thread.currentThread();
+					synchronized (sheetOwners) {
+						sheetOwners.put(key, thread);
+					}
+					parsedSheets.get().addLast(key);
+					try {
+						return parseSheet(sheetName, type);
+					} finally {
+						parsedSheets.get().removeLast();
+						synchronized (sheetOwners) {
+							sheetOwners.remove(key);
+						}
+					}
+				}
+			});
+			task = sheets.putIfAbsent(key, newTask);
+			if (task == null)
+				task = newTask;
+		}
+		return task;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> List<T> parseSheet(String sheetName, Class<T> type) throws IOException {
+		XLSJavaBeanIterator<T> iterator = new XLSJavaBeanIterator<T>(this, sheetName, new ConstantClassProvider<Object>(type));
+		try {
+			List<T> result = new ArrayList<T>();
+			DataContainer<T> container = new DataContainer<T>();
+			while (iterator.next(container) != null)
+				result.add(container.getData());
+			return result;
+		} finally {
+			iterator.close();
+		}
+	}
+
+	private synchronized String localUri() throws IOException {
+		if (localUri == null) {
+			if (new File(uri).isFile()) {
+				localUri = uri;
+			} else {
+				// the streaming iterator would copy non-local documents once per sheet
+				InputStream in = IOUtil.getInputStreamForURI(uri);
+				try {
+					tempFile = File.createTempFile("databene-", (XLSUtil.isXLSX(uri) ? ".xlsx" : ".xls"));
+					Files.copy(in, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				} finally {
+					IOUtil.close(in);
+				}
+				localUri = tempFile.getAbsolutePath();
+			}
+		}
+		return localUri;
+	}
+
+}
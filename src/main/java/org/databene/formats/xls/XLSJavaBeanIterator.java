@@ -32,7 +32,6 @@ import org.databene.commons.ConfigurationError;
 import org.databene.commons.Converter;
 import org.databene.commons.StringUtil;
 import org.databene.commons.context.DefaultContext;
-import org.databene.commons.converter.PropertyArray2JavaBeanConverter;
 import org.databene.commons.converter.util.ClassProvider;
 import org.databene.commons.converter.util.ConstantClassProvider;
 import org.databene.commons.converter.util.ReferenceResolver;
@@ -49,26 +48,35 @@ import org.databene.formats.util.ConvertingDataIterator;
 
 public class XLSJavaBeanIterator<E> extends ConvertingDataIterator<Object[], E> {
 	
-	private String uri;
-	private boolean formatted;
+	private XLSImportSession session;
+	private boolean ownSession;
 	
 	public XLSJavaBeanIterator(String uri, String sheetName, boolean formatted, Class<?> beanClass) throws IOException, InvalidFormatException {
 		this(uri, sheetName, formatted, null, "", new ConstantClassProvider<Object>(beanClass));
 	}
 
-	@SuppressWarnings("unchecked")
 	public XLSJavaBeanIterator(String uri, String sheetName, boolean formatted, String nullMarker, String emptyMarker, ClassProvider<Object> beanClassProvider) 
 			throws IOException, InvalidFormatException {
+		this(new XLSImportSession(uri, formatted, nullMarker, emptyMarker, 1), sheetName, beanClassProvider);
+		this.ownSession = true;
+	}
+
+	/** Iterates a sheet of the document of an {@link XLSImportSession}. 
+	 * 'tab:' references are resolved by the session, the session is not closed by this iterator.
+	 * @param session the session of the document
+	 * @param sheetName the name of the sheet to iterate
+	 * @param beanClassProvider provides the class of the beans to create */
+	@SuppressWarnings("unchecked")
+	public XLSJavaBeanIterator(XLSImportSession session, String sheetName, ClassProvider<Object> beanClassProvider) throws IOException {
 		super(null, null);
-		this.uri = uri;
-		this.formatted = formatted;
+		this.session = session;
+		this.ownSession = false;
 		Converter<String, ?> scriptConverter = new ScriptConverterForStrings(new DefaultContext());
-		XLSLineIterator iterator = new XLSLineIterator(uri, sheetName, true, formatted, scriptConverter);
-		iterator.setNullMarker(nullMarker);
-		iterator.setEmptyMarker(emptyMarker);
-		String[] headers = parseHeaders(uri, sheetName, iterator);
+		AbstractXLSLineIterator iterator = session.createLineIterator(sheetName, null);
+		String[] headers = parseHeaders(session.getUri(), sheetName, iterator);
 		this.source = iterator;
-		this.converter = (Converter<Object[], E>) new PropertyArray2JavaBeanConverter(beanClassProvider, headers, new RefResolver());
+		this.converter = (Converter<Object[], E>) (Converter<?, ?>) new XLSBeanConverter(
+				beanClassProvider, headers, new RefResolver(), scriptConverter, session.isFormatted());
 	}
 
 	public static <T> List<T> parseAll(String uri, String sheetName, boolean formatted, Class<T> type) 
@@ -111,11 +119,18 @@ public class XLSJavaBeanIterator<E> extends ConvertingDataIterator<Object[], E>
         	}
         }
 	}
+	
+	@Override
+	public void close() {
+		super.close();
+		if (ownSession)
+			session.close();
+	}
 
 
 	// private helpers -------------------------------------------------------------------------------------------------
 
-	private static String[] parseHeaders(String uri, String sheetName, XLSLineIterator iterator) {
+	private static String[] parseHeaders(String uri, String sheetName, AbstractXLSLineIterator iterator) {
 		// get headers
 		String[] headers = iterator.getHeaders();
 		Assert.notEmpty(headers, "Empty XLS sheet '" + sheetName + "' in document " + uri);
@@ -144,9 +159,9 @@ public class XLSJavaBeanIterator<E> extends ConvertingDataIterator<Object[], E>
 					String targetSheetName = text.substring("tab:".length());
 					try {
 						Class<?> targetType = getFeatureComponentType(target.getClass(), localFeatureName);
-						return parseAll(uri, targetSheetName, formatted, targetType );
+						return new ArrayList<Object>(session.getSheet(targetSheetName, targetType));
 					} catch (Exception e) {
-						throw new RuntimeException("Error parsing XLS sheet '" + targetSheetName + "' of " + uri, e);
+						throw new RuntimeException("Error parsing XLS sheet '" + targetSheetName + "' of " + session.getUri(), e);
 					}
 				}
 			}
@@ -18,37 +18,30 @@ import java.io.IOException;
 import java.util.Iterator;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.databene.commons.Converter;
 import org.databene.commons.IOUtil;
-import org.databene.commons.ObjectNotFoundException;
 import org.databene.commons.ParseException;
-import org.databene.commons.StringUtil;
-import org.databene.commons.converter.ArrayTypeConverter;
-import org.databene.commons.converter.NoOpConverter;
 import org.databene.formats.DataContainer;
-import org.databene.formats.DataIterator;
 
 /**
  * Iterates the lines of a sheet in an Excel document.
+ * The complete workbook is loaded into memory, for streaming .xlsx files 
+ * use {@link XLSXStreamingLineIterator}.
  * 
  * Created at 27.01.2009 22:04:47
  * @since 0.4.8
  * @author Volker Bergmann
  */
 
-public class XLSLineIterator implements DataIterator<Object[]> {
+public class XLSLineIterator extends AbstractXLSLineIterator {
 	
-	private String emptyMarker;
-	private String nullMarker;
-	private boolean formatted;
-	private Converter<String, ?> stringPreprocessor;
-	
-	private String[] headers;
 	private Iterator<Row> rowIterator;
+	private XLSCellResolver cellResolver;
 	
 	// constructors ----------------------------------------------------------------------------------------------------
 	
@@ -62,7 +55,12 @@ public class XLSLineIterator implements DataIterator<Object[]> {
 	
     public XLSLineIterator(String uri, int sheetIndex, boolean headersIncluded, boolean formatted, Converter<String, ?> stringPreprocessor) 
     		throws IOException, ParseException {
-		this(sheet(uri, sheetIndex), headersIncluded, formatted, stringPreprocessor);
+		this(uri, sheetIndex, headersIncluded, formatted, stringPreprocessor, null);
+	}
+	
+    public XLSLineIterator(String uri, int sheetIndex, boolean headersIncluded, boolean formatted, Converter<String, ?> stringPreprocessor, 
+    		XLSRegion region) throws IOException, ParseException {
+		this(sheet(uri, sheetIndex), headersIncluded, formatted, stringPreprocessor, region);
 	}
 	
 	public XLSLineIterator(String uri, String sheetName, boolean headersIncluded, boolean formatted) 
@@ -72,17 +70,22 @@ public class XLSLineIterator implements DataIterator<Object[]> {
 	
 	public XLSLineIterator(String uri, String sheetName, boolean headersIncluded, boolean formatted, Converter<String, ?> stringPreprocessor) 
 			throws IOException, ParseException {
-		this(sheet(uri, sheetName), headersIncluded, formatted, stringPreprocessor);
+		this(uri, sheetName, headersIncluded, formatted, stringPreprocessor, null);
+	}
+	
+	public XLSLineIterator(String uri, String sheetName, boolean headersIncluded, boolean formatted, Converter<String, ?> stringPreprocessor, 
+			XLSRegion region) throws IOException, ParseException {
+		this(sheet(uri, sheetName), headersIncluded, formatted, stringPreprocessor, region);
 	}
 	
     public XLSLineIterator(Sheet sheet, boolean headersIncluded, boolean formatted, Converter<String, ?> stringPreprocessor) {
-    	this.emptyMarker = "'";
-    	this.nullMarker = null;
-		this.formatted = formatted;
-		if (stringPreprocessor == null)
-			stringPreprocessor = new NoOpConverter<String>();
-		this.stringPreprocessor = stringPreprocessor;
-		
+    	this(sheet, headersIncluded, formatted, stringPreprocessor, null);
+    }
+
+    public XLSLineIterator(Sheet sheet, boolean headersIncluded, boolean formatted, Converter<String, ?> stringPreprocessor, 
+    		XLSRegion region) {
+		super(formatted, stringPreprocessor, region);
+		cellResolver = new XLSCellResolver(sheet.getWorkbook());
 		rowIterator = sheet.rowIterator();
 		if (!rowIterator.hasNext()) {
 			close();
@@ -94,70 +97,38 @@ public class XLSLineIterator implements DataIterator<Object[]> {
 
 
 	// properties ------------------------------------------------------------------------------------------------------
-
-	public String getEmptyMarker() {
-		return emptyMarker;
-	}
-	
-	public void setEmptyMarker(String emptyMarker) {
-		this.emptyMarker = emptyMarker;
-	}
-	
-	public String getNullMarker() {
-		return nullMarker;
-	}
-	
-	public void setNullMarker(String nullMarker) {
-		this.nullMarker = nullMarker;
-	}
 	
-	public boolean isFormatted() {
-		return formatted;
+	/** @return true if formula cells are represented by the results cached in the document 
+	 * instead of being evaluated */
+	public boolean isCachedFormulaResults() {
+		return cellResolver.isCachedFormulaResults();
 	}
 	
-	public void setFormatted(boolean formatted) {
-		this.formatted = formatted;
-	}
-	
-	public String[] getHeaders() {
-		return headers;
+	public void setCachedFormulaResults(boolean cachedFormulaResults) {
+		cellResolver.setCachedFormulaResults(cachedFormulaResults);
 	}
 
-	public void setHeaders(String[] headers) {
-		this.headers = headers;
-	}
-	
+
 	// interface -------------------------------------------------------------------------------------------------------
 	
-	@Override
-	public Class<Object[]> getType() {
-		return Object[].class;
-	}
-	
 	@Override
 	public synchronized DataContainer<Object[]> next(DataContainer<Object[]> wrapper) {
-		if (rowIterator == null || !rowIterator.hasNext())
+		Row row = nextRowInRegion();
+		if (row == null)
 			return null;
-		Row row = rowIterator.next();
-		int cellCount = row.getLastCellNum();
+		int firstColumn = region.getFirstColumn();
+		int cellCount = region.cellCount(row.getLastCellNum());
 		Object[] result = new Object[cellCount];
-		for (int cellnum = 0; cellnum < cellCount; cellnum++) {
+		for (int i = 0; i < cellCount; i++) {
+			Cell cell = row.getCell(firstColumn + i);
 			if (formatted)
-				result[cellnum] = XLSUtil.resolveCellValueAsString(row.getCell(cellnum), emptyMarker, nullMarker, stringPreprocessor);
+				result[i] = cellResolver.resolveCellValueAsString(cell, emptyMarker, nullMarker, stringPreprocessor);
 			else
-				result[cellnum] = XLSUtil.resolveCellValue(row.getCell(cellnum), emptyMarker, nullMarker, stringPreprocessor);
+				result[i] = cellResolver.resolveCellValue(cell, emptyMarker, nullMarker, stringPreprocessor);
 		}
 		return wrapper.setData(result);
 	}
 
-	public Object cellValueForHeader(String header, Object[] cells) {
-		String trimmedHeader = StringUtil.trim(header);
-		for (int i = 0; i < headers.length; i++)
-			if (headers[i].equals(trimmedHeader))
-				return cells[i];
-		throw new ObjectNotFoundException("Undefined header: '" + trimmedHeader + "'");
-	}
-    
 
 	@Override
 	public synchronized void close() {
@@ -166,6 +137,19 @@ public class XLSLineIterator implements DataIterator<Object[]> {
 
 	// helper methods --------------------------------------------------------------------------------------------------
 	
+	private Row nextRowInRegion() {
+		while (rowIterator != null && rowIterator.hasNext()) {
+			Row row = rowIterator.next();
+			if (row.getRowNum() > region.getLastRow()) {
+				close();
+				return null;
+			}
+			if (row.getRowNum() >= region.getFirstRow())
+				return row;
+		}
+		return null;
+	}
+	
     private static Sheet sheet(String uri, String sheetName) throws IOException, ParseException {
 		try {
 			Workbook workbook = WorkbookFactory.create(IOUtil.getInputStreamForURI(uri));
@@ -188,16 +172,6 @@ public class XLSLineIterator implements DataIterator<Object[]> {
 		}
     }
 
-    private void parseHeaders() {
-    	DataContainer<Object[]> wrapper = new DataContainer<Object[]>();
-		if (next(wrapper) != null) {
-			this.headers = StringUtil.trimAll(ArrayTypeConverter.convert(wrapper.getData(), String.class));
-		} else {
-			this.headers = null;
-			close();
-		}
-	}
-
     @Override
     public String toString() {
     	return getClass().getSimpleName() + "[" + rowIterator + "]";
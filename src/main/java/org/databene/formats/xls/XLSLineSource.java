@@ -18,11 +18,12 @@ import java.util.Iterator;
 
 import org.databene.formats.DataIterator;
 import org.databene.formats.util.AbstractDataSource;
-import org.databene.formats.xls.XLSLineIterator;
 
 /**
  * {@link Iterable} implementation which creates {@link Iterator}s 
  * that provide lines of XLS files as array objects.
+ * The lines are streamed by a {@link XLSXStreamingLineIterator} for .xlsx files
+ * and by a {@link XLSStreamingLineIterator} for .xls files.
  * Created: 19.07.2011 08:36:18
  * @since 0.6.5
  * @author Volker Bergmann
@@ -32,6 +33,7 @@ public class XLSLineSource extends AbstractDataSource<Object[]> {
 	private String uri;
 	private String sheetName;
 	private boolean formatted;
+	private XLSRegion region;
 
 	public XLSLineSource(String uri) {
 		this(uri, null, false);
@@ -42,12 +44,28 @@ public class XLSLineSource extends AbstractDataSource<Object[]> {
 		this.uri = uri;
 		this.sheetName = sheetName;
 		this.formatted = formatted;
+		this.region = null;
+	}
+
+	public XLSRegion getRegion() {
+		return region;
+	}
+
+	/** @param region the region of the sheet to provide, null for the complete sheet */
+	public void setRegion(XLSRegion region) {
+		this.region = region;
+	}
+
+	/** @param regionSpec the region of the sheet to provide in A1 notation, see {@link XLSRegion#parse(String)}, 
+	 *  null for the complete sheet */
+	public void setRegionSpec(String regionSpec) {
+		this.region = XLSRegion.parse(regionSpec);
 	}
 
 	@Override
 	public DataIterator<Object[]> iterator() {
 		try {
-			return new XLSLineIterator(uri, sheetName, false, formatted, null);
+			return XLSUtil.createLineIterator(uri, sheetName, false, formatted, null, region);
 		} catch (Exception e) {
 			throw new RuntimeException("Unable to create iterator for URI " + uri, e);
 		}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import org.databene.commons.ParseException;
+
+/**
+ * Rectangular region of a sheet, defined by zero-based inclusive row and column bounds.
+ * Line iterators only provide the rows of their region, and the cells of each row
+ * start with the region's first column.
+ * Created: 18.10.2026 12:07:55
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSRegion {
+
+	/** The region which covers a complete sheet */
+	public static final XLSRegion ALL = new XLSRegion(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE);
+
+	private final int firstRow;
+	private final int lastRow;
+	private final int firstColumn;
+	private final int lastColumn;
+
+	public XLSRegion(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+		if (firstRow < 0 || lastRow < firstRow || firstColumn < 0 || lastColumn < firstColumn)
+			throw new IllegalArgumentException("Illegal region bounds: rows " + firstRow + "-" + lastRow +
+					", columns " + firstColumn + "-" + lastColumn);
+		this.firstRow = firstRow;
+		this.lastRow = lastRow;
+		this.firstColumn = firstColumn;
+		this.lastColumn = lastColumn;
+	}
+
+	/** Parses a region in A1 notation, like 'B1000:D2000', 'A:C' (all rows of columns A to C),
+	 * '1000:2000' (all columns of rows 1000 to 2000), 'B1000:D' (rows 1000 and following) or a single cell 'C5'.
+	 * '$' markers of absolute references are ignored.
+	 * @param spec the region in A1 notation
+	 * @return an {@link XLSRegion} or {@link #ALL} if the spec is empty */
+	public static XLSRegion parse(String spec) {
+		if (spec == null || spec.trim().length() == 0)
+			return ALL;
+		String text = spec.trim().replace("$", "").toUpperCase();
+		int colon = text.indexOf(':');
+		String start = (colon >= 0 ? text.substring(0, colon) : text);
+		String end = (colon >= 0 ? text.substring(colon + 1) : text);
+		int[] startRef = parseRef(start, 0, spec);
+		int[] endRef = parseRef(end, Integer.MAX_VALUE, spec);
+		try {
+			return new XLSRegion(startRef[0], endRef[0], startRef[1], endRef[1]);
+		} catch (IllegalArgumentException e) {
+			throw new ParseException(e.getMessage(), spec);
+		}
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public int getFirstRow() {
+		return firstRow;
+	}
+
+	public int getLastRow() {
+		return lastRow;
+	}
+
+	public int getFirstColumn() {
+		return firstColumn;
+	}
+
+	public int getLastColumn() {
+		return lastColumn;
+	}
+
+
+	// interface -------------------------------------------------------------------------------------------------------
+
+	public boolean containsRow(int row) {
+		return (row >= firstRow && row <= lastRow);
+	}
+
+	public boolean containsColumn(int column) {
+		return (column >= firstColumn && column <= lastColumn);
+	}
+
+	/** @param lastCellNum the number of the last cell plus one, like in POI's Row.getLastCellNum()
+	 * @return the number of cells of a row inside the region */
+	public int cellCount(int lastCellNum) {
+		int endColumn = (lastColumn < Integer.MAX_VALUE ? lastColumn + 1 : Integer.MAX_VALUE);
+		return Math.max(0, Math.min(lastCellNum, endColumn) - firstColumn);
+	}
+
+	/** Calculates the zero-based index of a column in A1 notation.
+	 * @param cellRef a cell reference like 'AB12', only the leading letters are evaluated
+	 * @return the index of the column or -1 if the reference does not start with a letter */
+	public static int columnIndex(String cellRef) {
+		int column = 0;
+		for (int i = 0; i < cellRef.length(); i++) {
+			char c = cellRef.charAt(i);
+			if (c < 'A' || c > 'Z')
+				break;
+			column = column * 26 + (c - 'A' + 1);
+		}
+		return column - 1;
+	}
+
+
+	// java.lang.Object overrides --------------------------------------------------------------------------------------
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		XLSRegion that = (XLSRegion) obj;
+		return (this.firstRow == that.firstRow && this.lastRow == that.lastRow
+				&& this.firstColumn == that.firstColumn && this.lastColumn == that.lastColumn);
+	}
+
+	@Override
+	public int hashCode() {
+		return ((firstRow * 31 + lastRow) * 31 + firstColumn) * 31 + lastColumn;
+	}
+
+	@Override
+	public String toString() {
+		return ref(firstRow, firstColumn) + ":" + ref(lastRow, lastColumn);
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	/** @return an array with the row index and the column index */
+	private static int[] parseRef(String ref, int defaultIndex, String spec) {
+		int i = 0;
+		while (i < ref.length() && ref.charAt(i) >= 'A' && ref.charAt(i) <= 'Z')
+			i++;
+		String letters = ref.substring(0, i);
+		String digits = ref.substring(i);
+		if ((letters.length() == 0 && digits.length() == 0) || !digits.matches("\\d*"))
+			throw new ParseException("Illegal region", spec);
+		int column = (letters.length() > 0 ? columnIndex(letters) : defaultIndex);
+		int row = (digits.length() > 0 ? Integer.parseInt(digits) - 1 : defaultIndex);
+		if (row < 0)
+			throw new ParseException("Illegal row number", spec);
+		return new int[] { row, column };
+	}
+
+	private static String ref(int row, int column) {
+		StringBuilder builder = new StringBuilder();
+		if (column != Integer.MAX_VALUE) {
+			for (int c = column + 1; c > 0; c = (c - 1) / 26)
+				builder.insert(0, (char) ('A' + (c - 1) % 26));
+		}
+		if (row != Integer.MAX_VALUE)
+			builder.append(row + 1);
+		return builder.toString();
+	}
+
+}
@@ -31,6 +31,7 @@ public class XLSSource implements DataSource<Object[]> {
 	private String emptyMarker;
 	private String nullMarker;
 	private boolean rowBased;
+	private XLSRegion region;
 	
 	public XLSSource(String uri, boolean formatted, String emptyMarker, String nullMarker, boolean rowBased) {
 		this.uri = uri;
@@ -38,6 +39,22 @@ public class XLSSource implements DataSource<Object[]> {
 		this.emptyMarker = emptyMarker;
 		this.nullMarker = nullMarker;
 		this.rowBased = rowBased;
+		this.region = null;
+	}
+
+	public XLSRegion getRegion() {
+		return region;
+	}
+
+	/** @param region the region of the sheet to provide, null for the complete sheet */
+	public void setRegion(XLSRegion region) {
+		this.region = region;
+	}
+
+	/** @param regionSpec the region of the sheet to provide in A1 notation, see {@link XLSRegion#parse(String)}, 
+	 *  null for the complete sheet */
+	public void setRegionSpec(String regionSpec) {
+		this.region = XLSRegion.parse(regionSpec);
 	}
 
 	@Override
@@ -48,8 +65,7 @@ public class XLSSource implements DataSource<Object[]> {
 	@Override
 	public DataIterator<Object[]> iterator() {
 		try {
-			XLSLineIterator iterator = new XLSLineIterator(uri);
-			iterator.setFormatted(formatted);
+			AbstractXLSLineIterator iterator = XLSUtil.createLineIterator(uri, 0, false, formatted, null, region);
 			if (emptyMarker != null)
 				iterator.setEmptyMarker(emptyMarker);
 			if (nullMarker != null)
@@ -0,0 +1,414 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactoryInputStream;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.databene.commons.Converter;
+import org.databene.commons.IOUtil;
+import org.databene.commons.ParseException;
+import org.databene.formats.DataContainer;
+
+/**
+ * Iterates the lines of a sheet in a binary .xls document without building an HSSFWorkbook.
+ * The BIFF records of the workbook stream are pulled one by one with POI's event API.
+ * Only the workbook globals (sheet list, shared string table, number formats and cell styles)
+ * are kept in memory. The number format of each cell style is analyzed only once. The rows are
+ * provided like by {@link XLSLineIterator}, except that formulas are not evaluated, but their cached results are used.
+ * Created: 18.10.2026 21:30:18
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSStreamingLineIterator extends AbstractXLSLineIterator {
+
+	private final String uri;
+	private File tempFile;
+	private POIFSFileSystem fileSystem;
+	private InputStream workbookStream;
+	private RecordFactoryInputStream records;
+
+	private SSTRecord sst;
+	private FormatTrackingHSSFListener formats;
+	private boolean date1904;
+	private DataFormatter dataFormatter;
+	private XLSFormatCache formatCache;
+
+	private Object[] cellBuffer;
+	private int currentRow;
+	private int cellCount;
+	private FormulaRecord stringFormula;
+	private boolean pastRegion;
+	private final ArrayDeque<Integer> announcedRows;
+	private final ArrayDeque<Object[]> readyRows;
+
+	// constructors ----------------------------------------------------------------------------------------------------
+
+	public XLSStreamingLineIterator(String uri) throws IOException, ParseException {
+		this(uri, 0, false, false, null);
+	}
+
+	public XLSStreamingLineIterator(String uri, int sheetIndex, boolean headersIncluded, boolean formatted,
+			Converter<String, ?> stringPreprocessor) throws IOException, ParseException {
+		this(uri, null, sheetIndex, headersIncluded, formatted, stringPreprocessor, null);
+	}
+
+	public XLSStreamingLineIterator(String uri, int sheetIndex, boolean headersIncluded, boolean formatted,
+			Converter<String, ?> stringPreprocessor, XLSRegion region) throws IOException, ParseException {
+		this(uri, null, sheetIndex, headersIncluded, formatted, stringPreprocessor, region);
+	}
+
+	public XLSStreamingLineIterator(String uri, String sheetName, boolean headersIncluded, boolean formatted,
+			Converter<String, ?> stringPreprocessor) throws IOException, ParseException {
+		this(uri, sheetName, 0, headersIncluded, formatted, stringPreprocessor, null);
+	}
+
+	public XLSStreamingLineIterator(String uri, String sheetName, boolean headersIncluded, boolean formatted,
+			Converter<String, ?> stringPreprocessor, XLSRegion region) throws IOException, ParseException {
+		this(uri, sheetName, 0, headersIncluded, formatted, stringPreprocessor, region);
+	}
+
+	private XLSStreamingLineIterator(String uri, String sheetName, int sheetIndex, boolean headersIncluded, boolean formatted,
+			Converter<String, ?> stringPreprocessor, XLSRegion region) throws IOException, ParseException {
+		super(formatted, stringPreprocessor, region);
+		this.uri = uri;
+		this.cellBuffer = new Object[16];
+		this.currentRow = -1;
+		this.announcedRows = new ArrayDeque<Integer>();
+		this.readyRows = new ArrayDeque<Object[]>();
+		openSheet(sheetName, sheetIndex);
+		if (headersIncluded)
+			parseHeaders();
+	}
+
+
+	// interface -------------------------------------------------------------------------------------------------------
+
+	@Override
+	public synchronized DataContainer<Object[]> next(DataContainer<Object[]> wrapper) {
+		int depth = 0;
+		while (readyRows.isEmpty() && records != null && !pastRegion) {
+			Record record = records.nextRecord();
+			// skip substreams of embedded objects like charts
+			if (record instanceof BOFRecord)
+				depth++;
+			else if (record == null || (record instanceof EOFRecord && depth-- == 0))
+				endOfRegion(); // end of sheet
+			else if (depth == 0)
+				processSheetRecord(record);
+		}
+		Object[] row = readyRows.poll();
+		if (row == null) {
+			close();
+			return null;
+		}
+		return wrapper.setData(row);
+	}
+
+	@Override
+	public synchronized void close() {
+		records = null;
+		readyRows.clear();
+		IOUtil.close(workbookStream);
+		workbookStream = null;
+		IOUtil.close(fileSystem);
+		fileSystem = null;
+		if (tempFile != null) {
+			tempFile.delete();
+			tempFile = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + uri + "]";
+	}
+
+
+	// record processing -----------------------------------------------------------------------------------------------
+
+	/** Processes a record of the sheet substream. Completed rows are appended to the {@link #readyRows}. */
+	private void processSheetRecord(Record record) {
+		if (record instanceof RowRecord) {
+			// row records precede the cells of their row block and tell about rows without cells
+			int row = ((RowRecord) record).getRowNumber();
+			if (inRegion(row))
+				announcedRows.add(row);
+			return;
+		}
+		if (record instanceof StringRecord) {
+			// the cached String result of the preceding formula record
+			if (stringFormula != null) {
+				String content = ((StringRecord) record).getString();
+				setCell(stringFormula.getColumn(), 
+						formatted ? content : XLSUtil.convertString(content, emptyMarker, null, stringPreprocessor));
+				stringFormula = null;
+			}
+			return;
+		}
+		if (record instanceof MulBlankRecord) {
+			MulBlankRecord blanks = (MulBlankRecord) record;
+			if (!inRegion(blanks.getRow())) {
+				rowOutsideRegion(blanks.getRow());
+				return;
+			}
+			startCell(blanks.getRow());
+			for (int column = blanks.getFirstColumn(); column <= blanks.getLastColumn(); column++)
+				if (region.containsColumn(column))
+					setCell(column, "");
+			return;
+		}
+		if (!(record instanceof CellValueRecordInterface))
+			return;
+		CellValueRecordInterface cell = (CellValueRecordInterface) record;
+		if (!inRegion(cell.getRow())) {
+			rowOutsideRegion(cell.getRow());
+			return;
+		}
+		startCell(cell.getRow());
+		if (region.containsColumn(cell.getColumn())) // cells outside the region are not decoded
+			setCell(cell.getColumn(), cellValue(cell));
+	}
+
+	private Object cellValue(CellValueRecordInterface cell) {
+		if (cell instanceof LabelSSTRecord) {
+			String content = sst.getString(((LabelSSTRecord) cell).getSSTIndex()).getString();
+			return convertString(content, nullMarker);
+		} else if (cell instanceof LabelRecord) {
+			return convertString(((LabelRecord) cell).getValue(), nullMarker);
+		} else if (cell instanceof NumberRecord) {
+			return numericValue(((NumberRecord) cell).getValue(), cell);
+		} else if (cell instanceof BoolErrRecord) {
+			BoolErrRecord boolErr = (BoolErrRecord) cell;
+			if (boolErr.isBoolean())
+				return (formatted ? (boolErr.getBooleanValue() ? "TRUE" : "FALSE") : boolErr.getBooleanValue());
+			else
+				return (formatted ? FormulaError.forInt(boolErr.getErrorValue()).getString() : null);
+		} else if (cell instanceof FormulaRecord) {
+			FormulaRecord formula = (FormulaRecord) cell;
+			CellType resultType = formula.getCachedResultTypeEnum();
+			switch (resultType) {
+				case NUMERIC: return numericValue(formula.getValue(), cell);
+				case STRING:
+					if (formula.hasCachedResultString()) {
+						// the value follows in a StringRecord
+						stringFormula = formula;
+						return null;
+					}
+					return (formatted ? "" : XLSUtil.convertString("", emptyMarker, null, stringPreprocessor));
+				case BOOLEAN: return (formatted ? (formula.getCachedBooleanValue() ? "TRUE" : "FALSE") : formula.getCachedBooleanValue());
+				case ERROR: return (formatted ? FormulaError.forInt(formula.getCachedErrorValue()).getString() : null);
+				default: return null;
+			}
+		} else if (cell instanceof BlankRecord) {
+			return "";
+		} else
+			return null;
+	}
+
+	private Object numericValue(double value, CellValueRecordInterface cell) {
+		XLSFormatCache.NumberFormat format = formatCache.get(cell.getXFIndex() & 0xFFFF);
+		if (format == null)
+			format = formatCache.put(cell.getXFIndex() & 0xFFFF, formats.getFormatIndex(cell), formats.getFormatString(cell));
+		if (formatted) {
+			if (dataFormatter == null)
+				dataFormatter = new DataFormatter();
+			return dataFormatter.formatRawCellContents(value, format.index, format.formatString, date1904);
+		}
+		if (format.isDate(value))
+			return DateUtil.getJavaDate(value, date1904);
+		else
+			return XLSUtil.mapNumberType(value);
+	}
+
+	private Object convertString(String content, String nullMarker) {
+		if (formatted)
+			return XLSUtil.convertStringToString(content, emptyMarker, nullMarker, stringPreprocessor);
+		else
+			return XLSUtil.convertString(content, emptyMarker, nullMarker, stringPreprocessor);
+	}
+
+	/** Prepares the cell buffer for a cell in the given row. If the cell belongs to a new row, 
+	 * the previous row and the preceding rows without cells are completed. Like the other iterators,
+	 * a row of which no cell is located in the region's columns is provided as empty array. */
+	private void startCell(int row) {
+		if (row != currentRow) {
+			completeCurrentRow();
+			completeRowsWithoutCells(row);
+			currentRow = row;
+		}
+	}
+
+	private boolean inRegion(int row) {
+		return region.containsRow(row);
+	}
+
+	/** Handles a cell record of a row outside the region, ending the region if the record follows it. */
+	private void rowOutsideRegion(int row) {
+		if (row > region.getLastRow())
+			endOfRegion();
+	}
+
+	private void endOfRegion() {
+		pastRegion = true;
+		completeCurrentRow();
+		completeRowsWithoutCells(Integer.MAX_VALUE);
+	}
+
+	private void setCell(int column, Object value) {
+		int index = column - region.getFirstColumn();
+		if (index >= cellBuffer.length)
+			cellBuffer = Arrays.copyOf(cellBuffer, Math.max(index + 1, cellBuffer.length * 2));
+		cellBuffer[index] = value;
+		cellCount = Math.max(cellCount, index + 1);
+	}
+
+	private void completeCurrentRow() {
+		if (currentRow < 0)
+			return;
+		readyRows.add(Arrays.copyOf(cellBuffer, cellCount));
+		Arrays.fill(cellBuffer, 0, cellCount, null);
+		cellCount = 0;
+		currentRow = -1;
+	}
+
+	/** Completes the announced rows before the given row as empty rows, since no cell record was found for them. */
+	private void completeRowsWithoutCells(int nextRow) {
+		while (!announcedRows.isEmpty() && announcedRows.peek() <= nextRow) {
+			int row = announcedRows.poll();
+			if (row < nextRow)
+				readyRows.add(new Object[0]);
+		}
+	}
+
+
+	// initialization helpers ------------------------------------------------------------------------------------------
+
+	private void openSheet(String sheetName, int sheetIndex) throws IOException {
+		try {
+			File file = new File(uri);
+			if (!file.isFile()) {
+				// POIFSFileSystem would read a stream completely into memory, so it is copied to a temporary file
+				InputStream in = IOUtil.getInputStreamForURI(uri);
+				try {
+					tempFile = File.createTempFile("databene-", ".xls");
+					Files.copy(in, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				} finally {
+					IOUtil.close(in);
+				}
+				file = tempFile;
+			}
+			fileSystem = new POIFSFileSystem(file, true);
+			workbookStream = fileSystem.createDocumentInputStream(HSSFWorkbook.getWorkbookDirEntryName(fileSystem.getRoot()));
+			records = new RecordFactoryInputStream(workbookStream, false);
+			List<BoundSheetRecord> sheets = parseWorkbookGlobals();
+			BoundSheetRecord sheet = findSheet(sheets, sheetName, sheetIndex);
+			// sheet substreams are stored in the order of their BOF positions, which may differ from the sheet order
+			int substreamIndex = Arrays.asList(BoundSheetRecord.orderByBofPosition(sheets)).indexOf(sheet);
+			skipSubstreams(substreamIndex);
+			Record bof = records.nextRecord();
+			if (!(bof instanceof BOFRecord))
+				throw new IllegalStateException("Expected BOF record, found: " + bof);
+		} catch (IOException e) {
+			close();
+			throw e;
+		} catch (Exception e) {
+			close();
+			throw new ParseException("Error parsing sheet " + (sheetName != null ? "'" + sheetName + "'" : sheetIndex) + " of " + uri,
+					e, null, -1, -1);
+		}
+	}
+
+	private List<BoundSheetRecord> parseWorkbookGlobals() {
+		List<BoundSheetRecord> sheets = new ArrayList<BoundSheetRecord>();
+		this.formats = new FormatTrackingHSSFListener(record -> { /* only the format tracking is used */ });
+		this.formatCache = new XLSFormatCache();
+		Record record = records.nextRecord();
+		if (!(record instanceof BOFRecord) || ((BOFRecord) record).getType() != BOFRecord.TYPE_WORKBOOK)
+			throw new IllegalStateException("Not a workbook stream");
+		while ((record = records.nextRecord()) != null && !(record instanceof EOFRecord)) {
+			if (record instanceof BoundSheetRecord)
+				sheets.add((BoundSheetRecord) record);
+			else if (record instanceof SSTRecord)
+				this.sst = (SSTRecord) record;
+			else if (record instanceof DateWindow1904Record)
+				this.date1904 = (((DateWindow1904Record) record).getWindowing() == 1);
+			else
+				formats.processRecordInternally(record);
+		}
+		return sheets;
+	}
+
+	private BoundSheetRecord findSheet(List<BoundSheetRecord> sheets, String sheetName, int sheetIndex) {
+		if (sheetName != null) {
+			for (BoundSheetRecord sheet : sheets)
+				if (sheet.getSheetname().equals(sheetName))
+					return sheet;
+			throw new IllegalArgumentException("Sheet '" + sheetName + "' not found in file " + uri);
+		}
+		if (sheetIndex < 0 || sheetIndex >= sheets.size())
+			throw new IllegalArgumentException("Sheet #" + sheetIndex + " not found in file " + uri);
+		return sheets.get(sheetIndex);
+	}
+
+	private void skipSubstreams(int count) {
+		for (int i = 0; i < count; i++) {
+			int depth = 0;
+			Record record;
+			do {
+				record = records.nextRecord();
+				if (record == null)
+					throw new IllegalStateException("Unexpected end of workbook stream");
+				if (record instanceof BOFRecord)
+					depth++;
+				else if (record instanceof EOFRecord)
+					depth--;
+			} while (depth > 0);
+		}
+	}
+
+}
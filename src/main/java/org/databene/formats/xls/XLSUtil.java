@@ -14,18 +14,20 @@
  */
 package org.databene.formats.xls;
 
+import java.io.IOException;
 import java.util.Iterator;
 
 import org.apache.poi.hssf.usermodel.HSSFCell;
-import org.apache.poi.hssf.usermodel.HSSFDateUtil;
 import org.apache.poi.ss.usermodel.*;
-import org.databene.commons.ConfigurationError;
 import org.databene.commons.Converter;
 import org.databene.commons.MathUtil;
 import org.databene.commons.converter.ToStringConverter;
 
 /**
  * Provides utility methods for HSSF (POI).
+ * The resolveCellValue methods are stateless, so each call evaluates formulas on the current 
+ * state of the workbook. For resolving many cells of a workbook with a shared formula evaluator, 
+ * use an {@link XLSCellResolver}.
  * 
  * Created at 09.08.2009 07:47:52
  * @since 0.5.0
@@ -43,34 +45,7 @@ public class XLSUtil {
 	public static Object resolveCellValue(Cell cell, String emptyMarker, String nullMarker, Converter<String, ?> stringPreprocessor) {
 		if (cell == null)
 			return null;
-		switch (cell.getCellType()) {
-			case STRING: return convertString(cell, emptyMarker, nullMarker, stringPreprocessor);
-			case NUMERIC:
-				if (HSSFDateUtil.isCellDateFormatted(cell))
-					return cell.getDateCellValue();
-				else
-					return mapNumberType(cell.getNumericCellValue());
-			case BOOLEAN: return cell.getBooleanCellValue();
-			case BLANK:
-			case ERROR: return cell.getRichStringCellValue().getString();
-			case FORMULA:
-				FormulaEvaluator evaluator = createFormulaEvaluator(cell); 
-				CellValue cellValue = evaluator.evaluate(cell);
-				switch (cellValue.getCellType()) {
-					case STRING: return convertString(cellValue, emptyMarker, stringPreprocessor);
-					case NUMERIC:
-				    	if (HSSFDateUtil.isCellDateFormatted(cell))
-				    		return HSSFDateUtil.getJavaDate(cellValue.getNumberValue());
-				    	else
-				    		return mapNumberType(cellValue.getNumberValue());
-					case BOOLEAN: return cellValue.getBooleanValue();
-					case BLANK:
-					case ERROR: return null;
-				    default: throw new IllegalStateException("Unexpected cell type: " + cellValue.getCellType());
-				    	// CELL_TYPE_FORMULA is not supposed to be encountered here
-				}	
-			default: throw new ConfigurationError("Not a supported cell type: " + cell.getCellType());
-		}
+		return new XLSCellResolver(cell.getSheet().getWorkbook()).resolveCellValue(cell, emptyMarker, nullMarker, stringPreprocessor);
 	}
 	
 	/** Resolves a formula or a normal cell and formats the result as it would be displayed in Excel. 
@@ -89,24 +64,75 @@ public class XLSUtil {
 	public static String resolveCellValueAsString(Cell cell, String emptyMarker, String nullMarker, Converter<String, ?> stringPreprocessor) {
 		if (cell == null)
 			return null;
-		if (cell.getCellType() == CellType.STRING) {
-	    	String content = cell.getRichStringCellValue().getString();
-	    	if (content != null) {
-		    	if (content.equals(emptyMarker) || content.equals("'"))
-		    		content = "";
-		    	else if (content.equals(nullMarker))
-		    		content = null;
-	    	}
-	    	if (stringPreprocessor != null)
-	    		content = ToStringConverter.convert(stringPreprocessor.convert(content), null);
-	    	return content;
-		} else {
-			DataFormatter formatter = new DataFormatter();
-			if (cell.getCellType() == CellType.FORMULA)
-				return formatter.formatCellValue(cell, createFormulaEvaluator(cell));
-			else
-				return formatter.formatCellValue(cell);
-		}
+		return new XLSCellResolver(cell.getSheet().getWorkbook()).resolveCellValueAsString(cell, emptyMarker, nullMarker, stringPreprocessor);
+	}
+
+	/** Creates an iterator for the lines of a sheet, which reads the sheet in constant memory: 
+	 * an {@link XLSXStreamingLineIterator} for .xlsx files and an {@link XLSStreamingLineIterator} for other files. 
+	 * Both use the cached results of formula cells. For evaluating formulas, use an {@link XLSLineIterator}.
+	 * @param uri the URI of the Excel document
+	 * @param sheetName the name of the sheet to iterate, if null, the first sheet is used
+	 * @param headersIncluded tells if the first row contains headers
+	 * @param formatted tells if cell values are provided as formatted Strings
+	 * @param stringPreprocessor a preprocessor to apply to the raw field values
+	 * @return an iterator for the sheet lines
+	 * @throws IOException if the file cannot be read */
+	public static AbstractXLSLineIterator createLineIterator(String uri, String sheetName, boolean headersIncluded, 
+			boolean formatted, Converter<String, ?> stringPreprocessor) throws IOException {
+		return createLineIterator(uri, sheetName, headersIncluded, formatted, stringPreprocessor, null);
+	}
+	
+	/** Creates an iterator for the lines of a region of a sheet. Rows outside the region are skipped 
+	 * and the cells outside its columns are not decoded.
+	 * @param uri the URI of the Excel document
+	 * @param sheetName the name of the sheet to iterate, if null, the first sheet is used
+	 * @param headersIncluded tells if the first row of the region contains headers
+	 * @param formatted tells if cell values are provided as formatted Strings
+	 * @param stringPreprocessor a preprocessor to apply to the raw field values
+	 * @param region the region to iterate, null for the complete sheet
+	 * @return an iterator for the sheet lines
+	 * @throws IOException if the file cannot be read */
+	public static AbstractXLSLineIterator createLineIterator(String uri, String sheetName, boolean headersIncluded, 
+			boolean formatted, Converter<String, ?> stringPreprocessor, XLSRegion region) throws IOException {
+		if (isXLSX(uri))
+			return new XLSXStreamingLineIterator(uri, sheetName, headersIncluded, formatted, stringPreprocessor, region);
+		else
+			return new XLSStreamingLineIterator(uri, sheetName, headersIncluded, formatted, stringPreprocessor, region);
+	}
+	
+	/** Creates an iterator for the lines of a sheet like {@link #createLineIterator(String, String, boolean, boolean, Converter)}.
+	 * @param uri the URI of the Excel document
+	 * @param sheetIndex the index of the sheet to iterate
+	 * @param headersIncluded tells if the first row contains headers
+	 * @param formatted tells if cell values are provided as formatted Strings
+	 * @param stringPreprocessor a preprocessor to apply to the raw field values
+	 * @return an iterator for the sheet lines
+	 * @throws IOException if the file cannot be read */
+	public static AbstractXLSLineIterator createLineIterator(String uri, int sheetIndex, boolean headersIncluded, 
+			boolean formatted, Converter<String, ?> stringPreprocessor) throws IOException {
+		return createLineIterator(uri, sheetIndex, headersIncluded, formatted, stringPreprocessor, null);
+	}
+	
+	/** Creates an iterator for the lines of a region of a sheet like 
+	 * {@link #createLineIterator(String, String, boolean, boolean, Converter, XLSRegion)}.
+	 * @param uri the URI of the Excel document
+	 * @param sheetIndex the index of the sheet to iterate
+	 * @param headersIncluded tells if the first row of the region contains headers
+	 * @param formatted tells if cell values are provided as formatted Strings
+	 * @param stringPreprocessor a preprocessor to apply to the raw field values
+	 * @param region the region to iterate, null for the complete sheet
+	 * @return an iterator for the sheet lines
+	 * @throws IOException if the file cannot be read */
+	public static AbstractXLSLineIterator createLineIterator(String uri, int sheetIndex, boolean headersIncluded, 
+			boolean formatted, Converter<String, ?> stringPreprocessor, XLSRegion region) throws IOException {
+		if (isXLSX(uri))
+			return new XLSXStreamingLineIterator(uri, sheetIndex, headersIncluded, formatted, stringPreprocessor, region);
+		else
+			return new XLSStreamingLineIterator(uri, sheetIndex, headersIncluded, formatted, stringPreprocessor, region);
+	}
+	
+	public static boolean isXLSX(String uri) {
+		return (uri != null && uri.toLowerCase().endsWith(".xlsx"));
 	}
 
 	public static void autoSizeColumns(Workbook workbook) {
@@ -144,27 +170,14 @@ public class XLSUtil {
 	
 	// private helpers -------------------------------------------------------------------------------------------------
 	
-	private static FormulaEvaluator createFormulaEvaluator(Cell cell) {
-		return cell.getSheet().getWorkbook().getCreationHelper().createFormulaEvaluator();
-	}
-
-	private static Number mapNumberType(double numericCellValue) {
+	static Number mapNumberType(double numericCellValue) {
 		if (MathUtil.isIntegralValue(numericCellValue))
 			return ((Double) numericCellValue).longValue();
 		return numericCellValue;
 	}
 
-    @SuppressWarnings({ "unchecked", "rawtypes" })
-	private static Object convertString(CellValue cellValue, String emptyMarker, Converter<?, ?> stringPreprocessor) {
-    	String content = cellValue.getStringValue();
-    	if (content != null && (content.equals(emptyMarker) || content.equals("'")))
-    		content = "";
-    	return (stringPreprocessor != null ? ((Converter) stringPreprocessor).convert(content) : content);
-    }
-
 	@SuppressWarnings({ "unchecked", "rawtypes" })
-	private static Object convertString(Cell cell, String emptyMarker, String nullMarker, Converter<?, ?> stringPreprocessor) {
-    	String content = cell.getRichStringCellValue().getString();
+	static Object convertString(String content, String emptyMarker, String nullMarker, Converter<?, ?> stringPreprocessor) {
     	if (content != null) {
 	    	if (content.equals(emptyMarker) || content.equals("'"))
 	    		content = "";
@@ -174,6 +187,18 @@ public class XLSUtil {
     	return (stringPreprocessor != null ? ((Converter) stringPreprocessor).convert(content) : content);
     }
 
+	static String convertStringToString(String content, String emptyMarker, String nullMarker, Converter<String, ?> stringPreprocessor) {
+    	if (content != null) {
+	    	if (content.equals(emptyMarker) || content.equals("'"))
+	    		content = "";
+	    	else if (content.equals(nullMarker))
+	    		content = null;
+    	}
+    	if (stringPreprocessor != null)
+    		content = ToStringConverter.convert(stringPreprocessor.convert(content), null);
+    	return content;
+    }
+
 	public static int getColumnCount(Sheet sheet) {
 		int columnCount = 0;
 		Iterator<Row> rowIterator = sheet.rowIterator();
@@ -0,0 +1,387 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.databene.commons.Converter;
+import org.databene.commons.IOUtil;
+import org.databene.commons.ParseException;
+import org.databene.formats.DataContainer;
+
+/**
+ * Iterates the lines of a sheet in an .xlsx document without loading the workbook into memory.
+ * The sheet XML is pulled row by row from the zipped package. Shared strings are decoded once
+ * per workbook and provided as the same String instance for each cell referring them.
+ * The number format of each cell style is analyzed only once. The rows are provided like by
+ * {@link XLSLineIterator}, except that formulas are not evaluated, but their cached results are used.
+ * Created: 18.10.2026 20:14:27
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSXStreamingLineIterator extends AbstractXLSLineIterator {
+
+	private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+	private final String uri;
+	private File tempFile;
+	private OPCPackage pkg;
+	private InputStream sheetStream;
+	private XMLStreamReader reader;
+	private SharedStrings sharedStrings;
+	private StylesTable styles;
+	private boolean date1904;
+	private DataFormatter dataFormatter;
+	private String[] sharedStringValues;
+	private XLSFormatCache formatCache;
+
+	private Object[] cellBuffer;
+	private int nextRowIndex;
+
+	// constructors ----------------------------------------------------------------------------------------------------
+
+	public XLSXStreamingLineIterator(String uri) throws IOException, ParseException {
+		this(uri, 0, false, false, null);
+	}
+
+	public XLSXStreamingLineIterator(String uri, int sheetIndex, boolean headersIncluded, boolean formatted,
+			Converter<String, ?> stringPreprocessor) throws IOException, ParseException {
+		this(uri, null, sheetIndex, headersIncluded, formatted, stringPreprocessor, null);
+	}
+
+	public XLSXStreamingLineIterator(String uri, int sheetIndex, boolean headersIncluded, boolean formatted,
+			Converter<String, ?> stringPreprocessor, XLSRegion region) throws IOException, ParseException {
+		this(uri, null, sheetIndex, headersIncluded, formatted, stringPreprocessor, region);
+	}
+
+	public XLSXStreamingLineIterator(String uri, String sheetName, boolean headersIncluded, boolean formatted,
+			Converter<String, ?> stringPreprocessor) throws IOException, ParseException {
+		this(uri, sheetName, 0, headersIncluded, formatted, stringPreprocessor, null);
+	}
+
+	public XLSXStreamingLineIterator(String uri, String sheetName, boolean headersIncluded, boolean formatted,
+			Converter<String, ?> stringPreprocessor, XLSRegion region) throws IOException, ParseException {
+		this(uri, sheetName, 0, headersIncluded, formatted, stringPreprocessor, region);
+	}
+
+	private XLSXStreamingLineIterator(String uri, String sheetName, int sheetIndex, boolean headersIncluded, boolean formatted,
+			Converter<String, ?> stringPreprocessor, XLSRegion region) throws IOException, ParseException {
+		super(formatted, stringPreprocessor, region);
+		this.uri = uri;
+		this.cellBuffer = new Object[16];
+		openSheet(sheetName, sheetIndex);
+		if (headersIncluded)
+			parseHeaders();
+	}
+
+
+	// interface -------------------------------------------------------------------------------------------------------
+
+	@Override
+	public synchronized DataContainer<Object[]> next(DataContainer<Object[]> wrapper) {
+		if (reader == null)
+			return null;
+		try {
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && "row".equals(reader.getLocalName())) {
+					String ref = reader.getAttributeValue(null, "r");
+					int rowIndex = (ref != null ? Integer.parseInt(ref) - 1 : nextRowIndex);
+					nextRowIndex = rowIndex + 1;
+					if (rowIndex > region.getLastRow())
+						break;
+					if (rowIndex >= region.getFirstRow())
+						return wrapper.setData(parseRow());
+					skipElement();
+				}
+			}
+			close();
+			return null;
+		} catch (XMLStreamException e) {
+			throw new ParseException("Error parsing sheet of " + uri, e, null, -1, -1);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (reader != null) {
+			try {
+				reader.close();
+			} catch (XMLStreamException e) {
+				// ignore, the underlying stream is closed anyway
+			}
+			reader = null;
+		}
+		IOUtil.close(sheetStream);
+		sheetStream = null;
+		if (pkg != null) {
+			pkg.revert(); // the package was opened read-only, so nothing needs to be saved
+			pkg = null;
+		}
+		if (tempFile != null) {
+			tempFile.delete();
+			tempFile = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + uri + "]";
+	}
+
+
+	// row and cell parsing --------------------------------------------------------------------------------------------
+
+	private Object[] parseRow() throws XMLStreamException {
+		int cellCount = 0;
+		int column = 0;
+		int firstColumn = region.getFirstColumn();
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			if ("c".equals(reader.getLocalName())) {
+				String ref = reader.getAttributeValue(null, "r");
+				if (ref != null)
+					column = columnIndex(ref);
+				if (region.containsColumn(column)) {
+					Object value = parseCell();
+					int index = column - firstColumn;
+					if (index >= cellBuffer.length)
+						cellBuffer = Arrays.copyOf(cellBuffer, Math.max(index + 1, cellBuffer.length * 2));
+					cellBuffer[index] = value;
+					cellCount = index + 1;
+				} else {
+					skipElement(); // cells outside the region are not decoded
+				}
+				column++;
+			} else {
+				skipElement();
+			}
+		}
+		Object[] result = Arrays.copyOf(cellBuffer, cellCount);
+		Arrays.fill(cellBuffer, 0, cellCount, null);
+		return result;
+	}
+
+	private Object parseCell() throws XMLStreamException {
+		String type = reader.getAttributeValue(null, "t");
+		String styleIndex = reader.getAttributeValue(null, "s");
+		String value = null;
+		boolean formula = false;
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String element = reader.getLocalName();
+			if ("v".equals(element))
+				value = reader.getElementText();
+			else if ("is".equals(element))
+				value = parseInlineString();
+			else {
+				formula |= "f".equals(element);
+				skipElement();
+			}
+		}
+		if (type == null)
+			type = "n";
+		switch (type) {
+			case "s":
+				String content = (value != null ? sharedString(Integer.parseInt(value)) : null);
+				return convertString(content, nullMarker);
+			case "inlineStr":
+				return convertString(value, nullMarker);
+			case "str":
+				// formula result, which is not checked for the null marker, like in XLSUtil.resolveCellValue()
+				return (formatted ? value : convertString(value, null));
+			case "b":
+				if (value == null)
+					return null;
+				return (formatted ? ("1".equals(value) ? "TRUE" : "FALSE") : Boolean.valueOf("1".equals(value)));
+			case "e":
+				return (formatted ? value : null);
+			default:
+				if (value == null || value.length() == 0)
+					return (formula ? null : "");
+				return numericValue(Double.parseDouble(value), styleIndex);
+		}
+	}
+
+	private Object numericValue(double value, String styleIndex) {
+		XLSFormatCache.NumberFormat format = numberFormat(styleIndex != null ? Integer.parseInt(styleIndex) : 0);
+		if (formatted) {
+			if (dataFormatter == null)
+				dataFormatter = new DataFormatter();
+			return dataFormatter.formatRawCellContents(value, format.index, format.formatString, date1904);
+		}
+		if (format.isDate(value))
+			return DateUtil.getJavaDate(value, date1904);
+		else
+			return XLSUtil.mapNumberType(value);
+	}
+
+	private XLSFormatCache.NumberFormat numberFormat(int styleIndex) {
+		XLSFormatCache.NumberFormat format = formatCache.get(styleIndex);
+		if (format == null) {
+			XSSFCellStyle style = (styles != null && styleIndex < styles.getNumCellStyles() ? styles.getStyleAt(styleIndex) : null);
+			format = (style != null ? 
+					formatCache.put(styleIndex, style.getDataFormat(), style.getDataFormatString()) : 
+					formatCache.put(styleIndex, 0, null));
+		}
+		return format;
+	}
+
+	private String sharedString(int index) {
+		if (index >= sharedStringValues.length)
+			sharedStringValues = Arrays.copyOf(sharedStringValues, Math.max(index + 1, sharedStringValues.length * 2));
+		String result = sharedStringValues[index];
+		if (result == null) {
+			result = sharedStrings.getItemAt(index).getString();
+			sharedStringValues[index] = result;
+		}
+		return result;
+	}
+
+	private Object convertString(String content, String nullMarker) {
+		if (formatted)
+			return XLSUtil.convertStringToString(content, emptyMarker, nullMarker, stringPreprocessor);
+		else
+			return XLSUtil.convertString(content, emptyMarker, nullMarker, stringPreprocessor);
+	}
+
+	private String parseInlineString() throws XMLStreamException {
+		// concatenates the text of the plain and rich text runs, skipping phonetic runs
+		StringBuilder builder = new StringBuilder();
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String element = reader.getLocalName();
+				if ("t".equals(element))
+					builder.append(reader.getElementText());
+				else if ("rPh".equals(element))
+					skipElement();
+				else
+					depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+		return builder.toString();
+	}
+
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+		}
+	}
+
+	static int columnIndex(String cellRef) {
+		return XLSRegion.columnIndex(cellRef);
+	}
+
+
+	// initialization helpers ------------------------------------------------------------------------------------------
+
+	private void openSheet(String sheetName, int sheetIndex) throws IOException {
+		try {
+			File file = new File(uri);
+			if (!file.isFile()) {
+				// OPCPackage would buffer all zip entries of a stream in memory, so it is copied to a temporary file
+				InputStream in = IOUtil.getInputStreamForURI(uri);
+				try {
+					tempFile = File.createTempFile("databene-", ".xlsx");
+					Files.copy(in, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				} finally {
+					IOUtil.close(in);
+				}
+				file = tempFile;
+			}
+			pkg = OPCPackage.open(file, PackageAccess.READ);
+			XSSFReader xssfReader = new XSSFReader(pkg);
+			xssfReader.setUseReadOnlySharedStringsTable(true);
+			this.sharedStrings = xssfReader.getSharedStringsTable();
+			this.styles = xssfReader.getStylesTable();
+			this.sharedStringValues = new String[Math.max(16, (sharedStrings != null ? sharedStrings.getUniqueCount() : 0))];
+			this.formatCache = new XLSFormatCache();
+			this.date1904 = isDate1904(xssfReader);
+			XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+			for (int index = 0; sheets.hasNext(); index++) {
+				InputStream in = sheets.next();
+				if (sheetName != null ? sheetName.equals(sheets.getSheetName()) : index == sheetIndex) {
+					this.sheetStream = in;
+					this.reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+					return;
+				}
+				in.close();
+			}
+			throw new IllegalArgumentException(sheetName != null ?
+					"Sheet '" + sheetName + "' not found in file " + uri : "Sheet #" + sheetIndex + " not found in file " + uri);
+		} catch (IOException e) {
+			close();
+			throw e;
+		} catch (Exception e) {
+			close();
+			throw new ParseException("Error parsing sheet " + (sheetName != null ? "'" + sheetName + "'" : sheetIndex) + " of " + uri,
+					e, null, -1, -1);
+		}
+	}
+
+	private static boolean isDate1904(XSSFReader xssfReader) throws Exception {
+		InputStream in = xssfReader.getWorkbookData();
+		XMLStreamReader workbookReader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+		try {
+			while (workbookReader.hasNext()) {
+				if (workbookReader.next() == XMLStreamConstants.START_ELEMENT) {
+					String element = workbookReader.getLocalName();
+					if ("workbookPr".equals(element)) {
+						String value = workbookReader.getAttributeValue(null, "date1904");
+						return ("1".equals(value) || "true".equals(value));
+					} else if ("sheets".equals(element))
+						return false;
+				}
+			}
+			return false;
+		} finally {
+			workbookReader.close();
+			IOUtil.close(in);
+		}
+	}
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
+}
@@ -15,22 +15,26 @@
 package org.databene.formats.xml.compare;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.xml.xpath.XPathExpressionException;
 
-import org.databene.commons.NullSafeComparator;
 import org.databene.commons.ProgrammerError;
-import org.databene.commons.xml.XPathUtil;
 import org.databene.formats.compare.DiffDetailType;
 import org.databene.formats.compare.LocalDiffType;
 import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
+import org.w3c.dom.Node;
 
 /**
  * Holds the information which diff types are accepted at which XPaths 
  * and maps them to the related nodes of XML documents.
+ * On construction, the tolerated diffs are compiled into a bit mask of tolerated {@link DiffDetailType}s 
+ * for each affected node and each locator, so that each check is a single hash lookup.
+ * The locators are evaluated together in one traversal of each document, see {@link CompiledXPath}.
  * Created: 09.07.2014 10:27:00
  * @since 1.0.5
  * @author Volker Bergmann
@@ -38,11 +42,23 @@ import org.w3c.dom.NodeList;
 
 public class ComparisonContext {
 	
-	private List<PathSetting> pathSettings;
+	/** Marks a node which is excluded from comparison, since any kind of diff is tolerated for it */
+	private static final int EXCLUDED = 1 << DiffDetailType.values().length;
+	
+	private static final int ALL_TYPES = EXCLUDED - 1;
+	
+	/** The diff types which are tolerated for any node, since their setting has no locator */
+	private int globalMask;
+	
+	/** Maps each affected node to the diff types tolerated for it */
+	private Map<Object, Integer> nodeMasks;
+	
+	/** Maps each locator to the diff types tolerated for it */
+	private Map<String, Integer> locatorMasks;
 	
 	public ComparisonContext() {
 		try {
-			init(null, null, null);
+			init(null, null, null, null);
 		} catch (XPathExpressionException e) {
 			throw new ProgrammerError(e);
 		}
@@ -50,87 +66,80 @@ public class ComparisonContext {
 
 	public ComparisonContext(Set<LocalDiffType> toleratedDiffs, Document expectedDocument, Document actualDocument) 
 			throws XPathExpressionException {
-		init(toleratedDiffs, expectedDocument, actualDocument);
+		init(toleratedDiffs, null, expectedDocument, actualDocument);
 	}
 
-	private void init(Set<LocalDiffType> toleratedDiffs, Document expectedDocument, Document actualDocument)
+	/** Creates a context for the tolerated diffs of the settings, using their cache of compiled locators. */
+	public ComparisonContext(XMLComparisonSettings settings, Document expectedDocument, Document actualDocument) 
 			throws XPathExpressionException {
-		this.pathSettings = new ArrayList<PathSetting>();
+		init(settings.getToleratedDiffs(), settings, expectedDocument, actualDocument);
+	}
+
+	private void init(Set<LocalDiffType> toleratedDiffs, XMLComparisonSettings settings, 
+			Document expectedDocument, Document actualDocument) throws XPathExpressionException {
+		this.globalMask = 0;
+		this.nodeMasks = new IdentityHashMap<Object, Integer>();
+		this.locatorMasks = new HashMap<String, Integer>();
 		if (toleratedDiffs != null) {
+			List<CompiledXPath> paths = new ArrayList<CompiledXPath>();
+			List<Integer> pathMasks = new ArrayList<Integer>();
 			for (LocalDiffType localDiffType : toleratedDiffs) {
-				PathSetting pathSetting = new PathSetting(localDiffType.getLocator(), localDiffType.getType());
-				pathSetting.collectAffectedNodes(expectedDocument);
-				pathSetting.collectAffectedNodes(actualDocument);
-				this.pathSettings.add(pathSetting);
+				String locator = localDiffType.getLocator();
+				int mask = mask(localDiffType.getType());
+				addMask(locator, mask, locatorMasks);
+				if (locator == null) {
+					globalMask |= mask;
+				} else if (expectedDocument != null || actualDocument != null) {
+					paths.add(settings != null ? settings.getCompiledXPath(locator) : CompiledXPath.compile(locator));
+					pathMasks.add(mask);
+				}
 			}
+			collectAffectedNodes(paths, pathMasks, expectedDocument);
+			collectAffectedNodes(paths, pathMasks, actualDocument);
 		}
 	}
 
 	public boolean isExcluded(Object node) {
-		for (PathSetting pathSetting : pathSettings)
-			if (pathSetting.isAffectedNode(node) && pathSetting.getDiffType() == null)
-				return true;
-		return false;
+		return ((nodeMask(node) & EXCLUDED) != 0);
 	}
 
 	public boolean isTolerated(DiffDetailType type, Object expected, Object actual) {
-		for (PathSetting pathSetting : pathSettings) {
-			Object diffType = pathSetting.getDiffType();
-			if ((pathSetting.isAffectedNode(expected) || pathSetting.isAffectedNode(actual)) && 
-					(diffType == null || diffType == type))
-				return true;
-		}
-		return false;
+		return (((nodeMask(expected) | nodeMask(actual)) & mask(type)) != 0);
 	}
 
 	public boolean isTolerated(DiffDetailType diffType, String locator) {
-		for (PathSetting pathSetting : pathSettings) {
-			if (NullSafeComparator.equals(locator, pathSetting.getLocator()) 
-					&& (pathSetting.getDiffType() == null || pathSetting.getDiffType() == diffType))
-				return true;
-		}
-		return false;
+		Integer mask = locatorMasks.get(locator);
+		return (mask != null && (mask & mask(diffType)) != 0);
 	}
 
 
-	// helper class ----------------------------------------------------------------------------------------------------
+	// private helpers -------------------------------------------------------------------------------------------------
 
-	static class PathSetting {
-		private final String locator;
-		private final DiffDetailType diffType;
-		private final List<Object> affectedNodes;
-		
-		private PathSetting(String locator, DiffDetailType type) {
-			this.locator = locator;
-			this.diffType = type;
-			this.affectedNodes = new ArrayList<Object>();
-		}
-		
-		public String getLocator() {
-			return locator;
-		}
-		
-		public Object getDiffType() {
-			return diffType;
-		}
+	private int nodeMask(Object node) {
+		if (node == null)
+			return globalMask;
+		Integer mask = nodeMasks.get(node);
+		return (mask != null ? globalMask | mask : globalMask);
+	}
 
-		public boolean isAffectedNode(Object node) {
-			if (locator == null)
-				return true;
-			for (Object affectedNode : affectedNodes)
-				if (node == affectedNode)
-					return true;
-			return false;
+	private void collectAffectedNodes(List<CompiledXPath> paths, List<Integer> pathMasks, Document document) 
+			throws XPathExpressionException {
+		if (document != null && !paths.isEmpty()) {
+			Map<CompiledXPath, List<Node>> affectedNodes = CompiledXPath.queryNodes(document, paths);
+			for (int i = 0; i < paths.size(); i++)
+				for (Node node : affectedNodes.get(paths.get(i)))
+					addMask(node, pathMasks.get(i), nodeMasks);
 		}
+	}
 
-		public void collectAffectedNodes(Document document) throws XPathExpressionException {
-			if (this.locator != null && document != null) {
-				NodeList foundNodes = XPathUtil.queryNodes(document, locator);
-				for (int i = 0; i < foundNodes.getLength(); i++)
-					affectedNodes.add(foundNodes.item(i));
-			}
-		}
+	private static <K> void addMask(K key, int mask, Map<K, Integer> masks) {
+		Integer oldMask = masks.get(key);
+		masks.put(key, (oldMask != null ? oldMask | mask : mask));
+	}
 
+	/** @return the bit mask of a diff type or of all types and the {@link #EXCLUDED} flag if the type is null */
+	private static int mask(DiffDetailType type) {
+		return (type != null ? 1 << type.ordinal() : ALL_TYPES | EXCLUDED);
 	}
 
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xml.compare;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.Text;
+
+/**
+ * XPath expression which is compiled once for evaluation on many documents.
+ * Simple location paths of unprefixed element names like '/a/b' or '//b', optionally followed by an attribute step
+ * '@c' or a 'text()' step, are recognized and evaluated by matching the element paths while traversing a document,
+ * so that several of them are evaluated in a single traversal by {@link #queryNodes(Document, List)}.
+ * Other expressions are evaluated by the XPath engine. Instances are not thread-safe.
+ * Created: 18.10.2026 16:48:10
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public final class CompiledXPath {
+
+	private static final Pattern SIMPLE_PATH = Pattern.compile("(//?[A-Za-z_][\\w.\\-]*)+(/@[A-Za-z_][\\w.\\-]*|/text\\(\\))?");
+	private static final Pattern SIMPLE_ATTRIBUTE = Pattern.compile("@[A-Za-z_][\\w.\\-]*");
+
+	private final String expression;
+	private final XPathExpression compiled;
+
+	// the parsed simple location path
+	private final String[] steps;        // the element names or null if the expression is not a simple path
+	private final boolean descendant;    // true if the path starts with '//'
+	private final String attributeName;  // the name of a terminal attribute step
+	private final boolean textStep;      // true if the path ends with 'text()'
+
+	private CompiledXPath(String expression, XPathExpression compiled) {
+		this.expression = expression;
+		this.compiled = compiled;
+		if (SIMPLE_PATH.matcher(expression).matches() && expression.indexOf("//", 1) < 0) {
+			String path = expression;
+			this.textStep = path.endsWith("/text()");
+			if (textStep)
+				path = path.substring(0, path.length() - "/text()".length());
+			int at = path.indexOf("/@");
+			this.attributeName = (at >= 0 ? path.substring(at + 2) : null);
+			if (at >= 0)
+				path = path.substring(0, at);
+			this.descendant = path.startsWith("//");
+			this.steps = path.substring(descendant ? 2 : 1).split("/");
+		} else {
+			this.steps = null;
+			this.descendant = false;
+			this.attributeName = (SIMPLE_ATTRIBUTE.matcher(expression).matches() ? expression.substring(1) : null);
+			this.textStep = false;
+		}
+	}
+
+	public static CompiledXPath compile(String expression) throws XPathExpressionException {
+		return new CompiledXPath(expression, XPathFactory.newInstance().newXPath().compile(expression));
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public String getExpression() {
+		return expression;
+	}
+
+	/** @return true if the expression is a location path which is evaluated by traversing the document */
+	public boolean isSimplePath() {
+		return (steps != null);
+	}
+
+
+	// evaluation ------------------------------------------------------------------------------------------------------
+
+	/** Evaluates the expression as string. An attribute step like '@id' relative to an element
+	 * is resolved without the XPath engine.
+	 * @param context the node on which to evaluate the expression
+	 * @return the string value of the result */
+	public String queryString(Node context) throws XPathExpressionException {
+		if (steps == null && attributeName != null && context instanceof Element)
+			return ((Element) context).getAttribute(attributeName);
+		return (String) compiled.evaluate(context, XPathConstants.STRING);
+	}
+
+	public List<Node> queryNodes(Node context) throws XPathExpressionException {
+		NodeList nodes = (NodeList) compiled.evaluate(context, XPathConstants.NODESET);
+		List<Node> result = new ArrayList<Node>(nodes.getLength());
+		for (int i = 0; i < nodes.getLength(); i++)
+			result.add(nodes.item(i));
+		return result;
+	}
+
+	/** Evaluates several expressions on a document. The simple location paths are evaluated
+	 * together in one traversal of the document, the other ones by the XPath engine.
+	 * @param document the document to query
+	 * @param paths the expressions to evaluate
+	 * @return a map from each expression to the nodes it selects in document order */
+	public static Map<CompiledXPath, List<Node>> queryNodes(Document document, List<CompiledXPath> paths)
+			throws XPathExpressionException {
+		Map<CompiledXPath, List<Node>> result = new IdentityHashMap<CompiledXPath, List<Node>>();
+		List<CompiledXPath> simplePaths = new ArrayList<CompiledXPath>();
+		for (CompiledXPath path : paths) {
+			if (result.containsKey(path))
+				continue;
+			if (path.isSimplePath()) {
+				simplePaths.add(path);
+				result.put(path, new ArrayList<Node>());
+			} else {
+				result.put(path, path.queryNodes(document));
+			}
+		}
+		if (!simplePaths.isEmpty() && document.getDocumentElement() != null)
+			collect(document.getDocumentElement(), new String[16], 0, simplePaths, result);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private static void collect(Element element, String[] names, int depth, List<CompiledXPath> paths,
+			Map<CompiledXPath, List<Node>> result) {
+		if (depth == names.length)
+			names = Arrays.copyOf(names, depth * 2);
+		names[depth] = (element.getNamespaceURI() == null ? name(element) : null); // prefixed steps are not simple
+		for (CompiledXPath path : paths)
+			if (path.matches(names, depth + 1))
+				path.addTargets(element, result.get(path));
+		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
+			if (child instanceof Element)
+				collect((Element) child, names, depth + 1, paths, result);
+	}
+
+	private boolean matches(String[] names, int length) {
+		if (descendant ? length < steps.length : length != steps.length)
+			return false;
+		int offset = length - steps.length;
+		for (int i = 0; i < steps.length; i++)
+			if (!steps[i].equals(names[offset + i]))
+				return false;
+		return true;
+	}
+
+	private void addTargets(Element element, List<Node> targets) {
+		if (attributeName != null) {
+			Attr attribute = element.getAttributeNode(attributeName);
+			if (attribute != null)
+				targets.add(attribute);
+		} else if (textStep) {
+			for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
+				if (child instanceof Text)
+					targets.add(child);
+		} else {
+			targets.add(element);
+		}
+	}
+
+	private static String name(Element element) {
+		String localName = element.getLocalName();
+		return (localName != null ? localName : element.getNodeName());
+	}
+
+}
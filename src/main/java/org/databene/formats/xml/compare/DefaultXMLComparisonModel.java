@@ -15,18 +15,17 @@
 package org.databene.formats.xml.compare;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.xml.xpath.XPathExpressionException;
 
-import org.databene.commons.ArrayBuilder;
 import org.databene.commons.ConfigurationError;
 import org.databene.commons.NullSafeComparator;
 import org.databene.commons.StringUtil;
 import org.databene.commons.xml.XMLUtil;
-import org.databene.commons.xml.XPathUtil;
+import org.databene.formats.compare.HashingComparisonModel;
 import org.databene.formats.compare.KeyExpression;
 import org.w3c.dom.CDATASection;
 import org.w3c.dom.Comment;
@@ -39,26 +38,43 @@ import org.w3c.dom.Text;
 
 /**
  * XML comparison model based on element names.
+ * The filtered child nodes and a structural hash of each node are calculated once
+ * and cached, so that unequal subtrees are rejected without traversing them.
+ * Since {@link #init(Document, Document)} calculates the information of all nodes of both documents
+ * and the cache is not modified afterwards, the model can be read by concurrent threads after init().
+ * The information of other nodes is calculated on each request without being cached. The cache is only used
+ * with the relevance settings which were active when init() was called, so init() should be called again
+ * after changing a setting.
+ * The key expressions are compiled once and their locators are evaluated in one traversal of each document.
  * Created: 03.06.2014 13:46:59
  * @since 1.0.5
  * @author Volker Bergmann
  */
 
-public class DefaultXMLComparisonModel extends AbstractXMLComparisonModel {
+public class DefaultXMLComparisonModel extends AbstractXMLComparisonModel implements HashingComparisonModel {
+	
+	private static final Node[] NO_NODES = new Node[0];
 	
 	private List<KeyExpression> keyExpressions;
+	private List<CompiledXPath> keyLocators;
+	private List<CompiledXPath> keyValueExpressions;
 	private Map<Element, String> keys;
 	private boolean initialized;
+	private Map<Node, NodeInfo> nodeInfos; // only modified by init()
+	private int cachedSettings;             // the settings with which the nodeInfos were calculated
 	
 	public DefaultXMLComparisonModel() {
 		this.keyExpressions = new ArrayList<KeyExpression>();
-		this.keys = new HashMap<Element, String>();
+		this.keys = new IdentityHashMap<Element, String>();
 		this.initialized = false;
+		this.nodeInfos = new IdentityHashMap<Node, NodeInfo>();
+		this.cachedSettings = -1;
 	}
 	
 	@Override
 	public void addKeyExpression(String locator, String keyExpression) {
 		this.keyExpressions.add(new KeyExpression(locator, keyExpression));
+		this.keyLocators = null;
 	}
 	
 	@Override
@@ -70,22 +86,19 @@ public class DefaultXMLComparisonModel extends AbstractXMLComparisonModel {
 	public void init(Document document1, Document document2) {
 		try {
 			this.keys.clear();
-			for (KeyExpression keyExpression : keyExpressions) {
-				if (document1 != null) {
-					List<Element> elements1 = XPathUtil.queryElements(document1, keyExpression.getLocator());
-					for (Element element : elements1) {
-						String key1 = XPathUtil.queryString(element, keyExpression.getExpression());
-						this.keys.put(element, key1);
-					}
-				}
-				if (document2 != null) {
-					List<Element> elements2 = XPathUtil.queryElements(document2, keyExpression.getLocator());
-					for (Element element : elements2) {
-						String key2 = XPathUtil.queryString(element, keyExpression.getExpression());
-						this.keys.put(element, key2);
-					}
-				}
+			if (!keyExpressions.isEmpty()) {
+				compileKeyExpressions();
+				collectKeys(document1);
+				collectKeys(document2);
 			}
+			// calculate the structural hashes and child node arrays bottom-up
+			this.initialized = false;
+			this.nodeInfos.clear();
+			this.cachedSettings = settingsMask();
+			if (document1 != null)
+				info(document1.getDocumentElement());
+			if (document2 != null)
+				info(document2.getDocumentElement());
 			this.initialized = true;
 		} catch (XPathExpressionException e) {
 			this.keys.clear();
@@ -125,6 +138,28 @@ public class DefaultXMLComparisonModel extends AbstractXMLComparisonModel {
 		return (n1.getNodeName().equals(n2.getNodeName()));
 	}
 	
+	/** Provides the structural hash of a node, which covers its name, attributes, child nodes and text content. */
+	@Override
+	public int hashOf(Object object) {
+		return info((Node) object).hash;
+	}
+	
+	/** Provides the local name of an element or the node name of other nodes. 
+	 * Processing instructions have no key, since they correspond to elements of the same name. */
+	@Override
+	public Object correspondenceKeyOf(Object object) {
+		Node node = (Node) object;
+		if (node instanceof Text)
+			return "#text";
+		else if (node instanceof ProcessingInstruction)
+			return null;
+		else if (node instanceof Element) {
+			String localName = node.getLocalName();
+			return (localName != null ? localName : "#element");
+		} else
+			return node.getNodeName();
+	}
+	
 	@Override
 	public String subPath(Object[] array, int index) {
 		assertInitialized();
@@ -151,73 +186,165 @@ public class DefaultXMLComparisonModel extends AbstractXMLComparisonModel {
 	
 	public boolean equalNodes(Node n1, Node n2) {
 		assertInitialized();
+		if (n1 == n2)
+			return true;
+		NodeInfo info1 = info(n1);
+		NodeInfo info2 = info(n2);
+		if (info1.hash != info2.hash) // unequal subtrees are rejected without descending
+			return false;
+		
 		// compare node names
-		if (n1 instanceof Element && n2 instanceof Element) {
-			if (!elementNamesMatch((Element) n1, (Element) n2))
-				return false;
-		} else if (!n1.getNodeName().equals(n2.getNodeName())) {
+		if (!(n1 instanceof Element) || !(n2 instanceof Element))
+			return (!(n1 instanceof Element) && !(n2 instanceof Element) && n1.getNodeName().equals(n2.getNodeName()) 
+					&& NullSafeComparator.equals(n1.getTextContent(), n2.getTextContent()));
+		if (!elementNamesMatch((Element) n1, (Element) n2))
 			return false;
-		}
 		
 		// compare element attributes
-		if (n1 instanceof Element) {
-			if (n2 instanceof Element) {
-				Element e1 = (Element) n1;
-				Element e2 = (Element) n2;
-				if (!XMLUtil.getAttributes(e1).equals(XMLUtil.getAttributes(e2)))
-					return false;
-			} else {
-				return false;
-			}
-		}
+		if (!info1.attributes.equals(info2.attributes))
+			return false;
 		
 		// compare child nodes
-		Node[] c1 = childNodes(n1);
-		Node[] c2 = childNodes(n2);
+		Node[] c1 = info1.children;
+		Node[] c2 = info2.children;
 		if (c1.length != c2.length)
 			return false;
 		for (int i = 0; i < c1.length; i++)
 			if (!equalNodes(c1[i], c2[i]))
 				return false;
-		return n1.getTextContent().equals(n2.getTextContent());
+		
+		// since the child nodes are equal, the text contents can only differ in white space ignored by childNodes()
+		if (info1.textHash != info2.textHash || info1.textLength != info2.textLength)
+			return false;
+		return (info1.whitespace.equals(info2.whitespace) || n1.getTextContent().equals(n2.getTextContent()));
 	}
 
 	@Override
 	public Node[] childNodes(Node parent) {
 		assertInitialized();
-		if (!(parent instanceof Element))
-			return new Node[0];
-        NodeList childNodes = parent.getChildNodes();
-        ArrayBuilder<Node> builder = new ArrayBuilder<Node>(Node.class);
-        for (int i = 0; i < childNodes.getLength(); i++) {
-        	Node child = childNodes.item(i);
-        	if (child instanceof Element) {
-        		builder.add(child);
-        	} else if (child instanceof ProcessingInstruction) {
-        		if (processingInstructionRelevant)
-        			builder.add(child);
-        	} else if (child instanceof CDATASection) {
-        		if (cdataRelevant)
-        			builder.add(child);
-        		else
-        			builder.add(parent.getOwnerDocument().createTextNode(child.getTextContent()));
-        	} else if (child instanceof Text) {
-        		if (StringUtil.trim(child.getTextContent()).isEmpty()) {
-        			if (whitespaceRelevant) // white space
-        				builder.add(child);
-        		} else {
-        			// text with content
-        			builder.add(child);
-        		}
-        	} else if (child instanceof Comment) {
-        		if (commentRelevant)
-        			builder.add(child);
-        	} else {
-        		throw new UnsupportedOperationException("Unsupported node type: " + child.getClass().getName());
-        	}
-        }
-        return builder.toArray();
-    }
+		return info(parent).children;
+	}
+
+	/** Provides the cached structural information of a node, calculating it for the node and its descendants
+	 *  if necessary. The cache is only filled by {@link #init(Document, Document)}, afterwards a missing node's 
+	 *  information is calculated without being stored, so that concurrent readers do not modify the cache. 
+	 *  If a relevance setting has been changed since init(), the cache is not used. */
+	private NodeInfo info(Node node) {
+		if (settingsMask() != cachedSettings)
+			return createInfo(node);
+		NodeInfo info = nodeInfos.get(node);
+		if (info == null) {
+			info = createInfo(node);
+			if (!initialized)
+				nodeInfos.put(node, info);
+		}
+		return info;
+	}
+
+	private NodeInfo createInfo(Node node) {
+		if (!(node instanceof Element)) {
+			String text = node.getTextContent();
+			int textHash = (text != null ? text.hashCode() : 0);
+			return new NodeInfo(NO_NODES, null, 31 * node.getNodeName().hashCode() + textHash, 
+					textHash, (text != null ? text.length() : 0), "");
+		}
+		Element element = (Element) node;
+		NodeList childNodes = element.getChildNodes();
+		List<Node> builder = new ArrayList<Node>();
+		List<NodeInfo> elementInfos = new ArrayList<NodeInfo>(); // the infos of the child elements in document order
+		StringBuilder whitespace = new StringBuilder();
+		int textHash = 0; // the hash of getTextContent(), composed like String.hashCode()
+		int textLength = 0;
+		for (int i = 0; i < childNodes.getLength(); i++) {
+			Node child = childNodes.item(i);
+			if (child instanceof Element) {
+				builder.add(child);
+				NodeInfo childInfo = info(child);
+				elementInfos.add(childInfo);
+				textHash = textHash * pow31(childInfo.textLength) + childInfo.textHash;
+				textLength += childInfo.textLength;
+			} else if (child instanceof ProcessingInstruction) {
+				if (processingInstructionRelevant)
+					builder.add(child);
+			} else if (child instanceof Comment) {
+				if (commentRelevant)
+					builder.add(child);
+			} else if (child instanceof Text) {
+				String text = child.getTextContent();
+				textHash = textHash * pow31(text.length()) + text.hashCode();
+				textLength += text.length();
+				if (child instanceof CDATASection) {
+					if (cdataRelevant)
+						builder.add(child);
+					else
+						builder.add(element.getOwnerDocument().createTextNode(text));
+				} else if (StringUtil.trim(text).isEmpty()) {
+					if (whitespaceRelevant) // white space
+						builder.add(child);
+					else
+						whitespace.append(builder.size()).append(':').append(text).append(';');
+				} else {
+					// text with content
+					builder.add(child);
+				}
+			} else {
+				throw new UnsupportedOperationException("Unsupported node type: " + child.getClass().getName());
+			}
+		}
+		Node[] children = builder.toArray(new Node[builder.size()]);
+		Map<String, String> attributes = XMLUtil.getAttributes(element);
+		String localName = element.getLocalName();
+		int hash = (localName != null ? localName.hashCode() : 0);
+		if (namespaceRelevant)
+			hash = 31 * hash + NullSafeComparator.hashCode(element.getNamespaceURI());
+		hash = 31 * hash + attributes.hashCode();
+		int elementIndex = 0;
+		for (Node child : children)
+			hash = 31 * hash + (child instanceof Element ? elementInfos.get(elementIndex++) : info(child)).hash;
+		hash = 31 * hash + textHash;
+		return new NodeInfo(children, attributes, hash, textHash, textLength, whitespace.toString());
+	}
+
+	private void compileKeyExpressions() throws XPathExpressionException {
+		if (keyLocators != null && keyLocators.size() == keyExpressions.size())
+			return;
+		List<CompiledXPath> locators = new ArrayList<CompiledXPath>(keyExpressions.size());
+		List<CompiledXPath> expressions = new ArrayList<CompiledXPath>(keyExpressions.size());
+		for (KeyExpression keyExpression : keyExpressions) {
+			locators.add(CompiledXPath.compile(keyExpression.getLocator()));
+			expressions.add(CompiledXPath.compile(keyExpression.getExpression()));
+		}
+		this.keyLocators = locators;
+		this.keyValueExpressions = expressions;
+	}
+
+	private void collectKeys(Document document) throws XPathExpressionException {
+		if (document == null)
+			return;
+		Map<CompiledXPath, List<Node>> matches = CompiledXPath.queryNodes(document, keyLocators);
+		for (int i = 0; i < keyLocators.size(); i++) {
+			CompiledXPath keyValueExpression = keyValueExpressions.get(i);
+			for (Node node : matches.get(keyLocators.get(i)))
+				if (node instanceof Element)
+					this.keys.put((Element) node, keyValueExpression.queryString(node));
+		}
+	}
+
+	private int settingsMask() {
+		return (namespaceRelevant ? 1 : 0) | (whitespaceRelevant ? 2 : 0) | (cdataRelevant ? 4 : 0) 
+				| (processingInstructionRelevant ? 8 : 0) | (commentRelevant ? 16 : 0);
+	}
+
+	private static int pow31(int exponent) {
+		int result = 1;
+		int base = 31;
+		for (int n = exponent; n > 0; n >>= 1) {
+			if ((n & 1) != 0)
+				result *= base;
+			base *= base;
+		}
+		return result;
+	}
 
 	private void assertInitialized() {
 		if (!initialized)
@@ -252,4 +379,25 @@ public class DefaultXMLComparisonModel extends AbstractXMLComparisonModel {
 		return getClass().getSimpleName() + " [keyExpressions=" + keyExpressions + "]";
 	}
 
+	
+	/** Caches the filtered child nodes, attributes and hash values of a node. */
+	private static final class NodeInfo {
+		
+		final Node[] children;
+		final Map<String, String> attributes;
+		final int hash;
+		final int textHash;
+		final int textLength;
+		final String whitespace; // the white space text nodes which are ignored by childNodes() 
+		
+		NodeInfo(Node[] children, Map<String, String> attributes, int hash, int textHash, int textLength, String whitespace) {
+			this.children = children;
+			this.attributes = attributes;
+			this.hash = hash;
+			this.textHash = textHash;
+			this.textLength = textLength;
+			this.whitespace = whitespace;
+		}
+	}
+
 }
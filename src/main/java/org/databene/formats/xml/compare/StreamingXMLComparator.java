@@ -0,0 +1,770 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xml.compare;
+
+import static org.databene.formats.xml.compare.XMLComparisonModel.ATTRIBUTE;
+import static org.databene.formats.xml.compare.XMLComparisonModel.COMMENT;
+import static org.databene.formats.xml.compare.XMLComparisonModel.DOCUMENT_ENCODING;
+import static org.databene.formats.xml.compare.XMLComparisonModel.ELEMENT;
+import static org.databene.formats.xml.compare.XMLComparisonModel.ELEMENT_NAME;
+import static org.databene.formats.xml.compare.XMLComparisonModel.ELEMENT_NAMESPACE;
+import static org.databene.formats.xml.compare.XMLComparisonModel.ELEMENT_TEXT;
+import static org.databene.formats.xml.compare.XMLComparisonModel.PROCESSING_INSTRUCTION;
+import static org.databene.formats.xml.compare.XMLComparisonModel.TEXT;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.xpath.XPathExpressionException;
+
+import org.databene.commons.ConfigurationError;
+import org.databene.commons.IOUtil;
+import org.databene.commons.NullSafeComparator;
+import org.databene.commons.ParseException;
+import org.databene.commons.StringUtil;
+import org.databene.commons.converter.XMLNode2StringConverter;
+import org.databene.formats.compare.AggregateDiff;
+import org.databene.formats.compare.DiffDetail;
+import org.databene.formats.compare.DiffDetailType;
+import org.databene.formats.compare.DiffFactory;
+import org.databene.formats.compare.DiffListener;
+import org.databene.formats.compare.KeyExpression;
+import org.databene.formats.compare.LocalDiffType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+/**
+ * Compares two XML documents without loading them into memory. Both documents are pulled with StAX
+ * in lock-step, as long as the sibling nodes correspond. When they do not, the following siblings are
+ * buffered as DOM subtrees in a window of limited size until a corresponding pair is found.
+ * Buffered subtrees are compared like by the {@link XMLComparator}. Elements which are subject to
+ * a key expression are buffered as well, since the key needs to be evaluated before matching.
+ * The {@link DiffDetail}s are reported to a {@link DiffListener} as soon as they are found.<br>
+ * <br>
+ * Since the following siblings of a node are unknown while streaming, moved nodes are reported as
+ * missing and unexpected, and locators have a position predicate only from the second homonymous sibling on,
+ * e.g. /list/item and /list/item[2]. Key expression locators and tolerated diff locators are supported
+ * in the forms '/a/b', '//b', '/a/b/@c' and '/a/b/text()', other key expression locators are rejected
+ * with a {@link ConfigurationError}. A buffered subtree keeps its ancestors as empty elements,
+ * so that key expressions are evaluated for its descendants as well.
+ * Created: 18.10.2026 15:14:03
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class StreamingXMLComparator {
+
+	public static final int DEFAULT_WINDOW_SIZE = 100;
+
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+	private static final int ELEMENT_ITEM = 0;
+	private static final int TEXT_ITEM = 1;
+	private static final int CDATA_ITEM = 2;
+	private static final int COMMENT_ITEM = 3;
+	private static final int PI_ITEM = 4;
+	private static final int END_ITEM = 5;
+
+	private final XMLComparisonSettings settings;
+	private final DiffFactory diffFactory;
+	private int windowSize;
+
+	public StreamingXMLComparator() {
+		this(new XMLComparisonSettings());
+	}
+
+	public StreamingXMLComparator(XMLComparisonSettings settings) {
+		this.settings = settings;
+		this.diffFactory = new DiffFactory(new XMLNode2StringConverter());
+		this.windowSize = DEFAULT_WINDOW_SIZE;
+	}
+
+
+	// properties ------------------------------------------------------------------------------------------------------
+
+	public XMLComparisonSettings getSettings() {
+		return settings;
+	}
+
+	/** @return the maximum number of unmatched siblings which are buffered on each side */
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public void setWindowSize(int windowSize) {
+		if (windowSize < 1)
+			throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+		this.windowSize = windowSize;
+	}
+
+
+	// interface -------------------------------------------------------------------------------------------------------
+
+	/** Compares two documents and collects the differences.
+	 * Since the result is held in memory, this is only useful for documents with few differences.
+	 * @param uriOfExpected the URI of the expected document
+	 * @param uriOfActual the URI of the actual document
+	 * @return the collected differences
+	 * @throws IOException if a document cannot be read */
+	public AggregateDiff compare(String uriOfExpected, String uriOfActual) throws IOException {
+		AggregateDiff diffs = new AggregateDiff(uriOfExpected, uriOfActual, settings);
+		compare(uriOfExpected, uriOfActual, diffs);
+		return diffs;
+	}
+
+	public void compare(String uriOfExpected, String uriOfActual, DiffListener listener) throws IOException {
+		InputStream expected = IOUtil.getInputStreamForURI(uriOfExpected);
+		try {
+			InputStream actual = IOUtil.getInputStreamForURI(uriOfActual);
+			try {
+				compare(expected, actual, listener);
+			} finally {
+				IOUtil.close(actual);
+			}
+		} finally {
+			IOUtil.close(expected);
+		}
+	}
+
+	public void compare(InputStream expected, InputStream actual, DiffListener listener) {
+		checkKeyExpressions();
+		diffFactory.setMaxValueLength(settings.getMaxValueLength());
+		new Comparison(listener).run(expected, actual);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + settings + "]";
+	}
+
+
+	// comparison ------------------------------------------------------------------------------------------------------
+
+	/** Holds the state of one comparison. */
+	private class Comparison {
+
+		private final DiffListener listener;
+		private final XMLComparator domComparator;
+		private Side expected;
+		private Side actual;
+
+		Comparison(DiffListener listener) {
+			this.listener = listener;
+			this.domComparator = new XMLComparator(settings);
+		}
+
+		void run(InputStream expectedStream, InputStream actualStream) {
+			try {
+				expected = new Side(INPUT_FACTORY.createXMLStreamReader(expectedStream));
+				try {
+					actual = new Side(INPUT_FACTORY.createXMLStreamReader(actualStream));
+					try {
+						compareDocuments();
+					} finally {
+						actual.close();
+					}
+				} finally {
+					expected.close();
+				}
+			} catch (XMLStreamException e) {
+				Location location = e.getLocation();
+				throw new ParseException("Error parsing XML", e, null,
+						(location != null ? location.getLineNumber() : -1), (location != null ? location.getColumnNumber() : -1));
+			}
+		}
+
+		private void compareDocuments() throws XMLStreamException {
+			// check encoding
+			String expectedEncoding = expected.reader.getEncoding();
+			String actualEncoding = actual.reader.getEncoding();
+			if (!NullSafeComparator.equals(expectedEncoding, actualEncoding) && settings.isEncodingRelevant())
+				report(diffFactory.different(expectedEncoding, actualEncoding, DOCUMENT_ENCODING, "/", "/"));
+			// check element tree
+			Item expectedRoot = expected.readRoot();
+			Item actualRoot = actual.readRoot();
+			if (!NullSafeComparator.equals(expectedRoot.localName, actualRoot.localName))
+				report(diffFactory.different(expectedRoot.localName, actualRoot.localName, ELEMENT_NAME, expectedRoot.path, actualRoot.path));
+			if (expectedRoot.node != null || actualRoot.node != null)
+				compareBuffered(expectedRoot, actualRoot);
+			else
+				compareStreamedElements(expectedRoot, actualRoot);
+		}
+
+		private void compareStreamedElements(Item expectedElement, Item actualElement) throws XMLStreamException {
+			if (settings.isNamespaceRelevant()) {
+				String expectedNs = StringUtil.emptyToNull(expectedElement.namespace);
+				String actualNs = StringUtil.emptyToNull(actualElement.namespace);
+				if (!NullSafeComparator.equals(expectedNs, actualNs))
+					report(diffFactory.different(nsDescription(expectedNs), nsDescription(actualNs), ELEMENT_NAMESPACE,
+							expectedElement.path, actualElement.path));
+			}
+			compareAttributes(expectedElement, actualElement);
+			expected.enter(expectedElement);
+			actual.enter(actualElement);
+			compareChildren();
+			expected.exit();
+			actual.exit();
+		}
+
+		private void compareAttributes(Item expectedElement, Item actualElement) {
+			for (Map.Entry<String, String> attribute : expectedElement.attributes.entrySet()) {
+				String name = attribute.getKey();
+				String expectedValue = attribute.getValue();
+				String actualValue = actualElement.attributes.get(name);
+				if (actualValue == null)
+					report(diffFactory.missing(expectedValue, ATTRIBUTE, expectedElement.path + "/@" + name));
+				else if (!expectedValue.equals(actualValue))
+					report(diffFactory.different(expectedValue, actualValue, ATTRIBUTE,
+							expectedElement.path + "/@" + name, actualElement.path + "/@" + name));
+			}
+			for (Map.Entry<String, String> attribute : actualElement.attributes.entrySet())
+				if (!expectedElement.attributes.containsKey(attribute.getKey()))
+					report(diffFactory.unexpected(attribute.getValue(), ATTRIBUTE, actualElement.path + "/@" + attribute.getKey()));
+		}
+
+		private void compareChildren() throws XMLStreamException {
+			while (true) {
+				Item expectedItem = expected.peek();
+				Item actualItem = actual.peek();
+				if (expectedItem.type == END_ITEM && actualItem.type == END_ITEM)
+					return;
+				if (correspond(expectedItem, actualItem))
+					compareItems(expectedItem, actualItem);
+				else
+					resolveMismatch();
+			}
+		}
+
+		private void compareItems(Item expectedItem, Item actualItem) throws XMLStreamException {
+			if (expectedItem.type == ELEMENT_ITEM) {
+				if (expectedItem.node == null && actualItem.node == null) {
+					compareStreamedElements(expectedItem, actualItem);
+					return;
+				}
+				compareBuffered(expectedItem, actualItem);
+			} else if (!NullSafeComparator.equals(expectedItem.value, actualItem.value) || expectedItem.type != actualItem.type) {
+				if (expectedItem.type == COMMENT_ITEM)
+					report(diffFactory.different(expectedItem.value, actualItem.value, COMMENT, expectedItem.path, actualItem.path));
+				else if (expectedItem.type == PI_ITEM)
+					report(diffFactory.different(expectedItem.value, actualItem.value, PROCESSING_INSTRUCTION, expectedItem.path, actualItem.path));
+				else
+					report(diffFactory.different(expectedItem.value, actualItem.value, ELEMENT_TEXT, expectedItem.path, actualItem.path));
+			}
+			expected.poll();
+			actual.poll();
+		}
+
+		/** Compares two elements of which at least one has been buffered, using the DOM-based comparison. */
+		private void compareBuffered(Item expectedItem, Item actualItem) throws XMLStreamException {
+			Element expectedElement = expected.buffered(expectedItem);
+			Element actualElement = actual.buffered(actualItem);
+			settings.getModel().init(expectedElement.getOwnerDocument(), actualElement.getOwnerDocument());
+			AggregateDiff diffs = new AggregateDiff(expectedElement, actualElement, settings);
+			domComparator.compareElements(expectedElement, actualElement, new ComparisonContext(),
+					expectedItem.path, actualItem.path, diffs);
+			for (DiffDetail diff : diffs.getDetails())
+				report(diff);
+		}
+
+		/** Buffers the following siblings on both sides until a corresponding pair is found or the windows are full.
+		 *  The siblings before the pair are reported as missing or unexpected. */
+		private void resolveMismatch() throws XMLStreamException {
+			if (expected.atEnd()) {
+				reportUnexpected(actual.poll());
+				return;
+			}
+			if (actual.atEnd()) {
+				reportMissing(expected.poll());
+				return;
+			}
+			for (int size = 1; size <= windowSize; size++) {
+				boolean grown = (expected.window.size() < size && expected.buffer());
+				grown |= (actual.window.size() < size && actual.buffer());
+				int[] pair = findCorrespondingPair();
+				if (pair != null) {
+					for (int i = 0; i < pair[0]; i++)
+						reportMissing(expected.poll());
+					for (int i = 0; i < pair[1]; i++)
+						reportUnexpected(actual.poll());
+					return;
+				}
+				if (!grown)
+					break;
+			}
+			// no corresponding pair within the window
+			reportMissing(expected.poll());
+			reportUnexpected(actual.poll());
+		}
+
+		/** Finds the corresponding pair of buffered siblings with the smallest sum of positions. */
+		private int[] findCorrespondingPair() {
+			List<Item> expectedItems = expected.window;
+			List<Item> actualItems = actual.window;
+			for (int sum = 0; sum < expectedItems.size() + actualItems.size() - 1; sum++) {
+				for (int i = Math.max(0, sum - actualItems.size() + 1); i <= Math.min(sum, expectedItems.size() - 1); i++)
+					if (correspond(expectedItems.get(i), actualItems.get(sum - i)))
+						return new int[] { i, sum - i };
+			}
+			return null;
+		}
+
+		private void reportMissing(Item item) {
+			report(diffFactory.missing(item.diffObject(), item.classifier(), item.path));
+		}
+
+		private void reportUnexpected(Item item) {
+			report(diffFactory.unexpected(item.diffObject(), item.classifier(), item.path));
+		}
+
+		private void report(DiffDetail diff) {
+			for (LocalDiffType toleratedDiff : settings.getToleratedDiffs()) {
+				DiffDetailType type = toleratedDiff.getType();
+				if (type != null && type != diff.getType())
+					continue;
+				String locator = toleratedDiff.getLocator();
+				if (locator == null || matchesPath(locator, diff.getLocatorOfExpected(), type == null)
+						|| matchesPath(locator, diff.getLocatorOfActual(), type == null))
+					return;
+			}
+			listener.diffFound(diff);
+		}
+
+	}
+
+
+	// document side ---------------------------------------------------------------------------------------------------
+
+	/** Reads one document as sequence of sibling {@link Item}s and buffers the ones which cannot be compared in lock-step. */
+	private class Side {
+
+		final XMLStreamReader reader;
+		final DocumentBuilder documentBuilder;
+		final List<Item> window;
+		private final Deque<Level> levels;
+		private Item head; // the next item of the stream, which has not been buffered
+
+		Side(XMLStreamReader reader) {
+			this.reader = reader;
+			try {
+				DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+				factory.setNamespaceAware(true);
+				this.documentBuilder = factory.newDocumentBuilder();
+			} catch (ParserConfigurationException e) {
+				throw new ConfigurationError("Error creating DOM builder", e);
+			}
+			this.window = new ArrayList<Item>();
+			this.levels = new ArrayDeque<Level>();
+			this.levels.push(new Level("", null, null));
+		}
+
+		Item readRoot() throws XMLStreamException {
+			while (reader.getEventType() != XMLStreamConstants.START_ELEMENT)
+				reader.next();
+			return readItem();
+		}
+
+		/** @return the next sibling, which is either the first buffered one or the head of the stream */
+		Item peek() throws XMLStreamException {
+			if (!window.isEmpty())
+				return window.get(0);
+			if (head == null)
+				head = readItem();
+			return head;
+		}
+
+		/** Removes the next sibling. An element which is not buffered is skipped in the stream. */
+		Item poll() throws XMLStreamException {
+			Item item = peek();
+			if (!window.isEmpty()) {
+				window.remove(0);
+			} else {
+				if (item.type == ELEMENT_ITEM && item.node == null)
+					item.node = materialize();
+				head = null;
+			}
+			return item;
+		}
+
+		boolean atEnd() throws XMLStreamException {
+			return (peek().type == END_ITEM);
+		}
+
+		/** Moves the head of the stream into the window.
+		 * @return false if the end of the parent element has been reached */
+		boolean buffer() throws XMLStreamException {
+			if (head == null)
+				head = readItem();
+			if (head.type == END_ITEM)
+				return false;
+			if (head.type == ELEMENT_ITEM && head.node == null)
+				head.node = materialize();
+			window.add(head);
+			head = null;
+			return true;
+		}
+
+		/** Provides the DOM element of an item, reading it from the stream if necessary. */
+		Element buffered(Item item) throws XMLStreamException {
+			if (item.node == null)
+				item.node = materialize();
+			return item.node;
+		}
+
+		/** Steps into the streamed element which is the head of the stream. */
+		void enter(Item element) throws XMLStreamException {
+			levels.push(new Level(element.path, qualifiedName(), reader.getNamespaceURI()));
+			head = null;
+			reader.next();
+		}
+
+		/** Steps out of the current element, the reader is positioned at its end tag. */
+		void exit() throws XMLStreamException {
+			levels.pop();
+			head = null;
+			if (reader.hasNext())
+				reader.next();
+		}
+
+		void close() throws XMLStreamException {
+			reader.close();
+		}
+
+		/** Reads the next relevant sibling, the reader is left at the first event after it.
+		 *  An element is left unread after its start tag unless it needs to be buffered for its key. */
+		private Item readItem() throws XMLStreamException {
+			while (true) {
+				switch (reader.getEventType()) {
+					case XMLStreamConstants.START_ELEMENT:
+						return readElementHead();
+					case XMLStreamConstants.END_ELEMENT:
+					case XMLStreamConstants.END_DOCUMENT:
+						return new Item(END_ITEM, null, null);
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.SPACE:
+						String text = readText(XMLStreamConstants.CHARACTERS);
+						if (settings.isWhitespaceRelevant() || !StringUtil.trim(text).isEmpty())
+							return newItem(TEXT_ITEM, "text()", text);
+						break;
+					case XMLStreamConstants.CDATA:
+						String cdata = readText(XMLStreamConstants.CDATA);
+						return newItem((settings.isCdataRelevant() ? CDATA_ITEM : TEXT_ITEM), "text()", cdata);
+					case XMLStreamConstants.COMMENT:
+						String comment = reader.getText();
+						reader.next();
+						if (settings.isCommentRelevant())
+							return newItem(COMMENT_ITEM, "comment()", comment);
+						break;
+					case XMLStreamConstants.PROCESSING_INSTRUCTION:
+						String target = reader.getPITarget();
+						String data = reader.getPIData();
+						reader.next();
+						if (settings.isProcessingInstructionRelevant()) {
+							Item item = newItem(PI_ITEM, target, data);
+							item.localName = target;
+							return item;
+						}
+						break;
+					default:
+						reader.next();
+				}
+			}
+		}
+
+		private Item readElementHead() throws XMLStreamException {
+			Item item = newItem(ELEMENT_ITEM, qualifiedName(), null);
+			item.localName = reader.getLocalName();
+			item.namespace = reader.getNamespaceURI();
+			item.attributes = new LinkedHashMap<String, String>();
+			for (int i = 0; i < reader.getAttributeCount(); i++) {
+				String attributePrefix = reader.getAttributePrefix(i);
+				String attributeName = reader.getAttributeLocalName(i);
+				item.attributes.put((StringUtil.isEmpty(attributePrefix) ? attributeName : attributePrefix + ':' + attributeName),
+						reader.getAttributeValue(i));
+			}
+			KeyExpression keyExpression = keyExpressionFor(item.path);
+			if (keyExpression != null) {
+				// the key can only be evaluated on the complete subtree
+				item.node = materialize();
+				try {
+					item.key = settings.getCompiledXPath(keyExpression.getExpression()).queryString(item.node);
+				} catch (XPathExpressionException e) {
+					throw new ConfigurationError("Error evaluating key expression " + keyExpression, e);
+				}
+			}
+			return item;
+		}
+
+		private String readText(int eventType) throws XMLStreamException {
+			// the parser may split text into several events
+			StringBuilder builder = new StringBuilder();
+			do {
+				builder.append(reader.getText());
+				reader.next();
+			} while (reader.getEventType() == eventType
+					|| (eventType == XMLStreamConstants.CHARACTERS && reader.getEventType() == XMLStreamConstants.SPACE));
+			return builder.toString();
+		}
+
+		private Item newItem(int type, String name, String value) {
+			Level parent = levels.peek();
+			Integer count = parent.counts.get(name);
+			count = (count != null ? count + 1 : 1);
+			parent.counts.put(name, count);
+			return new Item(type, parent.path + "/" + name + (count > 1 ? "[" + count + "]" : ""), value);
+		}
+
+		/** Reads the element at the current position into a DOM document of its own,
+		 *  below empty copies of its ancestors. */
+		private Element materialize() throws XMLStreamException {
+			Document document = documentBuilder.newDocument();
+			Node parent = appendAncestors(document);
+			Element result = null;
+			int depth = 0;
+			int lastEvent = -1;
+			do {
+				int event = reader.getEventType();
+				switch (event) {
+					case XMLStreamConstants.START_ELEMENT:
+						Element element = createElement(document);
+						parent.appendChild(element);
+						if (result == null)
+							result = element;
+						parent = element;
+						depth++;
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						parent = parent.getParentNode();
+						depth--;
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.SPACE:
+						if (lastEvent == XMLStreamConstants.CHARACTERS || lastEvent == XMLStreamConstants.SPACE)
+							((Text) parent.getLastChild()).appendData(reader.getText());
+						else
+							parent.appendChild(document.createTextNode(reader.getText()));
+						break;
+					case XMLStreamConstants.CDATA:
+						if (lastEvent == XMLStreamConstants.CDATA)
+							((Text) parent.getLastChild()).appendData(reader.getText());
+						else
+							parent.appendChild(document.createCDATASection(reader.getText()));
+						break;
+					case XMLStreamConstants.COMMENT:
+						parent.appendChild(document.createComment(reader.getText()));
+						break;
+					case XMLStreamConstants.PROCESSING_INSTRUCTION:
+						parent.appendChild(document.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+						break;
+					default:
+						// nothing to do
+				}
+				lastEvent = event;
+				reader.next();
+			} while (depth > 0);
+			return result;
+		}
+
+		/** Appends the streamed ancestors of the current element, so that key locators like '/a/b'
+		 *  are evaluated in the materialized subtree like in the complete document.
+		 *  @return the innermost ancestor */
+		private Node appendAncestors(Document document) {
+			Node parent = document;
+			Iterator<Level> iterator = levels.descendingIterator();
+			while (iterator.hasNext()) {
+				Level level = iterator.next();
+				if (level.name != null) {
+					Element ancestor = document.createElementNS(StringUtil.emptyToNull(level.namespace), level.name);
+					parent.appendChild(ancestor);
+					parent = ancestor;
+				}
+			}
+			return parent;
+		}
+
+		private Element createElement(Document document) {
+			Element element = document.createElementNS(StringUtil.emptyToNull(reader.getNamespaceURI()), qualifiedName());
+			for (int i = 0; i < reader.getNamespaceCount(); i++) {
+				String nsPrefix = reader.getNamespacePrefix(i);
+				element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+						(StringUtil.isEmpty(nsPrefix) ? "xmlns" : "xmlns:" + nsPrefix), reader.getNamespaceURI(i));
+			}
+			for (int i = 0; i < reader.getAttributeCount(); i++) {
+				String attributePrefix = reader.getAttributePrefix(i);
+				String attributeName = reader.getAttributeLocalName(i);
+				element.setAttributeNS(StringUtil.emptyToNull(reader.getAttributeNamespace(i)),
+						(StringUtil.isEmpty(attributePrefix) ? attributeName : attributePrefix + ':' + attributeName),
+						reader.getAttributeValue(i));
+			}
+			return element;
+		}
+
+		private String qualifiedName() {
+			String prefix = reader.getPrefix();
+			String localName = reader.getLocalName();
+			return (StringUtil.isEmpty(prefix) ? localName : prefix + ':' + localName);
+		}
+
+	}
+
+
+	// helper classes --------------------------------------------------------------------------------------------------
+
+	/** Represents a node of the document which is compared as unit with a node of the other document. */
+	static class Item {
+
+		final int type;
+		final String path;
+		final String value;
+		String localName;
+		String namespace;
+		Map<String, String> attributes;
+		String key;
+		Element node;
+
+		Item(int type, String path, String value) {
+			this.type = type;
+			this.path = path;
+			this.value = value;
+		}
+
+		Object diffObject() {
+			return (node != null ? node : value);
+		}
+
+		String classifier() {
+			switch (type) {
+				case ELEMENT_ITEM: return ELEMENT;
+				case COMMENT_ITEM: return COMMENT;
+				case PI_ITEM: return PROCESSING_INSTRUCTION;
+				default: return TEXT;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return path;
+		}
+	}
+
+	/** Tracks the path and name of an element and the number of child nodes of each name. */
+	static class Level {
+
+		final String path;
+		final String name;
+		final String namespace;
+		final Map<String, Integer> counts;
+
+		Level(String path, String name, String namespace) {
+			this.path = path;
+			this.name = name;
+			this.namespace = namespace;
+			this.counts = new HashMap<String, Integer>();
+		}
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	static boolean correspond(Item expected, Item actual) {
+		switch (expected.type) {
+			case ELEMENT_ITEM:
+				return (actual.type == ELEMENT_ITEM && NullSafeComparator.equals(expected.localName, actual.localName)
+						&& (expected.key == null || expected.key.equals(actual.key)));
+			case TEXT_ITEM:
+			case CDATA_ITEM:
+				return (actual.type == TEXT_ITEM || actual.type == CDATA_ITEM);
+			case COMMENT_ITEM:
+				return (actual.type == COMMENT_ITEM);
+			case PI_ITEM:
+				return (actual.type == PI_ITEM && expected.localName.equals(actual.localName));
+			default:
+				return false;
+		}
+	}
+
+	/** Checks that the key expression locators are simple paths, since other locators cannot be matched
+	 *  against the streamed elements. */
+	private void checkKeyExpressions() {
+		for (KeyExpression keyExpression : settings.getModel().getKeyExpressions()) {
+			try {
+				if (!settings.getCompiledXPath(keyExpression.getLocator()).isSimplePath())
+					throw new ConfigurationError("Key expression locator not supported in streaming comparison: "
+							+ keyExpression.getLocator());
+			} catch (XPathExpressionException e) {
+				throw new ConfigurationError("Illegal key expression locator: " + keyExpression.getLocator(), e);
+			}
+		}
+	}
+
+	KeyExpression keyExpressionFor(String path) {
+		for (KeyExpression keyExpression : settings.getModel().getKeyExpressions())
+			if (matchesPath(keyExpression.getLocator(), path, false))
+				return keyExpression;
+		return null;
+	}
+
+	/** Checks if a locator of the comparison matches a simple path pattern like '/a/b', '//b' or '/a/b/@c'.
+	 * Position predicates are only evaluated if the pattern contains predicates.
+	 * @param pattern the path pattern
+	 * @param path the locator to check
+	 * @param includeDescendants if the pattern matches the descendants of matching nodes as well
+	 * @return true if the path matches the pattern */
+	static boolean matchesPath(String pattern, String path, boolean includeDescendants) {
+		if (path == null)
+			return false;
+		String target = (pattern.indexOf('[') < 0 ? path.replaceAll("\\[\\d+\\]", "") : path);
+		String normalizedPattern = pattern.replace("[1]", "");
+		if (normalizedPattern.startsWith("//")) {
+			String suffix = normalizedPattern.substring(1);
+			return (target.endsWith(suffix) || (includeDescendants && target.contains(suffix + "/")));
+		}
+		return (target.equals(normalizedPattern) || (includeDescendants && target.startsWith(normalizedPattern + "/")));
+	}
+
+	private static String nsDescription(String namespace) {
+		return (namespace != null ? namespace : "none");
+	}
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		String cdataProperty = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+		if (factory.isPropertySupported(cdataProperty))
+			factory.setProperty(cdataProperty, true);
+		return factory;
+	}
+
+}
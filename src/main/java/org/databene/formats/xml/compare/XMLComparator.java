@@ -23,7 +23,11 @@ import static org.databene.formats.xml.compare.XMLComparisonModel.ELEMENT_TEXT;
 import static org.databene.formats.xml.compare.XMLComparisonModel.PROCESSING_INSTRUCTION;
 
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import javax.xml.xpath.XPathExpressionException;
 
@@ -38,6 +42,7 @@ import org.databene.formats.compare.ArrayComparisonResult;
 import org.databene.formats.compare.DiffDetail;
 import org.databene.formats.compare.DiffDetailType;
 import org.databene.formats.compare.DiffFactory;
+import org.databene.formats.compare.DiffListener;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -48,6 +53,11 @@ import org.w3c.dom.Text;
 
 /**
  * Compares two XML documents.
+ * If the settings specify a parallelism of more than one thread, the differing child elements 
+ * of an element are compared by parallel fork-join tasks, which collect their diffs separately. 
+ * The diffs are merged in document order, so the result is the same as of a sequential comparison.
+ * If the diffs are forwarded to a sink, the comparison is always sequential, 
+ * so that no diffs are buffered outside of the sink.
  * Created: 16.11.2015 14:31:12
  * @since 1.0.5
  * @author Volker Bergmann
@@ -55,6 +65,9 @@ import org.w3c.dom.Text;
 
 public class XMLComparator {
 
+	/** The maximum number of diffs listed in the message of {@link #assertEquals(Document, Document)} */
+	public static final int MAX_REPORTED_DIFFS = 10;
+
 	private XMLComparisonSettings settings;
 	private DiffFactory diffFactory;
 
@@ -67,15 +80,24 @@ public class XMLComparator {
 		this.diffFactory = new DiffFactory(new XMLNode2StringConverter());
 	}
 	
+	/** Compares two documents and throws an {@link AssertionError} if they differ. 
+	 *  Its message lists only the first {@link #MAX_REPORTED_DIFFS} diffs, so that no other diff needs to be formatted.
+	 *  @param expected the expected document
+	 *  @param actual the actual document
+	 *  @throws XPathExpressionException if a key expression or tolerated diff locator is invalid */
 	public void assertEquals(Document expected, Document actual) throws XPathExpressionException {
 		AggregateDiff diffs = compare(expected, actual);
-		if (diffs.getDetailCount() > 0) {
+		int count = diffs.getDetailCount();
+		if (count > 0) {
 			String LF = SystemInfo.getLineSeparator();
-			StringBuilder message = new StringBuilder("Documents do not match. Found " + diffs.getDetailCount() + " difference");
-			if (diffs.getDetailCount() > 1)
+			StringBuilder message = new StringBuilder("Documents do not match. Found " + count + " difference");
+			if (count > 1)
 				message.append('s');
-			for (DiffDetail diff : diffs.getDetails())
-				message.append(LF).append(diff);
+			int reported = Math.min(count, MAX_REPORTED_DIFFS);
+			for (int i = 0; i < reported; i++)
+				message.append(LF).append(diffs.getDetail(i));
+			if (count > reported)
+				message.append(LF).append("... and ").append(count - reported).append(" more");
 			throw new AssertionError(message);
 		}
 	}
@@ -87,23 +109,45 @@ public class XMLComparator {
 	}
 	
 	public AggregateDiff compare(Document expectedDocument, Document actualDocument) throws XPathExpressionException {
+		return compare(expectedDocument, actualDocument, null);
+	}
+	
+	/** Compares two documents and forwards each diff to a sink instead of collecting it in memory.
+	 * If a sink is provided, the comparison is executed sequentially regardless of the parallelism setting, 
+	 * since the diffs of parallel tasks would need to be collected in memory for reporting them in document order.
+	 * @param expectedDocument the expected document
+	 * @param actualDocument the actual document
+	 * @param sink the listener which receives the diffs, or null for collecting them in the result
+	 * @return an {@link AggregateDiff} which tells the number of diffs and holds them if no sink was provided */
+	public AggregateDiff compare(Document expectedDocument, Document actualDocument, DiffListener sink) throws XPathExpressionException {
 		// prepare comparison
-		ComparisonContext context = new ComparisonContext(settings.getToleratedDiffs(), expectedDocument, actualDocument);
+		diffFactory.setMaxValueLength(settings.getMaxValueLength());
+		ComparisonContext context = new ComparisonContext(settings, expectedDocument, actualDocument);
 		settings.getModel().init(actualDocument, expectedDocument);
-		AggregateDiff diffs = new AggregateDiff(expectedDocument, actualDocument, settings);
+		AggregateDiff diffs = new AggregateDiff(expectedDocument, actualDocument, settings, sink);
 		
 		// check encoding
 		String expectedEncoding = expectedDocument.getInputEncoding();
 		String actualEncoding = actualDocument.getInputEncoding();
 		if (!NullSafeComparator.equals(expectedEncoding, actualEncoding) && settings.isEncodingRelevant())
-			diffs.addDetail(diffFactory.different(expectedEncoding, actualEncoding, DOCUMENT_ENCODING, "/", "/"));
+			addDiff(diffFactory.different(expectedEncoding, actualEncoding, DOCUMENT_ENCODING, "/", "/"), context, diffs);
 		
 		// check element tree
 		String expectedRootName = expectedDocument.getDocumentElement().getNodeName();
 		String actualRootName = actualDocument.getDocumentElement().getNodeName();
-		compareElements(expectedDocument.getDocumentElement(),
-				actualDocument.getDocumentElement(), context, "/" + expectedRootName, "/" + actualRootName, diffs);
-		
+		if (settings.getParallelism() > 1 && sink == null) {
+			ForkJoinPool pool = new ForkJoinPool(settings.getParallelism());
+			try {
+				ElementComparison task = new ElementComparison(expectedDocument.getDocumentElement(),
+						actualDocument.getDocumentElement(), context, "/" + expectedRootName, "/" + actualRootName, diffs);
+				pool.invoke(task);
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			compareElements(expectedDocument.getDocumentElement(),
+					actualDocument.getDocumentElement(), context, "/" + expectedRootName, "/" + actualRootName, diffs);
+		}
 		return diffs;
 	}
 	
@@ -114,21 +158,21 @@ public class XMLComparator {
 	AggregateDiff compareElements(Element expected, Element actual, ComparisonContext context, String parentPathOfExpected, String parentPathOfActual, AggregateDiff diffs) {
 		if (context.isExcluded(expected)) // if this is an excluded node then return without checking
 			return diffs;
-		compareElementNames(expected, actual, parentPathOfExpected, parentPathOfActual, diffs);
+		compareElementNames(expected, actual, context, parentPathOfExpected, parentPathOfActual, diffs);
 		compareAttributes(expected, actual, context, parentPathOfExpected, parentPathOfActual, diffs);
 		compareChildNodes(expected, actual, context, parentPathOfExpected, parentPathOfActual, diffs);
 		return diffs;
 	}
 
-	private void compareElementNames(Element expected, Element actual, String parentPathOfExpected, String parentPathOfActual, AggregateDiff diffs) {
+	private void compareElementNames(Element expected, Element actual, ComparisonContext context, String parentPathOfExpected, String parentPathOfActual, AggregateDiff diffs) {
 		// assert equal node names
 		String elementName = expected.getLocalName();
-		expectEqualStrings(elementName, actual.getLocalName(), ELEMENT_NAME, parentPathOfExpected, parentPathOfActual, diffs);
+		expectEqualStrings(elementName, actual.getLocalName(), ELEMENT_NAME, context, parentPathOfExpected, parentPathOfActual, diffs);
 		if (settings.isNamespaceRelevant()) {
 			String expectedNs = StringUtil.emptyToNull(expected.getNamespaceURI());
 			String actualNs = StringUtil.emptyToNull(actual.getNamespaceURI());
 			if (!NullSafeComparator.equals(expectedNs, actualNs))
-				diffs.addDetail(diffFactory.different(nsDescription(expectedNs), nsDescription(actualNs), ELEMENT_NAMESPACE, parentPathOfExpected, parentPathOfActual));
+				addDiff(diffFactory.different(nsDescription(expectedNs), nsDescription(actualNs), ELEMENT_NAMESPACE, parentPathOfExpected, parentPathOfActual), context, diffs);
 		}
 	}
 
@@ -170,38 +214,64 @@ public class XMLComparator {
 			// if child elements exist, then compare them
 			compareNodeArrays(expectedChildNodes, actualChildNodes, context, parentPathOfExpected, parentPathOfActual, diffs);
 		}
-		Iterator<DiffDetail> iterator = diffs.getDetails().iterator();
-		while (iterator.hasNext()) {
-			DiffDetail diff = iterator.next();
-			if (context.isTolerated(diff.getType(), diff.getExpected(), diff.getActual()))
-				iterator.remove();
-		}
 	}
 
 	private void compareNodeArrays(Node[] expectedNodes, Node[] actualNodes,
 			ComparisonContext context, String parentPathOfExpected, String parentPathOfActual, AggregateDiff diffs) {
-		ArrayComparisonResult result = ArrayComparator.compare(expectedNodes, actualNodes, settings.getModel(), parentPathOfExpected, parentPathOfActual, diffFactory);
-		for (DiffDetail diff : result.getDiffs()) {
-			if (diff.getType() == DiffDetailType.DIFFERENT && diff.getExpected() instanceof Element && diff.getActual() instanceof Element) {
-				// if two elements differ in general, dive deeper in the comparison
-				compareElements((Element) diff.getExpected(), (Element) diff.getActual(), context, String.valueOf(diff.getLocatorOfExpected()), String.valueOf(diff.getLocatorOfActual()), diffs);
+		ArrayComparisonResult result = ArrayComparator.compare(expectedNodes, actualNodes, settings.getModel(), parentPathOfExpected, parentPathOfActual, diffFactory, settings.isOrderedDiff());
+		List<DiffDetail> nodeDiffs = result.getDiffs();
+		List<ElementComparison> tasks = forkElementComparisons(nodeDiffs, context, diffs);
+		int taskIndex = 0;
+		for (DiffDetail diff : nodeDiffs) {
+			if (isElementDiff(diff)) {
+				if (tasks != null) {
+					// merge the diffs of the parallel task in document order
+					for (DiffDetail subDiff : tasks.get(taskIndex++).join().getDetails())
+						diffs.addDetail(subDiff);
+				} else {
+					// if two elements differ in general, dive deeper in the comparison
+					compareElements((Element) diff.getExpected(), (Element) diff.getActual(), context, String.valueOf(diff.getLocatorOfExpected()), String.valueOf(diff.getLocatorOfActual()), diffs);
+				}
 			} else if (diff.getType() == DiffDetailType.DIFFERENT && diff.getExpected() instanceof Text && diff.getActual() instanceof Text) {
 				handleTextDiff(diff, diffs, context);
 			} else if (diff.getExpected() instanceof ProcessingInstruction || diff.getActual() instanceof ProcessingInstruction) {
 				handleProcesingInstructionDiff(diff, diffs, context);
 			} else {
 				// normal div treatment
-				diffs.addDetail(diff);
+				addDiff(diff, context, diffs);
 			}
 		}
 	}
 
+	/** Forks a task for each pair of differing elements if the comparison is executed in a fork-join pool, 
+	 * the diffs are not forwarded to a sink and there are at least two differing elements.
+	 * @return the forked tasks in document order or null if the elements are to be compared sequentially */
+	private List<ElementComparison> forkElementComparisons(List<DiffDetail> nodeDiffs, ComparisonContext context, AggregateDiff diffs) {
+		if (settings.getParallelism() <= 1 || diffs.getSink() != null || !ForkJoinTask.inForkJoinPool())
+			return null;
+		List<ElementComparison> tasks = new ArrayList<ElementComparison>();
+		for (DiffDetail diff : nodeDiffs)
+			if (isElementDiff(diff))
+				tasks.add(new ElementComparison((Element) diff.getExpected(), (Element) diff.getActual(), context, 
+						String.valueOf(diff.getLocatorOfExpected()), String.valueOf(diff.getLocatorOfActual()), null));
+		if (tasks.size() < 2)
+			return null;
+		for (int i = tasks.size() - 1; i > 0; i--)
+			tasks.get(i).fork();
+		tasks.get(0).invoke();
+		return tasks;
+	}
+
+	private static boolean isElementDiff(DiffDetail diff) {
+		return (diff.getType() == DiffDetailType.DIFFERENT && diff.getExpected() instanceof Element && diff.getActual() instanceof Element);
+	}
+
 	private void handleTextDiff(DiffDetail diff, AggregateDiff diffs, ComparisonContext context) {
 		// special handling for text nodes
 		String locatorOfActual = StringUtil.removeSuffixIfPresent("/#text", diff.getLocatorOfActual());
 		String locatorOfExpected = StringUtil.removeSuffixIfPresent("/#text", diff.getLocatorOfExpected());
 		if (!context.isTolerated(DiffDetailType.DIFFERENT, locatorOfActual))
-			diffs.addDetail(diffFactory.different(diff.getExpected(), diff.getActual(), ELEMENT_TEXT, locatorOfExpected, locatorOfActual));
+			addDiff(diffFactory.different(diff.getExpected(), diff.getActual(), ELEMENT_TEXT, locatorOfExpected, locatorOfActual), context, diffs);
 	}
 
 	private void handleProcesingInstructionDiff(DiffDetail diff, AggregateDiff diffs, ComparisonContext context) {
@@ -211,13 +281,19 @@ public class XMLComparator {
 		String locatorOfExpected = procIntLocator(StringUtil.removeSuffixIfPresent("/procint", diff.getLocatorOfExpected()), expectedPI);
 		String locatorOfActual = procIntLocator(StringUtil.removeSuffixIfPresent("/procint", diff.getLocatorOfActual()), actualPI);
 		if (!context.isTolerated(diff.getType(), locatorOfExpected) && !context.isTolerated(diff.getType(), locatorOfActual)) {
-			diffs.addDetail(diffFactory.genericDiff(expectedPI, actualPI, PROCESSING_INSTRUCTION, diff.getType(), locatorOfExpected, locatorOfActual));
+			addDiff(diffFactory.genericDiff(expectedPI, actualPI, PROCESSING_INSTRUCTION, diff.getType(), locatorOfExpected, locatorOfActual), context, diffs);
 		}
 	}
 
-	private void expectEqualStrings(String expectedValue, String actualValue, String type, String locatorOfExpected, String locatorOfActual, AggregateDiff diffs) {
+	private void expectEqualStrings(String expectedValue, String actualValue, String type, ComparisonContext context, String locatorOfExpected, String locatorOfActual, AggregateDiff diffs) {
 		if (!NullSafeComparator.equals(expectedValue, actualValue))
-			diffs.addDetail(diffFactory.different(expectedValue, actualValue, type, locatorOfExpected, locatorOfActual));
+			addDiff(diffFactory.different(expectedValue, actualValue, type, locatorOfExpected, locatorOfActual), context, diffs);
+	}
+
+	/** Adds a diff unless it is tolerated for its expected or actual object, so that each diff is checked only once. */
+	private static void addDiff(DiffDetail diff, ComparisonContext context, AggregateDiff diffs) {
+		if (!context.isTolerated(diff.getType(), diff.getExpected(), diff.getActual()))
+			diffs.addDetail(diff);
 	}
 
 	private void expectEqualAttribute(Attr expectedAttribute, Element actualElement, ComparisonContext context, String parentPathOfExpected, String parentPathOfActual, AggregateDiff diffs) {
@@ -250,5 +326,36 @@ public class XMLComparator {
 	public String toString() {
 		return getClass().getSimpleName() + "[" + settings + "]";
 	}
+	
+	
+	/** Compares two elements in a fork-join pool. If no {@link AggregateDiff} is provided, 
+	 * the diffs are collected in a new one, so that parallel tasks do not interfere. 
+	 * The {@link ComparisonContext} is shared, since it is not modified during the comparison. */
+	private class ElementComparison extends RecursiveTask<AggregateDiff> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Element expected;
+		private final Element actual;
+		private final ComparisonContext context;
+		private final String pathOfExpected;
+		private final String pathOfActual;
+		private final AggregateDiff diffs;
+
+		ElementComparison(Element expected, Element actual, ComparisonContext context, 
+				String pathOfExpected, String pathOfActual, AggregateDiff diffs) {
+			this.expected = expected;
+			this.actual = actual;
+			this.context = context;
+			this.pathOfExpected = pathOfExpected;
+			this.pathOfActual = pathOfActual;
+			this.diffs = (diffs != null ? diffs : new AggregateDiff(expected, actual, settings));
+		}
+
+		@Override
+		protected AggregateDiff compute() {
+			return compareElements(expected, actual, context, pathOfExpected, pathOfActual, diffs);
+		}
+	}
 
 }
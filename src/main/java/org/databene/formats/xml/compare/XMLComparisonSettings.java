@@ -14,6 +14,11 @@
  */
 package org.databene.formats.xml.compare;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.xpath.XPathExpressionException;
+
 import org.databene.formats.compare.ComparisonSettings;
 
 /**
@@ -26,6 +31,8 @@ import org.databene.formats.compare.ComparisonSettings;
 public class XMLComparisonSettings extends ComparisonSettings {
 
     private boolean encodingRelevant;
+    private int parallelism;
+    private ConcurrentMap<String, ThreadLocal<CompiledXPath>> compiledXPaths;
 
 	public XMLComparisonSettings() {
 		this(new DefaultXMLComparisonModel());
@@ -33,11 +40,13 @@ public class XMLComparisonSettings extends ComparisonSettings {
 
 	public XMLComparisonSettings(XMLComparisonModel model) {
 		super(model);
+		this.compiledXPaths = new ConcurrentHashMap<String, ThreadLocal<CompiledXPath>>();
 		setEncodingRelevant(false);
         setNamespaceRelevant(false);
         setWhitespaceRelevant(false);
         setCdataRelevant(true);
         setProcessingInstructionRelevant(false);
+        setParallelism(1);
 	}
 
 	@Override
@@ -117,6 +126,44 @@ public class XMLComparisonSettings extends ComparisonSettings {
     	getModel().setProcessingInstructionRelevant(processingInstructionRelevant);
     }
 
+    /** Tells how many threads are used for comparing the child elements of differing elements
+     * @return the number of threads, 1 for a sequential comparison */
+    public int getParallelism() {
+		return parallelism;
+	}
+
+    /** Sets how many threads are used for comparing the child elements of differing elements.
+     * For a parallel comparison, the model must support concurrent reads after its init() method has been called,
+     * which is the case for the {@link DefaultXMLComparisonModel}.
+     * @param parallelism the number of threads, 1 for a sequential comparison */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		this.parallelism = parallelism;
+	}
+
+	/** Provides a compiled XPath expression, which is cached, so that the locators of tolerated diffs are compiled 
+	 * only once when the settings are used for comparing many documents. Since a {@link CompiledXPath} is not 
+	 * thread-safe, each thread gets its own instance, so the settings can be shared by the threads of a 
+	 * parallel comparison.
+	 * @param expression the XPath expression
+	 * @return the compiled expression for the calling thread */
+	public CompiledXPath getCompiledXPath(String expression) throws XPathExpressionException {
+		ThreadLocal<CompiledXPath> perThread = compiledXPaths.get(expression);
+		if (perThread == null) {
+			perThread = new ThreadLocal<CompiledXPath>();
+			ThreadLocal<CompiledXPath> existing = compiledXPaths.putIfAbsent(expression, perThread);
+			if (existing != null)
+				perThread = existing;
+		}
+		CompiledXPath result = perThread.get();
+		if (result == null) {
+			result = CompiledXPath.compile(expression);
+			perThread.set(result);
+		}
+		return result;
+	}
+
 	public XMLComparisonSettings withCommentRelevant(boolean commentRelevant) {
 		setCommentRelevant(commentRelevant);
 		return this;
@@ -28,6 +28,7 @@ import org.databene.commons.SyntaxError;
 import org.databene.commons.xml.SimpleXMLWriter;
 import org.databene.commons.xml.XMLUtil;
 import org.databene.formats.compare.DiffDetailType;
+import org.databene.formats.compare.DiffFactory;
 import org.databene.formats.compare.KeyExpression;
 import org.databene.formats.compare.LocalDiffType;
 import org.w3c.dom.Document;
@@ -55,6 +56,9 @@ public class XMLComparisonSettingsSerializer {
 	private static final String NAMESPACE_RELEVANT = "namespaceRelevant";
 	private static final String PROCESSING_INSTRUCTION_RELEVANT = "processingInstructionRelevant";
 	private static final String WHITESPACE_RELEVANT = "whitespaceRelevant";
+	private static final String ORDERED_DIFF = "orderedDiff";
+	private static final String PARALLELISM = "parallelism";
+	private static final String MAX_VALUE_LENGTH = "maxValueLength";
 	
 	private static final String TOLERATED_DIFFS = "tolerated-diffs";
 	private static final String TOLERATED_DIFF = "tolerated-diff";
@@ -104,6 +108,9 @@ public class XMLComparisonSettingsSerializer {
 		attrs.put(NAMESPACE_RELEVANT, String.valueOf(settings.isNamespaceRelevant()));
 		attrs.put(PROCESSING_INSTRUCTION_RELEVANT, String.valueOf(settings.isProcessingInstructionRelevant()));
 		attrs.put(WHITESPACE_RELEVANT, String.valueOf(settings.isWhitespaceRelevant()));
+		attrs.put(ORDERED_DIFF, String.valueOf(settings.isOrderedDiff()));
+		attrs.put(PARALLELISM, String.valueOf(settings.getParallelism()));
+		attrs.put(MAX_VALUE_LENGTH, String.valueOf(settings.getMaxValueLength()));
 		writer.writeElement(XML_SETTINGS, attrs);
 	}
 
@@ -144,6 +151,9 @@ public class XMLComparisonSettingsSerializer {
 		settings.setNamespaceRelevant(XMLUtil.getBooleanAttribute(settingsElement, NAMESPACE_RELEVANT, true));
 		settings.setProcessingInstructionRelevant(XMLUtil.getBooleanAttribute(settingsElement, PROCESSING_INSTRUCTION_RELEVANT, true));
 		settings.setWhitespaceRelevant(XMLUtil.getBooleanAttribute(settingsElement, WHITESPACE_RELEVANT, true));
+		settings.setOrderedDiff(XMLUtil.getBooleanAttribute(settingsElement, ORDERED_DIFF, false));
+		settings.setParallelism(XMLUtil.getIntegerAttribute(settingsElement, PARALLELISM, 1));
+		settings.setMaxValueLength(XMLUtil.getIntegerAttribute(settingsElement, MAX_VALUE_LENGTH, DiffFactory.UNLIMITED));
 		return settings;
 	}
 
@@ -41,4 +41,28 @@ public class OrthogonalArrayIteratorTest {
 		iterator.close();
 	}
 	
+	@Test
+	public void testGrowth() {
+		Integer[][] rows = new Integer[100][];
+		for (int i = 0; i < rows.length; i++)
+			rows[i] = (i == 50 ? new Integer[] { i, -i, 0 } : new Integer[] { i, -i });
+		DataIterator<Integer[]> iterator = new OrthogonalArrayIterator<Integer>(new ListDataIterator<Integer[]>(Integer[].class, rows));
+		DataContainer<Integer[]> container = new DataContainer<Integer[]>();
+		Integer[] column1 = iterator.next(container).getData();
+		Integer[] column2 = iterator.next(container).getData();
+		assertEquals(100, column1.length);
+		assertEquals(99, column1[99].intValue());
+		assertEquals(-99, column2[99].intValue());
+		assertNull(iterator.next(container)); // the number of columns is defined by the first row
+		iterator.close();
+	}
+	
+	@Test
+	public void testEmpty() {
+		DataIterator<Integer[]> iterator = new OrthogonalArrayIterator<Integer>(new ListDataIterator<Integer[]>(Integer[].class));
+		assertNull(iterator.next(new DataContainer<Integer[]>()));
+		iterator.close();
+		assertNull(iterator.next(new DataContainer<Integer[]>()));
+	}
+	
 }
@@ -15,10 +15,12 @@
 package org.databene.formats.compare;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
+import java.util.Random;
 
 import org.databene.commons.CollectionUtil;
 import org.databene.commons.converter.XMLNode2StringConverter;
@@ -182,8 +184,136 @@ public class ArrayComparatorTest {
 	}
 	
 	
+	@Test
+	public void testHashingModel() {
+		checkHashing(new String[] { "A", "B", "C", "D",  "E" }, new String[] { "A", "X", "B", "D2", "C" });
+		checkHashing(new String[] { "A", "B", "C" }, new String[] { "C", "B", "A" });
+		checkHashing(new String[] { "A", "A", "B1", "B2" }, new String[] { "B3", "A", "B1", "A" });
+		checkHashing(new String[] { }, new String[] { "A" });
+	}
+	
+	@Test
+	public void testHashingModelWithLargeLists() {
+		Random random = new Random(42);
+		String[] l1 = new String[2000];
+		for (int i = 0; i < l1.length; i++)
+			l1[i] = (char) ('A' + random.nextInt(26)) + String.valueOf(random.nextInt(100));
+		String[] l2 = l1.clone();
+		for (int i = 0; i < 100; i++) {
+			int index = random.nextInt(l2.length);
+			l2[index] = l2[index].charAt(0) + "x"; // changed
+			int i1 = random.nextInt(l2.length);
+			int i2 = random.nextInt(l2.length);
+			String tmp = l2[i1]; // moved
+			l2[i1] = l2[i2];
+			l2[i2] = tmp;
+		}
+		checkHashing(l1, l2);
+	}
+	
+	
+	@Test
+	public void testOrderedIdentical() {
+		checkOrdered(new String[] { "A", "B", "C" }, new String[] { "A", "B", "C" });
+		checkOrdered(new String[] { }, new String[] { });
+	}
+	
+	@Test
+	public void testOrderedRotation() {
+		// the regular mode reports moves, the ordered mode one insertion and one removal
+		checkOrdered(
+			new String[] { "A", "B", "C", "D" }, 
+			new String[] { "D", "A", "B", "C" }, 
+			diffFactory.unexpected("D", "list element", "[0]"),
+			diffFactory.missing("D", "list element", "[3]")
+		);
+	}
+	
+	@Test
+	public void testOrderedChanged() {
+		checkOrdered(
+			new String[] { "A", "B",  "C" }, 
+			new String[] { "A", "B2", "C" }, 
+			diffFactory.different("B", "B2", "list element", "[1]", "[1]")
+		);
+	}
+	
+	@Test
+	public void testOrderedRemovedAndAdded() {
+		checkOrdered(
+			new String[] { "A", "B", "C" }, 
+			new String[] { "A", "X", "C" }, 
+			diffFactory.missing("B", "list element", "[1]"),
+			diffFactory.unexpected("X", "list element", "[1]")
+		);
+	}
+	
+	@Test
+	public void testOrderedAllChangeTypes() {
+		checkOrdered(
+			new String[] { "A", "B", "C", "D",  "E" }, 
+			new String[] { "X", "A", "B", "D2", "C" }, 
+			diffFactory.unexpected("X", "list element", "[0]"),
+			diffFactory.unexpected("D2", "list element", "[3]"),
+			diffFactory.missing("D", "list element", "[3]"),
+			diffFactory.missing("E", "list element", "[4]")
+		);
+	}
+	
+	@Test
+	public void testOrderedMinimality() {
+		Random random = new Random(7);
+		for (int n = 0; n < 200; n++) {
+			String[] l1 = randomSequence(random);
+			String[] l2 = randomSequence(random);
+			ArrayComparisonResult result = ArrayComparator.compare(l1, l2, new StringComparisonModel(), "", "", diffFactory, true);
+			int removed = 0;
+			int added = 0;
+			for (DiffDetail diff : result.getDiffs()) {
+				if (diff.getType() == DiffDetailType.MISSING || diff.getType() == DiffDetailType.DIFFERENT)
+					removed++;
+				if (diff.getType() == DiffDetailType.UNEXPECTED || diff.getType() == DiffDetailType.DIFFERENT)
+					added++;
+			}
+			int lcs = lcsLength(l1, l2);
+			assertEquals(l1.length - lcs, removed);
+			assertEquals(l2.length - lcs, added);
+			ArrayComparisonResult hashed = ArrayComparator.compare(l1, l2, new HashingStringComparisonModel(), "", "", diffFactory, true);
+			assertEquals(result.getDiffs(), hashed.getDiffs());
+		}
+	}
+	
+	
 	// private helpers -------------------------------------------------------------------------------------------------
 	
+	private void checkOrdered(String[] list1, String[] list2, DiffDetail... expectedDiffs) {
+		ArrayComparisonResult result = ArrayComparator.compare(list1, list2, new StringComparisonModel(), "", "", diffFactory, true);
+		assertEquals(expectedDiffs.length == 0, result.identical());
+		assertArrayEquals(expectedDiffs, result.getDiffs().toArray(new DiffDetail[result.getDiffs().size()]));
+	}
+	
+	private static String[] randomSequence(Random random) {
+		String[] result = new String[random.nextInt(30)];
+		for (int i = 0; i < result.length; i++)
+			result[i] = String.valueOf((char) ('A' + random.nextInt(4)));
+		return result;
+	}
+	
+	private static int lcsLength(String[] l1, String[] l2) {
+		int[][] lengths = new int[l1.length + 1][l2.length + 1];
+		for (int i = 1; i <= l1.length; i++)
+			for (int j = 1; j <= l2.length; j++)
+				lengths[i][j] = (l1[i - 1].equals(l2[j - 1]) ? 
+						lengths[i - 1][j - 1] + 1 : Math.max(lengths[i - 1][j], lengths[i][j - 1]));
+		return lengths[l1.length][l2.length];
+	}
+	
+	private void checkHashing(String[] list1, String[] list2) {
+		ArrayComparisonResult expected = ArrayComparator.compare(list1, list2, new StringComparisonModel(), "", "", diffFactory);
+		ArrayComparisonResult actual = ArrayComparator.compare(list1, list2, new HashingStringComparisonModel(), "", "", diffFactory);
+		assertEquals(expected.getDiffs(), actual.getDiffs());
+	}
+	
 	private void check(String[] list1, String[] list2, DiffDetail... expectedDiffs) {
 		ArrayComparisonResult result = ArrayComparator.compare(list1, list2, new StringComparisonModel(), "", "", diffFactory);
 		if (expectedDiffs.length > 0)
@@ -230,4 +360,18 @@ public class ArrayComparatorTest {
 
 	}
 	
+	static class HashingStringComparisonModel extends StringComparisonModel implements HashingComparisonModel {
+
+		@Override
+		public int hashOf(Object object) {
+			return object.hashCode();
+		}
+
+		@Override
+		public Object correspondenceKeyOf(Object object) {
+			return ((String) object).charAt(0);
+		}
+
+	}
+	
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.compare;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link BoundedDiffCollector}.
+ * Created: 18.10.2026 18:55:02
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class BoundedDiffCollectorTest {
+
+	private static final DiffFactory DIFF_FACTORY = new DiffFactory();
+
+	@Test
+	public void testTruncationAndCounts() {
+		BoundedDiffCollector collector = new BoundedDiffCollector(2);
+		collector.diffFound(DIFF_FACTORY.different("a", "b", "text", "/r/x[1]/text()", "/r/x[1]/text()"));
+		collector.diffFound(DIFF_FACTORY.different("c", "d", "text", "/r/x[2]/text()", "/r/x[2]/text()"));
+		collector.diffFound(DIFF_FACTORY.missing("e", "element", "/r/y[1]"));
+		collector.diffFound(DIFF_FACTORY.unexpected("f", "element", "/r/z"));
+		assertEquals(4, collector.getTotalCount());
+		assertEquals(2, collector.getDetails().size());
+		assertTrue(collector.isTruncated());
+		assertEquals(2, collector.getCount(DiffDetailType.DIFFERENT));
+		assertEquals(1, collector.getCount(DiffDetailType.MISSING));
+		assertEquals(1, collector.getCount(DiffDetailType.UNEXPECTED));
+		assertEquals(0, collector.getCount(DiffDetailType.MOVED));
+		Iterator<Map.Entry<String, Long>> iterator = collector.getLocatorCounts().entrySet().iterator();
+		assertEntry("/r/x/text()", 2, iterator.next());
+		assertEntry("/r/y", 1, iterator.next());
+		assertEntry("/r/z", 1, iterator.next());
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void testMaxLocators() {
+		BoundedDiffCollector collector = new BoundedDiffCollector(0, 2);
+		for (int i = 0; i < 10; i++) {
+			collector.diffFound(DIFF_FACTORY.missing("e", "element", "/r/y"));
+			collector.diffFound(DIFF_FACTORY.missing("e", "element", "/r/x" + i));
+		}
+		Map<String, Long> counts = collector.getLocatorCounts();
+		assertEquals(2, counts.size());
+		assertEquals("/r/y", counts.keySet().iterator().next());
+		assertEquals(20, collector.getTotalCount());
+	}
+
+	@Test
+	public void testNotTruncated() {
+		BoundedDiffCollector collector = new BoundedDiffCollector();
+		collector.diffFound(DIFF_FACTORY.missing("e", "element", "/r/y"));
+		assertFalse(collector.isTruncated());
+		assertEquals(1, collector.getDetails().size());
+	}
+
+	@Test
+	public void testNormalizedLocator() {
+		assertEquals("/r/x/@id", locator("/r/x[12]/@id"));
+		assertEquals("/r/x[@id='1']", locator("/r/x[@id='1']"));
+		assertEquals("/r/x[]", locator("/r/x[]"));
+		assertEquals("/r", locator("/r"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeMaxDetails() {
+		new BoundedDiffCollector(-1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalMaxLocators() {
+		new BoundedDiffCollector(10, 0);
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private static String locator(String locator) {
+		return BoundedDiffCollector.normalizedLocator(DIFF_FACTORY.missing("x", "element", locator));
+	}
+
+	private static void assertEntry(String expectedLocator, long expectedCount, Map.Entry<String, Long> entry) {
+		assertEquals(expectedLocator, entry.getKey());
+		assertEquals(expectedCount, entry.getValue().longValue());
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.compare;
+
+import static org.junit.Assert.*;
+
+import org.databene.commons.converter.ToStringConverter;
+import org.junit.Test;
+
+/**
+ * Tests the {@link DiffDetail}.
+ * Created: 18.10.2026 19:24:40
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class DiffDetailTest {
+
+	@Test
+	public void testLazyCachedRendering() {
+		CountingFormatter formatter = new CountingFormatter();
+		DiffDetail diff = new DiffFactory(formatter).different("a", "b", "text", "/r", "/r");
+		assertEquals(0, formatter.invocations);
+		assertEquals("Different text: expected a but found b at /r", diff.toString());
+		assertEquals(2, formatter.invocations);
+		assertEquals("Different text: expected a but found b at /r", diff.toString());
+		assertEquals(2, formatter.invocations);
+	}
+
+	@Test
+	public void testMaxValueLength() {
+		DiffFactory factory = new DiffFactory();
+		factory.setMaxValueLength(6);
+		DiffDetail diff = factory.different("abcdefghij", "abc", "text", "/r", "/r");
+		assertEquals(6, diff.getMaxValueLength());
+		assertEquals("Different text: expected abc... but found abc at /r", diff.toString());
+		assertEquals(new DiffFactory().different("abcdefghij", "abc", "text", "/r", "/r"), diff);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalMaxValueLength() {
+		new DiffFactory().setMaxValueLength(-2);
+	}
+
+
+	// helper class ----------------------------------------------------------------------------------------------------
+
+	static class CountingFormatter extends ToStringConverter {
+
+		int invocations = 0;
+
+		@Override
+		public String convert(Object source) {
+			invocations++;
+			return super.convert(source);
+		}
+	}
+
+}
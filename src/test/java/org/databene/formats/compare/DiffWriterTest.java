@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.compare;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+
+import org.databene.commons.SystemInfo;
+import org.junit.Test;
+
+/**
+ * Tests the {@link DiffWriter}.
+ * Created: 18.10.2026 19:01:16
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class DiffWriterTest {
+
+	private static final DiffFactory DIFF_FACTORY = new DiffFactory();
+
+	@Test
+	public void testWithAggregateDiff() throws Exception {
+		StringWriter out = new StringWriter();
+		DiffWriter writer = new DiffWriter(out);
+		AggregateDiff diffs = new AggregateDiff("e", "a", null, writer);
+		DiffDetail diff1 = DIFF_FACTORY.missing("x", "element", "/r/x");
+		DiffDetail diff2 = DIFF_FACTORY.different("a\nb", "c", "text", "/r/y", "/r/y");
+		diffs.addDetail(diff1);
+		diffs.addDetail(diff2);
+		writer.close();
+		assertEquals(2, writer.getCount());
+		assertEquals(2, diffs.getDetailCount());
+		assertTrue(diffs.getDetails().isEmpty());
+		String LF = SystemInfo.getLineSeparator();
+		String[] lines = out.toString().split(LF);
+		assertEquals(2, lines.length);
+		assertEquals(diff1.toString(), lines[0]);
+		assertFalse(lines[1].contains("\n"));
+	}
+
+}
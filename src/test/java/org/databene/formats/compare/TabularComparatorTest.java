@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.compare;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.databene.formats.DataSource;
+import org.databene.formats.util.DataSourceFromIterable;
+import org.junit.Test;
+
+/**
+ * Tests the {@link TabularComparator}.
+ * Created: 18.10.2026 17:58:44
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class TabularComparatorTest {
+
+	private static final DiffFactory DIFF_FACTORY = new DiffFactory();
+
+	@Test
+	public void testIdentical() {
+		DataSource<Object[]> table = table(new Object[] { 1, "Alice" }, new Object[] { 2, "Bob" });
+		assertTrue(new TabularComparator(0).compare(table, table).isEmpty());
+	}
+
+	@Test
+	public void testRowOrderIsIrrelevant() {
+		DataSource<Object[]> expected = table(new Object[] { 1, "Alice" }, new Object[] { 2, "Bob" });
+		DataSource<Object[]> actual = table(new Object[] { 2, "Bob" }, new Object[] { 1, "Alice" });
+		assertTrue(new TabularComparator(0).compare(expected, actual).isEmpty());
+	}
+
+	@Test
+	public void testDiffs() {
+		DataSource<Object[]> expected = table(new Object[] { 1, "Alice", 23 }, new Object[] { 2, "Bob", 34 });
+		DataSource<Object[]> actual = table(new Object[] { 1, "Alice", 24 }, new Object[] { 3, "Charly", 45 });
+		TabularComparator comparator = new TabularComparator(0);
+		comparator.setPartitionCount(1);
+		AggregateDiff diffs = comparator.compare(expected, actual);
+		assertEquals(3, diffs.getDetailCount());
+		assertEquals(DIFF_FACTORY.different(23, 24, "cell", "/row[1]/column[3]", "/row[1]/column[3]"), diffs.getDetail(0));
+		assertEquals(DiffDetailType.UNEXPECTED, diffs.getDetail(1).getType());
+		assertEquals("/row[2]", diffs.getDetail(1).getLocatorOfActual());
+		assertEquals(DiffDetailType.MISSING, diffs.getDetail(2).getType());
+		assertEquals("/row[2]", diffs.getDetail(2).getLocatorOfExpected());
+	}
+
+	@Test
+	public void testHeaderAndCompositeKey() {
+		DataSource<String[]> expected = stringTable(new String[] { "country", "id", "name" },
+				new String[] { "DE", "1", "Alice" }, new String[] { "US", "1", "Bob" });
+		DataSource<String[]> actual = stringTable(new String[] { "country", "id", "name" },
+				new String[] { "US", "1", "Robert" }, new String[] { "DE", "1", "Alice" }, new String[] { "DE", "2", "Carl", "x" });
+		TabularComparator comparator = new TabularComparator(0, 1);
+		comparator.setHeaderRow(true);
+		comparator.setPartitionCount(1);
+		AggregateDiff diffs = comparator.compare(expected, actual);
+		assertEquals(2, diffs.getDetailCount());
+		assertEquals(DIFF_FACTORY.different("Bob", "Robert", "cell", "/row[2]/name", "/row[1]/name"), diffs.getDetail(0));
+		assertEquals(DiffDetailType.UNEXPECTED, diffs.getDetail(1).getType());
+	}
+
+	@Test
+	public void testColumnsAreMatchedByHeaderName() {
+		DataSource<String[]> expected = stringTable(new String[] { "id", "name", "age" },
+				new String[] { "1", "Alice", "23" }, new String[] { "2", "Bob", "34" });
+		DataSource<String[]> actual = stringTable(new String[] { "id", "age", "name" },
+				new String[] { "1", "23", "Alice" }, new String[] { "2", "35", "Bob" });
+		TabularComparator comparator = new TabularComparator(0);
+		comparator.setHeaderRow(true);
+		comparator.setPartitionCount(1);
+		AggregateDiff diffs = comparator.compare(expected, actual);
+		assertEquals(1, diffs.getDetailCount());
+		assertEquals(DIFF_FACTORY.different("34", "35", "cell", "/row[2]/age", "/row[2]/age"), diffs.getDetail(0));
+	}
+
+	@Test
+	public void testMissingAndUnexpectedColumns() {
+		DataSource<String[]> expected = stringTable(new String[] { "id", "name", "age" },
+				new String[] { "1", "Alice", "23" }, new String[] { "2", "Bob", "34" });
+		DataSource<String[]> actual = stringTable(new String[] { "id", "city", "name" },
+				new String[] { "1", "Berlin", "Alice" }, new String[] { "2", "Paris", "Robert" });
+		TabularComparator comparator = new TabularComparator(0);
+		comparator.setHeaderRow(true);
+		comparator.setPartitionCount(1);
+		AggregateDiff diffs = comparator.compare(expected, actual);
+		assertEquals(3, diffs.getDetailCount());
+		assertEquals(DIFF_FACTORY.missing("age", "column", "/header/age"), diffs.getDetail(0));
+		assertEquals(DIFF_FACTORY.unexpected("city", "column", "/header/city"), diffs.getDetail(1));
+		assertEquals(DIFF_FACTORY.different("Bob", "Robert", "cell", "/row[2]/name", "/row[2]/name"), diffs.getDetail(2));
+	}
+
+	@Test
+	public void testDuplicateKeys() {
+		DataSource<Object[]> expected = table(new Object[] { 1, "a" }, new Object[] { 1, "b" });
+		DataSource<Object[]> actual = table(new Object[] { 1, "a" }, new Object[] { 1, "c" }, new Object[] { 1, "d" });
+		AggregateDiff diffs = new TabularComparator(0).compare(expected, actual);
+		assertEquals(2, diffs.getDetailCount());
+		assertEquals(DIFF_FACTORY.different("b", "c", "cell", "/row[2]/column[2]", "/row[2]/column[2]"), diffs.getDetail(0));
+		assertEquals(DiffDetailType.UNEXPECTED, diffs.getDetail(1).getType());
+		assertEquals("/row[3]", diffs.getDetail(1).getLocatorOfActual());
+	}
+
+	@Test
+	public void testSpillingAndParallelism() {
+		List<Object[]> expectedRows = new ArrayList<Object[]>();
+		List<Object[]> actualRows = new ArrayList<Object[]>();
+		for (int i = 0; i < 2000; i++) {
+			expectedRows.add(new Object[] { i, "name" + i, i * 2 });
+			if (i % 100 != 7) // some missing rows
+				actualRows.add(new Object[] { i, "name" + i, (i % 50 == 0 ? -1 : i * 2) }); // some differences
+		}
+		actualRows.add(new Object[] { 5000, "new", 0 });
+		DataSource<Object[]> expected = new DataSourceFromIterable<Object[]>(expectedRows, Object[].class);
+		DataSource<Object[]> actual = new DataSourceFromIterable<Object[]>(actualRows, Object[].class);
+		TabularComparator inMemory = new TabularComparator(0);
+		inMemory.setParallelism(1);
+		AggregateDiff reference = inMemory.compare(expected, actual);
+		assertEquals(20 + 40 + 1, reference.getDetailCount());
+		TabularComparator spilling = new TabularComparator(0);
+		spilling.setMaxRowsInMemory(100);
+		spilling.setPartitionCount(7);
+		spilling.setParallelism(3);
+		AggregateDiff diffs = spilling.compare(expected, actual);
+		// spilled rows are deserialized copies, so the diffs are compared by their text
+		assertEquals(texts(reference), texts(diffs));
+		assertEquals(diffs.toString(), spilling.compare(expected, actual).toString()); // the order is deterministic
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private static DataSource<Object[]> table(Object[]... rows) {
+		return new DataSourceFromIterable<Object[]>(Arrays.asList(rows), Object[].class);
+	}
+
+	private static Set<String> texts(AggregateDiff diffs) {
+		Set<String> texts = new HashSet<String>();
+		for (DiffDetail diff : diffs.getDetails())
+			texts.add(diff.toString());
+		return texts;
+	}
+
+	private static DataSource<String[]> stringTable(String[]... rows) {
+		return new DataSourceFromIterable<String[]>(Arrays.asList(rows), String[].class);
+	}
+
+}
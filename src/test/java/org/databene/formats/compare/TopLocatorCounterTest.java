@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.compare;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.databene.formats.compare.TopLocatorCounter.Counter;
+import org.junit.Test;
+
+/**
+ * Tests the {@link TopLocatorCounter}.
+ * Created: 18.10.2026 18:58:31
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class TopLocatorCounterTest {
+
+	private static final DiffFactory DIFF_FACTORY = new DiffFactory();
+
+	@Test
+	public void testExact() {
+		TopLocatorCounter counter = new TopLocatorCounter(3);
+		report(counter, "/a", 5);
+		report(counter, "/b", 2);
+		report(counter, "/c[4]", 3);
+		List<Counter> top = counter.getTop(2);
+		assertEquals(2, top.size());
+		assertCounter("/a", 5, 0, top.get(0));
+		assertCounter("/c", 3, 0, top.get(1));
+		assertEquals(10, counter.getTotalCount());
+	}
+
+	@Test
+	public void testFrequentLocatorSurvivesEviction() {
+		TopLocatorCounter counter = new TopLocatorCounter(3);
+		for (int i = 0; i < 100; i++) {
+			report(counter, "/frequent", 1);
+			report(counter, "/rare" + i, 1);
+		}
+		Counter top = counter.getTop(1).get(0);
+		assertEquals("/frequent", top.getLocator());
+		assertTrue(top.getCount() - top.getError() <= 100);
+		assertTrue(top.getCount() >= 100);
+		assertEquals(200, counter.getTotalCount());
+	}
+
+	@Test
+	public void testEqualCountsInOrderOfFirstOccurrence() {
+		TopLocatorCounter counter = new TopLocatorCounter(3);
+		report(counter, "/b", 1);
+		report(counter, "/a", 2);
+		report(counter, "/c", 1);
+		List<Counter> top = counter.getTop(5);
+		assertEquals(3, top.size());
+		assertCounter("/a", 2, 0, top.get(0));
+		assertCounter("/b", 1, 0, top.get(1));
+		assertCounter("/c", 1, 0, top.get(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalCapacity() {
+		new TopLocatorCounter(0);
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private static void report(TopLocatorCounter counter, String locator, int times) {
+		for (int i = 0; i < times; i++)
+			counter.diffFound(DIFF_FACTORY.missing("x", "element", locator));
+	}
+
+	private static void assertCounter(String locator, long count, long error, Counter counter) {
+		assertEquals(locator, counter.getLocator());
+		assertEquals(count, counter.getCount());
+		assertEquals(error, counter.getError());
+	}
+
+}
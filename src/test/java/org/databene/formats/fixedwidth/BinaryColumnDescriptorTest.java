@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.databene.commons.SyntaxError;
+import org.databene.formats.fixedwidth.BinaryColumnDescriptor.Type;
+import org.junit.Test;
+
+/**
+ * Tests the {@link BinaryColumnDescriptor}.
+ * Created: 18.10.2026 17:31:40
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+public class BinaryColumnDescriptorTest {
+
+	@Test
+	public void testPacked() {
+		BinaryColumnDescriptor column = new BinaryColumnDescriptor("amount", Type.PACKED, 3, 0);
+		assertEquals(12345L, column.decode(bytes(0x12, 0x34, 0x5C), 0));
+		assertEquals(-12345L, column.decode(bytes(0x12, 0x34, 0x5D), 0));
+		assertEquals(12345L, column.decode(bytes(0x12, 0x34, 0x5F), 0));
+		assertEquals(-12345L, column.decodeLong(bytes(0xFF, 0x12, 0x34, 0x5D), 1));
+	}
+
+	@Test
+	public void testPackedWithFraction() {
+		BinaryColumnDescriptor column = new BinaryColumnDescriptor("amount", Type.PACKED, 3, 2);
+		assertEquals(new BigDecimal("123.45"), column.decode(bytes(0x12, 0x34, 0x5C), 0));
+		assertEquals(new BigDecimal("-0.05"), column.decode(bytes(0x00, 0x00, 0x5D), 0));
+	}
+
+	@Test
+	public void testLargePacked() {
+		BinaryColumnDescriptor column = new BinaryColumnDescriptor("amount", Type.PACKED, 10, 2);
+		byte[] record = bytes(0x12, 0x34, 0x56, 0x78, 0x90, 0x12, 0x34, 0x56, 0x78, 0x9D);
+		assertEquals(new BigDecimal("-12345678901234567.89"), column.decode(record, 0));
+	}
+
+	@Test(expected = SyntaxError.class)
+	public void testIllegalPackedSign() {
+		new BinaryColumnDescriptor("amount", Type.PACKED, 2, 0).decode(bytes(0x12, 0x34), 0);
+	}
+
+	@Test(expected = SyntaxError.class)
+	public void testIllegalPackedDigit() {
+		new BinaryColumnDescriptor("amount", Type.PACKED, 2, 0).decode(bytes(0x1A, 0x3C), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeFractionDigits() {
+		new BinaryColumnDescriptor("amount", Type.PACKED, 3, -1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyFractionDigits() {
+		new BinaryColumnDescriptor("amount", Type.PACKED, 3, 6);
+	}
+
+	@Test
+	public void testZoned() {
+		BinaryColumnDescriptor column = new BinaryColumnDescriptor("count", Type.ZONED, 4, 0);
+		assertEquals(1234L, column.decode(bytes(0xF1, 0xF2, 0xF3, 0xC4), 0));
+		assertEquals(-1234L, column.decode(bytes(0xF1, 0xF2, 0xF3, 0xD4), 0));
+		assertEquals(1234L, column.decode(bytes(0xF1, 0xF2, 0xF3, 0xF4), 0));
+		assertEquals(1234L, column.decode("1234".getBytes(), 0));
+		assertEquals(new BigDecimal("12.34"), new BinaryColumnDescriptor("count", Type.ZONED, 4, 2).decode(bytes(0xF1, 0xF2, 0xF3, 0xC4), 0));
+	}
+
+	@Test
+	public void testBinary() {
+		assertEquals(258L, new BinaryColumnDescriptor("id", Type.BINARY, 2, 0).decode(bytes(0x01, 0x02), 0));
+		assertEquals(-2L, new BinaryColumnDescriptor("id", Type.BINARY, 2, 0).decode(bytes(0xFF, 0xFE), 0));
+		assertEquals(65535L, new BinaryColumnDescriptor("id", Type.BINARY, 4, 0).decode(bytes(0x00, 0x00, 0xFF, 0xFF), 0));
+		assertEquals(Long.MIN_VALUE, new BinaryColumnDescriptor("id", Type.BINARY, 8, 0).decode(bytes(0x80, 0, 0, 0, 0, 0, 0, 0), 0));
+		assertEquals(new BigDecimal("2.58"), new BinaryColumnDescriptor("id", Type.BINARY, 2, 2).decode(bytes(0x01, 0x02), 0));
+	}
+
+	@Test
+	public void testEbcdicText() {
+		BinaryColumnDescriptor column = new BinaryColumnDescriptor("name", 7, BinaryColumnDescriptor.DEFAULT_EBCDIC_CHARSET);
+		assertEquals("Alice", column.decode(bytes(0xC1, 0x93, 0x89, 0x83, 0x85, 0x40, 0x40), 0));
+		assertEquals("", column.decode(bytes(0x40, 0x40, 0x40, 0x40, 0x40, 0x40, 0x40), 0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMultiByteCharset() {
+		new BinaryColumnDescriptor("name", 7, "UTF-8");
+	}
+
+
+	// helpers ---------------------------------------------------------------------------------------------------------
+
+	static byte[] bytes(int... values) {
+		byte[] result = new byte[values.length];
+		for (int i = 0; i < values.length; i++)
+			result[i] = (byte) values[i];
+		return result;
+	}
+
+}
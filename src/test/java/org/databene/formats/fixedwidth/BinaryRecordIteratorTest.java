@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import static org.junit.Assert.*;
+import static org.databene.formats.fixedwidth.BinaryColumnDescriptorTest.bytes;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+
+import org.databene.commons.SyntaxError;
+import org.databene.formats.DataContainer;
+import org.junit.Test;
+
+/**
+ * Tests the {@link BinaryRecordIterator}.
+ * Created: 18.10.2026 17:52:18
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+public class BinaryRecordIteratorTest {
+
+	private static final String SPEC = "id[B2],name[E5],amount[P3.2]";
+
+	@Test
+	public void testIteration() throws Exception {
+		BinaryRowTypeDescriptor rowType = FixedWidthUtil.parseBinaryColumnsSpec(SPEC, "Account", null);
+		assertEquals(10, rowType.getRecordLength());
+		byte[] data = bytes(
+				0x00, 0x01, 0xC1, 0x93, 0x89, 0x83, 0x85, 0x12, 0x34, 0x5C, 
+				0x00, 0x02, 0xC2, 0x96, 0x82, 0x40, 0x40, 0x00, 0x01, 0x0D);
+		BinaryRecordIterator iterator = new BinaryRecordIterator(new ByteArrayInputStream(data), rowType);
+		DataContainer<Object[]> container = new DataContainer<Object[]>();
+		assertArrayEquals(new Object[] { 1L, "Alice", new BigDecimal("123.45") }, iterator.next(container).getData());
+		assertArrayEquals(new Object[] { 2L, "Bob", new BigDecimal("-0.10") }, iterator.next(container).getData());
+		assertNull(iterator.next(container));
+		assertEquals(2, iterator.recordCount());
+		iterator.close();
+	}
+
+	@Test
+	public void testRecordLength() throws Exception {
+		BinaryRowTypeDescriptor rowType = FixedWidthUtil.parseBinaryColumnsSpec("B2", "Id", null);
+		byte[] data = bytes(0x00, 0x01, 0x0A, 0x00, 0x02, 0x0A);
+		BinaryRecordIterator iterator = new BinaryRecordIterator(new ByteArrayInputStream(data), rowType, 3);
+		DataContainer<Object[]> container = new DataContainer<Object[]>();
+		assertArrayEquals(new Object[] { 1L }, iterator.next(container).getData());
+		assertArrayEquals(new Object[] { 2L }, iterator.next(container).getData());
+		assertNull(iterator.next(container));
+		iterator.close();
+	}
+
+	@Test(expected = SyntaxError.class)
+	public void testIncompleteRecord() throws Exception {
+		BinaryRowTypeDescriptor rowType = FixedWidthUtil.parseBinaryColumnsSpec(SPEC, "Account", null);
+		BinaryRecordIterator iterator = new BinaryRecordIterator(new ByteArrayInputStream(bytes(0x00, 0x01, 0xC1)), rowType);
+		iterator.next(new DataContainer<Object[]>());
+	}
+
+}
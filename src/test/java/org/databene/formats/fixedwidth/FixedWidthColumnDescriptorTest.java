@@ -64,10 +64,32 @@ public class FixedWidthColumnDescriptorTest {
 		assertEquals("        ", d1.format(null));
 	}
 	
+	@Test
+	public void testFormatIntoBuffer() throws ParseException {
+		assertFormattedIntoBuffer(new FixedWidthColumnDescriptor("name", 6, Alignment.LEFT, '_'), "ab");
+		assertFormattedIntoBuffer(new FixedWidthColumnDescriptor("name", 6, Alignment.RIGHT, ' '), "ab");
+		assertFormattedIntoBuffer(new FixedWidthColumnDescriptor("name", 7, Alignment.CENTER, '.'), "ab");
+		assertFormattedIntoBuffer(new FixedWidthColumnDescriptor("name", 6, Alignment.LEFT, ' '), null);
+		FixedWidthColumnDescriptor number = new FixedWidthColumnDescriptor("num", new FixedWidthNumberFormat("0.00", Locale.US), "", 7, Alignment.RIGHT, '0');
+		assertFormattedIntoBuffer(number, 1.5);
+		assertFormattedIntoBuffer(number, -12);
+		assertFormattedIntoBuffer(new FixedWidthColumnDescriptor("date", new FixedWidthDateFormat("yyyyMMdd"), ""), TimeUtil.date(1987, 4, 3));
+		assertFormattedIntoBuffer(new FixedWidthColumnDescriptor("date", new SimpleDateFormat("dd-MMM-yyyy", Locale.US), ""), TimeUtil.date(1987, 4, 3));
+	}
+	
 	@Test
 	public void testParseDate() throws ParseException {
 		FixedWidthColumnDescriptor d1 = new FixedWidthColumnDescriptor("date", new SimpleDateFormat("yyyyMMdd"), "");
 		assertEquals(TimeUtil.date(1987, 4, 3), d1.parse("19870503"));
 	}
 	
+	
+	// private helpers -------------------------------------------------------------------------------------------------
+	
+	private static void assertFormattedIntoBuffer(FixedWidthColumnDescriptor descriptor, Object value) {
+		char[] buffer = "################".toCharArray();
+		assertEquals(2 + descriptor.getWidth(), descriptor.format(value, buffer, 2));
+		assertEquals("##" + descriptor.format(value), new String(buffer, 0, 2 + descriptor.getWidth()));
+	}
+	
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import static org.junit.Assert.*;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.databene.commons.TimeUtil;
+import org.junit.Test;
+
+/**
+ * Tests the {@link FixedWidthDateFormat}.
+ * Created: 18.10.2026 11:20:05
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+public class FixedWidthDateFormatTest {
+
+	@Test
+	public void testSupports() {
+		assertTrue(FixedWidthDateFormat.supports("yyyyMMdd"));
+		assertTrue(FixedWidthDateFormat.supports("yyMMdd"));
+		assertTrue(FixedWidthDateFormat.supports("yyyy-MM-dd HH:mm:ss.SSS"));
+		assertFalse(FixedWidthDateFormat.supports(""));
+		assertFalse(FixedWidthDateFormat.supports("dd-MMM-yyyy"));
+		assertFalse(FixedWidthDateFormat.supports("d.M.yyyy"));
+		assertFalse(FixedWidthDateFormat.supports("yyyy'T'HH"));
+	}
+
+	@Test
+	public void testFormat() {
+		FixedWidthDateFormat format = new FixedWidthDateFormat("yyyyMMdd");
+		assertEquals(8, format.getWidth());
+		assertEquals("19870503", format.format(TimeUtil.date(1987, 4, 3)));
+		assertEquals("20000229", format.format(TimeUtil.date(2000, 1, 29)));
+	}
+
+	@Test
+	public void testParse() throws ParseException {
+		FixedWidthDateFormat format = new FixedWidthDateFormat("yyyyMMdd");
+		assertEquals(TimeUtil.date(1987, 4, 3), format.parseObject("19870503"));
+		assertEquals(TimeUtil.date(2000, 1, 29), format.parseObject("20000229"));
+		assertEquals(TimeUtil.date(1970, 0, 1), format.parseObject("19700101"));
+		assertEquals(TimeUtil.date(1965, 11, 31), format.parseObject("19651231"));
+	}
+
+	@Test
+	public void testParseLenient() throws ParseException {
+		FixedWidthDateFormat format = new FixedWidthDateFormat("yyyyMMdd");
+		assertEquals(TimeUtil.date(2001, 2, 1), format.parseObject("20010229"));
+		assertEquals(TimeUtil.date(2002, 0, 1), format.parseObject("20011301"));
+	}
+
+	@Test(expected = ParseException.class)
+	public void testParseIllegal() throws ParseException {
+		new FixedWidthDateFormat("yyyyMMdd").parseObject("1987-5-3");
+	}
+
+	@Test(expected = ParseException.class)
+	public void testParseEmpty() throws ParseException {
+		new FixedWidthDateFormat("yyyyMMdd").parseObject("");
+	}
+
+	@Test
+	public void testCharRange() throws ParseException {
+		FixedWidthDateFormat format = new FixedWidthDateFormat("yyMMdd");
+		long millis = format.parseMillis("xx870503xx", 2, 8);
+		assertEquals(TimeUtil.date(1987, 4, 3).getTime(), millis);
+		char[] buffer = "--------".toCharArray();
+		assertEquals(6, format.formatMillis(millis, buffer, 1));
+		assertEquals("-870503-", new String(buffer));
+	}
+
+	@Test
+	public void testConsistencyWithSimpleDateFormat() throws ParseException {
+		String pattern = "yyyy-MM-dd HH:mm:ss.SSS";
+		FixedWidthDateFormat format = new FixedWidthDateFormat(pattern);
+		SimpleDateFormat reference = new SimpleDateFormat(pattern);
+		long start = TimeUtil.date(1900, 0, 1).getTime();
+		long step = 7919L * 3600000L + 123457L;
+		for (long millis = start; millis < start + 200L * 365 * 86400000L; millis += step) {
+			Date date = new Date(millis);
+			String text = reference.format(date);
+			assertEquals(text, format.format(date));
+			assertEquals(reference.parse(text), format.parseObject(text));
+		}
+	}
+
+}
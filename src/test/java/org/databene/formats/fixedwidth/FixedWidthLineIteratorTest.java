@@ -57,9 +57,40 @@ public class FixedWidthLineIteratorTest {
         assertTrue(Arrays.equals(new String[] {"Dieter", "-1"}, iterator.next(container).getData()));
     }
     
+    @Test
+    public void testRegexFilter() throws Exception {
+        FixedWidthLineIterator iterator = createIterator(true, ".*0[34].");
+        DataContainer<String[]> container = new DataContainer<String[]>();
+        assertTrue(Arrays.equals(new String[] {"Bob"   , "34"}, iterator.next(container).getData()));
+        assertTrue(Arrays.equals(new String[] {"Charly", "45"}, iterator.next(container).getData()));
+        assertNull(iterator.next(container));
+    }
+
+    @Test
+    public void testPrefixRegexFilter() throws Exception {
+        FixedWidthLineIterator iterator = createIterator(true, "Bob.*");
+        DataContainer<String[]> container = new DataContainer<String[]>();
+        assertTrue(Arrays.equals(new String[] {"Bob"   , "34"}, iterator.next(container).getData()));
+        assertNull(iterator.next(container));
+    }
+
+    @Test
+    public void testPositionalFilter() throws Exception {
+        FixedWidthLineIterator iterator = createIterator(true, null);
+        iterator.setLineFilter(PositionalLineFilter.numberRange(6, 3, 30, 50));
+        DataContainer<String[]> container = new DataContainer<String[]>();
+        assertTrue(Arrays.equals(new String[] {"Bob"   , "34"}, iterator.next(container).getData()));
+        assertTrue(Arrays.equals(new String[] {"Charly", "45"}, iterator.next(container).getData()));
+        assertNull(iterator.next(container));
+    }
+    
     // helper ----------------------------------------------------------------------------------------------------------
 
     private static FixedWidthLineIterator createIterator(boolean ignoreEmptyLines) {
+        return createIterator(ignoreEmptyLines, null);
+    }
+
+    private static FixedWidthLineIterator createIterator(boolean ignoreEmptyLines, String lineFilter) {
         PadFormat[] formats = new PadFormat[] {
                 new PadFormat("", 6, Alignment.LEFT, ' '),
                 new PadFormat("", 3, Alignment.RIGHT, '0'),
@@ -71,7 +102,7 @@ public class FixedWidthLineIteratorTest {
                 "Charly045" + SEP +
                 "Dieter-01"
         );
-        FixedWidthLineIterator iterator = new FixedWidthLineIterator(reader, formats, ignoreEmptyLines, null);
+        FixedWidthLineIterator iterator = new FixedWidthLineIterator(reader, formats, ignoreEmptyLines, lineFilter);
         return iterator;
     }
 
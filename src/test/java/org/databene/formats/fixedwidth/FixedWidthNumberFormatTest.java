@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParseException;
+import java.util.Locale;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link FixedWidthNumberFormat}.
+ * Created: 18.10.2026 11:42:36
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+public class FixedWidthNumberFormatTest {
+
+	@Test
+	public void testSupports() {
+		assertTrue(FixedWidthNumberFormat.supports("00.00", Locale.US));
+		assertTrue(FixedWidthNumberFormat.supports("#0.000", Locale.US));
+		assertTrue(FixedWidthNumberFormat.supports("00000", Locale.US));
+		assertTrue(FixedWidthNumberFormat.supports("#.00", Locale.US));
+		assertFalse(FixedWidthNumberFormat.supports("", Locale.US));
+		assertFalse(FixedWidthNumberFormat.supports("0.0#", Locale.US));
+		assertFalse(FixedWidthNumberFormat.supports("#,##0.00", Locale.US));
+		assertFalse(FixedWidthNumberFormat.supports("0.00%", Locale.US));
+		assertFalse(FixedWidthNumberFormat.supports("0.", Locale.US));
+	}
+
+	@Test
+	public void testFormat() {
+		FixedWidthNumberFormat format = new FixedWidthNumberFormat("00.00", Locale.US);
+		assertEquals(5, format.getWidth());
+		assertEquals("00.00", format.format(0.));
+		assertEquals("01.50", format.format(1.5));
+		assertEquals("12.35", format.format(12.345678));
+		assertEquals("-03.00", format.format(-3));
+		assertEquals("123.00", format.format(123L));
+		assertEquals("01.25", format.format(new BigDecimal("1.25")));
+	}
+
+	@Test
+	public void testFormatLocale() {
+		assertEquals("1,50", new FixedWidthNumberFormat("0.00", Locale.GERMANY).format(1.5));
+	}
+
+	@Test
+	public void testParse() throws ParseException {
+		FixedWidthNumberFormat format = new FixedWidthNumberFormat("00.00", Locale.US);
+		assertEquals(1.5, format.parseObject("01.50"));
+		assertEquals(1L, format.parseObject("01.00"));
+		assertEquals(-3L, format.parseObject("-3"));
+		assertEquals(0.125, format.parseObject("0.125"));
+	}
+
+	@Test(expected = ParseException.class)
+	public void testParseIllegal() throws ParseException {
+		new FixedWidthNumberFormat("00.00", Locale.US).parseObject("x");
+	}
+
+	@Test
+	public void testCharRange() throws ParseException {
+		FixedWidthNumberFormat format = new FixedWidthNumberFormat("000.00", Locale.US);
+		assertEquals(1250, format.parseUnscaled("xx12.5x", 2, 6));
+		assertEquals(-1200, format.parseUnscaled("-12", 0, 3));
+		char[] buffer = "--------".toCharArray();
+		assertEquals(6, format.formatUnscaled(1250, buffer, 1));
+		assertEquals("-012.50-", new String(buffer));
+	}
+
+	@Test(expected = ParseException.class)
+	public void testCharRangeTooManyFractionDigits() throws ParseException {
+		new FixedWidthNumberFormat("0.00", Locale.US).parseUnscaled("1.234", 0, 5);
+	}
+
+	@Test
+	public void testConsistencyWithDecimalFormat() throws ParseException {
+		String pattern = "#00.000";
+		FixedWidthNumberFormat format = new FixedWidthNumberFormat(pattern, Locale.US);
+		DecimalFormat reference = new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(Locale.US));
+		for (double value = -1000; value < 1000; value += 0.0625 * 1.0001) {
+			String text = reference.format(value);
+			assertEquals(text, format.format(value));
+			assertEquals(reference.parseObject(text), format.parseObject(text));
+		}
+		for (long value = -100000; value < 100000; value += 997) {
+			String text = reference.format(value);
+			assertEquals(text, format.format(value));
+			assertEquals(reference.parseObject(text), format.parseObject(text));
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import static org.junit.Assert.*;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link FixedWidthSchemaCache}.
+ * Created: 18.10.2026 19:02:33
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+public class FixedWidthSchemaCacheTest {
+
+	private static final String SPEC = "name[8],date[DyyyyMMdd],amount[N00.00]";
+
+	@Test
+	public void testHitAndMiss() throws Exception {
+		FixedWidthSchemaCache cache = new FixedWidthSchemaCache(10);
+		FixedWidthRowTypeDescriptor first = cache.getBeanRowType(SPEC, "Person", "", Locale.US);
+		assertEquals(3, first.getColumnDescriptors().length);
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		FixedWidthRowTypeDescriptor second = cache.getBeanRowType(SPEC, "Person", "", Locale.US);
+		assertNotSame(first, second);
+		assertEquals(first.getColumnDescriptors()[1], second.getColumnDescriptors()[1]);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testKeyComponents() throws Exception {
+		FixedWidthSchemaCache cache = new FixedWidthSchemaCache(10);
+		FixedWidthRowTypeDescriptor reference = cache.getBeanRowType(SPEC, "Person", "", Locale.US);
+		assertNotSame(reference, cache.getBeanRowType(SPEC, "Person", "-", Locale.US));
+		assertNotSame(reference, cache.getBeanRowType(SPEC, "Person", "", Locale.GERMANY));
+		assertNotSame(reference, cache.getBeanRowType(SPEC, "Customer", "", Locale.US));
+		assertNotSame(reference, cache.getArrayRowType("8,DyyyyMMdd,N00.00", "Person", "", Locale.US));
+		assertEquals(5, cache.getMissCount());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		FixedWidthSchemaCache cache = new FixedWidthSchemaCache(2);
+		cache.getArrayRowType("1", "A", "", Locale.US);
+		cache.getArrayRowType("2", "B", "", Locale.US);
+		cache.getArrayRowType("1", "A", "", Locale.US); // makes 'B' the least recently used entry
+		cache.getArrayRowType("3", "C", "", Locale.US);
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2, cache.size());
+		cache.getArrayRowType("1", "A", "", Locale.US);
+		assertEquals(2, cache.getHitCount());
+		cache.getArrayRowType("2", "B", "", Locale.US);
+		assertEquals(4, cache.getMissCount());
+		assertEquals(2, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testNonThreadSafeFormatsAreCopied() throws Exception {
+		FixedWidthSchemaCache cache = new FixedWidthSchemaCache(10);
+		// 'EEE' is not supported by FixedWidthDateFormat, so a SimpleDateFormat is used
+		String spec = "day[DEEE]";
+		FixedWidthRowTypeDescriptor first = cache.getBeanRowType(spec, "Day", "", Locale.US);
+		FixedWidthRowTypeDescriptor second = cache.getBeanRowType(spec, "Day", "", Locale.US);
+		assertNotSame(first, second);
+		assertNotSame(first.getColumnDescriptors()[0], second.getColumnDescriptors()[0]);
+		assertEquals(first.getColumnDescriptors()[0], second.getColumnDescriptors()[0]);
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testModificationDoesNotAffectOtherCallers() throws Exception {
+		FixedWidthSchemaCache cache = new FixedWidthSchemaCache(10);
+		cache.getBeanRowType(SPEC, "Person", "", Locale.US).getColumnDescriptors()[0].setName("other");
+		assertEquals("name", cache.getBeanRowType(SPEC, "Person", "", Locale.US).getColumnDescriptors()[0].getName());
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		FixedWidthSchemaCache cache = new FixedWidthSchemaCache(10);
+		cache.getBeanRowType(SPEC, "Person", "", Locale.US);
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getMissCount());
+		assertNull(cache.getBeanRowType(null, "Person", "", Locale.US));
+	}
+
+}
@@ -23,6 +23,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Locale;
 
+import org.databene.commons.SyntaxError;
 import org.databene.commons.format.Alignment;
 import org.junit.Test;
 
@@ -76,18 +77,57 @@ public class FixedWidthUtilTest {
 	
 	@Test
 	public void testDateFormat() throws Exception {
-		FixedWidthColumnDescriptor d = new FixedWidthColumnDescriptor("date", new SimpleDateFormat("yyyyMMdd", DateFormatSymbols.getInstance(Locale.US)), "");
+		FixedWidthColumnDescriptor d = new FixedWidthColumnDescriptor("date", new FixedWidthDateFormat("yyyyMMdd"), "");
 		FixedWidthColumnDescriptor[] array = new FixedWidthColumnDescriptor[] { d };
 		assertArrayEquals(array, parse("date[DyyyyMMdd]"));
 	}
 	
+	@Test
+	public void testTextualDateFormat() throws Exception {
+		FixedWidthColumnDescriptor d = new FixedWidthColumnDescriptor("date", new SimpleDateFormat("dd-MMM-yyyy", DateFormatSymbols.getInstance(Locale.US)), "");
+		FixedWidthColumnDescriptor[] array = new FixedWidthColumnDescriptor[] { d };
+		assertArrayEquals(array, parse("date[Ddd-MMM-yyyy]"));
+	}
+	
 	@Test
 	public void testNumberFormat() throws Exception {
-		FixedWidthColumnDescriptor n = new FixedWidthColumnDescriptor("num", new DecimalFormat("00.00", DecimalFormatSymbols.getInstance(Locale.US)), "");
+		FixedWidthColumnDescriptor n = new FixedWidthColumnDescriptor("num", new FixedWidthNumberFormat("00.00", Locale.US), "");
 		FixedWidthColumnDescriptor[] array = new FixedWidthColumnDescriptor[] { n };
 		assertArrayEquals(array, parse("num[N00.00]"));
 	}
 	
+	@Test
+	public void testVariableFractionNumberFormat() throws Exception {
+		FixedWidthColumnDescriptor n = new FixedWidthColumnDescriptor("num", new DecimalFormat("0.0#", DecimalFormatSymbols.getInstance(Locale.US)), "");
+		FixedWidthColumnDescriptor[] array = new FixedWidthColumnDescriptor[] { n };
+		assertArrayEquals(array, parse("num[N0.0#]"));
+	}
+	
+	
+	@Test
+	public void testBinaryColumnsSpec() throws Exception {
+		BinaryColumnDescriptor[] expected = new BinaryColumnDescriptor[] {
+			new BinaryColumnDescriptor("id", BinaryColumnDescriptor.Type.BINARY, 4, 0),
+			new BinaryColumnDescriptor("name", 20, "IBM037"),
+			new BinaryColumnDescriptor(null, 3, "ISO-8859-1"),
+			new BinaryColumnDescriptor("amount", BinaryColumnDescriptor.Type.PACKED, 5, 2),
+			new BinaryColumnDescriptor("count", BinaryColumnDescriptor.Type.ZONED, 7, 0)
+		};
+		BinaryRowTypeDescriptor rowType = FixedWidthUtil.parseBinaryColumnsSpec("id[B4],name[E20],3,amount[P5.2],count[Z7]", "test", null);
+		assertArrayEquals(expected, rowType.getColumnDescriptors());
+		assertEquals(39, rowType.getRecordLength());
+	}
+	
+	@Test(expected = SyntaxError.class)
+	public void testIllegalBinaryColumnType() throws Exception {
+		FixedWidthUtil.parseBinaryColumnsSpec("id[X4]", "test", null);
+	}
+	
+	@Test(expected = SyntaxError.class)
+	public void testBinaryTextWithFraction() throws Exception {
+		FixedWidthUtil.parseBinaryColumnsSpec("name[E4.2]", "test", null);
+	}
+	
 	
 	// private helper method -------------------------------------------------------------------------------------------
 	
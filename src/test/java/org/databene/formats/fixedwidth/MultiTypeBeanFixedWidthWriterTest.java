@@ -19,9 +19,13 @@ import static org.junit.Assert.*;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 
 import org.databene.commons.ReaderLineIterator;
+import org.databene.commons.SystemInfo;
 import org.junit.Test;
 
 /**
@@ -52,4 +56,21 @@ public class MultiTypeBeanFixedWidthWriterTest {
 		iterator.close();
 	}
 	
+	@Test
+	public void testBatchMode() throws Exception {
+		StringWriter out = new StringWriter();
+		List<FixedWidthRowTypeDescriptor> rowFormats = Arrays.asList(
+				FixedWidthUtil.parseBeanColumnsSpec("name[8],age[3r0],pet.name[7]", "FWPerson", "", Locale.US),
+				FixedWidthUtil.parseBeanColumnsSpec("name[18]", "FWCity", "", Locale.US));
+		// use a batch size which is smaller than the total output to enforce intermediate writes
+		MultiTypeBeanFixedWidthWriter writer = new MultiTypeBeanFixedWidthWriter(out, rowFormats, 50);
+		writer.write(new FWPerson("Alice", 23, new FWPet("Miez")));
+		writer.write(new FWCity("New York"));
+		writer.write(new FWPerson("Bob", -5, null));
+		writer.flush();
+		String sep = SystemInfo.getLineSeparator();
+		assertEquals("Alice   023Miez   " + sep + "New York          " + sep + "Bob     -05       " + sep, out.toString());
+		writer.close();
+	}
+	
 }
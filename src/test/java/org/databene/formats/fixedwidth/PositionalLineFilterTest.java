@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.fixedwidth;
+
+import static org.junit.Assert.*;
+
+import org.databene.commons.Filter;
+import org.databene.commons.filter.RegexBasedFilter;
+import org.junit.Test;
+
+/**
+ * Tests the {@link PositionalLineFilter}.
+ * Created: 18.10.2026 15:02:44
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+public class PositionalLineFilterTest {
+
+	@Test
+	public void testLiteralAt() {
+		PositionalLineFilter filter = PositionalLineFilter.literalAt(2, "AB");
+		assertTrue(filter.accept("xxAB"));
+		assertTrue(filter.accept("xxABxx"));
+		assertFalse(filter.accept("xAB"));
+		assertFalse(filter.accept("xxA"));
+		assertFalse(filter.accept(""));
+	}
+
+	@Test
+	public void testOneOf() {
+		PositionalLineFilter filter = PositionalLineFilter.oneOf(1, "03", "01", "10");
+		assertTrue(filter.accept("x01xx"));
+		assertTrue(filter.accept("x03"));
+		assertTrue(filter.accept("x10x"));
+		assertFalse(filter.accept("x02xx"));
+		assertFalse(filter.accept("x0"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOneOfUnequalLength() {
+		PositionalLineFilter.oneOf(0, "A", "BB");
+	}
+
+	@Test
+	public void testNumberRange() {
+		PositionalLineFilter filter = PositionalLineFilter.numberRange(3, 4, -10, 100);
+		assertTrue(filter.accept("xxx0100"));
+		assertTrue(filter.accept("xxx  -5xx"));
+		assertTrue(filter.accept("xxx7   "));
+		assertFalse(filter.accept("xxx0101"));
+		assertFalse(filter.accept("xxx -11"));
+		assertFalse(filter.accept("xxx    "));
+		assertFalse(filter.accept("xxx1 2 "));
+		assertFalse(filter.accept("xxx12"));
+	}
+
+	@Test
+	public void testRegexReduction() {
+		assertEquals("literal 'HDR' at 0", String.valueOf(PositionalLineFilter.forRegex("HDR.*")));
+		assertEquals("literal 'X' at 2", String.valueOf(PositionalLineFilter.forRegex("..X.*")));
+		assertEquals("literal 'ABC' at 3", String.valueOf(PositionalLineFilter.forRegex(".{3}ABC.*")));
+		assertEquals("literal 'A.B' at 0 with line end", String.valueOf(PositionalLineFilter.forRegex("A\\.B")));
+		assertNull(PositionalLineFilter.forRegex(null));
+		assertTrue(PositionalLineFilter.forRegex("A+.*") instanceof RegexBasedFilter);
+		assertTrue(PositionalLineFilter.forRegex(".*A") instanceof RegexBasedFilter);
+		assertTrue(PositionalLineFilter.forRegex("(?i)A.*") instanceof RegexBasedFilter);
+		assertTrue(PositionalLineFilter.forRegex("A\\d.*") instanceof RegexBasedFilter);
+		assertTrue(PositionalLineFilter.forRegex(".{2,3}A.*") instanceof RegexBasedFilter);
+	}
+
+	@Test
+	public void testRegexEquivalence() {
+		String[] regexes = { "HDR.*", "..X.*", ".{3}ABC.*", "A\\.B", "AB" };
+		String[] lines = { "", "HDR", "HDRx", "xHDR", "xxX", "xxXy", "xX", "xxxABC", "xxxABCD", "A.B", "AxB", "A.Bx", "AB", "ABx" };
+		for (String regex : regexes) {
+			Filter<String> reduced = PositionalLineFilter.forRegex(regex);
+			assertTrue(reduced instanceof PositionalLineFilter);
+			RegexBasedFilter reference = new RegexBasedFilter(regex, null);
+			for (String line : lines)
+				assertEquals(regex + " on '" + line + "'", reference.accept(line), reduced.accept(line));
+		}
+	}
+
+}
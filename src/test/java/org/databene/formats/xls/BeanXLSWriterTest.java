@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+
+import org.databene.commons.TimeUtil;
+import org.databene.formats.DataContainer;
+import org.databene.formats.PersonWithAddress;
+import org.junit.Test;
+
+/**
+ * Tests the {@link BeanXLSWriter}.
+ * Created: 18.10.2026 22:48:13
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class BeanXLSWriterTest {
+
+	@Test
+	public void testInMemoryXLS() throws Exception {
+		String fileName = "target/BeanXLSWriterTest.xls";
+		writePersons(fileName, 0, 3);
+		XLSLineIterator iterator = new XLSLineIterator(fileName, 0, true, false, null);
+		try {
+			assertReadBack(iterator, 3);
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testStreamingXLSX() throws Exception {
+		String fileName = "target/BeanXLSWriterTest.xlsx";
+		// more rows than the window and the width sample
+		writePersons(fileName, 10, 250);
+		XLSXStreamingLineIterator iterator = new XLSXStreamingLineIterator(fileName, 0, true, false, null);
+		try {
+			assertReadBack(iterator, 250);
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testFormattedStreamingXLSX() throws Exception {
+		String fileName = "target/BeanXLSWriterTest-formatted.xlsx";
+		writePersons(fileName, 10, 2);
+		XLSXStreamingLineIterator iterator = new XLSXStreamingLineIterator(fileName, 0, true, true, null);
+		try {
+			DataContainer<Object[]> container = new DataContainer<Object[]>();
+			assertArrayEquals(new Object[] { "Person0", "20", "01.01.2011" }, iterator.next(container).getData());
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		String fileName = "target/BeanXLSWriterTest-empty.xlsx";
+		new BeanXLSWriter<PersonWithAddress>(new FileOutputStream(fileName), "persons", null, 10).close();
+		// an empty workbook without sheets is written
+		assertTrue(new File(fileName).length() > 0);
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private static void writePersons(String fileName, int rowWindow, int count) throws Exception {
+		BeanXLSWriter<PersonWithAddress> writer = new BeanXLSWriter<PersonWithAddress>(new FileOutputStream(fileName), "persons",
+				Arrays.asList(new PropFormat("name"), new PropFormat("age").withIntFormat(), new PropFormat("date").withDateFormat()),
+				rowWindow);
+		for (int i = 0; i < count; i++) {
+			PersonWithAddress person = new PersonWithAddress();
+			person.setName("Person" + i);
+			person.setAge(20 + i % 50);
+			person.setDate(TimeUtil.date(2011, 0, 1 + i % 28));
+			writer.save(person);
+		}
+		writer.close();
+	}
+
+	private static void assertReadBack(AbstractXLSLineIterator iterator, int count) {
+		assertArrayEquals(new String[] { "name", "age", "date" }, iterator.getHeaders());
+		DataContainer<Object[]> container = new DataContainer<Object[]>();
+		for (int i = 0; i < count; i++) {
+			Object[] row = iterator.next(container).getData();
+			assertArrayEquals(new Object[] { "Person" + i, 20L + i % 50, TimeUtil.date(2011, 0, 1 + i % 28) }, row);
+		}
+		assertNull(iterator.next(container));
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import static org.junit.Assert.*;
+
+import org.databene.commons.Context;
+import org.databene.commons.context.DefaultContext;
+import org.databene.commons.converter.util.ConstantClassProvider;
+import org.databene.commons.converter.util.ReferenceResolver;
+import org.databene.formats.PersonWithAddress;
+import org.databene.formats.script.ScriptConverterForStrings;
+import org.junit.Test;
+
+/**
+ * Tests the {@link XLSBeanConverter}.
+ * Created: 18.10.2026 00:48:02
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSBeanConverterTest {
+
+	private static final ReferenceResolver NO_REFERENCES = new ReferenceResolver() {
+		@Override
+		public Object resolveReferences(Object value, Object target, String localFeatureName) {
+			return value;
+		}
+	};
+
+	@Test
+	public void testConversion() {
+		XLSBeanConverter converter = createConverter(false, "name", "age", "address.city", "class");
+		PersonWithAddress alice = (PersonWithAddress) converter.convert(new Object[] { "Alice", 23L, "London", "ignored" });
+		assertEquals("Alice", alice.getName());
+		assertEquals(23, alice.getAge());
+		assertEquals("London", alice.getAddress().getCity());
+		PersonWithAddress bob = (PersonWithAddress) converter.convert(new Object[] { "Bob", "34" });
+		assertEquals("Bob", bob.getName());
+		assertEquals(34, bob.getAge());
+		assertNull(bob.getAddress());
+	}
+
+	@Test
+	public void testScript() {
+		XLSBeanConverter converter = createConverter(true, "name", "age");
+		PersonWithAddress person = (PersonWithAddress) converter.convert(new Object[] { "{Al${suffix}}", "{${age}}" });
+		assertEquals("Alice", person.getName());
+		assertEquals(42, person.getAge());
+	}
+
+	@Test
+	public void testIsScriptCandidate() {
+		assertTrue(XLSBeanConverter.isScriptCandidate("{x}"));
+		assertTrue(XLSBeanConverter.isScriptCandidate("  {x}"));
+		assertFalse(XLSBeanConverter.isScriptCandidate("x{y}"));
+		assertFalse(XLSBeanConverter.isScriptCandidate(""));
+		assertFalse(XLSBeanConverter.isScriptCandidate("   "));
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private static XLSBeanConverter createConverter(boolean formatted, String... headers) {
+		Context context = new DefaultContext();
+		context.set("suffix", "ice");
+		context.set("age", 42);
+		return new XLSBeanConverter(new ConstantClassProvider<Object>(PersonWithAddress.class), headers,
+				NO_REFERENCES, new ScriptConverterForStrings(context), formatted);
+	}
+
+}
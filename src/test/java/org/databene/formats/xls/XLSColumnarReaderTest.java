@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.databene.commons.TimeUtil;
+import org.databene.formats.DataContainer;
+import org.databene.formats.util.ListDataIterator;
+import org.junit.Test;
+
+/**
+ * Tests the {@link XLSColumnarReader}.
+ * Created: 18.10.2026 11:02:37
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSColumnarReaderTest {
+
+	private static final String PERSON_FILENAME = "org/databene/formats/xls/person_lines.xls";
+	private static final String VALUES_FILENAME = "org/databene/formats/xls/types_and_values.xls";
+
+	@Test
+	public void testPersons() throws Exception {
+		XLSColumnarTable table = new XLSColumnarReader().read(PERSON_FILENAME, 0);
+		assertEquals(2, table.getRowCount());
+		assertEquals(3, table.getColumnCount());
+		XLSColumn name = table.getColumn("name");
+		assertEquals(XLSColumnType.STRING, name.getType());
+		assertEquals(Arrays.asList("Alice", "Bob"), name.getDictionary());
+		assertEquals(1, name.getCode(1));
+		XLSColumn age = table.getColumn("age");
+		assertEquals(XLSColumnType.LONG, age.getType());
+		assertArrayEquals(new long[] { 23, 34 }, age.toLongArray()); // the second value is a formula
+		XLSColumn date = table.getColumn("date");
+		assertEquals(XLSColumnType.DATE, date.getType());
+		assertEquals(LocalDate.of(2011, 1, 2).toEpochDay(), date.getEpochDay(1));
+		assertEquals(TimeUtil.date(2011, 0, 1), date.getValue(0));
+	}
+
+	@Test
+	public void testTypesAndValues() throws Exception {
+		XLSColumnarTable table = new XLSColumnarReader().read(VALUES_FILENAME, 0);
+		assertEquals(1, table.getRowCount());
+		assertEquals("Simple Text", table.getColumn("text").getString(0));
+		assertEquals("", table.getColumn("emptyText").getString(0));
+		assertTrue(table.getColumn("null").isNull(0));
+		assertEquals(XLSColumnType.STRING, table.getColumn("numberAsText").getType());
+		assertEquals("123", table.getColumn("numberAsText").getString(0));
+		assertEquals(42L, table.getColumn("number").getLong(0));
+		assertEquals(TimeUtil.date(2011, 1, 1), table.getColumn("date").getValue(0));
+	}
+
+	@Test
+	public void testWidening() {
+		XLSColumnarReader reader = new XLSColumnarReader(false);
+		reader.setSampleSize(1);
+		XLSColumnarTable table = reader.read(new ListDataIterator<Object[]>(Object[].class,
+				new Object[] { 1L, 1L }, new Object[] { 2.5, null }, new Object[] { null, "x" }, new Object[] { 4L, 3L, true }));
+		assertEquals(4, table.getRowCount());
+		XLSColumn numbers = table.getColumn(0);
+		assertEquals(XLSColumnType.DOUBLE, numbers.getType());
+		assertArrayEquals(new double[] { 1., 2.5, 0., 4. }, numbers.toDoubleArray(), 0.);
+		assertTrue(numbers.isNull(2));
+		XLSColumn mixed = table.getColumn(1);
+		assertEquals(XLSColumnType.STRING, mixed.getType());
+		assertArrayEquals(new Object[] { "1", null, "x", "3" }, mixed.toArray());
+		XLSColumn lateColumn = table.getColumn(2);
+		assertEquals(XLSColumnType.BOOLEAN, lateColumn.getType());
+		assertEquals(4, lateColumn.size());
+		assertTrue(lateColumn.isNull(0));
+		assertTrue(lateColumn.getBoolean(3));
+	}
+
+	@Test
+	public void testColumnIterator() throws Exception {
+		XLSColumnarTable table = new XLSColumnarReader(false).read(PERSON_FILENAME, 1);
+		assertArrayEquals(new Object[] { "name", "Otto" }, table.columnIterator().next(new DataContainer<Object[]>()).getData());
+	}
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link XLSFormatCache}.
+ * Created: 18.10.2026 13:31:09
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSFormatCacheTest {
+
+	@Test
+	public void testPutAndGet() {
+		XLSFormatCache cache = new XLSFormatCache();
+		assertNull(cache.get(3));
+		XLSFormatCache.NumberFormat format = cache.put(3, 14, "m/d/yy");
+		assertSame(format, cache.get(3));
+		assertTrue(format.isDate(40544.));
+		assertFalse(format.isDate(-1.));
+		assertNull(cache.get(2));
+	}
+
+	@Test
+	public void testGrowth() {
+		XLSFormatCache cache = new XLSFormatCache();
+		XLSFormatCache.NumberFormat format = cache.put(1000, 2, "0.00");
+		assertSame(format, cache.get(1000));
+		assertFalse(format.isDate(40544.));
+		assertNull(cache.get(999));
+	}
+
+	@Test
+	public void testGeneral() {
+		XLSFormatCache.NumberFormat format = new XLSFormatCache().put(0, 0, null);
+		assertEquals("General", format.formatString);
+		assertFalse(format.isDate(40544.));
+	}
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.databene.commons.ParseException;
+import org.databene.formats.Address;
+import org.databene.formats.PersonWithAddress;
+import org.junit.Test;
+
+/**
+ * Tests the {@link XLSImportSession}.
+ * Created: 18.10.2026 23:58:20
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSImportSessionTest {
+
+	private static final String ADDRESSES_FILENAME = "org/databene/formats/xls/persons_with_addresses.xls";
+
+	@Test
+	public void testReferences() throws Exception {
+		XLSImportSession session = new XLSImportSession(ADDRESSES_FILENAME, true);
+		try {
+			List<PersonWithAddress> persons = session.getSheet("persons", PersonWithAddress.class);
+			assertEquals(2, persons.size());
+			assertAddresses(persons.get(0), "Alice", "London", "Dover");
+			assertAddresses(persons.get(1), "Bob", "New York", "Hauppauge");
+		} finally {
+			session.close();
+		}
+	}
+
+	@Test
+	public void testMemoization() throws Exception {
+		XLSImportSession session = new XLSImportSession(ADDRESSES_FILENAME, true);
+		try {
+			List<PersonWithAddress> persons = session.getSheet("persons", PersonWithAddress.class);
+			assertSame(persons, session.getSheet("persons", PersonWithAddress.class));
+			// the referenced sheets have been parsed while resolving the 'tab:' references
+			List<Address> addresses = session.getSheet("addresses_of_alice", Address.class);
+			assertSame(addresses.get(0), persons.get(0).getAddresses().get(0));
+		} finally {
+			session.close();
+		}
+	}
+
+	@Test
+	public void testParallel() throws Exception {
+		XLSImportSession session = new XLSImportSession(ADDRESSES_FILENAME, true, null, "", 3);
+		try {
+			Map<String, Class<?>> sheetTypes = new LinkedHashMap<String, Class<?>>();
+			sheetTypes.put("addresses_of_bob", Address.class);
+			sheetTypes.put("persons", PersonWithAddress.class);
+			sheetTypes.put("addresses_of_alice", Address.class);
+			Map<String, List<?>> result = session.parseAll(sheetTypes);
+			assertEquals(3, result.size());
+			assertEquals("New York", ((Address) result.get("addresses_of_bob").get(0)).getCity());
+			@SuppressWarnings("unchecked")
+			List<PersonWithAddress> persons = (List<PersonWithAddress>) result.get("persons");
+			assertAddresses(persons.get(0), "Alice", "London", "Dover");
+			assertAddresses(persons.get(1), "Bob", "New York", "Hauppauge");
+			assertSame(result.get("addresses_of_alice").get(1), persons.get(0).getAddresses().get(1));
+		} finally {
+			session.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testSelfReference() throws Exception {
+		assertCycle(false, 1, "a -> a", "a", "a");
+	}
+
+	@Test(timeout = 10000)
+	public void testCyclicReference() throws Exception {
+		assertCycle(false, 1, "a -> b -> a", "a", "b", "b", "a");
+	}
+
+	@Test(timeout = 10000)
+	public void testCyclicReferenceInParallel() throws Exception {
+		for (int i = 0; i < 20; i++) // the sheets of the cycle are parsed by the same or by different threads
+			assertCycle(true, 2, null, "a", "b", "b", "a");
+	}
+
+	@Test(timeout = 10000)
+	public void testCyclicReferenceInParallelXLS() throws Exception {
+		for (int i = 0; i < 20; i++)
+			assertCycle(false, 2, null, "a", "b", "b", "a");
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	/** Creates a document of sheets which refer to each other and verifies that parsing them fails.
+	 * @param sheetRefs pairs of sheet name and the name of the sheet it refers to */
+	private static void assertCycle(boolean xlsx, int threadCount, String expectedCycle, String... sheetRefs) throws Exception {
+		File file = File.createTempFile("cyclic-", xlsx ? ".xlsx" : ".xls");
+		try {
+			Workbook workbook = (xlsx ? new XSSFWorkbook() : new HSSFWorkbook());
+			Map<String, Class<?>> sheetTypes = new LinkedHashMap<String, Class<?>>();
+			for (int i = 0; i < sheetRefs.length; i += 2) {
+				Sheet sheet = workbook.createSheet(sheetRefs[i]);
+				Row headers = sheet.createRow(0);
+				headers.createCell(0).setCellValue("name");
+				headers.createCell(1).setCellValue("children");
+				Row row = sheet.createRow(1);
+				row.createCell(0).setCellValue("x");
+				row.createCell(1).setCellValue("tab:" + sheetRefs[i + 1]);
+				sheetTypes.put(sheetRefs[i], Node.class);
+			}
+			OutputStream out = new FileOutputStream(file);
+			try {
+				workbook.write(out);
+			} finally {
+				out.close();
+			}
+			XLSImportSession session = new XLSImportSession(file.getPath(), true, null, "", threadCount);
+			try {
+				session.parseAll(sheetTypes);
+				fail("Cyclic reference not detected");
+			} catch (RuntimeException e) {
+				ParseException cycleError = cycleError(e);
+				if (expectedCycle != null)
+					assertTrue(cycleError.getMessage(), cycleError.getMessage().endsWith(": " + expectedCycle));
+			} finally {
+				session.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static ParseException cycleError(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause())
+			if (t instanceof ParseException && t.getMessage().startsWith("Cyclic"))
+				return (ParseException) t;
+		throw new AssertionError("Unexpected exception: " + e);
+	}
+
+	private static void assertAddresses(PersonWithAddress person, String name, String... cities) {
+		assertEquals(name, person.getName());
+		List<Address> addresses = person.getAddresses();
+		assertEquals(cities.length, addresses.size());
+		for (int i = 0; i < cities.length; i++)
+			assertEquals(cities[i], addresses.get(i).getCity());
+	}
+
+	public static class Node {
+
+		private String name;
+		private List<Node> children;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public List<Node> getChildren() {
+			return children;
+		}
+
+		public void setChildren(List<Node> children) {
+			this.children = children;
+		}
+	}
+
+}
@@ -54,6 +54,33 @@ public class XLSLineIteratorTest extends DataIteratorTestCase {
 		}
 	}
 	
+    @Test
+	public void testCachedFormulaResults() throws Exception {
+		XLSLineIterator iterator = new XLSLineIterator(PERSON_FILENAME);
+		iterator.setCachedFormulaResults(true);
+		try {
+			assertArrayEquals(new Object[] {"name", "age", "date"}, iterator.next(new DataContainer<Object[]>()).getData());
+			expectNext(iterator, "Alice", 23L, TimeUtil.date(2011, 0, 1));
+			expectNext(iterator, "Bob", 34L, TimeUtil.date(2011, 0, 2));
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+	}
+	
+    @Test
+	public void testFormattedCachedFormulaResults() throws Exception {
+		XLSLineIterator iterator = new XLSLineIterator(PERSON_FILENAME, 0, true, true, null);
+		iterator.setCachedFormulaResults(true);
+		try {
+			expectNext(iterator, "Alice", "23");
+			expectNext(iterator, "Bob", "34");
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+	}
+	
     @Test
 	public void demoDefaultSheetWithFormula() throws Exception {
     	// print out default sheet content
@@ -149,6 +176,26 @@ public class XLSLineIteratorTest extends DataIteratorTestCase {
 		}
 	}
 	
+	@Test
+	public void testRegion() throws Exception {
+		XLSLineIterator iterator = new XLSLineIterator(PERSON_FILENAME, 0, false, false, null, XLSRegion.parse("B2:C2"));
+		try {
+			assertArrayEquals(new Object[] { 23L, TimeUtil.date(2011, 0, 1) }, iterator.next(new DataContainer<Object[]>()).getData());
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+		iterator = new XLSLineIterator(PERSON_FILENAME, 0, true, false, null, XLSRegion.parse("A:A"));
+		try {
+			assertArrayEquals(new String[] { "name" }, iterator.getHeaders());
+			assertArrayEquals(new Object[] { "Alice" }, iterator.next(new DataContainer<Object[]>()).getData());
+			assertArrayEquals(new Object[] { "Bob" }, iterator.next(new DataContainer<Object[]>()).getData());
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+	}
+	
 	// private helpers ---------------------------------------------------------
 	
 	private static void expectNext(XLSLineIterator iterator, Object... expected) {
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import static org.junit.Assert.*;
+
+import org.databene.commons.ParseException;
+import org.junit.Test;
+
+/**
+ * Tests the {@link XLSRegion}.
+ * Created: 18.10.2026 12:41:09
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSRegionTest {
+
+	private static final int MAX = Integer.MAX_VALUE;
+
+	@Test
+	public void testParse() {
+		assertEquals(new XLSRegion(999, 1999, 1, 3), XLSRegion.parse("B1000:D2000"));
+		assertEquals(new XLSRegion(999, 1999, 1, 3), XLSRegion.parse("$b$1000:$d$2000"));
+		assertEquals(new XLSRegion(0, MAX, 0, 2), XLSRegion.parse("A:C"));
+		assertEquals(new XLSRegion(9, 19, 0, MAX), XLSRegion.parse("10:20"));
+		assertEquals(new XLSRegion(4, 4, 2, 2), XLSRegion.parse("C5"));
+		assertEquals(new XLSRegion(1, MAX, 26, 27), XLSRegion.parse("AA2:AB"));
+		assertSame(XLSRegion.ALL, XLSRegion.parse(" "));
+	}
+
+	@Test(expected = ParseException.class)
+	public void testReversedBounds() {
+		XLSRegion.parse("C5:A1");
+	}
+
+	@Test(expected = ParseException.class)
+	public void testIllegalSyntax() {
+		XLSRegion.parse("1A:B2");
+	}
+
+	@Test
+	public void testCellCount() {
+		XLSRegion region = XLSRegion.parse("B:D");
+		assertEquals(3, region.cellCount(10));
+		assertEquals(1, region.cellCount(2));
+		assertEquals(0, region.cellCount(1));
+	}
+
+	@Test
+	public void testToString() {
+		assertEquals("B1000:D2000", XLSRegion.parse("B1000:D2000").toString());
+		assertEquals("AA2:AB", XLSRegion.parse("AA2:AB").toString());
+	}
+
+}
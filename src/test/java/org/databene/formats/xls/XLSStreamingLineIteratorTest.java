@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xls;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.databene.commons.ArrayUtil;
+import org.databene.commons.TimeUtil;
+import org.databene.formats.DataContainer;
+import org.databene.formats.util.DataIteratorTestCase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the {@link XLSStreamingLineIterator}.
+ * Created: 18.10.2026 22:04:51
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class XLSStreamingLineIteratorTest extends DataIteratorTestCase {
+
+	private static final String PERSON_FILENAME = "org/databene/formats/xls/person_lines.xls";
+	private static final String VALUES_FILENAME = "org/databene/formats/xls/types_and_values.xls";
+	private static final String ALTERNATIVE_EMPTY_FILENAME = "org/databene/formats/xls/alternative_empty.xls";
+	private static final String NULL_AND_EMPTY_FILENAME = "org/databene/formats/xls/null_and_empty.xls";
+
+	@Test
+	public void testDefaultSheetWithFormula() throws Exception {
+		XLSStreamingLineIterator iterator = new XLSStreamingLineIterator(PERSON_FILENAME);
+		try {
+			assertArrayEquals(new Object[] {"name", "age", "date"}, iterator.next(new DataContainer<Object[]>()).getData());
+			expectNext(iterator, "Alice", 23L, TimeUtil.date(2011, 0, 1));
+			// the cached formula results are used
+			expectNext(iterator, "Bob", 34L, TimeUtil.date(2011, 0, 2));
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testSheet1() throws Exception {
+		XLSStreamingLineIterator iterator = new XLSStreamingLineIterator(PERSON_FILENAME, 1, true, false, null);
+		try {
+			assertArrayEquals(new String[] {"name", "age"}, iterator.getHeaders());
+			expectNext(iterator, "Otto", 89L);
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testSheetByName() throws Exception {
+		XLSStreamingLineIterator iterator = new XLSStreamingLineIterator(PERSON_FILENAME, "Tabelle2", false, false, null);
+		try {
+			expectNext(iterator, "name", "age");
+			expectNext(iterator, "Otto", 89L);
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testAutomaticSelection() throws Exception {
+		AbstractXLSLineIterator iterator = XLSUtil.createLineIterator(PERSON_FILENAME, "Tabelle2", true, false, null);
+		try {
+			assertTrue(iterator instanceof XLSStreamingLineIterator);
+			assertArrayEquals(new String[] {"name", "age"}, iterator.getHeaders());
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testFormatted() throws Exception {
+		XLSStreamingLineIterator iterator = new XLSStreamingLineIterator(PERSON_FILENAME, 0, true, true, null);
+		try {
+			expectNext(iterator, "Alice", "23", "2011-01-01");
+			expectNext(iterator, "Bob", "34", "2011-01-02");
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testTypesAndValues() throws Exception {
+		XLSStreamingLineIterator iterator = new XLSStreamingLineIterator(VALUES_FILENAME);
+		try {
+			Object[] expectedHeaders = new Object[] {
+					"text", "emptyText", "null", "numberAsText", "number", "date"};
+			assertArrayEquals(expectedHeaders, iterator.next(new DataContainer<Object[]>()).getData());
+			Object[] data = iterator.next(new DataContainer<Object[]>()).getData();
+			assertEquals(expectedHeaders.length, data.length);
+			assertEquals("Simple Text", data[0]);
+			assertEquals("", data[1]);
+			assertEquals(null, data[2]);
+			assertEquals("123", data[3]);
+			assertEquals(42L, data[4]);
+			assertEquals(TimeUtil.date(2011, 1, 1), data[5]);
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testAlternativeEmptyMarker() throws Exception {
+		XLSStreamingLineIterator iterator = new XLSStreamingLineIterator(ALTERNATIVE_EMPTY_FILENAME);
+		iterator.setEmptyMarker("\"\"");
+		try {
+			assertArrayEquals(new Object[] { "text", "empty" }, iterator.next(new DataContainer<Object[]>()).getData());
+			assertArrayEquals(new Object[] { "X", "" }, iterator.next(new DataContainer<Object[]>()).getData());
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testNullAndEmpty() throws Exception {
+		XLSStreamingLineIterator iterator = new XLSStreamingLineIterator(NULL_AND_EMPTY_FILENAME);
+		DataContainer<Object[]> wrapper = new DataContainer<Object[]>();
+		try {
+			assertArrayEquals(new Object[] { "text", "dummy" }, iterator.next(wrapper).getData());
+			assertArrayEquals(new Object[] {  null , "x"     }, iterator.next(wrapper).getData());
+			assertArrayEquals(new Object[] {  ""   , "y"     }, iterator.next(wrapper).getData());
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testRegion() throws Exception {
+		XLSStreamingLineIterator iterator = new XLSStreamingLineIterator(PERSON_FILENAME, 0, false, false, null, XLSRegion.parse("B2:C2"));
+		try {
+			assertArrayEquals(new Object[] { 23L, TimeUtil.date(2011, 0, 1) }, iterator.next(new DataContainer<Object[]>()).getData());
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+		iterator = new XLSStreamingLineIterator(PERSON_FILENAME, 0, true, false, null, XLSRegion.parse("A:A"));
+		try {
+			assertArrayEquals(new String[] { "name" }, iterator.getHeaders());
+			assertArrayEquals(new Object[] { "Alice" }, iterator.next(new DataContainer<Object[]>()).getData());
+			assertArrayEquals(new Object[] { "Bob" }, iterator.next(new DataContainer<Object[]>()).getData());
+			expectUnavailable(iterator);
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testRegionWithEmptyRows() throws Exception {
+		File file = File.createTempFile("sparse-", ".xls");
+		try {
+			HSSFWorkbook workbook = new HSSFWorkbook();
+			Sheet sheet = workbook.createSheet();
+			Row row = sheet.createRow(0);
+			row.createCell(0).setCellValue("a0");
+			row.createCell(1).setCellValue("b0");
+			row.createCell(2).setCellValue("c0");
+			sheet.createRow(1).createCell(0).setCellValue("a1"); // no cell in the region
+			sheet.createRow(2); // no cell at all
+			row = sheet.createRow(3);
+			row.createCell(0).setCellValue("a3");
+			row.createCell(2).setCellValue("c3");
+			sheet.createRow(4); // trailing row without cells
+			OutputStream out = new FileOutputStream(file);
+			try {
+				workbook.write(out);
+			} finally {
+				out.close();
+				workbook.close();
+			}
+			XLSRegion region = XLSRegion.parse("B:C");
+			XLSStreamingLineIterator iterator = new XLSStreamingLineIterator(file.getPath(), 0, false, false, null, region);
+			XLSLineIterator reference = new XLSLineIterator(file.getPath(), 0, false, false, null, region);
+			try {
+				Object[][] expectedRows = { { "b0", "c0" }, {}, {}, { null, "c3" }, {} };
+				for (Object[] expectedRow : expectedRows) {
+					assertArrayEquals(expectedRow, iterator.next(new DataContainer<Object[]>()).getData());
+					// the DOM based iterator provides the same rows
+					assertArrayEquals(expectedRow, reference.next(new DataContainer<Object[]>()).getData());
+				}
+				expectUnavailable(iterator);
+				expectUnavailable(reference);
+			} finally {
+				iterator.close();
+				reference.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+	
+	// private helpers ---------------------------------------------------------
+
+	private static void expectNext(AbstractXLSLineIterator iterator, Object... expected) {
+		Object[] actual = ArrayUtil.copyOfRange(iterator.next(new DataContainer<Object[]>()).getData(), 0, expected.length);
+		assertArrayEquals(expected, actual);
+	}
+
+}
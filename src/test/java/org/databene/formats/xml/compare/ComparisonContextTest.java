@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xml.compare;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.databene.commons.xml.XMLUtil;
+import org.databene.commons.xml.XPathUtil;
+import org.databene.formats.compare.DiffDetailType;
+import org.databene.formats.compare.LocalDiffType;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * Tests the {@link ComparisonContext}.
+ * Created: 18.10.2026 16:21:48
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class ComparisonContextTest {
+
+	@Test
+	public void testEmpty() {
+		ComparisonContext context = new ComparisonContext();
+		assertFalse(context.isExcluded("x"));
+		assertFalse(context.isExcluded(null));
+		assertFalse(context.isTolerated(DiffDetailType.DIFFERENT, "x", null));
+		assertFalse(context.isTolerated(DiffDetailType.DIFFERENT, "/root"));
+	}
+
+	@Test
+	public void testNodes() throws Exception {
+		Document expected = XMLUtil.parseString("<root><a x='1'/><b/></root>");
+		Document actual = XMLUtil.parseString("<root><a x='2'/><b/></root>");
+		Set<LocalDiffType> toleratedDiffs = new HashSet<LocalDiffType>();
+		toleratedDiffs.add(new LocalDiffType(DiffDetailType.DIFFERENT, "/root/a/@x"));
+		toleratedDiffs.add(new LocalDiffType(DiffDetailType.MISSING, "/root/a/@x"));
+		toleratedDiffs.add(new LocalDiffType(null, "//b"));
+		ComparisonContext context = new ComparisonContext(toleratedDiffs, expected, actual);
+		Node expectedX = XPathUtil.queryNode(expected, "/root/a/@x");
+		Node actualX = XPathUtil.queryNode(actual, "/root/a/@x");
+		assertTrue(context.isTolerated(DiffDetailType.DIFFERENT, expectedX, actualX));
+		assertTrue(context.isTolerated(DiffDetailType.MISSING, expectedX, null));
+		assertFalse(context.isTolerated(DiffDetailType.UNEXPECTED, null, actualX));
+		assertFalse(context.isExcluded(expectedX));
+		Node b = XPathUtil.queryNode(actual, "/root/b");
+		assertTrue(context.isExcluded(b));
+		assertTrue(context.isTolerated(DiffDetailType.MOVED, null, b));
+		assertFalse(context.isExcluded(XPathUtil.queryNode(actual, "/root/a")));
+	}
+
+	@Test
+	public void testLocators() throws Exception {
+		Set<LocalDiffType> toleratedDiffs = new HashSet<LocalDiffType>();
+		toleratedDiffs.add(new LocalDiffType(DiffDetailType.DIFFERENT, "/root/text()"));
+		toleratedDiffs.add(new LocalDiffType(null, "/root/?pi"));
+		ComparisonContext context = new ComparisonContext(toleratedDiffs, null, null);
+		assertTrue(context.isTolerated(DiffDetailType.DIFFERENT, "/root/text()"));
+		assertFalse(context.isTolerated(DiffDetailType.MISSING, "/root/text()"));
+		assertTrue(context.isTolerated(DiffDetailType.UNEXPECTED, "/root/?pi"));
+		assertFalse(context.isTolerated(DiffDetailType.DIFFERENT, "/root"));
+	}
+
+	@Test
+	public void testGlobal() throws Exception {
+		Set<LocalDiffType> toleratedDiffs = new HashSet<LocalDiffType>();
+		toleratedDiffs.add(new LocalDiffType(DiffDetailType.MOVED, null));
+		ComparisonContext context = new ComparisonContext(toleratedDiffs, null, null);
+		assertTrue(context.isTolerated(DiffDetailType.MOVED, "x", "y"));
+		assertTrue(context.isTolerated(DiffDetailType.MOVED, null, null));
+		assertFalse(context.isTolerated(DiffDetailType.DIFFERENT, "x", "y"));
+		assertFalse(context.isExcluded("x"));
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xml.compare;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.databene.commons.xml.XMLUtil;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Tests the {@link CompiledXPath}.
+ * Created: 18.10.2026 17:12:31
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class CompiledXPathTest {
+
+	private static final String XML =
+			"<root id='r'>" +
+				"<list><item no='1'>alice</item><item no='2'>bob<sub/></item><item>carl</item></list>" +
+				"<item no='3'><list><item no='4'/></list></item>" +
+				"<x:item xmlns:x='urn:x' no='5'/>" +
+			"</root>";
+
+	@Test
+	public void testSimplePathDetection() throws Exception {
+		assertTrue(CompiledXPath.compile("/root").isSimplePath());
+		assertTrue(CompiledXPath.compile("//item").isSimplePath());
+		assertTrue(CompiledXPath.compile("/root/list/item/@no").isSimplePath());
+		assertTrue(CompiledXPath.compile("//list/item/text()").isSimplePath());
+		assertFalse(CompiledXPath.compile("/root//item").isSimplePath());
+		assertFalse(CompiledXPath.compile("/root/list/item[2]").isSimplePath());
+		assertFalse(CompiledXPath.compile("//x:item").isSimplePath());
+		assertFalse(CompiledXPath.compile("@no").isSimplePath());
+	}
+
+	@Test
+	public void testTraversalMatchesXPathEngine() throws Exception {
+		Document document = XMLUtil.parseString(XML);
+		List<CompiledXPath> paths = new ArrayList<CompiledXPath>();
+		for (String expression : new String[] { "/root", "//item", "/root/list/item", "//list/item/@no",
+				"/root/item/@no", "//item/text()", "/root/list", "/item", "//list/item[1]" })
+			paths.add(CompiledXPath.compile(expression));
+		Map<CompiledXPath, List<Node>> result = CompiledXPath.queryNodes(document, paths);
+		for (CompiledXPath path : paths)
+			assertEquals(path.getExpression(), path.queryNodes(document), result.get(path));
+		assertEquals(5, result.get(paths.get(1)).size());
+	}
+
+	@Test
+	public void testQueryString() throws Exception {
+		Element item = XMLUtil.parseStringAsElement("<item no='2'>bob</item>");
+		assertEquals("2", CompiledXPath.compile("@no").queryString(item));
+		assertEquals("", CompiledXPath.compile("@missing").queryString(item));
+		assertEquals("bob", CompiledXPath.compile("text()").queryString(item));
+	}
+
+	@Test
+	public void testSettingsCache() throws Exception {
+		XMLComparisonSettings settings = new XMLComparisonSettings();
+		CompiledXPath path = settings.getCompiledXPath("//item");
+		assertSame(path, settings.getCompiledXPath("//item"));
+		assertNotSame(path, settings.getCompiledXPath("//list"));
+	}
+
+	@Test
+	public void testSettingsCacheIsThreadConfined() throws Exception {
+		final XMLComparisonSettings settings = new XMLComparisonSettings();
+		CompiledXPath path = settings.getCompiledXPath("//item");
+		final CompiledXPath[] otherPath = new CompiledXPath[2];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					otherPath[0] = settings.getCompiledXPath("//item");
+					otherPath[1] = settings.getCompiledXPath("//item");
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		assertNotNull(otherPath[0]);
+		assertNotSame(path, otherPath[0]);
+		assertSame(otherPath[0], otherPath[1]);
+		assertSame(path, settings.getCompiledXPath("//item"));
+	}
+
+}
@@ -14,7 +14,11 @@
  */
 package org.databene.formats.xml.compare;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.databene.commons.xml.XMLUtil;
@@ -48,4 +52,60 @@ public class DefaultXMLModelComparisonTest {
 		assertFalse(model.equalNodes(c1, c3));
 	}
 	
+	@Test
+	public void testHashes() {
+		Element a1 = XMLUtil.parseStringAsElement("<a x='1'><b>text</b><!-- comment --><c/></a>");
+		Element a2 = XMLUtil.parseStringAsElement("<a x='1'><b>text</b><c/></a>");
+		Element a3 = XMLUtil.parseStringAsElement("<a x='1'><b>other</b><c/></a>");
+		DefaultXMLComparisonModel model = new DefaultXMLComparisonModel();
+		model.init(null, null);
+		assertTrue(model.equalNodes(a1, a2));
+		assertEquals(model.hashOf(a1), model.hashOf(a2));
+		assertFalse(model.equalNodes(a1, a3));
+		assertNotEquals(model.hashOf(a1), model.hashOf(a3));
+		model.setCommentRelevant(true);
+		assertFalse(model.equalNodes(a1, a2));
+	}
+	
+	@Test
+	public void testWhitespace() {
+		Element a1 = XMLUtil.parseStringAsElement("<a>\n  <b>x</b>\n</a>");
+		Element a2 = XMLUtil.parseStringAsElement("<a>\n  <b>x</b>\n</a>");
+		Element a3 = XMLUtil.parseStringAsElement("<a><b>x</b>\n</a>");
+		DefaultXMLComparisonModel model = new DefaultXMLComparisonModel();
+		model.init(null, null);
+		assertTrue(model.equalNodes(a1, a2));
+		assertFalse(model.equalNodes(a1, a3)); // the text content differs
+		assertEquals(1, model.childNodes(a1).length);
+		model.setWhitespaceRelevant(true);
+		assertEquals(3, model.childNodes(a1).length);
+		assertTrue(model.equalNodes(a1, a2));
+	}
+	
+	@Test
+	public void testCdata() {
+		Element a1 = XMLUtil.parseStringAsElement("<a><![CDATA[x<y]]></a>");
+		Element a2 = XMLUtil.parseStringAsElement("<a>x&lt;y</a>");
+		DefaultXMLComparisonModel model = new DefaultXMLComparisonModel();
+		model.setCdataRelevant(true);
+		model.init(null, null);
+		assertFalse(model.equalNodes(a1, a2));
+		model.setCdataRelevant(false);
+		assertTrue(model.equalNodes(a1, a2));
+		model.init(a1.getOwnerDocument(), a2.getOwnerDocument());
+		assertSame(model.childNodes(a1), model.childNodes(a1));
+	}
+	
+	@Test
+	public void testCacheIsNotModifiedAfterInit() {
+		Element a1 = XMLUtil.parseStringAsElement("<a><b>x</b></a>");
+		Element other = XMLUtil.parseStringAsElement("<a><b>x</b></a>");
+		DefaultXMLComparisonModel model = new DefaultXMLComparisonModel();
+		model.init(a1.getOwnerDocument(), null);
+		assertSame(model.childNodes(a1), model.childNodes(a1));
+		// nodes outside of the initialized documents are handled without being cached
+		assertTrue(model.equalNodes(a1, other));
+		assertNotSame(model.childNodes(other), model.childNodes(other));
+	}
+	
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2011-2015 Volker Bergmann (volker.bergmann@bergmann-it.de).
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.databene.formats.xml.compare;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.databene.commons.ConfigurationError;
+import org.databene.commons.ParseException;
+import org.databene.formats.compare.DiffDetail;
+import org.databene.formats.compare.DiffDetailType;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+/**
+ * Tests the {@link StreamingXMLComparator}.
+ * Created: 18.10.2026 15:41:26
+ * @since 1.0.15
+ * @author Volker Bergmann
+ */
+
+public class StreamingXMLComparatorTest {
+
+	private static final String SIMPLE_XML_PATH = "org/databene/formats/xml/compare/simple.xml";
+
+	@Test
+	public void testIdentical() throws Exception {
+		assertTrue(new StreamingXMLComparator().compare(SIMPLE_XML_PATH, SIMPLE_XML_PATH).isEmpty());
+		String xml = "<root a='1'><!-- x --><list><item>1</item><item>2</item></list><?pi data?><![CDATA[<c>]]></root>";
+		assertTrue(compare(new StreamingXMLComparator(), xml, xml).isEmpty());
+	}
+
+	@Test
+	public void testText() {
+		List<DiffDetail> diffs = compare(new StreamingXMLComparator(), "<root><node>a&amp;b</node></root>", "<root><node>a&amp;c</node></root>");
+		assertEquals(1, diffs.size());
+		assertDiff(DiffDetailType.DIFFERENT, "/root/node/text()", "/root/node/text()", diffs.get(0));
+		assertEquals("a&b", diffs.get(0).getExpected());
+	}
+
+	@Test
+	public void testAttributes() {
+		List<DiffDetail> diffs = compare(new StreamingXMLComparator(), "<root a='1' b='2'/>", "<root b='3' c='4'/>");
+		assertEquals(3, diffs.size());
+		assertDiff(DiffDetailType.MISSING, "/root/@a", null, diffs.get(0));
+		assertDiff(DiffDetailType.DIFFERENT, "/root/@b", "/root/@b", diffs.get(1));
+		assertDiff(DiffDetailType.UNEXPECTED, null, "/root/@c", diffs.get(2));
+	}
+
+	@Test
+	public void testToleratedAttribute() {
+		XMLComparisonSettings settings = new XMLComparisonSettings();
+		settings.tolerateDifferentAt("//node/@att");
+		List<DiffDetail> diffs = compare(new StreamingXMLComparator(settings),
+				"<root><node att='1'>x</node></root>", "<root><node att='2'>x</node></root>");
+		assertTrue(diffs.isEmpty());
+	}
+
+	@Test
+	public void testInsertionInLongList() {
+		StringBuilder expected = new StringBuilder("<list>");
+		StringBuilder actual = new StringBuilder("<list><item>new</item>");
+		for (int i = 0; i < 1000; i++) {
+			expected.append("<item>").append(i).append("</item>");
+			actual.append("<item>").append(i).append("</item>");
+		}
+		expected.append("</list>");
+		actual.append("</list>");
+		// without key expression, the items correspond by position
+		List<DiffDetail> diffs = compare(new StreamingXMLComparator(), expected.toString(), actual.toString());
+		assertEquals(1001, diffs.size());
+		// with a key expression, the inserted element is found in the window
+		XMLComparisonSettings settings = new XMLComparisonSettings();
+		settings.addKeyExpression("//item", "text()");
+		diffs = compare(new StreamingXMLComparator(settings), expected.toString(), actual.toString());
+		assertEquals(1, diffs.size());
+		assertDiff(DiffDetailType.UNEXPECTED, null, "/list/item", diffs.get(0));
+		assertEquals("new", ((Element) diffs.get(0).getActual()).getTextContent());
+	}
+
+	@Test
+	public void testKeyedList() {
+		XMLComparisonSettings settings = new XMLComparisonSettings();
+		settings.addKeyExpression("//item", "@no");
+		List<DiffDetail> diffs = compare(new StreamingXMLComparator(settings),
+				"<list><item no='1'>alice</item><item no='2'>bob</item></list>",
+				"<list><item no='2'>bob</item><item no='1'>alice</item></list>");
+		assertEquals(2, diffs.size());
+		assertDiff(DiffDetailType.UNEXPECTED, null, "/list/item", diffs.get(0));
+		assertDiff(DiffDetailType.MISSING, "/list/item[2]", null, diffs.get(1));
+	}
+
+	@Test
+	public void testSubtreeDiffInWindow() {
+		XMLComparisonSettings settings = new XMLComparisonSettings();
+		settings.addKeyExpression("//item", "@no");
+		List<DiffDetail> diffs = compare(new StreamingXMLComparator(settings),
+				"<list><item no='1'><name>alice</name></item></list>",
+				"<list><item no='1'><name>bob</name></item></list>");
+		assertEquals(1, diffs.size());
+		assertDiff(DiffDetailType.DIFFERENT, "/list/item/name/text()", "/list/item/name/text()", diffs.get(0));
+	}
+
+	@Test
+	public void testNestedKeyExpression() {
+		// the groups are buffered for resolving the mismatch, the items are matched inside them by key
+		XMLComparisonSettings settings = new XMLComparisonSettings();
+		settings.addKeyExpression("/root/group/item", "@id");
+		List<DiffDetail> diffs = compare(new StreamingXMLComparator(settings),
+				"<root><group><item id='1'>alice</item><item id='2'>bob</item></group><x/></root>",
+				"<root><y/><group><item id='2'>bobby</item><item id='1'>carol</item></group></root>");
+		// without the keys, the items would correspond by position and differ in their ids
+		assertEquals(5, diffs.size());
+		assertDiff(DiffDetailType.UNEXPECTED, null, "/root/y", diffs.get(0));
+		assertDiff(DiffDetailType.MOVED, "/root/group/item[1]", "/root/group/item[2]", diffs.get(1));
+		assertDiff(DiffDetailType.DIFFERENT, "/root/group/item[1]/text()", "/root/group/item[2]/text()", diffs.get(2));
+		assertDiff(DiffDetailType.DIFFERENT, "/root/group/item[2]/text()", "/root/group/item[1]/text()", diffs.get(3));
+		assertDiff(DiffDetailType.MISSING, "/root/x", null, diffs.get(4));
+	}
+
+	@Test(expected = ConfigurationError.class)
+	public void testUnsupportedKeyLocator() {
+		XMLComparisonSettings settings = new XMLComparisonSettings();
+		settings.addKeyExpression("/root/group[2]/item", "@id");
+		compare(new StreamingXMLComparator(settings), "<root/>", "<root/>");
+	}
+
+	@Test
+	public void testSmallWindow() {
+		StreamingXMLComparator comparator = new StreamingXMLComparator();
+		comparator.setWindowSize(1);
+		List<DiffDetail> diffs = compare(comparator, "<root><a/><b/><c/></root>", "<root><x/><y/><a/><b/><c/></root>");
+		assertEquals(8, diffs.size()); // each element is reported as missing or unexpected
+		comparator.setWindowSize(3);
+		diffs = compare(comparator, "<root><a/><b/><c/></root>", "<root><x/><y/><a/><b/><c/></root>");
+		assertEquals(2, diffs.size());
+		assertDiff(DiffDetailType.UNEXPECTED, null, "/root/x", diffs.get(0));
+		assertDiff(DiffDetailType.UNEXPECTED, null, "/root/y", diffs.get(1));
+	}
+
+	@Test
+	public void testMissingTail() {
+		List<DiffDetail> diffs = compare(new StreamingXMLComparator(), "<root><a/><b>x</b></root>", "<root><a/></root>");
+		assertEquals(1, diffs.size());
+		assertDiff(DiffDetailType.MISSING, "/root/b", null, diffs.get(0));
+	}
+
+	@Test(expected = ParseException.class)
+	public void testIllegalXml() {
+		compare(new StreamingXMLComparator(), "<root><a></root>", "<root/>");
+	}
+
+
+	// private helpers -------------------------------------------------------------------------------------------------
+
+	private static List<DiffDetail> compare(StreamingXMLComparator comparator, String expected, String actual) {
+		List<DiffDetail> diffs = new ArrayList<DiffDetail>();
+		comparator.compare(stream(expected), stream(actual), diffs::add);
+		return diffs;
+	}
+
+	private static ByteArrayInputStream stream(String xml) {
+		return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void assertDiff(DiffDetailType type, String locatorOfExpected, String locatorOfActual, DiffDetail diff) {
+		assertEquals(type, diff.getType());
+		assertEquals(locatorOfExpected, diff.getLocatorOfExpected());
+		assertEquals(locatorOfActual, diff.getLocatorOfActual());
+	}
+
+}
@@ -15,14 +15,18 @@
 package org.databene.formats.xml.compare;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
 
+import org.databene.commons.SystemInfo;
 import org.databene.commons.converter.XMLNode2StringConverter;
 import org.databene.commons.xml.XMLUtil;
 import org.databene.commons.xml.XPathUtil;
 import org.databene.formats.compare.AggregateDiff;
+import org.databene.formats.compare.BoundedDiffCollector;
 import org.databene.formats.compare.DiffDetail;
 import org.databene.formats.compare.DiffFactory;
 import org.junit.Test;
@@ -385,6 +389,20 @@ public class XMLComparatorTest {
         assertEquals(expectedDiff, actualDiff);
     }
 
+    @Test
+    public void testDiff_listElementMovedOrdered() throws Exception {
+        Document expected = XMLUtil.parse(RESOURCE_PATH + "list_1_alice_2_bob.xml");
+        Element alice = XMLUtil.getChildElements(expected.getDocumentElement(), false, "item")[0];
+        Document actual = XMLUtil.parse(RESOURCE_PATH + "list_2_bob_1_alice.xml");
+        Element actualAlice = XMLUtil.getChildElements(actual.getDocumentElement(), false, "item")[1];
+        XMLComparisonSettings settings = new XMLComparisonSettings();
+        settings.setOrderedDiff(true);
+        AggregateDiff diff = new XMLComparator(settings).compare(expected, actual);
+        assertEquals(2, diff.getDetails().size());
+        assertEquals(diffFactory.missing(alice, "list element", "/list/item[1]"), diff.getDetails().get(0));
+        assertEquals(diffFactory.unexpected(actualAlice, "list element", "/list/item[2]"), diff.getDetails().get(1));
+    }
+
     @Test
     public void testDiff_listElementMovedTolerated() throws Exception {
         Document expected = XMLUtil.parse(RESOURCE_PATH + "list_1_alice_2_bob.xml");
@@ -441,6 +459,100 @@ public class XMLComparatorTest {
         assertTrue("Unexpected diff: " + diff, diff.isEmpty());
     }
     
+    @Test
+    public void testDiff_parallel() throws Exception {
+    	StringBuilder expectedXml = new StringBuilder("<root>");
+    	StringBuilder actualXml = new StringBuilder("<root>");
+    	for (int i = 0; i < 200; i++) {
+    		expectedXml.append("<group id='").append(i).append("'><item>a").append(i).append("</item><item>b</item></group>");
+    		actualXml.append("<group id='").append(i).append("'><item>a").append(i % 3 == 0 ? "x" : "").append(i).append("</item><item>b</item></group>");
+    	}
+    	expectedXml.append("</root>");
+    	actualXml.append("</root>");
+    	Document expected = XMLUtil.parseString(expectedXml.toString());
+    	Document actual = XMLUtil.parseString(actualXml.toString());
+    	XMLComparisonSettings settings = new XMLComparisonSettings();
+    	AggregateDiff sequentialDiff = new XMLComparator(settings).compare(expected, actual);
+    	assertEquals(67, sequentialDiff.getDetailCount());
+    	settings.setParallelism(4);
+    	AggregateDiff parallelDiff = new XMLComparator(settings).compare(expected, actual);
+    	assertEquals(sequentialDiff.getDetails(), parallelDiff.getDetails());
+    	assertEquals("/root/group[4]/item[1]/text()", parallelDiff.getDetail(1).getLocatorOfExpected());
+    }
+    
+    @Test
+    public void testDiff_sink() throws Exception {
+    	StringBuilder expectedXml = new StringBuilder("<root>");
+    	StringBuilder actualXml = new StringBuilder("<root>");
+    	for (int i = 0; i < 50; i++) {
+    		expectedXml.append("<item id='").append(i).append("'/>");
+    		actualXml.append("<item id='").append(i % 2 == 0 ? "x" : "").append(i).append("'/>");
+    	}
+    	expectedXml.append("</root>");
+    	actualXml.append("</root>");
+    	Document expected = XMLUtil.parseString(expectedXml.toString());
+    	Document actual = XMLUtil.parseString(actualXml.toString());
+    	BoundedDiffCollector collector = new BoundedDiffCollector(10);
+    	AggregateDiff diff = new XMLComparator().compare(expected, actual, collector);
+    	assertEquals(25, diff.getDetailCount());
+    	assertFalse(diff.isEmpty());
+    	assertTrue(diff.getDetails().isEmpty());
+    	assertEquals(25, collector.getTotalCount());
+    	assertEquals(10, collector.getDetails().size());
+    	assertEquals(Long.valueOf(25), collector.getLocatorCounts().get("/root/item/@id"));
+    	try {
+    		diff.getDetail(0);
+    		fail("IllegalStateException expected");
+    	} catch (IllegalStateException e) {
+    		// expected
+    	}
+    }
+    
+    @Test
+    public void testDiff_sinkWithParallelism() throws Exception {
+    	StringBuilder expectedXml = new StringBuilder("<root>");
+    	StringBuilder actualXml = new StringBuilder("<root>");
+    	for (int i = 0; i < 20; i++) {
+    		expectedXml.append("<group><item>").append(i).append("</item><item>a</item></group>");
+    		actualXml.append("<group><item>").append(i % 3 == 0 ? "x" : "").append(i).append("</item><item>b</item></group>");
+    	}
+    	expectedXml.append("</root>");
+    	actualXml.append("</root>");
+    	Document expected = XMLUtil.parseString(expectedXml.toString());
+    	Document actual = XMLUtil.parseString(actualXml.toString());
+    	XMLComparisonSettings settings = new XMLComparisonSettings();
+    	AggregateDiff sequentialDiff = new XMLComparator(settings).compare(expected, actual);
+    	settings.setParallelism(4);
+    	BoundedDiffCollector collector = new BoundedDiffCollector(5);
+    	AggregateDiff diff = new XMLComparator(settings).compare(expected, actual, collector);
+    	assertEquals(sequentialDiff.getDetailCount(), diff.getDetailCount());
+    	assertEquals(sequentialDiff.getDetailCount(), collector.getTotalCount());
+    	assertEquals(sequentialDiff.getDetails().subList(0, 5), collector.getDetails());
+    }
+    
+    @Test
+    public void testAssertEquals_limitedMessage() throws Exception {
+    	StringBuilder expectedXml = new StringBuilder("<root>");
+    	StringBuilder actualXml = new StringBuilder("<root>");
+    	for (int i = 0; i < 15; i++) {
+    		expectedXml.append("<item id='").append(i).append("'/>");
+    		actualXml.append("<item id='x").append(i).append("'/>");
+    	}
+    	expectedXml.append("</root>");
+    	actualXml.append("</root>");
+    	XMLComparisonSettings settings = new XMLComparisonSettings();
+    	settings.setMaxValueLength(20);
+    	try {
+    		new XMLComparator(settings).assertEquals(XMLUtil.parseString(expectedXml.toString()), XMLUtil.parseString(actualXml.toString()));
+    		fail("AssertionError expected");
+    	} catch (AssertionError e) {
+    		String[] lines = e.getMessage().split(SystemInfo.getLineSeparator());
+    		assertEquals("Documents do not match. Found 15 differences", lines[0]);
+    		assertEquals(XMLComparator.MAX_REPORTED_DIFFS + 2, lines.length);
+    		assertEquals("... and 5 more", lines[lines.length - 1]);
+    	}
+    }
+    
     @Test
     public void testEntityInclusion() throws Exception { // TODO implement tests
     	Document doc = XMLUtil.parse(RESOURCE_PATH + "container.xml");